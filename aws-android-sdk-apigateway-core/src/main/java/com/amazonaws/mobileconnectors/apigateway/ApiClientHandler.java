@@ -45,9 +45,14 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Invocation handler responsible for serializing a request and deserializing a
@@ -65,7 +70,7 @@ class ApiClientHandler implements InvocationHandler {
     private static final int HTTP_RESPONSE_OK = 200;
     private static final int HTTP_RESPONSE_LAST_SUCCESS_STATUSCODE = 300;
 
-    private final String endpoint;
+    private final URI endpoint;
     private final String apiName;
     private final Signer signer;
 
@@ -79,10 +84,14 @@ class ApiClientHandler implements InvocationHandler {
     private final HttpRequestFactory requestFactory;
     private final ClientConfiguration clientConfiguration;
 
+    // Invocation plans of the interface methods, built on first use
+    private final ConcurrentMap<Method, InvocationPlan> plans =
+            new ConcurrentHashMap<Method, InvocationPlan>();
+
     ApiClientHandler(String endpoint, String apiName,
             Signer signer, AWSCredentialsProvider provider, String apiKey,
             ClientConfiguration clientConfiguration) {
-        this.endpoint = endpoint;
+        this.endpoint = URI.create(endpoint);
         this.apiName = apiName;
         this.signer = signer;
         this.provider = provider;
@@ -98,17 +107,18 @@ class ApiClientHandler implements InvocationHandler {
             throws Throwable {
 
         try {
+            final InvocationPlan plan = getInvocationPlan(method);
             // the execute method call flow
-            if (isExecuteMethod(method)) {
+            if (plan.isExecute) {
                 final HttpRequest httpRequest = invokeExecuteMethod(args);
                 final HttpResponse response = client.execute(httpRequest);
 
                 return new ApiResponse(response);
             } else {
-                final HttpRequest httpRequest = createHttpRequest(method, args);
+                final HttpRequest httpRequest = createHttpRequest(plan, args);
                 final HttpResponse response = client.execute(httpRequest);
 
-                return handleResponse(response, method);
+                return handleResponse(response, plan.returnType);
             }
 
         } catch (final ApiClientException ace) {
@@ -127,7 +137,11 @@ class ApiClientHandler implements InvocationHandler {
      * @return a {@link HttpRequest} object
      */
     HttpRequest createHttpRequest(Method method, Object[] args) {
-        final Request<?> request = buildRequest(method, args);
+        return createHttpRequest(getInvocationPlan(method), args);
+    }
+
+    private HttpRequest createHttpRequest(InvocationPlan plan, Object[] args) {
+        final Request<?> request = buildRequest(plan, args);
 
         final ExecutionContext context = new ExecutionContext();
         String userAgent = apiName;
@@ -147,38 +161,34 @@ class ApiClientHandler implements InvocationHandler {
      * @return a {@link Request} object
      */
     Request<?> buildRequest(Method method, Object[] args) {
-        final Operation op = method.getAnnotation(Operation.class);
-        if (op == null) {
+        return buildRequest(getInvocationPlan(method), args);
+    }
+
+    private Request<?> buildRequest(InvocationPlan plan, Object[] args) {
+        if (plan.isExecute) {
             throw new IllegalArgumentException("Method isn't annotated with Operation");
         }
 
         final Request<?> request = new DefaultRequest<Object>(apiName);
-        request.setResourcePath(op.path());
-        request.setEndpoint(URI.create(endpoint));
+        request.setEndpoint(endpoint);
 
-        String content = null;
-        final Annotation[][] annotations = method.getParameterAnnotations();
-        final int length = annotations.length;
+        final Parameter[] parameters = plan.parameters;
+        final int length = parameters.length;
         for (int i = 0; i < length; i++) {
-            // content body
-            if (annotations[i].length == 0) {
-                if (content != null) {
-                    throw new IllegalStateException("Can't have more than one Body");
-                }
-                content = args[i] == null ? null : GSON_WITH_DATE_FORMATTER.toJson(args[i]);
-                continue;
-            }
-
-            for (final Annotation annotation : annotations[i]) {
-                if (annotation instanceof Parameter) {
-                    processParameter(request, (Parameter) annotation, args[i]);
-                    break;
-                }
+            if (parameters[i] != null && !"path".equals(parameters[i].location())) {
+                processParameter(request, parameters[i], args[i]);
             }
         }
+        request.setResourcePath(plan.expandPath(args));
 
+        final String content = (plan.bodyIndex < 0 || args[plan.bodyIndex] == null)
+                ? null : GSON_WITH_DATE_FORMATTER.toJson(args[plan.bodyIndex]);
         final boolean hasContent = content != null;
-        setHttpMethod(request, op.method(), hasContent);
+        if (plan.httpMethodName != null) {
+            request.setHttpMethod(plan.httpMethodName);
+        } else {
+            setHttpMethod(request, plan.httpMethod, hasContent);
+        }
 
         if (hasContent) {
             final byte[] contentBytes = content.getBytes(StringUtils.UTF8);
@@ -202,7 +212,8 @@ class ApiClientHandler implements InvocationHandler {
     }
 
     /**
-     * Process an argument annotated with {@link Parameter}.
+     * Process a header or query argument annotated with {@link Parameter}.
+     * Path arguments are filled in by {@link InvocationPlan#expandPath}.
      *
      * @param request request to be set
      * @param p annotation
@@ -218,18 +229,14 @@ class ApiClientHandler implements InvocationHandler {
 
         if ("header".equals(location)) {
             request.addHeader(name, String.valueOf(arg));
-        } else if ("path".equals(location)) {
-            String path = request.getResourcePath();
-            path = path.replaceAll("\\{" + name + "\\}", String.valueOf(arg));
-            request.setResourcePath(path);
         } else if ("query".equals(location)) {
-            if (Map.class.isAssignableFrom(arg.getClass())) {
+            if (arg instanceof Map) {
                 @SuppressWarnings("unchecked")
                 final Map<String, Object> map = (Map<String, Object>) arg;
                 for (final Map.Entry<String, Object> entry : map.entrySet()) {
                     request.addParameter(entry.getKey(), String.valueOf(entry.getValue()));
                 }
-            } else if (Collection.class.isAssignableFrom(arg.getClass())) {
+            } else if (arg instanceof Collection) {
                 request.addParameter(name, joinList((Collection<?>) arg));
             } else {
                 request.addParameter(name, String.valueOf(arg));
@@ -249,9 +256,10 @@ class ApiClientHandler implements InvocationHandler {
      * @param hasContent indicate whether the request has content body
      */
     void setHttpMethod(Request<?> request, String httpMethod, boolean hasContent) {
-        try {
-            request.setHttpMethod(HttpMethodName.valueOf(httpMethod));
-        } catch (final IllegalArgumentException iae) {
+        final HttpMethodName methodName = toHttpMethodName(httpMethod);
+        if (methodName != null) {
+            request.setHttpMethod(methodName);
+        } else {
             // if an HTTP method is unsupported, then 'tunnel' it through
             // another method by setting the intended method in the
             // X-HTTP-Method-Override header.
@@ -266,16 +274,15 @@ class ApiClientHandler implements InvocationHandler {
      * Converts response to method's declared returned object
      *
      * @param response http response
-     * @param method method
+     * @param t method's declared return type
      * @return object of method's declared returned type
      * @throws Throwable
      */
-    Object handleResponse(HttpResponse response, Method method) throws Throwable {
+    Object handleResponse(HttpResponse response, Type t) throws Throwable {
         final int code = response.getStatusCode();
         final InputStream content = response.getContent();
         // successful request if code is 2xx
         if (code >= HTTP_RESPONSE_OK && code < HTTP_RESPONSE_LAST_SUCCESS_STATUSCODE) {
-            final Type t = method.getReturnType();
             if (t != void.class && content != null) {
                 final Reader reader = new InputStreamReader(response.getContent(),
                         StringUtils.UTF8);
@@ -315,7 +322,7 @@ class ApiClientHandler implements InvocationHandler {
 
         final Request<?> request = ((ApiRequest) args[0]).getRequest();
         if (request.getEndpoint() == null) {
-            request.setEndpoint(URI.create(endpoint));
+            request.setEndpoint(endpoint);
         }
 
         String userAgent = apiName;
@@ -358,4 +365,162 @@ class ApiClientHandler implements InvocationHandler {
     void setClient(HttpClient client) {
         this.client = client;
     }
+
+    private static HttpMethodName toHttpMethodName(String httpMethod) {
+        try {
+            return HttpMethodName.valueOf(httpMethod);
+        } catch (final IllegalArgumentException iae) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the invocation plan of a method, reading its annotations the
+     * first time the method is invoked.
+     *
+     * @param method method of the client interface
+     * @return the invocation plan
+     */
+    InvocationPlan getInvocationPlan(Method method) {
+        InvocationPlan plan = plans.get(method);
+        if (plan == null) {
+            plan = new InvocationPlan(method, isExecuteMethod(method));
+            final InvocationPlan existing = plans.putIfAbsent(method, plan);
+            if (existing != null) {
+                plan = existing;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * What the {@link Operation} and {@link Parameter} annotations of a method
+     * resolve to, so that calls don't have to read them again.
+     */
+    static final class InvocationPlan {
+        final boolean isExecute;
+        final String httpMethod;
+        // null if the method has to be tunneled
+        final HttpMethodName httpMethodName;
+        final Type returnType;
+        // Parameter annotation of each argument, null for the body and for
+        // arguments without one
+        final Parameter[] parameters;
+        // index of the body argument, -1 if there is none
+        final int bodyIndex;
+        // literal parts of the path; pathArguments holds the argument indexes
+        // whose values may fill the placeholder following each part
+        private final String[] pathParts;
+        private final int[][] pathArguments;
+
+        InvocationPlan(Method method, boolean isExecute) {
+            this.isExecute = isExecute;
+            this.returnType = method.getReturnType();
+            final Operation op = method.getAnnotation(Operation.class);
+            if (op == null) {
+                if (!isExecute) {
+                    throw new IllegalArgumentException("Method isn't annotated with Operation");
+                }
+                httpMethod = null;
+                httpMethodName = null;
+                parameters = new Parameter[0];
+                bodyIndex = -1;
+                pathParts = new String[] {
+                    ""
+                };
+                pathArguments = new int[0][];
+                return;
+            }
+            httpMethod = op.method();
+            httpMethodName = toHttpMethodName(httpMethod);
+
+            final Annotation[][] annotations = method.getParameterAnnotations();
+            parameters = new Parameter[annotations.length];
+            int body = -1;
+            final Map<String, List<Integer>> pathParameters = new HashMap<String, List<Integer>>();
+            for (int i = 0; i < annotations.length; i++) {
+                // content body
+                if (annotations[i].length == 0) {
+                    if (body >= 0) {
+                        throw new IllegalStateException("Can't have more than one Body");
+                    }
+                    body = i;
+                    continue;
+                }
+
+                for (final Annotation annotation : annotations[i]) {
+                    if (annotation instanceof Parameter) {
+                        final Parameter p = (Parameter) annotation;
+                        parameters[i] = p;
+                        if ("path".equals(p.location())) {
+                            List<Integer> indexes = pathParameters.get(p.name());
+                            if (indexes == null) {
+                                indexes = new ArrayList<Integer>();
+                                pathParameters.put(p.name(), indexes);
+                            }
+                            indexes.add(i);
+                        }
+                        break;
+                    }
+                }
+            }
+            bodyIndex = body;
+
+            // split the path template at the placeholders of path parameters
+            final String path = op.path();
+            final List<String> parts = new ArrayList<String>();
+            final List<int[]> arguments = new ArrayList<int[]>();
+            int partStart = 0;
+            int open = path.indexOf('{');
+            while (open >= 0) {
+                final int close = path.indexOf('}', open + 1);
+                if (close < 0) {
+                    break;
+                }
+                final List<Integer> indexes = pathParameters.get(path.substring(open + 1, close));
+                if (indexes != null) {
+                    parts.add(path.substring(partStart, open));
+                    final int[] candidates = new int[indexes.size()];
+                    for (int j = 0; j < candidates.length; j++) {
+                        candidates[j] = indexes.get(j);
+                    }
+                    arguments.add(candidates);
+                    partStart = close + 1;
+                }
+                open = path.indexOf('{', indexes != null ? close + 1 : open + 1);
+            }
+            parts.add(path.substring(partStart));
+            pathParts = parts.toArray(new String[parts.size()]);
+            pathArguments = arguments.toArray(new int[arguments.size()][]);
+        }
+
+        /**
+         * Fills the path template with the path arguments. A placeholder takes
+         * the value of the first non-null argument bound to it, and is left
+         * as is when there is none.
+         */
+        String expandPath(Object[] args) {
+            if (pathArguments.length == 0) {
+                return pathParts[0];
+            }
+            final StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < pathArguments.length; i++) {
+                sb.append(pathParts[i]);
+                Object value = null;
+                for (final int index : pathArguments[i]) {
+                    if (args[index] != null) {
+                        value = args[index];
+                        break;
+                    }
+                }
+                if (value != null) {
+                    sb.append(String.valueOf(value));
+                } else {
+                    sb.append('{').append(parameters[pathArguments[i][0]].name()).append('}');
+                }
+            }
+            sb.append(pathParts[pathArguments.length]);
+            return sb.toString();
+        }
+    }
 }
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.apigateway;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.Request;
+import com.amazonaws.http.HttpMethodName;
+import com.amazonaws.mobileconnectors.apigateway.annotation.Operation;
+import com.amazonaws.mobileconnectors.apigateway.annotation.Parameter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ApiClientHandlerTest {
+
+    static class Pet {
+        String name = "rex";
+    }
+
+    interface PetStore {
+        @Operation(path = "/pets/{petId}/toys/{toyId}", method = "GET")
+        Pet getToy(@Parameter(name = "petId", location = "path") String petId,
+                @Parameter(name = "toyId", location = "path") Integer toyId);
+
+        @Operation(path = "/pets/{petId}", method = "PUT")
+        void putPet(@Parameter(name = "petId", location = "path") String petId,
+                @Parameter(name = "x-trace", location = "header") String trace,
+                Pet body);
+
+        @Operation(path = "/pets", method = "GET")
+        Pet[] listPets(@Parameter(name = "type", location = "query") String type,
+                @Parameter(name = "ids", location = "query") List<Integer> ids,
+                @Parameter(name = "filter", location = "query") Map<String, Object> filter);
+
+        @Operation(path = "/pets/{petId}/{unknown}", method = "GET")
+        Pet unboundPlaceholder(@Parameter(name = "petId", location = "path") String petId);
+
+        @Operation(path = "/pets/{id}", method = "GET")
+        Pet aliasedPathParameter(@Parameter(name = "id", location = "path") String first,
+                @Parameter(name = "id", location = "path") String second);
+
+        @Operation(path = "/pets/{petId}", method = "MERGE")
+        Pet mergePet(@Parameter(name = "petId", location = "path") String petId, Pet body);
+
+        ApiResponse execute(ApiRequest request);
+    }
+
+    private ApiClientHandler handler;
+
+    @Before
+    public void setup() {
+        handler = new ApiClientHandler("https://example.com/prod", "PetStore", null, null,
+                null, new ClientConfiguration());
+    }
+
+    @Test
+    public void planIsBuiltOnceAndReused() throws Exception {
+        final Method method = method("getToy");
+        final ApiClientHandler.InvocationPlan plan = handler.getInvocationPlan(method);
+        assertSame(plan, handler.getInvocationPlan(method));
+        assertFalse(plan.isExecute);
+        assertEquals(HttpMethodName.GET, plan.httpMethodName);
+        assertEquals(Pet.class, plan.returnType);
+        assertEquals(-1, plan.bodyIndex);
+    }
+
+    @Test
+    public void planRecordsBodyAndParameterBindings() throws Exception {
+        final ApiClientHandler.InvocationPlan plan = handler.getInvocationPlan(method("putPet"));
+        assertEquals(2, plan.bodyIndex);
+        assertEquals("path", plan.parameters[0].location());
+        assertEquals("header", plan.parameters[1].location());
+        assertNull(plan.parameters[2]);
+        assertEquals(void.class, plan.returnType);
+    }
+
+    @Test
+    public void executeMethodHasAnEmptyPlan() throws Exception {
+        final Method execute = PetStore.class.getMethod("execute", ApiRequest.class);
+        final ApiClientHandler.InvocationPlan plan = handler.getInvocationPlan(execute);
+        assertTrue(plan.isExecute);
+        assertEquals(0, plan.parameters.length);
+        assertEquals("", plan.expandPath(new Object[] {
+            null
+        }));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void methodWithoutOperationIsRejected() throws Exception {
+        handler.getInvocationPlan(Object.class.getMethod("toString"));
+    }
+
+    @Test
+    public void expandPathFillsEveryPlaceholder() throws Exception {
+        final ApiClientHandler.InvocationPlan plan = handler.getInvocationPlan(method("getToy"));
+        assertEquals("/pets/42/toys/7", plan.expandPath(new Object[] {
+                "42", 7
+        }));
+    }
+
+    @Test
+    public void expandPathSubstitutesValuesLiterally() throws Exception {
+        final ApiClientHandler.InvocationPlan plan = handler.getInvocationPlan(method("getToy"));
+        assertEquals("/pets/a$1\\b/toys/{x}", plan.expandPath(new Object[] {
+                "a$1\\b", "{x}"
+        }));
+    }
+
+    @Test
+    public void expandPathKeepsPlaceholderOfNullArgument() throws Exception {
+        final ApiClientHandler.InvocationPlan plan = handler.getInvocationPlan(method("getToy"));
+        assertEquals("/pets/42/toys/{toyId}", plan.expandPath(new Object[] {
+                "42", null
+        }));
+    }
+
+    @Test
+    public void expandPathKeepsUnboundPlaceholder() throws Exception {
+        final ApiClientHandler.InvocationPlan plan =
+                handler.getInvocationPlan(method("unboundPlaceholder"));
+        assertEquals("/pets/42/{unknown}", plan.expandPath(new Object[] {
+            "42"
+        }));
+    }
+
+    @Test
+    public void expandPathTakesFirstNonNullAliasedArgument() throws Exception {
+        final ApiClientHandler.InvocationPlan plan =
+                handler.getInvocationPlan(method("aliasedPathParameter"));
+        assertEquals("/pets/b", plan.expandPath(new Object[] {
+                null, "b"
+        }));
+        assertEquals("/pets/a", plan.expandPath(new Object[] {
+                "a", "b"
+        }));
+    }
+
+    @Test
+    public void buildRequestExpandsPathAndSetsHeadersAndBody() throws Exception {
+        final Request<?> request = handler.buildRequest(method("putPet"), new Object[] {
+                "42", "trace-1", new Pet()
+        });
+        assertEquals("/pets/42", request.getResourcePath());
+        assertEquals(HttpMethodName.PUT, request.getHttpMethod());
+        assertEquals("trace-1", request.getHeaders().get("x-trace"));
+        assertEquals("{\"name\":\"rex\"}".length(),
+                Integer.parseInt(request.getHeaders().get("Content-Length")));
+        assertTrue(request.getParameters().isEmpty());
+    }
+
+    @Test
+    public void buildRequestExpandsQueryParameters() throws Exception {
+        final Map<String, Object> filter = new LinkedHashMap<String, Object>();
+        filter.put("color", "brown");
+        filter.put("age", 3);
+        final Request<?> request = handler.buildRequest(method("listPets"), new Object[] {
+                "dog", Arrays.asList(1, 2, 3), filter
+        });
+        assertEquals("/pets", request.getResourcePath());
+        assertEquals("dog", request.getParameters().get("type"));
+        assertEquals("1,2,3", request.getParameters().get("ids"));
+        assertEquals("brown", request.getParameters().get("color"));
+        assertEquals("3", request.getParameters().get("age"));
+    }
+
+    @Test
+    public void buildRequestSkipsNullQueryParameters() throws Exception {
+        final Request<?> request = handler.buildRequest(method("listPets"), new Object[] {
+                null, null, null
+        });
+        assertTrue(request.getParameters().isEmpty());
+    }
+
+    @Test
+    public void unsupportedMethodIsTunneled() throws Exception {
+        final Request<?> request = handler.buildRequest(method("mergePet"), new Object[] {
+                "42", new Pet()
+        });
+        assertEquals("/pets/42", request.getResourcePath());
+        assertEquals(HttpMethodName.POST, request.getHttpMethod());
+        assertEquals("MERGE", request.getHeaders().get("X-HTTP-Method-Override"));
+    }
+
+    private static Method method(String name) {
+        for (final Method method : PetStore.class.getMethods()) {
+            if (method.getName().equals(name)) {
+                return method;
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+}
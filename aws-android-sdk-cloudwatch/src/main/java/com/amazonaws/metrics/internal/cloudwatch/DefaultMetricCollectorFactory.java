@@ -0,0 +1,57 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.metrics.internal.cloudwatch;
+
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+import com.amazonaws.metrics.AwsSdkMetrics;
+import com.amazonaws.metrics.MetricCollector;
+import com.amazonaws.mobileconnectors.cloudwatch.AggregatingMetricCollector;
+import com.amazonaws.mobileconnectors.cloudwatch.MetricAggregator;
+import com.amazonaws.regions.Region;
+import com.amazonaws.regions.Regions;
+import com.amazonaws.services.cloudwatch.AmazonCloudWatchClient;
+
+/**
+ * The default metric collector factory looked up by
+ * {@link AwsSdkMetrics#enableDefaultMetrics()}. It creates an
+ * {@link AggregatingMetricCollector} sending to the namespace, region and
+ * credentials set on {@link AwsSdkMetrics}.
+ */
+public class DefaultMetricCollectorFactory implements MetricCollector.Factory {
+
+    private static final Log LOGGER = LogFactory.getLog(DefaultMetricCollectorFactory.class);
+
+    @Override
+    public MetricCollector getInstance() {
+        final AWSCredentialsProvider credentialsProvider = AwsSdkMetrics.getCredentialProvider();
+        if (credentialsProvider == null) {
+            LOGGER.warn("No credentials set with AwsSdkMetrics.setCredentialProvider,"
+                    + " unable to enable the default metrics");
+            return null;
+        }
+        final AmazonCloudWatchClient client = new AmazonCloudWatchClient(credentialsProvider);
+        final Regions region = AwsSdkMetrics.getRegion();
+        if (region != null) {
+            client.setRegion(Region.getRegion(region));
+        }
+        final AggregatingMetricCollector collector = new AggregatingMetricCollector(
+                new MetricAggregator(client, AwsSdkMetrics.getMetricNameSpace()));
+        collector.start();
+        return collector;
+    }
+}
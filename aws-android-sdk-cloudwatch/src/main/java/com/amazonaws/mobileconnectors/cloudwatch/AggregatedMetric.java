@@ -0,0 +1,157 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cloudwatch;
+
+import com.amazonaws.services.cloudwatch.model.Dimension;
+import com.amazonaws.services.cloudwatch.model.StandardUnit;
+import com.amazonaws.services.cloudwatch.model.StatisticSet;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A metric of a {@link MetricAggregator}: the samples recorded between two
+ * flushes are sent as a single statistic set of their count, sum, minimum and
+ * maximum.
+ * <p>
+ * Recording is lock-free and spread over stripes picked by thread, each on
+ * its own cache line, so that threads recording the same metric don't
+ * contend. Each stripe holds an immutable {@link Statistics} that a sample
+ * replaces with a compare-and-set, and a flush swaps every stripe for an
+ * empty one, so a sample is drained with all of its values or none of them.
+ * </p>
+ */
+public final class AggregatedMetric {
+
+    /** Stripes per metric, a power of two. */
+    private static final int STRIPES = stripeCount();
+    /**
+     * Slots between two stripes, so that each stripe's reference sits on its
+     * own 64 byte cache line.
+     */
+    private static final int STRIPE_SPACING = 16;
+
+    /** The statistics of the samples recorded on a stripe. */
+    private static final class Statistics {
+        private final long count;
+        private final double sum;
+        private final double min;
+        private final double max;
+
+        Statistics(long count, double sum, double min, double max) {
+            this.count = count;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+        }
+
+        Statistics add(double value) {
+            return new Statistics(count + 1, sum + value, Math.min(min, value),
+                    Math.max(max, value));
+        }
+
+        Statistics merge(Statistics other) {
+            return new Statistics(count + other.count, sum + other.sum,
+                    Math.min(min, other.min), Math.max(max, other.max));
+        }
+    }
+
+    private final MetricAggregator.MetricKey key;
+    /** Statistics of each stripe, null while the stripe has no samples. */
+    private final AtomicReferenceArray<Statistics> stripes =
+            new AtomicReferenceArray<Statistics>(STRIPES * STRIPE_SPACING);
+
+    AggregatedMetric(MetricAggregator.MetricKey key) {
+        this.key = key;
+    }
+
+    /**
+     * @return the name of the metric.
+     */
+    public String getMetricName() {
+        return key.getMetricName();
+    }
+
+    /**
+     * @return the unit of the metric.
+     */
+    public StandardUnit getUnit() {
+        return key.getUnit();
+    }
+
+    /**
+     * @return the dimensions of the metric.
+     */
+    public List<Dimension> getDimensions() {
+        return key.getDimensions();
+    }
+
+    /**
+     * Records a sample, to be sent with the next flush.
+     *
+     * @param value the value of the sample.
+     */
+    public void record(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("Invalid metric value: " + value);
+        }
+        final int index = stripe() * STRIPE_SPACING;
+        Statistics current;
+        Statistics updated;
+        do {
+            current = stripes.get(index);
+            updated = current == null ? new Statistics(1, value, value, value)
+                    : current.add(value);
+        } while (!stripes.compareAndSet(index, current, updated));
+    }
+
+    /**
+     * Folds the stripes together and resets them.
+     *
+     * @return the samples recorded since the last drain, or null if none.
+     */
+    StatisticSet drain() {
+        Statistics total = null;
+        for (int i = 0; i < STRIPES; i++) {
+            final Statistics statistics = stripes.getAndSet(i * STRIPE_SPACING, null);
+            if (statistics != null) {
+                total = total == null ? statistics : total.merge(statistics);
+            }
+        }
+        if (total == null) {
+            return null;
+        }
+        return new StatisticSet()
+                .withSampleCount((double) total.count)
+                .withSum(total.sum)
+                .withMinimum(total.min)
+                .withMaximum(total.max);
+    }
+
+    private static int stripe() {
+        final long id = Thread.currentThread().getId();
+        return (int) (id ^ (id >>> 32)) & (STRIPES - 1);
+    }
+
+    private static int stripeCount() {
+        final int processors = Runtime.getRuntime().availableProcessors();
+        int stripes = 1;
+        while (stripes < processors * 2 && stripes < 64) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cloudwatch;
+
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+import com.amazonaws.metrics.AwsSdkMetrics;
+import com.amazonaws.metrics.ByteThroughputProvider;
+import com.amazonaws.metrics.MetricCollector;
+import com.amazonaws.metrics.MetricType;
+import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.metrics.ServiceLatencyProvider;
+import com.amazonaws.metrics.ServiceMetricCollector;
+import com.amazonaws.metrics.ServiceMetricType;
+import com.amazonaws.metrics.ThroughputMetricType;
+import com.amazonaws.services.cloudwatch.model.Dimension;
+import com.amazonaws.services.cloudwatch.model.StandardUnit;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.TimingInfo;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An AWS SDK metric collector that aggregates the predefined metrics of
+ * {@link AwsSdkMetrics} with a {@link MetricAggregator}, so that they reach
+ * CloudWatch as one statistic set per metric and flush interval rather than
+ * one datum per request.
+ * <p>
+ * Request metrics are named after their {@link Field} and have the dimensions
+ * ServiceName and RequestType, the simple class name of the request. Latency
+ * and throughput metrics have the dimension ServiceName. Set the collector
+ * with {@link AwsSdkMetrics#setMetricCollector(MetricCollector)}, or have
+ * {@link AwsSdkMetrics#enableDefaultMetrics()} create one. Stopping the
+ * collector shuts its aggregator down.
+ * </p>
+ */
+public class AggregatingMetricCollector extends MetricCollector {
+
+    private static final Log LOGGER = LogFactory.getLog(AggregatingMetricCollector.class);
+
+    private static final String SERVICE_NAME_DIMENSION = "ServiceName";
+    private static final String REQUEST_TYPE_DIMENSION = "RequestType";
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final MetricAggregator aggregator;
+    private volatile boolean enabled;
+
+    private final RequestMetricCollector requestMetricCollector = new RequestMetricCollector() {
+        @Override
+        public void collectMetrics(Request<?> request, Response<?> response) {
+            collectRequestMetrics(request);
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return enabled;
+        }
+    };
+
+    private final ServiceMetricCollector serviceMetricCollector = new ServiceMetricCollector() {
+        @Override
+        public void collectByteThroughput(ByteThroughputProvider provider) {
+            collectThroughput(provider);
+        }
+
+        @Override
+        public void collectLatency(ServiceLatencyProvider provider) {
+            final ServiceMetricType type = provider.getServiceMetricType();
+            if (enabled && isPredefined(type)) {
+                record(type.name(), StandardUnit.Milliseconds, provider.getDurationMilli(),
+                        new Dimension().withName(SERVICE_NAME_DIMENSION)
+                                .withValue(type.getServiceName()));
+            }
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return enabled;
+        }
+    };
+
+    /**
+     * Constructs a new collector.
+     *
+     * @param aggregator the aggregator of the metrics.
+     */
+    public AggregatingMetricCollector(MetricAggregator aggregator) {
+        if (aggregator == null) {
+            throw new IllegalArgumentException("aggregator can't be null");
+        }
+        this.aggregator = aggregator;
+    }
+
+    /**
+     * @return the aggregator of the metrics.
+     */
+    public MetricAggregator getAggregator() {
+        return aggregator;
+    }
+
+    @Override
+    public boolean start() {
+        enabled = true;
+        return true;
+    }
+
+    @Override
+    public synchronized boolean stop() {
+        if (!enabled) {
+            return false;
+        }
+        enabled = false;
+        aggregator.shutdown();
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public RequestMetricCollector getRequestMetricCollector() {
+        return requestMetricCollector;
+    }
+
+    @Override
+    public ServiceMetricCollector getServiceMetricCollector() {
+        return serviceMetricCollector;
+    }
+
+    private void collectRequestMetrics(Request<?> request) {
+        final AWSRequestMetrics metrics = request.getAWSRequestMetrics();
+        if (!enabled || metrics == null || !metrics.isEnabled()) {
+            return;
+        }
+        final TimingInfo timingInfo = metrics.getTimingInfo();
+        final Dimension serviceName = new Dimension().withName(SERVICE_NAME_DIMENSION)
+                .withValue(request.getServiceName());
+        final Dimension requestType = new Dimension().withName(REQUEST_TYPE_DIMENSION)
+                .withValue(request.getOriginalRequest() == null ? "Unknown"
+                        : request.getOriginalRequest().getClass().getSimpleName());
+
+        for (final MetricType type : AwsSdkMetrics.getPredefinedMetrics()) {
+            if (!(type instanceof Field)) {
+                continue;
+            }
+            final Field field = (Field) type;
+            if (field == Field.ClientExecuteTime) {
+                final Double millis = timingInfo.getTimeTakenMillisIfKnown();
+                if (millis != null) {
+                    record(field.name(), StandardUnit.Milliseconds, millis, serviceName,
+                            requestType);
+                }
+            } else if (field == Field.RetryCount) {
+                // captured via the RequestCount
+                final Number requests = timingInfo.getCounter(Field.RequestCount.name());
+                if (requests != null) {
+                    record(field.name(), StandardUnit.Count,
+                            Math.max(0, requests.longValue() - 1), serviceName, requestType);
+                }
+            } else {
+                final List<TimingInfo> timings =
+                        timingInfo.getAllSubMeasurements(field.name());
+                if (timings != null) {
+                    for (final TimingInfo timing : timings) {
+                        final Double millis = timing.getTimeTakenMillisIfKnown();
+                        if (millis != null) {
+                            record(field.name(), StandardUnit.Milliseconds, millis,
+                                    serviceName, requestType);
+                        }
+                    }
+                    continue;
+                }
+                final Number counter = timingInfo.getCounter(field.name());
+                if (counter != null) {
+                    record(field.name(), StandardUnit.Count, counter.doubleValue(),
+                            serviceName, requestType);
+                }
+            }
+        }
+    }
+
+    private void collectThroughput(ByteThroughputProvider provider) {
+        final ThroughputMetricType type = provider.getThroughputMetricType();
+        if (!enabled || !isPredefined(type)) {
+            return;
+        }
+        final Dimension serviceName = new Dimension().withName(SERVICE_NAME_DIMENSION)
+                .withValue(type.getServiceName());
+        final long durationNano = provider.getDurationNano();
+        if (durationNano > 0) {
+            record(type.name(), StandardUnit.BytesSecond,
+                    provider.getByteCount() * NANOS_PER_SECOND / durationNano, serviceName);
+        }
+        record(type.getByteCountMetricType().name(), StandardUnit.Bytes,
+                provider.getByteCount(), serviceName);
+    }
+
+    private static boolean isPredefined(MetricType type) {
+        return AwsSdkMetrics.getPredefinedMetrics().contains(type);
+    }
+
+    private void record(String metricName, StandardUnit unit, double value,
+            Dimension... dimensions) {
+        try {
+            aggregator.record(metricName, unit, value, dimensions);
+        } catch (final IllegalStateException e) {
+            // too many metrics; don't fail the request
+            LOGGER.debug("Dropping metric " + metricName, e);
+        }
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cloudwatch;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+import com.amazonaws.services.cloudwatch.AmazonCloudWatch;
+import com.amazonaws.services.cloudwatch.model.Dimension;
+import com.amazonaws.services.cloudwatch.model.MetricDatum;
+import com.amazonaws.services.cloudwatch.model.PutMetricDataRequest;
+import com.amazonaws.services.cloudwatch.model.StandardUnit;
+import com.amazonaws.services.cloudwatch.model.StatisticSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The MetricAggregator publishes custom metrics to Amazon CloudWatch without
+ * a PutMetricData call per sample.
+ * <p>
+ * Samples are recorded in memory on {@link AggregatedMetric}s, one per metric
+ * name, unit and dimensions, and are sent by a background thread once per
+ * flush interval: each metric with samples becomes a single datum holding the
+ * statistic set of the interval, and the datums are sent 20 to a call.
+ * Metrics without samples in an interval are not sent.
+ * </p>
+ * <p>
+ * Samples recorded since the last flush are lost if the process is killed,
+ * and datums the service doesn't accept are dropped. The aggregator requires
+ * an IAM policy that allows the PutMetricData action.
+ * </p>
+ */
+public class MetricAggregator {
+
+    private static final Log LOGGER = LogFactory.getLog(MetricAggregator.class);
+
+    /** Most datums in one PutMetricData call. */
+    private static final int MAX_DATUMS_PER_CALL = 20;
+    /** Most dimensions of one metric. */
+    private static final int MAX_DIMENSIONS = 10;
+
+    private static final Comparator<Dimension> BY_NAME = new Comparator<Dimension>() {
+        @Override
+        public int compare(Dimension lhs, Dimension rhs) {
+            return lhs.getName().compareTo(rhs.getName());
+        }
+    };
+
+    /** Identifies a metric by name, unit and dimensions. */
+    static final class MetricKey {
+        private final String metricName;
+        private final StandardUnit unit;
+        private final List<Dimension> dimensions;
+        private final int hashCode;
+
+        MetricKey(String metricName, StandardUnit unit, List<Dimension> dimensions) {
+            this.metricName = metricName;
+            this.unit = unit;
+            this.dimensions = dimensions;
+            this.hashCode = 31 * (31 * metricName.hashCode() + unit.hashCode())
+                    + dimensions.hashCode();
+        }
+
+        String getMetricName() {
+            return metricName;
+        }
+
+        StandardUnit getUnit() {
+            return unit;
+        }
+
+        List<Dimension> getDimensions() {
+            return dimensions;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof MetricKey)) {
+                return false;
+            }
+            final MetricKey other = (MetricKey) obj;
+            return metricName.equals(other.metricName) && unit == other.unit
+                    && dimensions.equals(other.dimensions);
+        }
+    }
+
+    private final AmazonCloudWatch client;
+    private final String namespace;
+    private final MetricAggregatorConfig config;
+    private final ConcurrentMap<MetricKey, AggregatedMetric> metrics =
+            new ConcurrentHashMap<MetricKey, AggregatedMetric>();
+    private final ScheduledThreadPoolExecutor executor;
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flushMetrics();
+        }
+    };
+
+    /** Start of the interval being aggregated; touched by the flush thread only. */
+    private long intervalStartMillis;
+
+    /**
+     * Constructs a new aggregator with the default configuration.
+     *
+     * @param client the client to send the metrics with.
+     * @param namespace the namespace of the metrics.
+     */
+    public MetricAggregator(AmazonCloudWatch client, String namespace) {
+        this(client, namespace, new MetricAggregatorConfig());
+    }
+
+    /**
+     * Constructs a new aggregator and starts flushing in the background.
+     *
+     * @param client the client to send the metrics with.
+     * @param namespace the namespace of the metrics.
+     * @param config the configuration of the aggregator.
+     */
+    public MetricAggregator(AmazonCloudWatch client, String namespace,
+            MetricAggregatorConfig config) {
+        if (client == null || namespace == null || config == null) {
+            throw new IllegalArgumentException("client, namespace and config can't be null");
+        }
+        this.client = client;
+        this.namespace = namespace;
+        this.config = new MetricAggregatorConfig(config);
+        this.executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread t = new Thread(r);
+                t.setName("cloudwatch-metric-aggregator");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        executor.setContinueExistingPeriodicTasksAfterShutdownPolicy(false);
+
+        final long interval = this.config.getFlushIntervalMillis();
+        final long now = System.currentTimeMillis();
+        intervalStartMillis = now;
+        // align the flushes on multiples of the interval, like CloudWatch periods
+        executor.scheduleAtFixedRate(flushTask, interval - now % interval, interval,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the namespace of the metrics.
+     */
+    public String getNamespace() {
+        return namespace;
+    }
+
+    /**
+     * Gets the metric of a name, unit and dimensions, to record samples on.
+     * The metric may be kept and recorded on from any thread.
+     *
+     * @param metricName the name of the metric.
+     * @param unit the unit of the samples.
+     * @param dimensions up to 10 dimensions of the metric.
+     * @return the metric.
+     * @throws IllegalStateException if the most metrics are already
+     *             aggregated.
+     */
+    public AggregatedMetric getMetric(String metricName, StandardUnit unit,
+            Dimension... dimensions) {
+        if (metricName == null || unit == null) {
+            throw new IllegalArgumentException("metricName and unit can't be null");
+        }
+        if (dimensions.length > MAX_DIMENSIONS) {
+            throw new IllegalArgumentException("A metric has at most " + MAX_DIMENSIONS
+                    + " dimensions");
+        }
+        for (final Dimension dimension : dimensions) {
+            if (dimension == null || dimension.getName() == null) {
+                throw new IllegalArgumentException("Dimensions must be named");
+            }
+        }
+        final List<Dimension> sorted = new ArrayList<Dimension>(Arrays.asList(dimensions));
+        Collections.sort(sorted, BY_NAME);
+        final MetricKey key = new MetricKey(metricName, unit,
+                Collections.unmodifiableList(sorted));
+
+        final AggregatedMetric metric = metrics.get(key);
+        if (metric != null) {
+            return metric;
+        }
+        if (metrics.size() >= config.getMaxMetrics()) {
+            throw new IllegalStateException("Already aggregating " + config.getMaxMetrics()
+                    + " metrics");
+        }
+        final AggregatedMetric created = new AggregatedMetric(key);
+        final AggregatedMetric existing = metrics.putIfAbsent(key, created);
+        return existing != null ? existing : created;
+    }
+
+    /**
+     * Records a sample. Prefer keeping the metric from
+     * {@link #getMetric(String, StandardUnit, Dimension...)} to record often.
+     *
+     * @param metricName the name of the metric.
+     * @param unit the unit of the sample.
+     * @param value the value of the sample.
+     * @param dimensions up to 10 dimensions of the metric.
+     */
+    public void record(String metricName, StandardUnit unit, double value,
+            Dimension... dimensions) {
+        getMetric(metricName, unit, dimensions).record(value);
+    }
+
+    /**
+     * Requests the samples recorded so far to be sent without waiting for the
+     * flush interval.
+     */
+    public void flush() {
+        try {
+            executor.execute(flushTask);
+        } catch (final RejectedExecutionException e) {
+            // the aggregator is shut down
+        }
+    }
+
+    /**
+     * Stops the aggregator after a last flush in the background.
+     */
+    public void shutdown() {
+        flush();
+        executor.shutdown();
+    }
+
+    /**
+     * Waits for the last flush to complete after {@link #shutdown()}.
+     *
+     * @param timeout the maximum time to wait.
+     * @param unit the unit of the timeout.
+     * @return true if the aggregator stopped, false if the timeout elapsed.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * Sends the statistic sets of the interval that ended. Runs on the flush
+     * thread.
+     */
+    private void flushMetrics() {
+        final Date timestamp = new Date(intervalStartMillis);
+        intervalStartMillis = System.currentTimeMillis();
+
+        final List<MetricDatum> datums = new ArrayList<MetricDatum>();
+        for (final AggregatedMetric metric : metrics.values()) {
+            final StatisticSet statistics = metric.drain();
+            if (statistics == null) {
+                continue;
+            }
+            datums.add(new MetricDatum()
+                    .withMetricName(metric.getMetricName())
+                    .withUnit(metric.getUnit())
+                    .withDimensions(metric.getDimensions())
+                    .withTimestamp(timestamp)
+                    .withStatisticValues(statistics));
+        }
+
+        for (int i = 0; i < datums.size(); i += MAX_DATUMS_PER_CALL) {
+            final List<MetricDatum> batch =
+                    datums.subList(i, Math.min(datums.size(), i + MAX_DATUMS_PER_CALL));
+            try {
+                client.putMetricData(new PutMetricDataRequest()
+                        .withNamespace(namespace)
+                        .withMetricData(batch));
+            } catch (final AmazonClientException e) {
+                LOGGER.warn("Unable to send " + batch.size() + " metrics to " + namespace
+                        + ", dropping them", e);
+            }
+        }
+    }
+}
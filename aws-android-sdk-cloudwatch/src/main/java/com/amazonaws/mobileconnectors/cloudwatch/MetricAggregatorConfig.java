@@ -0,0 +1,91 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cloudwatch;
+
+/**
+ * Allows configuration of certain MetricAggregator parameters, such as the
+ * flush interval.
+ */
+public class MetricAggregatorConfig {
+
+    /** CloudWatch stores metrics at one minute resolution. */
+    private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 60 * 1000;
+    private static final int DEFAULT_MAX_METRICS = 1000;
+
+    private long flushIntervalMillis = DEFAULT_FLUSH_INTERVAL_MILLIS;
+    private int maxMetrics = DEFAULT_MAX_METRICS;
+
+    /**
+     * Construct an instance of MetricAggregatorConfig with default values:
+     * flushing every minute and keeping up to 1000 metrics.
+     */
+    public MetricAggregatorConfig() {
+    }
+
+    /**
+     * Creates a copy of the passed in MetricAggregatorConfig.
+     *
+     * @param other the MetricAggregatorConfig to copy.
+     */
+    public MetricAggregatorConfig(MetricAggregatorConfig other) {
+        this.flushIntervalMillis = other.flushIntervalMillis;
+        this.maxMetrics = other.maxMetrics;
+    }
+
+    /**
+     * Sets the interval between flushes, which is the period of the statistic
+     * sets sent. Flushes are aligned on multiples of the interval.
+     *
+     * @param flushIntervalMillis the flush interval.
+     * @return This class for chaining
+     */
+    public MetricAggregatorConfig withFlushIntervalMillis(long flushIntervalMillis) {
+        if (flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("flushIntervalMillis must be positive");
+        }
+        this.flushIntervalMillis = flushIntervalMillis;
+        return this;
+    }
+
+    /**
+     * @return the interval between flushes.
+     */
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    /**
+     * Sets the most metrics, distinct by name, unit and dimensions, the
+     * aggregator keeps. Getting more fails with an IllegalStateException.
+     *
+     * @param maxMetrics the most metrics.
+     * @return This class for chaining
+     */
+    public MetricAggregatorConfig withMaxMetrics(int maxMetrics) {
+        if (maxMetrics <= 0) {
+            throw new IllegalArgumentException("maxMetrics must be positive");
+        }
+        this.maxMetrics = maxMetrics;
+        return this;
+    }
+
+    /**
+     * @return the most metrics the aggregator keeps.
+     */
+    public int getMaxMetrics() {
+        return maxMetrics;
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Client-side aggregation of Amazon CloudWatch metrics.
+ * <p>
+ * MetricAggregator records metric samples in memory and sends each metric
+ * once per interval as a statistic set, instead of a PutMetricData call per
+ * sample. AggregatingMetricCollector feeds the AWS SDK metrics of
+ * {@code AwsSdkMetrics} into an aggregator.
+ * <p>
+ * The following is an example of MetricAggregator.
+ * <pre>
+ * AmazonCloudWatchClient client = new AmazonCloudWatchClient(credentialsProvider);
+ * client.setRegion(Region.getRegion(Regions.US_WEST_2));
+ * MetricAggregator aggregator = new MetricAggregator(client, &quot;MyApp&quot;);
+ * AggregatedMetric latency = aggregator.getMetric(&quot;RenderTime&quot;,
+ *         StandardUnit.Milliseconds, new Dimension().withName(&quot;Screen&quot;).withValue(&quot;Home&quot;));
+ * ...
+ * latency.record(elapsedMillis);
+ * ...
+ * aggregator.shutdown();
+ * </pre>
+ */
+
+package com.amazonaws.mobileconnectors.cloudwatch;
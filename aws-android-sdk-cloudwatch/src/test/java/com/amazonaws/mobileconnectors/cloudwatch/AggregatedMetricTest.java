@@ -0,0 +1,148 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cloudwatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import com.amazonaws.services.cloudwatch.model.Dimension;
+import com.amazonaws.services.cloudwatch.model.StandardUnit;
+import com.amazonaws.services.cloudwatch.model.StatisticSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class AggregatedMetricTest {
+
+    private AggregatedMetric metric;
+
+    @Before
+    public void setUp() {
+        metric = new AggregatedMetric(new MetricAggregator.MetricKey("Latency",
+                StandardUnit.Milliseconds, Collections.<Dimension> emptyList()));
+    }
+
+    @Test
+    public void testDrainReturnsStatisticsOfRecordedSamples() {
+        metric.record(3);
+        metric.record(-1.5);
+        metric.record(10);
+
+        final StatisticSet statistics = metric.drain();
+        assertEquals(3.0, statistics.getSampleCount(), 0);
+        assertEquals(11.5, statistics.getSum(), 0);
+        assertEquals(-1.5, statistics.getMinimum(), 0);
+        assertEquals(10.0, statistics.getMaximum(), 0);
+    }
+
+    @Test
+    public void testDrainResetsTheMetric() {
+        assertNull(metric.drain());
+        metric.record(5);
+        metric.drain();
+        assertNull(metric.drain());
+
+        metric.record(2);
+        final StatisticSet statistics = metric.drain();
+        assertEquals(1.0, statistics.getSampleCount(), 0);
+        assertEquals(2.0, statistics.getMinimum(), 0);
+        assertEquals(2.0, statistics.getMaximum(), 0);
+    }
+
+    @Test
+    public void testSamplesOfAllThreadsAreFolded() throws Exception {
+        final Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            final double value = i;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    metric.record(value);
+                }
+            });
+            threads[i].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        final StatisticSet statistics = metric.drain();
+        assertEquals(8.0, statistics.getSampleCount(), 0);
+        assertEquals(28.0, statistics.getSum(), 0);
+        assertEquals(0.0, statistics.getMinimum(), 0);
+        assertEquals(7.0, statistics.getMaximum(), 0);
+    }
+
+    @Test
+    public void testDrainWhileRecordingKeepsSamplesWhole() throws Exception {
+        final int threadCount = 4;
+        final int samplesPerThread = 100000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threadCount);
+        final AtomicBoolean failed = new AtomicBoolean();
+        for (int i = 0; i < threadCount; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < samplesPerThread; j++) {
+                            metric.record(1);
+                        }
+                    } catch (final InterruptedException e) {
+                        failed.set(true);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+
+        start.countDown();
+        double total = 0;
+        boolean recording = true;
+        while (recording) {
+            recording = done.getCount() > 0;
+            final StatisticSet statistics = metric.drain();
+            if (statistics == null) {
+                continue;
+            }
+            // every sample is 1, so a sample split between two drains shows
+            // as a sum that differs from the count
+            assertEquals(statistics.getSampleCount(), statistics.getSum(), 0);
+            assertEquals(1.0, statistics.getMinimum(), 0);
+            assertEquals(1.0, statistics.getMaximum(), 0);
+            total += statistics.getSampleCount();
+        }
+        assertFalse(failed.get());
+        assertEquals((double) threadCount * samplesPerThread, total, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNaNIsRejected() {
+        metric.record(Double.NaN);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInfinityIsRejected() {
+        metric.record(Double.POSITIVE_INFINITY);
+    }
+}
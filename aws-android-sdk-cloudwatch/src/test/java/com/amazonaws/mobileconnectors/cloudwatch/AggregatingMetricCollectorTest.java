@@ -0,0 +1,170 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cloudwatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.services.cloudwatch.AmazonCloudWatch;
+import com.amazonaws.services.cloudwatch.model.Dimension;
+import com.amazonaws.services.cloudwatch.model.ListMetricsRequest;
+import com.amazonaws.services.cloudwatch.model.MetricDatum;
+import com.amazonaws.services.cloudwatch.model.PutMetricDataRequest;
+import com.amazonaws.services.cloudwatch.model.StandardUnit;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.AWSRequestMetricsFullSupport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class AggregatingMetricCollectorTest {
+
+    private static final String SERVICE_NAME = "AmazonCloudWatch";
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private final BlockingQueue<PutMetricDataRequest> requests =
+            new LinkedBlockingQueue<PutMetricDataRequest>();
+    private MetricAggregator aggregator;
+    private AggregatingMetricCollector collector;
+
+    @Before
+    public void setUp() {
+        final AmazonCloudWatch client = mock(AmazonCloudWatch.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                requests.add((PutMetricDataRequest) invocation.getArguments()[0]);
+                return null;
+            }
+        }).when(client).putMetricData(any(PutMetricDataRequest.class));
+        // flush only when asked to
+        aggregator = new MetricAggregator(client, "namespace", new MetricAggregatorConfig()
+                .withFlushIntervalMillis(TimeUnit.HOURS.toMillis(1)));
+        collector = new AggregatingMetricCollector(aggregator);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        collector.stop();
+        // not started collectors leave their aggregator running
+        aggregator.shutdown();
+        assertTrue(aggregator.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    private static DefaultRequest<ListMetricsRequest> request(int requestCount) {
+        final DefaultRequest<ListMetricsRequest> request =
+                new DefaultRequest<ListMetricsRequest>(new ListMetricsRequest(), SERVICE_NAME);
+        final AWSRequestMetrics metrics = new AWSRequestMetricsFullSupport();
+        for (int i = 0; i < requestCount; i++) {
+            metrics.startEvent(Field.HttpRequestTime);
+            metrics.endEvent(Field.HttpRequestTime);
+        }
+        metrics.setCounter(Field.RequestCount, requestCount);
+        metrics.getTimingInfo().endTiming();
+        request.setAWSRequestMetrics(metrics);
+        return request;
+    }
+
+    private Map<String, MetricDatum> flush() throws InterruptedException {
+        aggregator.flush();
+        final PutMetricDataRequest request = requests.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull("no PutMetricData call", request);
+        final Map<String, MetricDatum> datums = new HashMap<String, MetricDatum>();
+        for (final MetricDatum datum : request.getMetricData()) {
+            datums.put(datum.getMetricName(), datum);
+        }
+        return datums;
+    }
+
+    @Test
+    public void testRequestMetricsAreAggregated() throws Exception {
+        collector.start();
+        collector.getRequestMetricCollector().collectMetrics(request(1), null);
+        collector.getRequestMetricCollector().collectMetrics(request(3), null);
+
+        final Map<String, MetricDatum> datums = flush();
+        final MetricDatum requestCount = datums.get(Field.RequestCount.name());
+        assertEquals(StandardUnit.Count.toString(), requestCount.getUnit());
+        assertEquals(2.0, requestCount.getStatisticValues().getSampleCount(), 0);
+        assertEquals(4.0, requestCount.getStatisticValues().getSum(), 0);
+        assertEquals(Arrays.asList(
+                new Dimension().withName("RequestType").withValue("ListMetricsRequest"),
+                new Dimension().withName("ServiceName").withValue(SERVICE_NAME)),
+                requestCount.getDimensions());
+
+        final MetricDatum retryCount = datums.get(Field.RetryCount.name());
+        assertEquals(0.0, retryCount.getStatisticValues().getMinimum(), 0);
+        assertEquals(2.0, retryCount.getStatisticValues().getMaximum(), 0);
+
+        final MetricDatum httpRequestTime = datums.get(Field.HttpRequestTime.name());
+        assertEquals(StandardUnit.Milliseconds.toString(), httpRequestTime.getUnit());
+        assertEquals(4.0, httpRequestTime.getStatisticValues().getSampleCount(), 0);
+
+        final MetricDatum clientExecuteTime = datums.get(Field.ClientExecuteTime.name());
+        assertEquals(2.0, clientExecuteTime.getStatisticValues().getSampleCount(), 0);
+        assertNull(datums.get(Field.Exception.name()));
+    }
+
+    @Test
+    public void testNothingIsCollectedUntilStarted() throws Exception {
+        assertFalse(collector.isEnabled());
+        assertFalse(collector.getRequestMetricCollector().isEnabled());
+        collector.getRequestMetricCollector().collectMetrics(request(1), null);
+
+        collector.start();
+        assertTrue(collector.getServiceMetricCollector().isEnabled());
+        collector.getRequestMetricCollector().collectMetrics(request(2), null);
+        assertEquals(2.0, flush().get(Field.RequestCount.name()).getStatisticValues()
+                .getSum(), 0);
+    }
+
+    @Test
+    public void testStopShutsTheAggregatorDown() throws Exception {
+        collector.start();
+        collector.getRequestMetricCollector().collectMetrics(request(1), null);
+        assertTrue(collector.stop());
+        assertFalse(collector.isEnabled());
+        assertFalse(collector.stop());
+
+        assertTrue(aggregator.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        final PutMetricDataRequest last = requests.poll();
+        assertNotNull(last);
+        assertFalse(last.getMetricData().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNullAggregator() {
+        new AggregatingMetricCollector(null);
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cloudwatch;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class MetricAggregatorConfigTest {
+
+    @Test
+    public void testDefaults() {
+        final MetricAggregatorConfig config = new MetricAggregatorConfig();
+        assertEquals(60 * 1000, config.getFlushIntervalMillis());
+        assertEquals(1000, config.getMaxMetrics());
+    }
+
+    @Test
+    public void testCopyIsIndependent() {
+        final MetricAggregatorConfig config = new MetricAggregatorConfig()
+                .withFlushIntervalMillis(5000)
+                .withMaxMetrics(10);
+        final MetricAggregatorConfig copy = new MetricAggregatorConfig(config);
+        config.withFlushIntervalMillis(1000).withMaxMetrics(20);
+
+        assertEquals(5000, copy.getFlushIntervalMillis());
+        assertEquals(10, copy.getMaxMetrics());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNonPositiveFlushInterval() {
+        new MetricAggregatorConfig().withFlushIntervalMillis(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNonPositiveMaxMetrics() {
+        new MetricAggregatorConfig().withMaxMetrics(-1);
+    }
+}
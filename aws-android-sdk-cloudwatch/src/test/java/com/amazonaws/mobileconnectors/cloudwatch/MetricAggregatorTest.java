@@ -0,0 +1,231 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cloudwatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.cloudwatch.AmazonCloudWatch;
+import com.amazonaws.services.cloudwatch.model.Dimension;
+import com.amazonaws.services.cloudwatch.model.MetricDatum;
+import com.amazonaws.services.cloudwatch.model.PutMetricDataRequest;
+import com.amazonaws.services.cloudwatch.model.StandardUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class MetricAggregatorTest {
+
+    private static final String NAMESPACE = "namespace";
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private PutMetricData putMetricData;
+    private MetricAggregator aggregator;
+
+    @Before
+    public void setUp() {
+        final AmazonCloudWatch client = mock(AmazonCloudWatch.class);
+        putMetricData = new PutMetricData();
+        doAnswer(putMetricData).when(client).putMetricData(any(PutMetricDataRequest.class));
+        // flush only when asked to
+        aggregator = new MetricAggregator(client, NAMESPACE, new MetricAggregatorConfig()
+                .withFlushIntervalMillis(TimeUnit.HOURS.toMillis(1))
+                .withMaxMetrics(30));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        aggregator.shutdown();
+        assertTrue(aggregator.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    private static Dimension dimension(String name, String value) {
+        return new Dimension().withName(name).withValue(value);
+    }
+
+    @Test
+    public void testSamplesAreSentAsOneStatisticSet() throws Exception {
+        aggregator.record("Latency", StandardUnit.Milliseconds, 10,
+                dimension("Operation", "Get"));
+        aggregator.record("Latency", StandardUnit.Milliseconds, 30,
+                dimension("Operation", "Get"));
+        aggregator.flush();
+
+        final PutMetricDataRequest request = putMetricData.next();
+        assertEquals(NAMESPACE, request.getNamespace());
+        assertEquals(1, request.getMetricData().size());
+        final MetricDatum datum = request.getMetricData().get(0);
+        assertEquals("Latency", datum.getMetricName());
+        assertEquals(StandardUnit.Milliseconds.toString(), datum.getUnit());
+        assertEquals(Arrays.asList(dimension("Operation", "Get")), datum.getDimensions());
+        assertNotNull(datum.getTimestamp());
+        assertNull(datum.getValue());
+        assertEquals(2.0, datum.getStatisticValues().getSampleCount(), 0);
+        assertEquals(40.0, datum.getStatisticValues().getSum(), 0);
+        assertEquals(10.0, datum.getStatisticValues().getMinimum(), 0);
+        assertEquals(30.0, datum.getStatisticValues().getMaximum(), 0);
+    }
+
+    @Test
+    public void testDimensionOrderDoesNotMatter() {
+        final AggregatedMetric metric = aggregator.getMetric("Count", StandardUnit.Count,
+                dimension("b", "2"), dimension("a", "1"));
+        assertSame(metric, aggregator.getMetric("Count", StandardUnit.Count,
+                dimension("a", "1"), dimension("b", "2")));
+        assertEquals(Arrays.asList(dimension("a", "1"), dimension("b", "2")),
+                metric.getDimensions());
+    }
+
+    @Test
+    public void testMetricsDifferByUnitAndDimensions() {
+        final AggregatedMetric metric = aggregator.getMetric("Size", StandardUnit.Bytes);
+        assertTrue(metric != aggregator.getMetric("Size", StandardUnit.Kilobytes));
+        assertTrue(metric != aggregator.getMetric("Size", StandardUnit.Bytes,
+                dimension("a", "1")));
+    }
+
+    @Test
+    public void testDatumsAreSentTwentyToACall() throws Exception {
+        for (int i = 0; i < 25; i++) {
+            aggregator.record("Metric" + i, StandardUnit.Count, i);
+        }
+        aggregator.flush();
+
+        final Set<String> names = new HashSet<String>();
+        final PutMetricDataRequest first = putMetricData.next();
+        final PutMetricDataRequest second = putMetricData.next();
+        assertEquals(20, first.getMetricData().size());
+        assertEquals(5, second.getMetricData().size());
+        for (final MetricDatum datum : first.getMetricData()) {
+            names.add(datum.getMetricName());
+        }
+        for (final MetricDatum datum : second.getMetricData()) {
+            names.add(datum.getMetricName());
+        }
+        assertEquals(25, names.size());
+    }
+
+    @Test
+    public void testMetricsWithoutSamplesAreNotSent() throws Exception {
+        aggregator.getMetric("Idle", StandardUnit.Count);
+        aggregator.record("Busy", StandardUnit.Count, 1);
+        aggregator.flush();
+        final PutMetricDataRequest request = putMetricData.next();
+        assertEquals(1, request.getMetricData().size());
+        assertEquals("Busy", request.getMetricData().get(0).getMetricName());
+
+        // nothing recorded since, so the next flush sends nothing
+        aggregator.flush();
+        aggregator.record("Busy", StandardUnit.Count, 2);
+        aggregator.flush();
+        assertEquals(2.0, putMetricData.next().getMetricData().get(0)
+                .getStatisticValues().getSum(), 0);
+    }
+
+    @Test
+    public void testFailedCallIsDroppedAndNextFlushSends() throws Exception {
+        putMetricData.failures.add(new AmazonClientException("offline"));
+        aggregator.record("Count", StandardUnit.Count, 1);
+        aggregator.flush();
+        putMetricData.next();
+
+        aggregator.record("Count", StandardUnit.Count, 2);
+        aggregator.flush();
+        final MetricDatum datum = putMetricData.next().getMetricData().get(0);
+        assertEquals(1.0, datum.getStatisticValues().getSampleCount(), 0);
+        assertEquals(2.0, datum.getStatisticValues().getSum(), 0);
+    }
+
+    @Test
+    public void testShutdownFlushesRecordedSamples() throws Exception {
+        aggregator.record("Count", StandardUnit.Count, 1);
+        aggregator.shutdown();
+        assertTrue(aggregator.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals("Count", putMetricData.next().getMetricData().get(0).getMetricName());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testTooManyMetricsAreRejected() {
+        for (int i = 0; i <= 30; i++) {
+            aggregator.getMetric("Metric" + i, StandardUnit.Count);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyDimensionsAreRejected() {
+        final Dimension[] dimensions = new Dimension[11];
+        for (int i = 0; i < dimensions.length; i++) {
+            dimensions[i] = dimension("d" + i, "v");
+        }
+        aggregator.getMetric("Count", StandardUnit.Count, dimensions);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnnamedDimensionIsRejected() {
+        aggregator.getMetric("Count", StandardUnit.Count, new Dimension().withValue("v"));
+    }
+
+    /**
+     * Records the PutMetricData requests, failing them while failures are
+     * queued.
+     */
+    private static final class PutMetricData implements Answer<Void> {
+        private final BlockingQueue<PutMetricDataRequest> requests =
+                new LinkedBlockingQueue<PutMetricDataRequest>();
+        private final ConcurrentLinkedQueue<RuntimeException> failures =
+                new ConcurrentLinkedQueue<RuntimeException>();
+
+        @Override
+        public Void answer(InvocationOnMock invocation) {
+            final PutMetricDataRequest request =
+                    (PutMetricDataRequest) invocation.getArguments()[0];
+            // copy the datums, the batch is a view of the flushed list
+            requests.add(new PutMetricDataRequest()
+                    .withNamespace(request.getNamespace())
+                    .withMetricData(new ArrayList<MetricDatum>(request.getMetricData())));
+            final RuntimeException failure = failures.poll();
+            if (failure != null) {
+                throw failure;
+            }
+            return null;
+        }
+
+        PutMetricDataRequest next() throws InterruptedException {
+            final PutMetricDataRequest request = requests.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertNotNull("no PutMetricData call", request);
+            return request;
+        }
+    }
+}
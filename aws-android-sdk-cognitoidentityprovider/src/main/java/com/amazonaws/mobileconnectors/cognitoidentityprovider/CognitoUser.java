@@ -44,10 +44,12 @@ import com.amazonaws.mobileconnectors.cognitoidentityprovider.handlers.Verificat
 import com.amazonaws.mobileconnectors.cognitoidentityprovider.tokens.CognitoAccessToken;
 import com.amazonaws.mobileconnectors.cognitoidentityprovider.tokens.CognitoIdToken;
 import com.amazonaws.mobileconnectors.cognitoidentityprovider.tokens.CognitoRefreshToken;
+import com.amazonaws.mobileconnectors.cognitoidentityprovider.util.CognitoBackgroundExecutor;
 import com.amazonaws.mobileconnectors.cognitoidentityprovider.util.CognitoDeviceHelper;
 import com.amazonaws.mobileconnectors.cognitoidentityprovider.util.CognitoSecretHash;
 import com.amazonaws.mobileconnectors.cognitoidentityprovider.util.CognitoServiceConstants;
 import com.amazonaws.mobileconnectors.cognitoidentityprovider.util.Hkdf;
+import com.amazonaws.mobileconnectors.cognitoidentityprovider.util.SingleFlight;
 import com.amazonaws.services.cognitoidentityprovider.AmazonCognitoIdentityProvider;
 import com.amazonaws.services.cognitoidentityprovider.model.AnalyticsMetadataType;
 import com.amazonaws.services.cognitoidentityprovider.model.AssociateSoftwareTokenRequest;
@@ -117,6 +119,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
@@ -188,12 +191,15 @@ public class CognitoUser {
     /**
      * The current session.
      */
-    private CognitoUserSession cipSession;
+    private volatile CognitoUserSession cipSession;
 
     /**
-     * Lock for getCachedSession.
+     * Coalesces concurrent session lookups for the same user, so that callers
+     * racing to refresh expired tokens share a single refresh. Lookups for
+     * different users run independently.
      */
-    private static final Object GET_CACHED_SESSION_LOCK = new Object();
+    private static final SingleFlight<CognitoUserSession> SESSION_REFRESHES =
+            new SingleFlight<CognitoUserSession>();
 
     /**
      * Constructs a new Cognito User from a Cognito user identity pool
@@ -321,7 +327,7 @@ public class CognitoUser {
         if (callback == null) {
             throw new CognitoParameterInvalidException("callback is null");
         }
-        new Thread(new Runnable() {
+        CognitoBackgroundExecutor.execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -344,7 +350,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -435,7 +441,7 @@ public class CognitoUser {
         if (callback == null) {
             throw new CognitoParameterInvalidException("callback is null");
         }
-        new Thread(new Runnable() {
+        CognitoBackgroundExecutor.execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -460,7 +466,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -599,7 +605,7 @@ public class CognitoUser {
 
         final CognitoUser cognitoUser = this;
 
-        new Thread(new Runnable() {
+        CognitoBackgroundExecutor.execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -627,7 +633,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -737,7 +743,7 @@ public class CognitoUser {
         if (callback == null) {
             throw new CognitoParameterInvalidException("callback is null");
         }
-        new Thread(new Runnable() {
+        CognitoBackgroundExecutor.execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -760,7 +766,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -889,7 +895,7 @@ public class CognitoUser {
 
         final CognitoUser cognitoUser = this;
 
-        new Thread(new Runnable() {
+        CognitoBackgroundExecutor.execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -926,7 +932,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -1162,12 +1168,7 @@ public class CognitoUser {
             return new Runnable() {
                 @Override
                 public void run() {
-                    new Thread(new Runnable() {
-                        @Override
-                        public void run() {
-                            task.run();
-                        }
-                    }).start();
+                    CognitoBackgroundExecutor.execute(task);
                 }
             };
         } else {
@@ -1274,41 +1275,68 @@ public class CognitoUser {
      *         otherwise.
      */
     protected CognitoUserSession getCachedSession() {
-        synchronized (GET_CACHED_SESSION_LOCK) {
-            if (userId == null) {
-                throw new CognitoNotAuthorizedException("User-ID is null");
-            }
+        if (userId == null) {
+            throw new CognitoNotAuthorizedException("User-ID is null");
+        }
 
-            if (cipSession != null) {
-                if (cipSession.isValidForThreshold()) {
-                    return cipSession;
-                }
-            }
+        final CognitoUserSession session;
+        try {
+            session = SESSION_REFRESHES.run(clientId + "." + userId,
+                    new Callable<CognitoUserSession>() {
+                        @Override
+                        public CognitoUserSession call() {
+                            return loadOrRefreshSession();
+                        }
+                    });
+        } catch (final RuntimeException e) {
+            throw e;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CognitoInternalErrorException("Interrupted while waiting for session", e);
+        } catch (final Exception e) {
+            throw new CognitoInternalErrorException("Failed to authenticate user", e);
+        }
 
-            final CognitoUserSession cognitoUserSessionFromStore = readCachedTokens();
+        // The session may have been obtained by another instance for the
+        // same user.
+        cipSession = session;
+        return session;
+    }
+
+    private CognitoUserSession loadOrRefreshSession() {
+        if (userId == null) {
+            throw new CognitoNotAuthorizedException("User-ID is null");
+        }
 
-            if (cognitoUserSessionFromStore.isValidForThreshold()) {
-                cipSession = cognitoUserSessionFromStore;
+        if (cipSession != null) {
+            if (cipSession.isValidForThreshold()) {
                 return cipSession;
             }
+        }
 
-            if (cognitoUserSessionFromStore.getRefreshToken() != null) {
-                try {
-                    cipSession = refreshSession(cognitoUserSessionFromStore);
-                    cacheTokens(cipSession);
-                    return cipSession;
-                } catch (final NotAuthorizedException nae) {
-                    clearCachedTokens();
-                    throw new CognitoNotAuthorizedException("User is not authenticated", nae);
-                } catch (final UserNotFoundException unfe) {
-                    clearCachedTokens();
-                    throw new CognitoNotAuthorizedException("User does not exist", unfe);
-                } catch (final Exception e) {
-                    throw new CognitoInternalErrorException("Failed to authenticate user", e);
-                }
+        final CognitoUserSession cognitoUserSessionFromStore = readCachedTokens();
+
+        if (cognitoUserSessionFromStore.isValidForThreshold()) {
+            cipSession = cognitoUserSessionFromStore;
+            return cipSession;
+        }
+
+        if (cognitoUserSessionFromStore.getRefreshToken() != null) {
+            try {
+                cipSession = refreshSession(cognitoUserSessionFromStore);
+                cacheTokens(cipSession);
+                return cipSession;
+            } catch (final NotAuthorizedException nae) {
+                clearCachedTokens();
+                throw new CognitoNotAuthorizedException("User is not authenticated", nae);
+            } catch (final UserNotFoundException unfe) {
+                clearCachedTokens();
+                throw new CognitoNotAuthorizedException("User does not exist", unfe);
+            } catch (final Exception e) {
+                throw new CognitoInternalErrorException("Failed to authenticate user", e);
             }
-            throw new CognitoNotAuthorizedException("User is not authenticated");
         }
+        throw new CognitoNotAuthorizedException("User is not authenticated");
     }
 
     /**
@@ -1332,7 +1360,7 @@ public class CognitoUser {
 
         final CognitoUser user = this;
 
-        new Thread(new Runnable() {
+        CognitoBackgroundExecutor.execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -1356,7 +1384,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -1423,7 +1451,7 @@ public class CognitoUser {
         }
         final CognitoUser user = this;
 
-        new Thread(new Runnable() {
+        CognitoBackgroundExecutor.execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -1447,7 +1475,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -1544,7 +1572,7 @@ public class CognitoUser {
         }
         final CognitoUser user = this;
 
-        new Thread(new Runnable() {
+        CognitoBackgroundExecutor.execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -1571,7 +1599,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -1686,7 +1714,7 @@ public class CognitoUser {
         }
         final CognitoUser user = this;
 
-        new Thread(new Runnable() {
+        CognitoBackgroundExecutor.execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -1710,7 +1738,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -1778,7 +1806,7 @@ public class CognitoUser {
         }
         final CognitoUser user = this;
 
-        new Thread(new Runnable() {
+        CognitoBackgroundExecutor.execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -1841,7 +1869,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -1939,7 +1967,7 @@ public class CognitoUser {
         }
         final CognitoUser user = this;
 
-        new Thread(new Runnable() {
+        CognitoBackgroundExecutor.execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -1984,7 +2012,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -2111,7 +2139,7 @@ public class CognitoUser {
         }
         final CognitoUser user = this;
 
-        new Thread(new Runnable() {
+        CognitoBackgroundExecutor.execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -2146,7 +2174,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -2244,7 +2272,7 @@ public class CognitoUser {
         }
         final CognitoUser user = this;
 
-        new Thread(new Runnable() {
+        CognitoBackgroundExecutor.execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -2268,7 +2296,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -2352,7 +2380,7 @@ public class CognitoUser {
         }
         final CognitoUser user = this;
 
-        new Thread(new Runnable() {
+        CognitoBackgroundExecutor.execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -2377,7 +2405,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -2436,7 +2464,7 @@ public class CognitoUser {
         }
         final CognitoUser user = this;
 
-        new Thread(new Runnable() {
+        CognitoBackgroundExecutor.execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -2460,7 +2488,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -2522,7 +2550,7 @@ public class CognitoUser {
         }
         final CognitoUserSession session = this.getCachedSession();
 
-        new Thread(new Runnable() {
+        CognitoBackgroundExecutor.execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -2545,7 +2573,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -2609,7 +2637,7 @@ public class CognitoUser {
         }
         final CognitoUserSession session = this.getCachedSession();
 
-        new Thread(new Runnable() {
+        CognitoBackgroundExecutor.execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -2632,7 +2660,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -3717,7 +3745,7 @@ public class CognitoUser {
 
         final CognitoUser user = this;
 
-        new Thread(new Runnable() {
+        CognitoBackgroundExecutor.execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -3746,7 +3774,7 @@ public class CognitoUser {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
@@ -29,6 +29,7 @@ import com.amazonaws.logging.LogFactory;
 import com.amazonaws.mobile.config.AWSConfiguration;
 import com.amazonaws.mobileconnectors.cognitoidentityprovider.handlers.AuthenticationHandler;
 import com.amazonaws.mobileconnectors.cognitoidentityprovider.handlers.SignUpHandler;
+import com.amazonaws.mobileconnectors.cognitoidentityprovider.util.CognitoBackgroundExecutor;
 import com.amazonaws.mobileconnectors.cognitoidentityprovider.util.CognitoDeviceHelper;
 import com.amazonaws.mobileconnectors.cognitoidentityprovider.util.CognitoPinpointSharedContext;
 import com.amazonaws.mobileconnectors.cognitoidentityprovider.util.CognitoSecretHash;
@@ -409,7 +410,7 @@ public class CognitoUserPool {
                                          final Map<String, String> validationData,
                                          final Map<String, String> clientMetadata,
                                          final SignUpHandler callback) {
-        new Thread(new Runnable() {
+        CognitoBackgroundExecutor.execute(new Runnable() {
             @Override
             public void run() {
                 final Handler handler = new Handler(context.getMainLooper());
@@ -434,7 +435,7 @@ public class CognitoUserPool {
                 }
                 handler.post(returnCallback);
             }
-        }).start();
+        });
     }
 
     /**
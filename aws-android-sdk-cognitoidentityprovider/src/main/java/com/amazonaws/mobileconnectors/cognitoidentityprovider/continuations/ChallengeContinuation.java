@@ -22,6 +22,7 @@ import android.os.Handler;
 
 import com.amazonaws.mobileconnectors.cognitoidentityprovider.CognitoUser;
 import com.amazonaws.mobileconnectors.cognitoidentityprovider.handlers.AuthenticationHandler;
+import com.amazonaws.mobileconnectors.cognitoidentityprovider.util.CognitoBackgroundExecutor;
 import com.amazonaws.mobileconnectors.cognitoidentityprovider.util.CognitoServiceConstants;
 import com.amazonaws.services.cognitoidentityprovider.model.RespondToAuthChallengeRequest;
 import com.amazonaws.services.cognitoidentityprovider.model.RespondToAuthChallengeResult;
@@ -169,7 +170,7 @@ public class ChallengeContinuation implements CognitoIdentityProviderContinuatio
             respondToAuthChallengeRequest.setClientMetadata(clientMetaData);
         }
         if (runInBackground) {
-            new Thread(new Runnable() {
+            CognitoBackgroundExecutor.execute(new Runnable() {
                 @Override
                 public void run() {
                     final Handler handler = new Handler(context.getMainLooper());
@@ -186,7 +187,7 @@ public class ChallengeContinuation implements CognitoIdentityProviderContinuatio
                     }
                     handler.post(nextStep);
                 }
-            }).start();
+            });
         } else {
             Runnable nextStep;
             try {
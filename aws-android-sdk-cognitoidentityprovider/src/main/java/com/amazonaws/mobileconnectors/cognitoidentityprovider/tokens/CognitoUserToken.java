@@ -17,12 +17,17 @@
 
 package com.amazonaws.mobileconnectors.cognitoidentityprovider.tokens;
 
+import com.amazonaws.mobileconnectors.cognitoidentityprovider.util.CognitoJWTClaims;
+import com.amazonaws.mobileconnectors.cognitoidentityprovider.util.CognitoJWTParser;
+
 /**
  * Base class for Cognito tokens.
  */
 public class CognitoUserToken {
     // A Cognito Token - can be an Access, Id or Refresh token
     private final String token;
+    // Claims of a JWT token, decoded on first use
+    private volatile CognitoJWTClaims claims;
 
     /**
      * Constructor.
@@ -36,4 +41,20 @@ public class CognitoUserToken {
     protected String getToken() {
         return token;
     }
+
+    /**
+     * Returns the claims of this token. The token is decoded the first time
+     * this is called and the result is reused afterwards; tokens are
+     * immutable, so concurrent callers may at worst decode it twice.
+     *
+     * @return immutable view of the token claims.
+     */
+    protected CognitoJWTClaims getClaims() {
+        CognitoJWTClaims result = claims;
+        if (result == null) {
+            result = CognitoJWTParser.getClaims(token);
+            claims = result;
+        }
+        return result;
+    }
 }
@@ -0,0 +1,104 @@
+/*
+ *  Copyright 2013-2016 Amazon.com,
+ *  Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Amazon Software License (the "License").
+ *  You may not use this file except in compliance with the
+ *  License. A copy of the License is located at
+ *
+ *      http://aws.amazon.com/asl/
+ *
+ *  or in the "license" file accompanying this file. This file is
+ *  distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ *  CONDITIONS OF ANY KIND, express or implied. See the License
+ *  for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cognitoidentityprovider.util;
+
+import com.amazonaws.util.HandOffExecutors;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Runs the background work of the Cognito authentication clients, such as the
+ * {@code *InBackground} methods of
+ * {@link com.amazonaws.mobileconnectors.cognitoidentityprovider.CognitoUser}.
+ * <p>
+ * By default the work runs on a shared pool of at most
+ * {@link #DEFAULT_MAX_POOL_SIZE} threads that are reused across calls and
+ * released when idle. Some background operations wait for others to complete,
+ * for instance a token request that waits for a sign-in; so that such waits
+ * can never exhaust the pool, tasks are never queued. A task submitted while
+ * every pooled thread is busy runs on a temporary thread of its own instead;
+ * never on the submitting thread, which is often the main thread.
+ * </p>
+ */
+public final class CognitoBackgroundExecutor {
+    /**
+     * Default maximum number of pooled threads.
+     */
+    public static final int DEFAULT_MAX_POOL_SIZE = 8;
+
+    /**
+     * Seconds an idle pooled thread is kept alive.
+     */
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static final Executor DEFAULT_EXECUTOR = createDefaultExecutor(DEFAULT_MAX_POOL_SIZE);
+
+    private static volatile Executor executor = DEFAULT_EXECUTOR;
+
+    private CognitoBackgroundExecutor() {
+    }
+
+    /**
+     * Runs a task in the background.
+     *
+     * @param task REQUIRED: the task to run.
+     */
+    public static void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    /**
+     * Returns the executor that runs background tasks.
+     *
+     * @return the executor.
+     */
+    public static Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Sets the executor that runs background tasks. Background tasks may block
+     * waiting for other background tasks, so the executor must not queue tasks
+     * behind a fixed number of threads. Nor should it run tasks on the
+     * submitting thread, as callers expect their callbacks asynchronously.
+     *
+     * @param newExecutor the executor, or null to restore the default shared
+     *            pool.
+     */
+    public static void setExecutor(Executor newExecutor) {
+        executor = newExecutor == null ? DEFAULT_EXECUTOR : newExecutor;
+    }
+
+    /**
+     * Replaces the executor with a shared pool of the given size.
+     *
+     * @param maxPoolSize REQUIRED: maximum number of pooled threads.
+     */
+    public static void setMaxPoolSize(int maxPoolSize) {
+        if (maxPoolSize < 1) {
+            throw new IllegalArgumentException("maxPoolSize must be at least 1");
+        }
+        executor = createDefaultExecutor(maxPoolSize);
+    }
+
+    private static Executor createDefaultExecutor(int maxPoolSize) {
+        return HandOffExecutors.newDaemonPool("cognito-background-", maxPoolSize,
+                KEEP_ALIVE_SECONDS,
+                HandOffExecutors.spillToNewThreadPolicy("cognito-background-spill-"));
+    }
+}
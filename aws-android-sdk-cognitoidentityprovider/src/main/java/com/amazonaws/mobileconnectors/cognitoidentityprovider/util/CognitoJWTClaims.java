@@ -0,0 +1,121 @@
+/*
+ *  Copyright 2013-2016 Amazon.com,
+ *  Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Amazon Software License (the "License").
+ *  You may not use this file except in compliance with the
+ *  License. A copy of the License is located at
+ *
+ *      http://aws.amazon.com/asl/
+ *
+ *  or in the "license" file accompanying this file. This file is
+ *  distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ *  CONDITIONS OF ANY KIND, express or implied. See the License
+ *  for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cognitoidentityprovider.util;
+
+import com.amazonaws.mobileconnectors.cognitoidentityprovider.exceptions.CognitoParameterInvalidException;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Immutable view of the claims in the payload of a JWT. The payload is
+ * decoded once when the view is created; reading a claim afterwards is a map
+ * lookup.
+ */
+public final class CognitoJWTClaims {
+    private static final String EXPIRATION_CLAIM = "exp";
+    private static final long MILLIS_PER_SEC = 1000L;
+
+    private final Map<String, String> claims;
+    private final boolean hasExpiration;
+    private final long expirationMillis;
+
+    CognitoJWTClaims(Map<String, String> claims) {
+        this.claims = Collections.unmodifiableMap(claims);
+        long expiration = 0L;
+        boolean parsed = false;
+        final String exp = claims.get(EXPIRATION_CLAIM);
+        if (exp != null) {
+            try {
+                expiration = Long.parseLong(exp) * MILLIS_PER_SEC;
+                parsed = true;
+            } catch (final NumberFormatException e) {
+                // Reported when the expiration is read.
+            }
+        }
+        this.hasExpiration = parsed;
+        this.expirationMillis = expiration;
+    }
+
+    /**
+     * Returns a claim as a String.
+     *
+     * @param claim REQUIRED: claim name as String.
+     * @return claim from the JWT as a String.
+     * @throws CognitoParameterInvalidException if the token does not contain
+     *             the claim.
+     */
+    public String getClaim(String claim) {
+        final String value = claims.get(claim);
+        if (value == null) {
+            throw new CognitoParameterInvalidException("invalid token");
+        }
+        return value;
+    }
+
+    /**
+     * Returns whether the token contains a claim.
+     *
+     * @param claim REQUIRED: claim name as String.
+     * @return true if the claim is present.
+     */
+    public boolean hasClaim(String claim) {
+        return claims.containsKey(claim);
+    }
+
+    /**
+     * Returns all claims as an unmodifiable map.
+     *
+     * @return the claims of the token.
+     */
+    public Map<String, String> getClaims() {
+        return claims;
+    }
+
+    /**
+     * Returns the "exp" claim in milliseconds since the epoch.
+     *
+     * @return token expiration in milliseconds, UTC.
+     * @throws CognitoParameterInvalidException if the token does not contain
+     *             the claim.
+     * @throws NumberFormatException if the claim is not a number.
+     */
+    public long getExpirationMillis() {
+        if (!hasExpiration) {
+            // Raises the same exception as parsing the claim directly would.
+            Long.parseLong(getClaim(EXPIRATION_CLAIM));
+        }
+        return expirationMillis;
+    }
+
+    /**
+     * Returns a claim holding seconds since the epoch in milliseconds.
+     *
+     * @param claim REQUIRED: claim name as String.
+     * @return claim value in milliseconds, UTC.
+     * @throws CognitoParameterInvalidException if the token does not contain
+     *             the claim.
+     * @throws NumberFormatException if the claim is not a number.
+     */
+    public long getClaimAsMillis(String claim) {
+        if (EXPIRATION_CLAIM.equals(claim)) {
+            return getExpirationMillis();
+        }
+        return Long.parseLong(getClaim(claim)) * MILLIS_PER_SEC;
+    }
+}
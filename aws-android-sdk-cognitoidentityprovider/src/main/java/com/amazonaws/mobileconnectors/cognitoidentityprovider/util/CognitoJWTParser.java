@@ -25,6 +25,9 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 
 /**
  * Utility class for all operations on JWT.
@@ -42,10 +45,7 @@ public class CognitoJWTParser {
      */
     public static JSONObject getHeader(String jwt) {
         try {
-            validateJWT(jwt);
-            final byte[] sectionDecoded = Base64.decode(jwt.split("\\.")[HEADER], Base64.URL_SAFE);
-            final String jwtSection = new String(sectionDecoded, "UTF-8");
-            return new JSONObject(jwtSection);
+            return decodeSection(splitJWT(jwt)[HEADER]);
         } catch (final UnsupportedEncodingException e) {
             throw new CognitoParameterInvalidException(e.getMessage());
         } catch (final JSONException e) {
@@ -63,11 +63,7 @@ public class CognitoJWTParser {
      */
     public static JSONObject getPayload(String jwt) {
         try {
-            validateJWT(jwt);
-            final String payload = jwt.split("\\.")[PAYLOAD];
-            final byte[] sectionDecoded = Base64.decode(payload, Base64.URL_SAFE);
-            final String jwtSection = new String(sectionDecoded, "UTF-8");
-            return new JSONObject(jwtSection);
+            return decodeSection(splitJWT(jwt)[PAYLOAD]);
         } catch (final UnsupportedEncodingException e) {
             throw new CognitoParameterInvalidException(e.getMessage());
         } catch (final JSONException e) {
@@ -85,8 +81,7 @@ public class CognitoJWTParser {
      */
     public static String getSignature(String jwt) {
         try {
-            validateJWT(jwt);
-            final byte[] sectionDecoded = Base64.decode(jwt.split("\\.")[SIGNATURE], Base64.URL_SAFE);
+            final byte[] sectionDecoded = Base64.decode(splitJWT(jwt)[SIGNATURE], Base64.URL_SAFE);
             return new String(sectionDecoded, "UTF-8");
         } catch (final Exception e) {
             throw new CognitoParameterInvalidException("error in parsing JSON");
@@ -115,16 +110,64 @@ public class CognitoJWTParser {
         return null;
     }
 
+    /**
+     * Returns all claims from the {@code JWT}s' payload. The payload is decoded
+     * once; callers that read several claims, or read the same claims
+     * repeatedly, should hold on to the returned view.
+     *
+     * @param jwt       REQUIRED: valid JSON Web Token as String.
+     * @return immutable view of the claims in the JWT.
+     */
+    public static CognitoJWTClaims getClaims(String jwt) {
+        final Map<String, String> claims = new HashMap<String, String>();
+        try {
+            final JSONObject payload = getPayload(jwt);
+            final Iterator<String> names = payload.keys();
+            while (names.hasNext()) {
+                final String name = names.next();
+                claims.put(name, payload.get(name).toString());
+            }
+        } catch (final Exception e) {
+            throw new CognitoParameterInvalidException("invalid token");
+        }
+        return new CognitoJWTClaims(claims);
+    }
+
     /**
      * Checks if {@code JWT} is a valid JSON Web Token.
      *
      * @param jwt REQUIRED: The JWT as a {@link String}.
      */
     public static void validateJWT(String jwt) {
+        splitJWT(jwt);
+    }
+
+    /**
+     * Splits a JWT into its header, payload and signature without compiling a
+     * regular expression on every call.
+     */
+    private static String[] splitJWT(String jwt) {
+        // Trailing empty parts are ignored, as String.split would
+        int end = jwt.length();
+        while (end > 0 && jwt.charAt(end - 1) == '.') {
+            end--;
+        }
         // Check if the the JWT has the three parts
-        final String[] jwtParts = jwt.split("\\.");
-        if (jwtParts.length != JWT_PARTS) {
+        final int firstDot = jwt.indexOf('.');
+        final int secondDot = (firstDot < 0 || firstDot >= end) ? -1 : jwt.indexOf('.', firstDot + 1);
+        if (secondDot < 0 || secondDot >= end || jwt.lastIndexOf('.', end - 1) != secondDot) {
             throw new CognitoParameterInvalidException("not a JSON Web Token");
         }
+        final String[] jwtParts = new String[JWT_PARTS];
+        jwtParts[HEADER] = jwt.substring(0, firstDot);
+        jwtParts[PAYLOAD] = jwt.substring(firstDot + 1, secondDot);
+        jwtParts[SIGNATURE] = jwt.substring(secondDot + 1, end);
+        return jwtParts;
+    }
+
+    private static JSONObject decodeSection(String section)
+            throws UnsupportedEncodingException, JSONException {
+        final byte[] sectionDecoded = Base64.decode(section, Base64.URL_SAFE);
+        return new JSONObject(new String(sectionDecoded, "UTF-8"));
     }
 }
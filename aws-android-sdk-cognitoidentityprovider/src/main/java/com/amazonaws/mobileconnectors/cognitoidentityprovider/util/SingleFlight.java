@@ -0,0 +1,76 @@
+/*
+ *  Copyright 2013-2016 Amazon.com,
+ *  Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Amazon Software License (the "License").
+ *  You may not use this file except in compliance with the
+ *  License. A copy of the License is located at
+ *
+ *      http://aws.amazon.com/asl/
+ *
+ *  or in the "license" file accompanying this file. This file is
+ *  distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ *  CONDITIONS OF ANY KIND, express or implied. See the License
+ *  for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cognitoidentityprovider.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Coalesces concurrent calls of the same operation. While a call for a key is
+ * running, further calls for that key wait for it and share its result or
+ * exception instead of running the operation again. A call made after the
+ * running one completes starts a new run.
+ * <p>
+ * An operation must not run another operation with the same key on the same
+ * {@code SingleFlight}; the nested call would wait for itself.
+ * </p>
+ *
+ * @param <V> result type of the operation.
+ */
+public final class SingleFlight<V> {
+    private final ConcurrentMap<Object, FutureTask<V>> inFlight =
+            new ConcurrentHashMap<Object, FutureTask<V>>();
+
+    /**
+     * Runs the operation for the key, or waits for the run already in
+     * progress for the key.
+     *
+     * @param key REQUIRED: identifies the operation.
+     * @param operation REQUIRED: the operation to run.
+     * @return the result of the operation.
+     * @throws Exception the exception thrown by the operation, or
+     *             {@link InterruptedException} if interrupted while waiting.
+     */
+    public V run(Object key, Callable<V> operation) throws Exception {
+        final FutureTask<V> task = new FutureTask<V>(operation);
+        FutureTask<V> running = inFlight.putIfAbsent(key, task);
+        if (running == null) {
+            running = task;
+            try {
+                task.run();
+            } finally {
+                inFlight.remove(key, task);
+            }
+        }
+        try {
+            return running.get();
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ *  Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Amazon Software License (the "License").
+ *  You may not use this file except in compliance with the
+ *  License. A copy of the License is located at
+ *
+ *      http://aws.amazon.com/asl/
+ *
+ *  or in the "license" file accompanying this file. This file is
+ *  distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ *  CONDITIONS OF ANY KIND, express or implied. See the License
+ *  for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cognitoidentityprovider.util;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link CognitoBackgroundExecutor}.
+ */
+public final class CognitoBackgroundExecutorTest {
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @After
+    public void tearDown() {
+        CognitoBackgroundExecutor.setExecutor(null);
+    }
+
+    @Test
+    public void saturatedPoolNeverRunsTasksOnTheSubmittingThread() throws Exception {
+        CognitoBackgroundExecutor.setMaxPoolSize(2);
+        final CountDownLatch busy = new CountDownLatch(2);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<Thread> ranOn = new CopyOnWriteArrayList<Thread>();
+        try {
+            for (int i = 0; i < 2; i++) {
+                CognitoBackgroundExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        ranOn.add(Thread.currentThread());
+                        busy.countDown();
+                        await(release);
+                    }
+                });
+            }
+            assertTrue(busy.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+            final CountDownLatch done = new CountDownLatch(3);
+            for (int i = 0; i < 3; i++) {
+                CognitoBackgroundExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        ranOn.add(Thread.currentThread());
+                        done.countDown();
+                    }
+                });
+            }
+            // they run while every pooled thread is still busy
+            assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+        }
+        assertEquals(5, ranOn.size());
+        for (final Thread thread : ranOn) {
+            assertFalse(thread == Thread.currentThread());
+            assertTrue(thread.isDaemon());
+        }
+    }
+
+    @Test
+    public void taskWaitingForAnotherTaskOnASaturatedPoolCompletes() throws Exception {
+        CognitoBackgroundExecutor.setMaxPoolSize(1);
+        final CountDownLatch signedIn = new CountDownLatch(1);
+        final CountDownLatch tokenReceived = new CountDownLatch(1);
+        // a token request that waits for a sign-in submitted after it
+        CognitoBackgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                await(signedIn);
+                tokenReceived.countDown();
+            }
+        });
+        CognitoBackgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                signedIn.countDown();
+            }
+        });
+        assertTrue(tokenReceived.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyPool() {
+        CognitoBackgroundExecutor.setMaxPoolSize(0);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
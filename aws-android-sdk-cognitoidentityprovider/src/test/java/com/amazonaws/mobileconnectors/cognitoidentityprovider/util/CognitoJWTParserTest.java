@@ -0,0 +1,114 @@
+/*
+ *  Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Amazon Software License (the "License").
+ *  You may not use this file except in compliance with the
+ *  License. A copy of the License is located at
+ *
+ *      http://aws.amazon.com/asl/
+ *
+ *  or in the "license" file accompanying this file. This file is
+ *  distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ *  CONDITIONS OF ANY KIND, express or implied. See the License
+ *  for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cognitoidentityprovider.util;
+
+import android.util.Base64;
+
+import com.amazonaws.mobileconnectors.cognitoidentityprovider.exceptions.CognitoParameterInvalidException;
+import com.amazonaws.mobileconnectors.cognitoidentityprovider.tokens.CognitoAccessToken;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the {@link CognitoJWTParser} and {@link CognitoJWTClaims}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest= Config.NONE, sdk = 27)
+public final class CognitoJWTParserTest {
+
+    private static String encode(String section) throws Exception {
+        return Base64.encodeToString(section.getBytes("UTF-8"),
+                Base64.URL_SAFE | Base64.NO_WRAP | Base64.NO_PADDING);
+    }
+
+    private static String jwt(String payload) throws Exception {
+        return encode("{\"alg\":\"none\"}") + "." + encode(payload) + "." + encode("signature");
+    }
+
+    @Test
+    public void claimsMatchParser() throws Exception {
+        final String token = jwt("{\"exp\":1500000000,\"username\":\"user\",\"groups\":[\"a\"]}");
+        final CognitoJWTClaims claims = CognitoJWTParser.getClaims(token);
+
+        assertEquals(CognitoJWTParser.getClaim(token, "username"), claims.getClaim("username"));
+        assertEquals(CognitoJWTParser.getClaim(token, "groups"), claims.getClaim("groups"));
+        assertEquals(1500000000000L, claims.getExpirationMillis());
+        assertTrue(claims.hasClaim("exp"));
+        assertFalse(claims.hasClaim("nbf"));
+        assertEquals("signature", CognitoJWTParser.getSignature(token));
+    }
+
+    @Test
+    public void missingClaimIsInvalid() throws Exception {
+        final CognitoJWTClaims claims = CognitoJWTParser.getClaims(jwt("{\"username\":\"user\"}"));
+        try {
+            claims.getClaim("exp");
+            fail("expected CognitoParameterInvalidException");
+        } catch (final CognitoParameterInvalidException e) {
+            assertEquals("invalid token", e.getMessage());
+        }
+        try {
+            claims.getExpirationMillis();
+            fail("expected CognitoParameterInvalidException");
+        } catch (final CognitoParameterInvalidException e) {
+            assertEquals("invalid token", e.getMessage());
+        }
+    }
+
+    @Test
+    public void malformedTokenIsInvalid() throws Exception {
+        final String payload = encode("{\"exp\":1}");
+        final String[] malformed = {
+                "", "a", "a." + payload, "a." + payload + ".", "a." + payload + ".b.c"
+        };
+        for (final String token : malformed) {
+            try {
+                CognitoJWTParser.validateJWT(token);
+                fail("expected CognitoParameterInvalidException for " + token);
+            } catch (final CognitoParameterInvalidException e) {
+                assertEquals("not a JSON Web Token", e.getMessage());
+            }
+            try {
+                CognitoJWTParser.getClaims(token);
+                fail("expected CognitoParameterInvalidException for " + token);
+            } catch (final CognitoParameterInvalidException e) {
+                assertEquals("invalid token", e.getMessage());
+            }
+        }
+        // Trailing separators are ignored, as they were by String.split
+        CognitoJWTParser.validateJWT("a." + payload + ".b..");
+    }
+
+    @Test
+    public void accessTokenReadsCachedClaims() throws Exception {
+        final CognitoAccessToken token =
+                new CognitoAccessToken(jwt("{\"exp\":1500000000,\"username\":\"user\"}"));
+        assertEquals(new Date(1500000000000L), token.getExpiration());
+        assertEquals(new Date(1500000000000L), token.getExpiration());
+        assertEquals("user", token.getUsername());
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ *  Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Licensed under the Amazon Software License (the "License").
+ *  You may not use this file except in compliance with the
+ *  License. A copy of the License is located at
+ *
+ *      http://aws.amazon.com/asl/
+ *
+ *  or in the "license" file accompanying this file. This file is
+ *  distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ *  CONDITIONS OF ANY KIND, express or implied. See the License
+ *  for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cognitoidentityprovider.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the {@link SingleFlight}.
+ */
+public final class SingleFlightTest {
+
+    @Test
+    public void concurrentCallsShareOneRun() throws Exception {
+        final SingleFlight<String> flight = new SingleFlight<String>();
+        final AtomicInteger runs = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Callable<String> operation = new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                runs.incrementAndGet();
+                started.countDown();
+                release.await();
+                return "session";
+            }
+        };
+
+        final AtomicReference<Object> failure = new AtomicReference<Object>();
+        final Runnable caller = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    assertEquals("session", flight.run("user", operation));
+                } catch (final Throwable t) {
+                    failure.set(t);
+                }
+            }
+        };
+        final Thread leader = new Thread(caller);
+        leader.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // The run is now blocked on the release latch, so every caller started
+        // from here on must join it rather than start its own.
+        final Thread[] followers = new Thread[3];
+        for (int i = 0; i < followers.length; i++) {
+            followers[i] = new Thread(caller);
+            followers[i].start();
+        }
+        for (final Thread follower : followers) {
+            awaitWaiting(follower);
+        }
+        release.countDown();
+        leader.join(5000);
+        for (final Thread follower : followers) {
+            follower.join(5000);
+            assertTrue(!follower.isAlive());
+        }
+        assertEquals(null, failure.get());
+        assertEquals(1, runs.get());
+
+        // A call after the run completed runs the operation again.
+        assertEquals("session", flight.run("user", operation));
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    public void exceptionIsRethrown() throws Exception {
+        final SingleFlight<String> flight = new SingleFlight<String>();
+        final IllegalStateException error = new IllegalStateException("refresh failed");
+        try {
+            flight.run("user", new Callable<String>() {
+                @Override
+                public String call() {
+                    throw error;
+                }
+            });
+            fail("expected IllegalStateException");
+        } catch (final IllegalStateException e) {
+            assertSame(error, e);
+        }
+    }
+
+    /**
+     * Waits until the thread parks, i.e. waits for the run in progress.
+     */
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != Thread.State.WAITING) {
+            assertTrue("caller did not join the run in progress", System.nanoTime() < deadline);
+            Thread.yield();
+        }
+    }
+}
@@ -24,6 +24,7 @@ import static com.amazonaws.internal.keyvaluestore.AWSKeyValueStore.SHARED_PREFE
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import android.content.Context;
@@ -33,6 +34,7 @@ import android.util.Log;
 
 import java.security.Key;
 import java.security.KeyStore;
+import java.util.HashMap;
 import java.util.Map;
 
 public class AWSKeyValueStoreIntegrationTest extends CoreIntegrationTestBase {
@@ -180,6 +182,33 @@ public class AWSKeyValueStoreIntegrationTest extends CoreIntegrationTestBase {
         assertEquals(value, keyStore2.get(key));
     }
 
+    @Test
+    public void testPutAllPersistence() {
+        final Map<String, String> entries = new HashMap<String, String>();
+        entries.put("access-key", "a-dummy-access-key");
+        entries.put("secret-key", "a-dummy-secret-key");
+        entries.put("session-token", "a-dummy-session-token");
+        awsKeyValueStore.putAll(entries);
+        for (String key : entries.keySet()) {
+            assertEquals(entries.get(key), awsKeyValueStore.get(key));
+        }
+
+        // A new store decrypts the persisted entries when it is created.
+        AWSKeyValueStore.cacheFactory.clear();
+        AWSKeyValueStore keyStore2 = new AWSKeyValueStore(ApplicationProvider.getApplicationContext(),
+                DEFAULT_SHARED_PREFERENCES_NAME,
+                true);
+        for (String key : entries.keySet()) {
+            assertTrue(keyStore2.contains(key));
+            assertEquals(entries.get(key), keyStore2.get(key));
+        }
+
+        entries.put("session-token", null);
+        keyStore2.putAll(entries);
+        assertNull(keyStore2.get("session-token"));
+        assertEquals("a-dummy-access-key", keyStore2.get("access-key"));
+    }
+
     @Test
     public void testGetSetPersistenceMigration() {
         final String sharedPreferencesName = "my.shared.preferences";
@@ -42,6 +42,8 @@ import com.amazonaws.logging.LogFactory;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
@@ -65,6 +67,13 @@ public abstract class AmazonWebServiceClient {
     private static final Log LOG =
             LogFactory.getLog(AmazonWebServiceClient.class);
 
+    /**
+     * Service names computed from the client class names, shared by all
+     * instances of a client class.
+     */
+    private static final Map<Class<?>, String> SERVICE_NAMES =
+            new ConcurrentHashMap<Class<?>, String>();
+
     /**
      * The service endpoint to which this client will send requests.
      * <p>
@@ -414,9 +423,7 @@ public abstract class AmazonWebServiceClient {
             }
         }
 
-        synchronized (this) {
-            this.region = Region.getRegion(regionId);
-        }
+        this.region = Region.getRegion(regionId);
         return signer;
     }
 
@@ -799,6 +806,16 @@ public abstract class AmazonWebServiceClient {
      */
     @SuppressWarnings("checkstyle:hiddenfield")
     private String computeServiceName() {
+        String service = SERVICE_NAMES.get(getClass());
+        if (service == null) {
+            service = computeServiceNameByClass();
+            SERVICE_NAMES.put(getClass(), service);
+        }
+        return service;
+    }
+
+    @SuppressWarnings("checkstyle:hiddenfield")
+    private String computeServiceNameByClass() {
         final Class<?> httpClientClass = Classes.childClassOf(
                 AmazonWebServiceClient.class, this);
         final String httpClientName = httpClientClass.getSimpleName();
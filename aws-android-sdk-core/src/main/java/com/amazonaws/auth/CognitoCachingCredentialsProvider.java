@@ -29,6 +29,7 @@ import com.amazonaws.services.securitytoken.AWSSecurityTokenService;
 import com.amazonaws.util.VersionInfoUtils;
 
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -638,10 +639,12 @@ public class CognitoCachingCredentialsProvider
     private void saveCredentials(final AWSSessionCredentials sessionCredentials, final long time) {
         LOG.debug("Saving credentials to SharedPreferences");
         if (sessionCredentials != null) {
-            awsKeyValueStore.put(namespace(AK_KEY), sessionCredentials.getAWSAccessKeyId());
-            awsKeyValueStore.put(namespace(SK_KEY), sessionCredentials.getAWSSecretKey());
-            awsKeyValueStore.put(namespace(ST_KEY), sessionCredentials.getSessionToken());
-            awsKeyValueStore.put(namespace(EXP_KEY), String.valueOf(time));
+            final Map<String, String> credentials = new HashMap<String, String>();
+            credentials.put(namespace(AK_KEY), sessionCredentials.getAWSAccessKeyId());
+            credentials.put(namespace(SK_KEY), sessionCredentials.getAWSSecretKey());
+            credentials.put(namespace(ST_KEY), sessionCredentials.getSessionToken());
+            credentials.put(namespace(EXP_KEY), String.valueOf(time));
+            awsKeyValueStore.putAll(credentials);
         }
     }
 
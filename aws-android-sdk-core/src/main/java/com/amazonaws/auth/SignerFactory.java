@@ -113,7 +113,7 @@ public final class SignerFactory {
             throw new IllegalArgumentException();
         Signer signer;
         try {
-            signer = signerClass.newInstance();
+            signer = newSigner(signerClass);
         } catch (InstantiationException ex) {
             throw new IllegalStateException(
                     "Cannot create an instance of " + signerClass.getName(),
@@ -129,4 +129,21 @@ public final class SignerFactory {
         }
         return signer;
     }
+
+    /**
+     * Creates an instance of the signer class. The standard signers are
+     * constructed directly, which is cheaper than reflection for the signer
+     * every client creates.
+     */
+    private static Signer newSigner(Class<? extends Signer> signerClass)
+            throws InstantiationException, IllegalAccessException {
+        if (signerClass == AWS4Signer.class) {
+            return new AWS4Signer();
+        } else if (signerClass == QueryStringSigner.class) {
+            return new QueryStringSigner();
+        } else if (signerClass == NoOpSigner.class) {
+            return new NoOpSigner();
+        }
+        return signerClass.newInstance();
+    }
 }
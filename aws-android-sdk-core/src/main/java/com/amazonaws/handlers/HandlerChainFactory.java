@@ -24,13 +24,24 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Factory for creating request/response handler chains.
  */
 public class HandlerChainFactory {
 
+    /**
+     * Handler classes listed in each resource, so that clients created after
+     * the first one don't read the resource and load the classes again. Most
+     * resources don't exist, which is cached as an empty list.
+     */
+    private static final Map<String, List<Class<?>>> HANDLER_CLASSES =
+            new ConcurrentHashMap<String, List<Class<?>>>();
+
     /**
      * For backward compatibility, constructs a new request handler chain
      * adapted to {@link RequestHandler2} by analyzing the specified classpath
@@ -58,16 +69,53 @@ public class HandlerChainFactory {
         return createRequestHandlerChain(resource, RequestHandler2.class);
     }
 
-    @SuppressWarnings("checkstyle:emptyblock")
     private List<RequestHandler2> createRequestHandlerChain(String resource,
             Class<?> handlerApiClass) {
-        List<RequestHandler2> handlers = new ArrayList<RequestHandler2>();
+        final List<Class<?>> handlerClasses = getHandlerClasses(resource, handlerApiClass);
+        final List<RequestHandler2> handlers =
+                new ArrayList<RequestHandler2>(handlerClasses.size());
+        try {
+            // Handlers may keep state, so every chain gets its own instances.
+            for (final Class<?> requestHandlerClass : handlerClasses) {
+                Object requestHandlerObject = requestHandlerClass.newInstance();
+                if (handlerApiClass == RequestHandler2.class) {
+                    RequestHandler2 h = (RequestHandler2) requestHandlerObject;
+                    handlers.add(h);
+                } else if (handlerApiClass == RequestHandler.class) {
+                    RequestHandler h = (RequestHandler) requestHandlerObject;
+                    handlers.add(RequestHandler2.adapt(h));
+                } else {
+                    throw new IllegalStateException();
+                }
+            }
+        } catch (Exception e) {
+            throw new AmazonClientException(
+                    "Unable to instantiate request handler chain for client: "
+                            + e.getMessage(), e);
+        }
+        return handlers;
+    }
+
+    private List<Class<?>> getHandlerClasses(String resource, Class<?> handlerApiClass) {
+        final String key = getClass().getName() + "|" + handlerApiClass.getName() + "|"
+                + resource;
+        List<Class<?>> handlerClasses = HANDLER_CLASSES.get(key);
+        if (handlerClasses == null) {
+            handlerClasses = loadHandlerClasses(resource, handlerApiClass);
+            HANDLER_CLASSES.put(key, handlerClasses);
+        }
+        return handlerClasses;
+    }
+
+    @SuppressWarnings("checkstyle:emptyblock")
+    private List<Class<?>> loadHandlerClasses(String resource, Class<?> handlerApiClass) {
+        List<Class<?>> handlerClasses = new ArrayList<Class<?>>();
         BufferedReader reader = null;
 
         try {
             InputStream input = getClass().getResourceAsStream(resource);
             if (input == null)
-                return handlers;
+                return Collections.emptyList();
 
             reader = new BufferedReader(new InputStreamReader(input, StringUtils.UTF8));
             while (true) {
@@ -80,18 +128,7 @@ public class HandlerChainFactory {
                 Class<?> requestHandlerClass = ClassLoaderHelper.loadClass(
                         requestHandlerClassName,
                         handlerApiClass, getClass());
-                Object requestHandlerObject = requestHandlerClass.newInstance();
-                if (handlerApiClass.isInstance(requestHandlerObject)) {
-                    if (handlerApiClass == RequestHandler2.class) {
-                        RequestHandler2 h = (RequestHandler2) requestHandlerObject;
-                        handlers.add(h);
-                    } else if (handlerApiClass == RequestHandler.class) {
-                        RequestHandler h = (RequestHandler) requestHandlerObject;
-                        handlers.add(RequestHandler2.adapt(h));
-                    } else {
-                        throw new IllegalStateException();
-                    }
-                } else {
+                if (!handlerApiClass.isAssignableFrom(requestHandlerClass)) {
                     throw new AmazonClientException(
                             "Unable to instantiate request handler chain for client.  "
                                     + "Listed request handler ('"
@@ -99,6 +136,7 @@ public class HandlerChainFactory {
                                     + "does not implement the "
                                     + handlerApiClass + " API.");
                 }
+                handlerClasses.add(requestHandlerClass);
             }
         } catch (Exception e) {
             throw new AmazonClientException(
@@ -112,6 +150,6 @@ public class HandlerChainFactory {
             } catch (IOException e) {
             }
         }
-        return handlers;
+        return Collections.unmodifiableList(handlerClasses);
     }
 }
@@ -23,7 +23,9 @@ import com.amazonaws.util.StringUtils;
 import com.amazonaws.util.json.JsonUtils;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.List;
 import java.util.Map;
@@ -190,8 +192,15 @@ public class JsonErrorResponseHandler implements HttpResponseHandler<AmazonServi
             int statusCode = response.getStatusCode();
 
             // parse error body
-            Map<String, String> map = JsonUtils.jsonToStringMapWithList(new BufferedReader(new InputStreamReader(
-                    response.getContent(), StringUtils.UTF8)));
+            final Map<String, String> map;
+            if (JsonResponseHandler.isCborContent(response)) {
+                final InputStream content = response.getContent();
+                map = JsonUtils.jsonToStringMapWithList(JsonUtils.getCborReader(
+                        content != null ? content : new ByteArrayInputStream(new byte[0])));
+            } else {
+                map = JsonUtils.jsonToStringMapWithList(new BufferedReader(new InputStreamReader(
+                        response.getContent(), StringUtils.UTF8)));
+            }
 
             /*
              * Services using AWS JSON 1.1 protocol with HTTP binding send the
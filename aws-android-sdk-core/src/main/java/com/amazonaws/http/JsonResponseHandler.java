@@ -49,6 +49,14 @@ public class JsonResponseHandler<T> implements HttpResponseHandler<AmazonWebServ
     /** The JSON unmarshaller to use when handling the response */
     private Unmarshaller<T, JsonUnmarshallerContext> responseUnmarshaller;
 
+    /** Content type of responses encoded in CBOR rather than JSON. */
+    static final String CBOR_CONTENT_TYPE = "application/x-amz-cbor-1.1";
+
+    /** An empty CBOR map, the CBOR counterpart of "{}". */
+    private static final byte[] EMPTY_CBOR_MAP = {
+            (byte) 0xa0
+    };
+
     /** Shared logger for profiling information */
     private static final Log log = LogFactory.getLog("com.amazonaws.request");
 
@@ -89,10 +97,11 @@ public class JsonResponseHandler<T> implements HttpResponseHandler<AmazonWebServ
 
         // Get the raw content input stream to calculate the crc32 checksum on
         // gzipped data.
+        final boolean isCbor = isCborContent(response);
         InputStream content = response.getRawContent();
         if (content == null) {
             // An empty input stream to avoid NPE
-            content = new ByteArrayInputStream("{}".getBytes(StringUtils.UTF8));
+            content = new ByteArrayInputStream(isCbor ? EMPTY_CBOR_MAP : "{}".getBytes(StringUtils.UTF8));
         }
 
         log.debug("CRC32Checksum = " + crc32Checksum);
@@ -115,8 +124,9 @@ public class JsonResponseHandler<T> implements HttpResponseHandler<AmazonWebServ
             content = new GZIPInputStream(content);
         }
 
-        final AwsJsonReader jsonReader = JsonUtils.getJsonReader(new InputStreamReader(content,
-                StringUtils.UTF8));
+        final AwsJsonReader jsonReader = isCbor
+                ? JsonUtils.getCborReader(content)
+                : JsonUtils.getJsonReader(new InputStreamReader(content, StringUtils.UTF8));
 
         try {
             final AmazonWebServiceResponse<T> awsResponse = new AmazonWebServiceResponse<T>();
@@ -154,6 +164,20 @@ public class JsonResponseHandler<T> implements HttpResponseHandler<AmazonWebServ
         }
     }
 
+    /**
+     * @param response the HTTP response.
+     * @return true if the response body is CBOR encoded.
+     */
+    static boolean isCborContent(HttpResponse response) {
+        for (final Map.Entry<String, String> header : response.getHeaders().entrySet()) {
+            if ("Content-Type".equalsIgnoreCase(header.getKey())) {
+                final String value = header.getValue();
+                return value != null && value.startsWith(CBOR_CONTENT_TYPE);
+            }
+        }
+        return false;
+    }
+
     /**
      * Hook for subclasses to override in order to collect additional metadata
      * from service responses.
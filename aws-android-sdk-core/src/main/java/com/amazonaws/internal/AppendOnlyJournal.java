@@ -0,0 +1,362 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A first-in, first-out queue of records kept in a file, so that queued
+ * records survive the process being killed.
+ * <p>
+ * Records are appended to the file, each prefixed by its length, with one
+ * write per call. The file starts with the offset of the oldest record still
+ * queued, which is advanced as records are removed from the front. A record
+ * torn by a kill during an append is dropped when the journal is opened
+ * again. The space of removed records is reclaimed when the journal empties,
+ * or by copying the queued records to a new file once the removed records
+ * take more than the compaction threshold.
+ * </p>
+ * <p>
+ * Only the position and length of each record are kept in memory; payloads
+ * are read from the file when needed.
+ * </p>
+ */
+public final class AppendOnlyJournal {
+
+    /** Size of the file header holding the offset of the oldest record. */
+    private static final int FILE_HEADER_SIZE = 8;
+    /** Size of the length prefix of each record. */
+    private static final int LENGTH_PREFIX_SIZE = 4;
+    /** Buffer size when copying records to a compacted file. */
+    private static final int COPY_BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * A queued record. Identifies the record to read; its position in the
+     * file is managed by the journal.
+     */
+    public static final class Record {
+        private final int length;
+        private long offset;
+
+        Record(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+        /**
+         * @return the length of the record's payload.
+         */
+        public int getPayloadLength() {
+            return length - LENGTH_PREFIX_SIZE;
+        }
+    }
+
+    private final File file;
+    private final long compactionThreshold;
+    private RandomAccessFile data;
+
+    /** Queued records, oldest first. */
+    private final ArrayDeque<Record> records = new ArrayDeque<Record>();
+    /** Bytes held by queued records. */
+    private long queuedBytes;
+    /** Offset at which the next record is appended. */
+    private long endOffset;
+
+    /**
+     * Opens the journal, restoring the records queued by an earlier process.
+     *
+     * @param file the journal file.
+     * @param compactionThreshold bytes of removed records at the start of the
+     *            file above which the file is compacted.
+     * @throws IOException if the journal file cannot be opened.
+     */
+    public AppendOnlyJournal(File file, long compactionThreshold) throws IOException {
+        if (compactionThreshold <= 0) {
+            throw new IllegalArgumentException("compactionThreshold must be positive");
+        }
+        this.file = file;
+        this.compactionThreshold = compactionThreshold;
+        open();
+    }
+
+    /**
+     * @param payloadLength length of a record's payload.
+     * @return the bytes the record takes in the file, as counted by
+     *         {@link #sizeInBytes()}.
+     */
+    public static int getRecordSize(int payloadLength) {
+        return LENGTH_PREFIX_SIZE + payloadLength;
+    }
+
+    /**
+     * Appends records to the journal in one write.
+     *
+     * @param payloads the payloads of the records.
+     * @return the appended records, in order.
+     * @throws IOException if the records cannot be written.
+     */
+    public synchronized List<Record> append(List<byte[]> payloads) throws IOException {
+        if (payloads.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        final List<Record> appended = new ArrayList<Record>(payloads.size());
+        long offset = endOffset;
+        for (final byte[] payload : payloads) {
+            final int length = LENGTH_PREFIX_SIZE + payload.length;
+            out.writeInt(length);
+            out.write(payload);
+            appended.add(new Record(offset, length));
+            offset += length;
+        }
+        out.flush();
+
+        data.seek(endOffset);
+        data.write(bytes.toByteArray());
+        endOffset = offset;
+        for (final Record record : appended) {
+            records.addLast(record);
+            queuedBytes += record.length;
+        }
+        return appended;
+    }
+
+    /**
+     * Reads the payloads of queued records. Records adjacent in the file are
+     * read at once.
+     *
+     * @param toRead queued records, in the order they were appended.
+     * @return their payloads, in the same order.
+     * @throws IOException if the records cannot be read.
+     */
+    public synchronized List<byte[]> read(List<Record> toRead) throws IOException {
+        final List<byte[]> payloads = new ArrayList<byte[]>(toRead.size());
+        int first = 0;
+        while (first < toRead.size()) {
+            final long start = toRead.get(first).offset;
+            long runBytes = 0;
+            int end = first;
+            while (end < toRead.size() && toRead.get(end).offset == start + runBytes) {
+                runBytes += toRead.get(end).length;
+                end++;
+            }
+
+            final byte[] bytes = new byte[(int) runBytes];
+            data.seek(start);
+            data.readFully(bytes);
+            int position = 0;
+            for (int i = first; i < end; i++) {
+                final Record record = toRead.get(i);
+                final byte[] payload = new byte[record.getPayloadLength()];
+                System.arraycopy(bytes, position + LENGTH_PREFIX_SIZE, payload, 0, payload.length);
+                payloads.add(payload);
+                position += record.length;
+            }
+            first = end;
+        }
+        return payloads;
+    }
+
+    /**
+     * @param maxCount most records to return.
+     * @return the oldest queued records, oldest first.
+     */
+    public synchronized List<Record> getOldest(int maxCount) {
+        final List<Record> oldest = new ArrayList<Record>(Math.min(maxCount, records.size()));
+        final Iterator<Record> iterator = records.iterator();
+        while (iterator.hasNext() && oldest.size() < maxCount) {
+            oldest.add(iterator.next());
+        }
+        return oldest;
+    }
+
+    /**
+     * Removes the oldest records.
+     *
+     * @param count the number of records to remove.
+     * @throws IOException if the file cannot be updated.
+     */
+    public synchronized void removeOldest(int count) throws IOException {
+        if (count <= 0) {
+            return;
+        }
+        for (int i = 0; i < count && !records.isEmpty(); i++) {
+            queuedBytes -= records.removeFirst().length;
+        }
+        advanceHead();
+    }
+
+    /**
+     * Removes the oldest records until the queued records take at most the
+     * given number of bytes.
+     *
+     * @param maxBytes most bytes to keep queued.
+     * @return the number of records removed.
+     * @throws IOException if the file cannot be updated.
+     */
+    public synchronized int trimTo(long maxBytes) throws IOException {
+        int removed = 0;
+        while (queuedBytes > maxBytes && !records.isEmpty()) {
+            queuedBytes -= records.removeFirst().length;
+            removed++;
+        }
+        if (removed > 0) {
+            advanceHead();
+        }
+        return removed;
+    }
+
+    /**
+     * @return the number of queued records.
+     */
+    public synchronized int size() {
+        return records.size();
+    }
+
+    /**
+     * @return the bytes queued records take in the file.
+     */
+    public synchronized long sizeInBytes() {
+        return queuedBytes;
+    }
+
+    /**
+     * @return true if no records are queued.
+     */
+    public synchronized boolean isEmpty() {
+        return records.isEmpty();
+    }
+
+    /**
+     * Closes the journal file.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    public synchronized void close() throws IOException {
+        data.close();
+    }
+
+    /**
+     * Opens the journal file and indexes the records it holds, truncating a
+     * record torn by an interrupted append.
+     */
+    private void open() throws IOException {
+        data = new RandomAccessFile(file, "rw");
+        final long length = data.length();
+        long head = FILE_HEADER_SIZE;
+        if (length < FILE_HEADER_SIZE) {
+            data.setLength(0);
+            writeHead(FILE_HEADER_SIZE);
+        } else {
+            data.seek(0);
+            head = data.readLong();
+            if (head < FILE_HEADER_SIZE || head > length) {
+                head = FILE_HEADER_SIZE;
+            }
+        }
+
+        long offset = head;
+        final long fileLength = Math.max(length, FILE_HEADER_SIZE);
+        while (offset + LENGTH_PREFIX_SIZE <= fileLength) {
+            data.seek(offset);
+            final int recordLength = data.readInt();
+            if (recordLength < LENGTH_PREFIX_SIZE || offset + recordLength > fileLength) {
+                break;
+            }
+            records.addLast(new Record(offset, recordLength));
+            queuedBytes += recordLength;
+            offset += recordLength;
+        }
+        if (offset < fileLength) {
+            data.setLength(offset);
+        }
+        endOffset = offset;
+    }
+
+    /**
+     * Moves the start of the journal to the oldest record still queued,
+     * reclaiming space when the journal is empty or the removed records
+     * exceed the compaction threshold.
+     */
+    private void advanceHead() throws IOException {
+        if (records.isEmpty()) {
+            data.setLength(FILE_HEADER_SIZE);
+            writeHead(FILE_HEADER_SIZE);
+            endOffset = FILE_HEADER_SIZE;
+            return;
+        }
+        final long head = records.peekFirst().offset;
+        if (head - FILE_HEADER_SIZE > compactionThreshold) {
+            compact(head);
+        } else {
+            writeHead(head);
+        }
+    }
+
+    /**
+     * Copies the queued records to a new file and replaces the journal file
+     * with it.
+     */
+    private void compact(long head) throws IOException {
+        final File compacted = new File(file.getPath() + ".tmp");
+        final RandomAccessFile out = new RandomAccessFile(compacted, "rw");
+        try {
+            out.setLength(0);
+            out.writeLong(FILE_HEADER_SIZE);
+            final byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            data.seek(head);
+            long remaining = endOffset - head;
+            while (remaining > 0) {
+                final int read = data.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    throw new IOException("Unexpected end of journal file " + file);
+                }
+                out.write(buffer, 0, read);
+                remaining -= read;
+            }
+        } finally {
+            out.close();
+        }
+
+        data.close();
+        if (!compacted.renameTo(file)) {
+            data = new RandomAccessFile(file, "rw");
+            writeHead(head);
+            throw new IOException("Unable to replace " + file);
+        }
+        data = new RandomAccessFile(file, "rw");
+        final long shift = head - FILE_HEADER_SIZE;
+        for (final Record record : records) {
+            record.offset -= shift;
+        }
+        endOffset -= shift;
+    }
+
+    private void writeHead(long head) throws IOException {
+        data.seek(0);
+        data.writeLong(head);
+    }
+}
@@ -26,10 +26,13 @@ import com.amazonaws.util.Base64;
 import java.security.Key;
 import java.security.SecureRandom;
 import java.security.spec.AlgorithmParameterSpec;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.crypto.Cipher;
 import javax.crypto.spec.GCMParameterSpec;
@@ -44,12 +47,26 @@ public class AWSKeyValueStore {
     // This cacheFactory will maintain a reference to the same cache for the same
     // SharedPreferences Name thus producing a 1:1 mapping between a in-memory cache
     // and the SharedPreferences.
-    static Map<String, HashMap<String, String>> cacheFactory = new HashMap<String, HashMap<String, String>>();
+    static Map<String, Map<String, String>> cacheFactory = new ConcurrentHashMap<String, Map<String, String>>();
+
+    // Encryption keys by SharedPreferences name and alias. Retrieving a key goes
+    // to the AndroidKeyStore (or decrypts the key stored in SharedPreferences on
+    // older API levels), so a key is only retrieved once per process. The alias
+    // alone is not enough: on API levels 10 to 17 every store has the same alias
+    // but its own key, in its own encryption key SharedPreferences.
+    private static final Map<String, Key> encryptionKeyCache = new ConcurrentHashMap<String, Key>();
 
     // In-memory store operates on the key passed in and does not use the suffixes.
-    private Map<String, String> cache;
+    // Reads go straight to this map without locking; writes are serialized on
+    // this instance so that the cache and the persistent store stay in step.
+    private final Map<String, String> cache;
+
+    private volatile boolean isPersistenceEnabled;
+
+    // Set once every entry of the persistent store has been decrypted into the
+    // in-memory cache. From then on a cache miss means the key is absent.
+    private volatile boolean isPersistentStoreLoaded;
 
-    private boolean isPersistenceEnabled;
     Context context;
     SharedPreferences sharedPreferencesForData;
     private final String sharedPreferencesName;
@@ -61,6 +78,10 @@ public class AWSKeyValueStore {
     // SecureRandom is expensive.
     private SecureRandom secureRandom;
 
+    // Reused for every encryption and decryption; only used while holding
+    // the lock on this instance.
+    private Cipher cipher;
+
     private static final String CIPHER_AES_GCM_NOPADDING = "AES/GCM/NoPadding";
     private static final int CIPHER_AES_GCM_NOPADDING_IV_LENGTH_IN_BYTES = 12;
     private static final int CIPHER_AES_GCM_NOPADDING_TAG_LENGTH_LENGTH_IN_BITS = 128;
@@ -99,11 +120,12 @@ public class AWSKeyValueStore {
     private static final int AWS_KEY_VALUE_STORE_VERSION = 1;
 
     private static Map<String, String> getCacheForKey(String key) {
-        if (cacheFactory.containsKey(key)) {
-            return cacheFactory.get(key);
-        } else {
-            HashMap<String, String> cache = new HashMap<String, String>();
-            cacheFactory.put(key, cache);
+        synchronized (cacheFactory) {
+            Map<String, String> cache = cacheFactory.get(key);
+            if (cache == null) {
+                cache = new ConcurrentHashMap<String, String>();
+                cacheFactory.put(key, cache);
+            }
             return cache;
         }
     }
@@ -133,6 +155,9 @@ public class AWSKeyValueStore {
      * Setting isPersistenceEnabled to false will clear the data
      * persisted on SharedPreferences.
      *
+     * Enabling persistence decrypts everything already persisted into
+     * the in-memory cache, so later reads never touch the disk.
+     *
      * @param isPersistenceEnabled flag that indicates persistence
      */
     public synchronized void setPersistenceEnabled(boolean isPersistenceEnabled) {
@@ -154,8 +179,10 @@ public class AWSKeyValueStore {
                         "sharedPreferencesForData = " + sharedPreferencesName);
 
                 onMigrateFromNoEncryption();
+                loadPersistentStore();
             } else if (!isPersistenceEnabled) {
                 logger.info("Persistence is disabled. Data will be accessed from memory.");
+                isPersistentStoreLoaded = false;
             }
 
             // Transitioning from true to false for isPersistenceEnabled
@@ -178,15 +205,16 @@ public class AWSKeyValueStore {
      * @return true if a key-value pair exists for the key
      *         passed in.
      */
-    public synchronized boolean contains(final String dataKey) {
-        if (isPersistenceEnabled) {
-            if (cache.containsKey(dataKey)) {
-                return true;
-            } else {
-                return sharedPreferencesForData.contains(getDataKeyUsedInPersistentStore(dataKey));
-            }
-        } else {
-            return cache.containsKey(dataKey);
+    public boolean contains(final String dataKey) {
+        if (cache.containsKey(dataKey)) {
+            return true;
+        }
+        if (!isPersistenceEnabled || isPersistentStoreLoaded) {
+            return false;
+        }
+        synchronized (this) {
+            return isPersistenceEnabled
+                    && sharedPreferencesForData.contains(getDataKeyUsedInPersistentStore(dataKey));
         }
     }
 
@@ -194,33 +222,46 @@ public class AWSKeyValueStore {
      * Retrieve the value for the given key from the key-value store.
      *
      * First, retrieve the data from in-memory cache always.
-     * Only if the in-memory cache does not contain the data,
-     * go to the persistent store, read the data and return.
+     * Only if the in-memory cache does not contain the data and the
+     * persistent store could not be loaded up front, go to the
+     * persistent store, read the data and return.
      *
      * @param dataKey key that identifies the value to be retrieved.
      * @return the value corresponding to the key.
      */
-    public synchronized String get(final String dataKey) {
+    public String get(final String dataKey) {
         if (dataKey == null) {
             return null;
         }
 
+        final String value = cache.get(dataKey);
+        if (value != null || !isPersistenceEnabled || isPersistentStoreLoaded) {
+            return value;
+        }
+
+        return getFromPersistentStore(dataKey);
+    }
+
+    private synchronized String getFromPersistentStore(final String dataKey) {
         if (cache.containsKey(dataKey) || !isPersistenceEnabled) {
             return cache.get(dataKey);
         }
 
-        // Retrieve the decryption key used for decrypting the data.
-
         // dataKey becomes dataKey.encrypted
         String dataKeyInPersistentStore = getDataKeyUsedInPersistentStore(dataKey);
 
-        String encryptionKeyAlias = getEncryptionKeyAlias();
+        // If the key-value pair is not found in the SharedPreferences,
+        // return null.
+        if (!sharedPreferencesForData.contains(dataKeyInPersistentStore)) {
+            return null;
+        }
 
+        // Retrieve the decryption key used for decrypting the data.
         // Based on the encryption key alias, retrieve the encryption key
         // If the encryption key cannot be retrieved, return null and
         // the consumer of get would treat it as if this data is not present
         // on the persistent store.
-        Key decryptionKey = retrieveEncryptionKey(encryptionKeyAlias);
+        Key decryptionKey = retrieveEncryptionKey(getEncryptionKeyAlias());
         if (decryptionKey == null) {
             logger.error("Error in retrieving the decryption key " +
                     "used to decrypt the data from the persistent store. " +
@@ -228,36 +269,18 @@ public class AWSKeyValueStore {
             return null;
         }
 
-        // If the key-value pair is not found in the SharedPreferences,
-        // return null.
-        if (!sharedPreferencesForData.contains(dataKeyInPersistentStore)) {
-            return null;
-        }
-
         try {
-            // If the version of data stored mismatches with the version of the store,
-            // return null.
-            final int keyValueStoreVersion = Integer.parseInt(
-                    sharedPreferencesForData
-                            .getString(dataKeyInPersistentStore + SHARED_PREFERENCES_STORE_VERSION_SUFFIX, null));
-            if (keyValueStoreVersion != AWS_KEY_VALUE_STORE_VERSION) {
-                logger.error("The version of the data read from SharedPreferences for " +
-                        dataKey + " does not match the version of the store.");
-                return null;
-            }
-
-            // Read from the SharedPreferences and decrypt
-            final String encryptedData = sharedPreferencesForData.getString(dataKeyInPersistentStore, null);
-
-            String decryptedDataInString = decrypt(decryptionKey,
-                    getInitializationVector(dataKeyInPersistentStore),
-                    encryptedData);
+            String decryptedDataInString = readFromPersistentStore(decryptionKey,
+                    dataKeyInPersistentStore);
 
             // Update the in-memory cache after read from disk.
-            cache.put(dataKey, decryptedDataInString);
+            if (decryptedDataInString != null) {
+                cache.put(dataKey, decryptedDataInString);
+            }
             return decryptedDataInString;
         } catch (Exception ex) {
             logger.error("Error in retrieving value for dataKey = " + dataKey, ex);
+            evictEncryptionKey();
 
             // Remove the dataKey and its associated value if there is an exception in decryption
             remove(dataKey);
@@ -265,6 +288,95 @@ public class AWSKeyValueStore {
         }
     }
 
+    /**
+     * Reads and decrypts one entry of the persistent store.
+     *
+     * @return the decrypted value, or null if the entry was written by
+     *         another version of the store.
+     */
+    private String readFromPersistentStore(final Key decryptionKey,
+                                           final String dataKeyInPersistentStore) throws Exception {
+        // If the version of data stored mismatches with the version of the store,
+        // return null.
+        final int keyValueStoreVersion = Integer.parseInt(
+                sharedPreferencesForData
+                        .getString(dataKeyInPersistentStore + SHARED_PREFERENCES_STORE_VERSION_SUFFIX, null));
+        if (keyValueStoreVersion != AWS_KEY_VALUE_STORE_VERSION) {
+            logger.error("The version of the data read from SharedPreferences for " +
+                    dataKeyInPersistentStore + " does not match the version of the store.");
+            return null;
+        }
+
+        // Read from the SharedPreferences and decrypt
+        final String encryptedData = sharedPreferencesForData.getString(dataKeyInPersistentStore, null);
+
+        final String decryptedData = decrypt(decryptionKey,
+                getInitializationVector(dataKeyInPersistentStore),
+                encryptedData);
+        if (decryptedData == null) {
+            throw new Exception("Error in decrypting the data for " + dataKeyInPersistentStore);
+        }
+        return decryptedData;
+    }
+
+    /**
+     * Decrypt every entry of the persistent store into the in-memory cache.
+     * Entries already in memory are newer than the ones on disk and are kept.
+     * Entries that cannot be decrypted are removed, as {@link #get(String)}
+     * would have done on first access.
+     */
+    private void loadPersistentStore() {
+        isPersistentStoreLoaded = false;
+        if (!isPersistenceEnabled) {
+            return;
+        }
+
+        final Map<String, ?> persistedEntries = sharedPreferencesForData.getAll();
+        boolean hasEncryptedData = false;
+        for (final String keyInPersistentStore : persistedEntries.keySet()) {
+            if (keyInPersistentStore.endsWith(SHARED_PREFERENCES_DATA_IDENTIFIER_SUFFIX)) {
+                hasEncryptedData = true;
+                break;
+            }
+        }
+
+        if (hasEncryptedData) {
+            // If the key cannot be retrieved nothing on disk can be
+            // decrypted, so the store is treated as empty.
+            final Key decryptionKey = retrieveEncryptionKey(getEncryptionKeyAlias());
+            if (decryptionKey != null) {
+                final SharedPreferences.Editor editor = sharedPreferencesForData.edit();
+                boolean hasUnreadableEntries = false;
+                for (final String keyInPersistentStore : persistedEntries.keySet()) {
+                    if (!keyInPersistentStore.endsWith(SHARED_PREFERENCES_DATA_IDENTIFIER_SUFFIX)) {
+                        continue;
+                    }
+                    final String dataKey = keyInPersistentStore.substring(0,
+                            keyInPersistentStore.length() - SHARED_PREFERENCES_DATA_IDENTIFIER_SUFFIX.length());
+                    if (cache.containsKey(dataKey)) {
+                        continue;
+                    }
+                    try {
+                        final String value = readFromPersistentStore(decryptionKey, keyInPersistentStore);
+                        if (value != null) {
+                            cache.put(dataKey, value);
+                        }
+                    } catch (Exception ex) {
+                        logger.error("Error in loading value for dataKey = " + dataKey, ex);
+                        evictEncryptionKey();
+                        removeFromPersistentStore(editor, keyInPersistentStore);
+                        hasUnreadableEntries = true;
+                    }
+                }
+                if (hasUnreadableEntries) {
+                    editor.apply();
+                }
+            }
+        }
+
+        isPersistentStoreLoaded = true;
+    }
+
     /**
      * Store the key-value pair in the key-value store.
      *
@@ -284,24 +396,131 @@ public class AWSKeyValueStore {
             return;
         }
 
+        final Map<String, String> entries = new HashMap<String, String>();
+        entries.put(dataKey, value);
+        putAll(entries);
+    }
+
+    /**
+     * Store all the key-value pairs in the key-value store.
+     *
+     * The pairs are stored in-memory, and if isPersistenceEnabled is true,
+     * encrypted and written to the persistent store in a single
+     * SharedPreferences transaction. A null value removes the key.
+     *
+     * @param entries the key-value pairs to be stored
+     */
+    public synchronized void putAll(final Map<String, String> entries) {
+        if (entries == null || entries.isEmpty()) {
+            return;
+        }
+
         // Irrespective of persistence is enabled or not, store in memory.
-        cache.put(dataKey, value);
+        for (final Map.Entry<String, String> entry : entries.entrySet()) {
+            if (entry.getKey() == null) {
+                logger.error("dataKey is null.");
+            } else if (entry.getValue() == null) {
+                cache.remove(entry.getKey());
+            } else {
+                cache.put(entry.getKey(), entry.getValue());
+            }
+        }
         if (!isPersistenceEnabled) {
             return;
         }
 
-        // Persistence
-        // Convert string to bytes -> Encrypt -> Base64 encode -> Store
-        if (value == null) {
-            logger.debug("Value is null. Removing the data, IV and version from SharedPreferences");
-            cache.remove(dataKey);
-            remove(dataKey);
-            return;
+        final SharedPreferences.Editor editor = sharedPreferencesForData.edit();
+        persist(editor, entries);
+        editor.apply();
+    }
+
+    /**
+     * Encrypt the entries and add them to the given editor.
+     * Convert string to bytes -> Encrypt -> Base64 encode -> Store
+     */
+    private void persist(final SharedPreferences.Editor editor, final Map<String, String> entries) {
+        Key encryptionKey = null;
+        for (final Map.Entry<String, String> entry : entries.entrySet()) {
+            final String dataKey = entry.getKey();
+            if (dataKey == null) {
+                continue;
+            }
+
+            // dataKey becomes dataKey.encrypted
+            final String dataKeyInPersistentStore = getDataKeyUsedInPersistentStore(dataKey);
+            if (entry.getValue() == null) {
+                logger.debug("Value is null. Removing the data, IV and version from SharedPreferences");
+                removeFromPersistentStore(editor, dataKeyInPersistentStore);
+                continue;
+            }
+
+            if (encryptionKey == null) {
+                encryptionKey = retrieveOrGenerateEncryptionKey();
+                if (encryptionKey == null) {
+                    return;
+                }
+            }
+
+            try {
+                // Encrypt
+                byte[] iv = generateInitializationVector();
+                if (iv == null) {
+                    throw new Exception("The generated IV for dataKey = " + dataKey + " is null.");
+                }
+
+                String base64EncodedEncryptedString = encrypt(encryptionKey,
+                        getAlgorithmParameterSpecForIV(iv),
+                        entry.getValue());
+                if (base64EncodedEncryptedString == null) {
+                    // The cached key may no longer be usable, for example if it
+                    // was deleted from the key store. Retrieve it once more.
+                    evictEncryptionKey();
+                    encryptionKey = retrieveOrGenerateEncryptionKey();
+                    if (encryptionKey == null) {
+                        return;
+                    }
+                    // Never reuse an IV with the same key; the IV persisted
+                    // below is the one used for the retry.
+                    iv = generateInitializationVector();
+                    if (iv == null) {
+                        throw new Exception("The generated IV for dataKey = " + dataKey + " is null.");
+                    }
+                    base64EncodedEncryptedString = encrypt(encryptionKey,
+                            getAlgorithmParameterSpecForIV(iv),
+                            entry.getValue());
+                }
+                if (base64EncodedEncryptedString == null) {
+                    throw new Exception("Error in encrypting the data for dataKey = " + dataKey);
+                }
+
+                // Persist
+                String base64EncodedIV = Base64.encodeAsString(iv);
+                if (base64EncodedIV == null) {
+                    throw new Exception("Error in Base64 encoding the IV for dataKey = " + dataKey);
+                }
+
+                editor.putString(dataKeyInPersistentStore, base64EncodedEncryptedString) // Data
+                        .putString(dataKeyInPersistentStore + SHARED_PREFERENCES_IV_SUFFIX, base64EncodedIV) // IV
+                        .putString(dataKeyInPersistentStore + SHARED_PREFERENCES_STORE_VERSION_SUFFIX, String.valueOf(AWS_KEY_VALUE_STORE_VERSION)); // KeyValueStore Version
+            } catch (Exception ex) {
+                logger.error("Error in storing value for dataKey = " + dataKey +
+                        ". This data has not been stored in the persistent store.", ex);
+            }
         }
+    }
 
-        // dataKey becomes dataKey.encrypted
-        String dataKeyInPersistentStore = getDataKeyUsedInPersistentStore(dataKey);
+    /**
+     * Drop the cached encryption key of this store so that the next
+     * operation retrieves it from the key provider again.
+     */
+    private void evictEncryptionKey() {
+        final String encryptionKeyAlias = getEncryptionKeyAlias();
+        if (encryptionKeyAlias != null) {
+            encryptionKeyCache.remove(getEncryptionKeyCacheKey(encryptionKeyAlias));
+        }
+    }
 
+    private Key retrieveOrGenerateEncryptionKey() {
         String encryptionKeyAlias = getEncryptionKeyAlias();
 
         // Based on the encryption key alias, retrieve the encryption key
@@ -316,37 +535,9 @@ public class AWSKeyValueStore {
                 logger.error("Error in generating the encryption key for encryptionKeyAlias: " +
                         encryptionKeyAlias + " used to encrypt the data before storing. " +
                         "Skipping persisting the data in the persistent store.");
-                return;
             }
         }
-
-        try {
-            // Encrypt
-            byte[] iv = generateInitializationVector();
-            if (iv == null) {
-                throw new Exception("The generated IV for dataKey = " + dataKey +" is null.");
-            }
-
-            String base64EncodedEncryptedString = encrypt(encryptionKey,
-                    getAlgorithmParameterSpecForIV(iv),
-                    value);
-
-            // Persist
-            String base64EncodedIV = Base64.encodeAsString(iv);
-            if (base64EncodedIV == null) {
-                throw new Exception("Error in Base64 encoding the IV for dataKey = " + dataKey);
-            }
-
-            sharedPreferencesForData
-                    .edit()
-                    .putString(dataKeyInPersistentStore, base64EncodedEncryptedString) // Data
-                    .putString(dataKeyInPersistentStore + SHARED_PREFERENCES_IV_SUFFIX, base64EncodedIV) // IV
-                    .putString(dataKeyInPersistentStore + SHARED_PREFERENCES_STORE_VERSION_SUFFIX, String.valueOf(AWS_KEY_VALUE_STORE_VERSION)) // KeyValueStore Version
-                    .apply();
-        } catch (Exception ex) {
-            logger.error("Error in storing value for dataKey = " + dataKey +
-                    ". This data has not been stored in the persistent store.", ex);
-        }
+        return encryptionKey;
     }
 
     /**
@@ -359,20 +550,27 @@ public class AWSKeyValueStore {
      * @param dataKey identifies the key-value pair to be removed
      */
     public synchronized void remove(String dataKey) {
+        if (dataKey == null) {
+            return;
+        }
+
         // Irrespective of persistence is enabled or not, mutate in memory.
         cache.remove(dataKey);
 
         if (isPersistenceEnabled) {
-            final String keyUsedInPersistentStore = getDataKeyUsedInPersistentStore(dataKey);
-
-            sharedPreferencesForData.edit()
-                    .remove(keyUsedInPersistentStore)
-                    .remove(keyUsedInPersistentStore + SHARED_PREFERENCES_IV_SUFFIX)
-                    .remove(keyUsedInPersistentStore + SHARED_PREFERENCES_STORE_VERSION_SUFFIX)
-                    .apply();
+            final SharedPreferences.Editor editor = sharedPreferencesForData.edit();
+            removeFromPersistentStore(editor, getDataKeyUsedInPersistentStore(dataKey));
+            editor.apply();
         }
     }
 
+    private void removeFromPersistentStore(final SharedPreferences.Editor editor,
+                                           final String keyUsedInPersistentStore) {
+        editor.remove(keyUsedInPersistentStore)
+                .remove(keyUsedInPersistentStore + SHARED_PREFERENCES_IV_SUFFIX)
+                .remove(keyUsedInPersistentStore + SHARED_PREFERENCES_STORE_VERSION_SUFFIX);
+    }
+
     /**
      * Clears all the data stored in this key-value store.
      *
@@ -401,7 +599,7 @@ public class AWSKeyValueStore {
      */
     private String encrypt(Key encryptionKey, AlgorithmParameterSpec ivSpec, String data) {
         try {
-            Cipher cipher = Cipher.getInstance(CIPHER_AES_GCM_NOPADDING);
+            Cipher cipher = getCipher();
             cipher.init(Cipher.ENCRYPT_MODE,
                     encryptionKey,
                     ivSpec);
@@ -428,7 +626,7 @@ public class AWSKeyValueStore {
                            final String encryptedData) {
         try {
             byte[] encryptedDecodedData = Base64.decode(encryptedData);
-            Cipher cipher = Cipher.getInstance(CIPHER_AES_GCM_NOPADDING);
+            Cipher cipher = getCipher();
             cipher.init(Cipher.DECRYPT_MODE,
                     decryptionKey,
                     ivSpec);
@@ -440,6 +638,18 @@ public class AWSKeyValueStore {
         }
     }
 
+    /**
+     * Return the cipher of this store, creating it on first use. Looking up
+     * the provider is the costly part of Cipher.getInstance; the cipher is
+     * re-initialized with a fresh IV for every operation.
+     */
+    private Cipher getCipher() throws Exception {
+        if (cipher == null) {
+            cipher = Cipher.getInstance(CIPHER_AES_GCM_NOPADDING);
+        }
+        return cipher;
+    }
+
     private AlgorithmParameterSpec getInitializationVector(final String keyOfDataInSharedPreferences) throws Exception {
         final String keyOfIV = keyOfDataInSharedPreferences + SHARED_PREFERENCES_IV_SUFFIX;
 
@@ -476,8 +686,17 @@ public class AWSKeyValueStore {
     }
 
     private synchronized Key retrieveEncryptionKey(final String encryptionKeyAlias) {
+        if (encryptionKeyAlias == null) {
+            return null;
+        }
+        final Key cachedKey = encryptionKeyCache.get(getEncryptionKeyCacheKey(encryptionKeyAlias));
+        if (cachedKey != null) {
+            return cachedKey;
+        }
         try {
-            return keyProvider.retrieveKey(encryptionKeyAlias);
+            final Key key = keyProvider.retrieveKey(encryptionKeyAlias);
+            encryptionKeyCache.put(getEncryptionKeyCacheKey(encryptionKeyAlias), key);
+            return key;
         } catch (KeyNotFoundException keyNotFoundException) {
             logger.error(keyNotFoundException);
             // When Key cannot be retrieved, any existing encrypted data
@@ -487,6 +706,7 @@ public class AWSKeyValueStore {
 
             // Clears the encryption keys if stored on SharedPreferences
             logger.info("Deleting the encryption key identified by the keyAlias: " + encryptionKeyAlias);
+            encryptionKeyCache.remove(getEncryptionKeyCacheKey(encryptionKeyAlias));
             keyProvider.deleteKey(encryptionKeyAlias);
             return null;
         }
@@ -495,7 +715,9 @@ public class AWSKeyValueStore {
     synchronized Key generateEncryptionKey(final String encryptionKeyAlias) {
         // Try to generate a new key.
         try {
-            return keyProvider.generateKey(encryptionKeyAlias);
+            final Key key = keyProvider.generateKey(encryptionKeyAlias);
+            encryptionKeyCache.put(getEncryptionKeyCacheKey(encryptionKeyAlias), key);
+            return key;
         } catch (KeyNotGeneratedException keyNotGeneratedException) {
             logger.error("Encryption Key cannot be generated " +
                             "successfully.",
@@ -512,6 +734,11 @@ public class AWSKeyValueStore {
         return key + SHARED_PREFERENCES_DATA_IDENTIFIER_SUFFIX;
     }
 
+    private String getEncryptionKeyCacheKey(final String encryptionKeyAlias) {
+        return sharedPreferencesName + SHARED_PREFERENCES_ENCRYPTION_KEY_NAMESPACE_SUFFIX
+                + "/" + encryptionKeyAlias;
+    }
+
     private String getEncryptionKeyAlias() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
             return sharedPreferencesName +
@@ -557,26 +784,29 @@ public class AWSKeyValueStore {
      */
     private void onMigrateFromNoEncryption() {
         Map<String, ?> map = sharedPreferencesForData.getAll();
+        Map<String, String> migratedEntries = new HashMap<String, String>();
+        List<String> keysOfUnencryptedData = new ArrayList<String>();
         for (String keyOfUnencryptedData : map.keySet()) {
             if (!keyOfUnencryptedData.endsWith(SHARED_PREFERENCES_DATA_IDENTIFIER_SUFFIX) &&
                 !keyOfUnencryptedData.endsWith(SHARED_PREFERENCES_IV_SUFFIX) &&
                 !keyOfUnencryptedData.endsWith(SHARED_PREFERENCES_STORE_VERSION_SUFFIX)) {
+                keysOfUnencryptedData.add(keyOfUnencryptedData);
 
                 // Check if its an instance of the dataType.
                 if (map.get(keyOfUnencryptedData) instanceof Long) {
                     Long longValue = sharedPreferencesForData.getLong(keyOfUnencryptedData, 0);
-                    put(keyOfUnencryptedData, String.valueOf(longValue));
+                    migratedEntries.put(keyOfUnencryptedData, String.valueOf(longValue));
                 } else if (map.get(keyOfUnencryptedData) instanceof String) {
-                    put(keyOfUnencryptedData, sharedPreferencesForData.getString(keyOfUnencryptedData, null));
+                    migratedEntries.put(keyOfUnencryptedData, sharedPreferencesForData.getString(keyOfUnencryptedData, null));
                 } else if (map.get(keyOfUnencryptedData) instanceof Float) {
                     Float floatValue = sharedPreferencesForData.getFloat(keyOfUnencryptedData, 0);
-                    put(keyOfUnencryptedData, String.valueOf(floatValue));
+                    migratedEntries.put(keyOfUnencryptedData, String.valueOf(floatValue));
                 } else if (map.get(keyOfUnencryptedData) instanceof Boolean) {
                     Boolean booleanValue = sharedPreferencesForData.getBoolean(keyOfUnencryptedData, false);
-                    put(keyOfUnencryptedData, String.valueOf(booleanValue));
+                    migratedEntries.put(keyOfUnencryptedData, String.valueOf(booleanValue));
                 } else if (map.get(keyOfUnencryptedData) instanceof Integer) {
                     Integer intValue = sharedPreferencesForData.getInt(keyOfUnencryptedData, 0);
-                    put(keyOfUnencryptedData, String.valueOf(intValue));
+                    migratedEntries.put(keyOfUnencryptedData, String.valueOf(intValue));
                 } else if (map.get(keyOfUnencryptedData) instanceof Set) {
                     Set<String> stringSet = (Set<String>) map.get(keyOfUnencryptedData);
                     StringBuilder stringBuilder = new StringBuilder();
@@ -587,12 +817,28 @@ public class AWSKeyValueStore {
                             stringBuilder.append(",");
                         }
                     }
-                    put(keyOfUnencryptedData, stringBuilder.toString());
+                    migratedEntries.put(keyOfUnencryptedData, stringBuilder.toString());
                 }
+            }
+        }
 
-                // Remove the key since key.encrypted is written.
-                sharedPreferencesForData.edit().remove(keyOfUnencryptedData).apply();
+        if (keysOfUnencryptedData.isEmpty()) {
+            return;
+        }
+
+        // Write key.encrypted and remove the unencrypted key in one transaction.
+        for (Map.Entry<String, String> entry : migratedEntries.entrySet()) {
+            if (entry.getValue() == null) {
+                cache.remove(entry.getKey());
+            } else {
+                cache.put(entry.getKey(), entry.getValue());
             }
         }
+        SharedPreferences.Editor editor = sharedPreferencesForData.edit();
+        persist(editor, migratedEntries);
+        for (String keyOfUnencryptedData : keysOfUnencryptedData) {
+            editor.remove(keyOfUnencryptedData);
+        }
+        editor.apply();
     }
 }
@@ -61,7 +61,6 @@ class KeyProvider10 implements KeyProvider {
             SecureRandom secureRandom = new SecureRandom();
             KeyGenerator generator = KeyGenerator.getInstance(AES_KEY_ALGORITHM);
             generator.init(CIPHER_AES_GCM_NOPADDING_KEY_LENGTH_IN_BITS, secureRandom);
-            final SecretKey secretKey = generator.generateKey();
 
             final SecretKey aesEncryptionKey = generator.generateKey();
             if (aesEncryptionKey == null) {
@@ -89,7 +88,8 @@ class KeyProvider10 implements KeyProvider {
 
             logger.info("Generated and saved the AES encryption key identified by the aesEncryptionKeyAlias: " +
                     aesEncryptionKeyAlias + " to SharedPreferences.");
-            return secretKey;
+            // the key persisted, which is the one later retrieved
+            return aesEncryptionKey;
         } catch (Exception ex) {
             throw new KeyNotGeneratedException("Error in generating the AES Encryption key " +
                     "for the aesEncryptionKeyAlias" , ex);
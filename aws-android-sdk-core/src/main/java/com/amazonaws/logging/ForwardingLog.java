@@ -0,0 +1,191 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.logging;
+
+/**
+ * The log handed out by {@link LogFactory}: writes to the platform log and to
+ * the logs of the registered {@link LogProvider}s. Loggers are usually kept in
+ * static fields, so the provided logs are swapped in place when providers are
+ * added or removed.
+ */
+final class ForwardingLog implements Log {
+
+    private static final Log[] NONE = new Log[0];
+
+    private final Log platformLog;
+    private volatile Log[] providedLogs = NONE;
+
+    ForwardingLog(Log platformLog) {
+        this.platformLog = platformLog;
+    }
+
+    void setProvidedLogs(Log[] logs) {
+        providedLogs = logs.length == 0 ? NONE : logs;
+    }
+
+    @Override
+    public boolean isDebugEnabled() {
+        if (platformLog.isDebugEnabled()) {
+            return true;
+        }
+        for (final Log log : providedLogs) {
+            if (log.isDebugEnabled()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isErrorEnabled() {
+        if (platformLog.isErrorEnabled()) {
+            return true;
+        }
+        for (final Log log : providedLogs) {
+            if (log.isErrorEnabled()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isInfoEnabled() {
+        if (platformLog.isInfoEnabled()) {
+            return true;
+        }
+        for (final Log log : providedLogs) {
+            if (log.isInfoEnabled()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isTraceEnabled() {
+        if (platformLog.isTraceEnabled()) {
+            return true;
+        }
+        for (final Log log : providedLogs) {
+            if (log.isTraceEnabled()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isWarnEnabled() {
+        if (platformLog.isWarnEnabled()) {
+            return true;
+        }
+        for (final Log log : providedLogs) {
+            if (log.isWarnEnabled()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void trace(Object message) {
+        platformLog.trace(message);
+        for (final Log log : providedLogs) {
+            log.trace(message);
+        }
+    }
+
+    @Override
+    public void trace(Object message, Throwable t) {
+        platformLog.trace(message, t);
+        for (final Log log : providedLogs) {
+            log.trace(message, t);
+        }
+    }
+
+    @Override
+    public void debug(Object message) {
+        platformLog.debug(message);
+        for (final Log log : providedLogs) {
+            log.debug(message);
+        }
+    }
+
+    @Override
+    public void debug(Object message, Throwable t) {
+        platformLog.debug(message, t);
+        for (final Log log : providedLogs) {
+            log.debug(message, t);
+        }
+    }
+
+    @Override
+    public void info(Object message) {
+        platformLog.info(message);
+        for (final Log log : providedLogs) {
+            log.info(message);
+        }
+    }
+
+    @Override
+    public void info(Object message, Throwable t) {
+        platformLog.info(message, t);
+        for (final Log log : providedLogs) {
+            log.info(message, t);
+        }
+    }
+
+    @Override
+    public void warn(Object message) {
+        platformLog.warn(message);
+        for (final Log log : providedLogs) {
+            log.warn(message);
+        }
+    }
+
+    @Override
+    public void warn(Object message, Throwable t) {
+        platformLog.warn(message, t);
+        for (final Log log : providedLogs) {
+            log.warn(message, t);
+        }
+    }
+
+    @Override
+    public void error(Object message) {
+        platformLog.error(message);
+        for (final Log log : providedLogs) {
+            log.error(message);
+        }
+    }
+
+    @Override
+    public void error(Object message, Throwable t) {
+        platformLog.error(message, t);
+        for (final Log log : providedLogs) {
+            log.error(message, t);
+        }
+    }
+
+    /**
+     * Sets the level of the platform log; provided logs keep their own.
+     */
+    @Override
+    public void setLevel(LogFactory.Level level) {
+        platformLog.setLevel(level);
+    }
+}
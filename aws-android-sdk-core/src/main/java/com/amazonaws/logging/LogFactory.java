@@ -15,6 +15,8 @@
 
 package com.amazonaws.logging;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 
@@ -29,7 +31,8 @@ public class LogFactory {
      * Log tag longer than 23 will cause it to break on Android API level <= 23.
      */
     private static final String TAG = LogFactory.class.getSimpleName();
-    private static final Map<String, Log> logMap = new HashMap<>();
+    private static final Map<String, ForwardingLog> logMap = new HashMap<>();
+    private static final List<LogProvider> logProviders = new ArrayList<LogProvider>();
 
     private static Level globalLogLevel = null;
 
@@ -52,20 +55,66 @@ public class LogFactory {
     public static synchronized Log getLog(String logTag) {
         logTag = getTruncatedLogTag(logTag);
 
-        Log log = logMap.get(logTag);
+        ForwardingLog log = logMap.get(logTag);
         if (log != null) {
             return log;
         }
 
         if (Environment.isJUnitTest()) {
-            log = new ConsoleLog(logTag);
+            log = new ForwardingLog(new ConsoleLog(logTag));
         } else {
-            log = new AndroidLog(logTag);
+            log = new ForwardingLog(new AndroidLog(logTag));
         }
+        log.setProvidedLogs(getProvidedLogs(logTag));
         logMap.put(logTag, log);
         return log;
     }
 
+    /**
+     * Adds a provider of logs that receive what is logged through the logs of
+     * this factory, including those created before, along with the platform
+     * log.
+     *
+     * @param provider the provider to add.
+     */
+    public static synchronized void addLogProvider(LogProvider provider) {
+        if (provider == null) {
+            throw new IllegalArgumentException("provider can't be null");
+        }
+        if (!logProviders.contains(provider)) {
+            logProviders.add(provider);
+            updateProvidedLogs();
+        }
+    }
+
+    /**
+     * Removes a provider added with {@link #addLogProvider(LogProvider)}.
+     *
+     * @param provider the provider to remove.
+     */
+    public static synchronized void removeLogProvider(LogProvider provider) {
+        if (logProviders.remove(provider)) {
+            updateProvidedLogs();
+        }
+    }
+
+    private static void updateProvidedLogs() {
+        for (final Map.Entry<String, ForwardingLog> entry : logMap.entrySet()) {
+            entry.getValue().setProvidedLogs(getProvidedLogs(entry.getKey()));
+        }
+    }
+
+    private static Log[] getProvidedLogs(String logTag) {
+        final List<Log> logs = new ArrayList<Log>(logProviders.size());
+        for (final LogProvider provider : logProviders) {
+            final Log log = provider.getLog(logTag);
+            if (log != null) {
+                logs.add(log);
+            }
+        }
+        return logs.toArray(new Log[logs.size()]);
+    }
+
     public static void setLevel(Level level) {
         globalLogLevel = level;
     }
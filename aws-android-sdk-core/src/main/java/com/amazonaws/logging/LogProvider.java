@@ -0,0 +1,33 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.logging;
+
+/**
+ * Provides additional logs, such as a remote log, that receive what is logged
+ * through the logs of {@link LogFactory} along with the platform log.
+ *
+ * @see LogFactory#addLogProvider(LogProvider)
+ */
+public interface LogProvider {
+
+    /**
+     * Gets the log for the given tag. Each log filters by its own level.
+     *
+     * @param tag the tag of the log.
+     * @return the log, or null to not receive the logs of this tag.
+     */
+    Log getLog(String tag);
+}
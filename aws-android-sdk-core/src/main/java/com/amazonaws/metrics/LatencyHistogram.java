@@ -0,0 +1,199 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies with bounded relative error, in the manner of an
+ * HDR histogram: latencies are counted in buckets of microseconds whose width
+ * grows with the latency, 32 buckets per power of two, so any percentile is
+ * known to within about 3% with a fixed 10 KB of memory, from a microsecond to
+ * days.
+ * <p>
+ * Recording is a single lock-free increment and may be done from any thread.
+ * </p>
+ */
+public final class LatencyHistogram {
+
+    /** Bits of precision kept per latency; 2^5 buckets per power of two. */
+    private static final int PRECISION_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << PRECISION_BITS;
+    /** Latencies up to 2^40 microseconds, about 12 days, are distinguished. */
+    private static final int MAX_EXPONENT = 40;
+    private static final long MAX_MICROS = (1L << MAX_EXPONENT) - 1;
+    private static final int BUCKETS = (MAX_EXPONENT - PRECISION_BITS + 1) * SUB_BUCKETS;
+    private static final double MICROS_PER_MILLI = 1000.0;
+    private static final double PERCENT = 100.0;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Records a latency.
+     *
+     * @param durationNanos the latency in nanoseconds.
+     */
+    public void record(long durationNanos) {
+        counts.incrementAndGet(bucketOf(TimeUnit.NANOSECONDS.toMicros(durationNanos)));
+    }
+
+    /**
+     * @return the latencies recorded so far.
+     */
+    public Snapshot getSnapshot() {
+        final long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(copy);
+    }
+
+    /**
+     * Gets the latencies recorded so far and starts over, so that successive
+     * snapshots cover successive intervals.
+     *
+     * @return the latencies recorded since the last reset.
+     */
+    public Snapshot getSnapshotAndReset() {
+        final long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts.get(i) != 0) {
+                copy[i] = counts.getAndSet(i, 0);
+            }
+        }
+        return new Snapshot(copy);
+    }
+
+    static int bucketOf(long micros) {
+        if (micros < 2 * SUB_BUCKETS) {
+            return micros < 0 ? 0 : (int) micros;
+        }
+        final long value = Math.min(micros, MAX_MICROS);
+        final int shift = (63 - Long.numberOfLeadingZeros(value)) - PRECISION_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    /** @return the smallest latency in microseconds counted in a bucket. */
+    static long lowestOf(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        final int shift = bucket / SUB_BUCKETS - 1;
+        return (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+    }
+
+    /** @return the largest latency in microseconds counted in a bucket. */
+    static long highestOf(int bucket) {
+        return bucket + 1 < BUCKETS ? lowestOf(bucket + 1) - 1 : MAX_MICROS;
+    }
+
+    /**
+     * An immutable copy of the counts of a histogram. Latencies are reported
+     * in milliseconds, as the middle of the bucket they fall in.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+
+        Snapshot(long[] counts) {
+            this.counts = counts;
+            long total = 0;
+            for (final long c : counts) {
+                total += c;
+            }
+            this.count = total;
+        }
+
+        /**
+         * @return the number of latencies recorded.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the lowest latency in milliseconds, or 0 if none were
+         *         recorded.
+         */
+        public double getMinMillis() {
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) {
+                    return valueOf(i);
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * @return the highest latency in milliseconds, or 0 if none were
+         *         recorded.
+         */
+        public double getMaxMillis() {
+            for (int i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] != 0) {
+                    return valueOf(i);
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * @return the mean latency in milliseconds, or 0 if none were
+         *         recorded.
+         */
+        public double getMeanMillis() {
+            if (count == 0) {
+                return 0;
+            }
+            double sum = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) {
+                    sum += counts[i] * valueOf(i);
+                }
+            }
+            return sum / count;
+        }
+
+        /**
+         * Gets the latency below which a percentage of the latencies fall.
+         *
+         * @param percentile the percentage, from 0 to 100, such as 99.9.
+         * @return the latency in milliseconds, or 0 if none were recorded.
+         */
+        public double getPercentileMillis(double percentile) {
+            if (percentile < 0 || percentile > PERCENT) {
+                throw new IllegalArgumentException("percentile must be between 0 and 100");
+            }
+            if (count == 0) {
+                return 0;
+            }
+            final long rank = Math.max(1, (long) Math.ceil(percentile / PERCENT * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return valueOf(i);
+                }
+            }
+            return getMaxMillis();
+        }
+
+        private static double valueOf(int bucket) {
+            return (lowestOf(bucket) + highestOf(bucket)) / 2.0 / MICROS_PER_MILLI;
+        }
+    }
+}
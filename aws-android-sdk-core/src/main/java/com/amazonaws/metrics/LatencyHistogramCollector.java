@@ -0,0 +1,116 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.metrics;
+
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.TimingInfo;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A request metric collector that keeps a {@link LatencyHistogram} of the
+ * client execution time of the requests of each service and operation, so
+ * that latency percentiles are available in process without sending every
+ * request to a metric service.
+ * <p>
+ * Set it on a client, on a request, or with
+ * {@link AwsSdkMetrics#setMetricCollector(MetricCollector)}; request metrics
+ * must be enabled for latencies to be measured. The operation is the simple
+ * class name of the request without its "Request" suffix.
+ * </p>
+ */
+public class LatencyHistogramCollector extends RequestMetricCollector {
+
+    private static final String REQUEST_SUFFIX = "Request";
+
+    private final ConcurrentMap<String, LatencyHistogram> histograms =
+            new ConcurrentHashMap<String, LatencyHistogram>();
+
+    @Override
+    public void collectMetrics(Request<?> request, Response<?> response) {
+        final AWSRequestMetrics metrics = request.getAWSRequestMetrics();
+        if (metrics == null || !metrics.isEnabled()) {
+            return;
+        }
+        final TimingInfo timingInfo = metrics.getTimingInfo();
+        final Long endTimeNano = timingInfo.getEndTimeNanoIfKnown();
+        if (endTimeNano == null) {
+            return;
+        }
+        final String operation = request.getOriginalRequest() == null ? "Unknown"
+                : operationOf(request.getOriginalRequest().getClass());
+        getHistogram(request.getServiceName(), operation)
+                .record(endTimeNano.longValue() - timingInfo.getStartTimeNano());
+    }
+
+    /**
+     * Gets the histogram of the latencies of an operation, creating it if
+     * none were recorded yet.
+     *
+     * @param serviceName the name of the service, such as "AmazonDynamoDB".
+     * @param operation the name of the operation, such as "GetItem".
+     * @return the histogram.
+     */
+    public LatencyHistogram getHistogram(String serviceName, String operation) {
+        final String key = serviceName + "/" + operation;
+        final LatencyHistogram histogram = histograms.get(key);
+        if (histogram != null) {
+            return histogram;
+        }
+        final LatencyHistogram created = new LatencyHistogram();
+        final LatencyHistogram existing = histograms.putIfAbsent(key, created);
+        return existing != null ? existing : created;
+    }
+
+    /**
+     * @return the latencies recorded so far, by "service/operation".
+     */
+    public Map<String, LatencyHistogram.Snapshot> getSnapshots() {
+        final Map<String, LatencyHistogram.Snapshot> snapshots =
+                new TreeMap<String, LatencyHistogram.Snapshot>();
+        for (final Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            snapshots.put(entry.getKey(), entry.getValue().getSnapshot());
+        }
+        return snapshots;
+    }
+
+    /**
+     * Gets the latencies recorded so far and starts over.
+     *
+     * @return the latencies recorded since the last reset, by
+     *         "service/operation".
+     */
+    public Map<String, LatencyHistogram.Snapshot> getSnapshotsAndReset() {
+        final Map<String, LatencyHistogram.Snapshot> snapshots =
+                new TreeMap<String, LatencyHistogram.Snapshot>();
+        for (final Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            snapshots.put(entry.getKey(), entry.getValue().getSnapshotAndReset());
+        }
+        return snapshots;
+    }
+
+    private static String operationOf(Class<?> requestClass) {
+        final String name = requestClass.getSimpleName();
+        return name.endsWith(REQUEST_SUFFIX) && name.length() > REQUEST_SUFFIX.length()
+                ? name.substring(0, name.length() - REQUEST_SUFFIX.length())
+                : name;
+    }
+}
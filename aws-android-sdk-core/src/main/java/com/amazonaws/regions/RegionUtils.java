@@ -27,15 +27,24 @@ import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Utilities for working with regions.
  */
 public class RegionUtils {
 
-    private static List<Region> regions;
+    /**
+     * The loaded regions and their lookup tables. Built once by
+     * {@link #init()} and published through a volatile field so lookups don't
+     * need a lock.
+     */
+    private static volatile RegionIndex index;
 
     // Use the same logger as the http client
     private static final Log log = LogFactory.getLog("com.amazonaws.request");
@@ -43,12 +52,8 @@ public class RegionUtils {
     /**
      * @return a list of the available AWS regions.
      */
-    public static synchronized List<Region> getRegions() {
-        if (regions == null) {
-            init();
-        }
-
-        return regions;
+    public static List<Region> getRegions() {
+        return getIndex().regions;
     }
 
     /**
@@ -57,15 +62,12 @@ public class RegionUtils {
      *
      * @see ServiceAbbreviations
      */
-    @SuppressWarnings("checkstyle:hiddenfield")
-    public static synchronized List<Region> getRegionsForService(String serviceAbbreviation) {
-        List<Region> regions = new LinkedList<Region>();
-        for (Region r : getRegions()) {
-            if (r.isServiceSupported(serviceAbbreviation)) {
-                regions.add(r);
-            }
+    public static List<Region> getRegionsForService(String serviceAbbreviation) {
+        final List<Region> regions = getIndex().regionsByService.get(serviceAbbreviation);
+        if (regions == null) {
+            return new LinkedList<Region>();
         }
-        return regions;
+        return new LinkedList<Region>(regions);
     }
 
     /**
@@ -74,13 +76,10 @@ public class RegionUtils {
      * null.
      */
     public static Region getRegion(String regionName) {
-        for (Region r : getRegions()) {
-            if (r.getName().equals(regionName)) {
-                return r;
-            }
+        if (regionName == null) {
+            return null;
         }
-
-        return null;
+        return getIndex().regionsByName.get(regionName);
     }
 
     /**
@@ -100,19 +99,28 @@ public class RegionUtils {
         URI targetEndpointUri = getUriByEndpoint(endpoint);
         String targetHost = targetEndpointUri.getHost();
 
-        for (Region region : getRegions()) {
-            for (String serviceEndpoint : region.getServiceEndpoints().values()) {
-                URI serviceEndpointUrl = getUriByEndpoint(serviceEndpoint);
-
-                if (serviceEndpointUrl.getHost().equals(targetHost))
-                    return region;
-            }
+        final Region region = getIndex().regionsByEndpointHost.get(targetHost);
+        if (region != null) {
+            return region;
         }
 
         throw new IllegalArgumentException("No region found with any service for endpoint "
                 + endpoint);
     }
 
+    private static RegionIndex getIndex() {
+        final RegionIndex current = index;
+        if (current != null) {
+            return current;
+        }
+        synchronized (RegionUtils.class) {
+            if (index == null) {
+                init();
+            }
+            return index;
+        }
+    }
+
     /**
      * There is no need to call this method, it is public only for
      * Compatibility. Every regions method makes sure this method has already
@@ -122,25 +130,32 @@ public class RegionUtils {
      * the defaults shipped with the SDK) into memory.
      */
     public static synchronized void init() {
+        List<Region> regions = null;
         if (System.getProperty(REGIONS_FILE_OVERRIDE_SYSTEM_PROPERTY) != null) {
             try {
-                loadRegionsFromOverrideFile();
+                regions = loadRegionsFromOverrideFile();
             } catch (FileNotFoundException e) {
                 throw new RuntimeException("Couldn't find regions override file specified", e);
             }
         }
 
+        // Keep the regions already loaded if the override could not be parsed
+        if (regions == null && index != null) {
+            return;
+        }
+
         // Fall back onto the version we ship with the SDK
         if (regions == null) {
-            initSDKRegions();
+            regions = initSDKRegions();
         }
         // Throw out RuntimeException explicitly
         if (regions == null) {
             throw new RuntimeException("Failed to initialize the regions.");
         }
+        index = new RegionIndex(regions);
     }
 
-    private static void loadRegionsFromOverrideFile() throws FileNotFoundException {
+    private static List<Region> loadRegionsFromOverrideFile() throws FileNotFoundException {
         String overrideFilePath = System.getProperty(REGIONS_FILE_OVERRIDE_SYSTEM_PROPERTY);
         if (log.isDebugEnabled()) {
             log.debug("Using local override of the regions file ("
@@ -149,7 +164,7 @@ public class RegionUtils {
         }
         File regionsFile = new File(overrideFilePath);
         FileInputStream override = new FileInputStream(regionsFile);
-        initRegions(override);
+        return initRegions(override);
     }
 
     /**
@@ -157,25 +172,29 @@ public class RegionUtils {
      *
      * @param regionsFile The input stream pointing to the retrieved region
      *            file.
+     * @return the regions, or null if the file could not be parsed.
      */
-    private static void initRegions(InputStream regionsFile) {
+    private static List<Region> initRegions(InputStream regionsFile) {
         try {
             RegionMetadataParser parser = new RegionMetadataParser();
-            regions = parser.parseRegionMetadata(regionsFile);
+            return parser.parseRegionMetadata(regionsFile);
         } catch (Exception e) {
             log.warn("Failed to parse regional endpoints", e);
+            return null;
         }
     }
 
     /**
      * Failsafe method to initialize the regions list from the list bundled with
      * the SDK, in case it cannot be fetched from the remote source.
+     *
+     * @return the default regions.
      */
-    private static void initSDKRegions() {
+    private static List<Region> initSDKRegions() {
         if (log.isDebugEnabled()) {
             log.debug("Initializing the regions with default regions");
         }
-        regions = RegionDefaults.getRegions();
+        return RegionDefaults.getRegions();
     }
 
     /**
@@ -195,4 +214,48 @@ public class RegionUtils {
         }
         return targetEndpointUri;
     }
+
+    /**
+     * The regions with lookup tables by name, by service and by the host of
+     * any service endpoint. Immutable once built.
+     */
+    private static final class RegionIndex {
+        private final List<Region> regions;
+        private final Map<String, Region> regionsByName;
+        private final Map<String, List<Region>> regionsByService;
+        private final Map<String, Region> regionsByEndpointHost;
+
+        RegionIndex(List<Region> regions) {
+            this.regions = regions;
+            final Map<String, Region> byName = new HashMap<String, Region>();
+            final Map<String, List<Region>> byService = new HashMap<String, List<Region>>();
+            final Map<String, Region> byEndpointHost = new HashMap<String, Region>();
+
+            for (final Region region : regions) {
+                // The first region in the list wins, as it did when the list
+                // was searched in order.
+                if (!byName.containsKey(region.getName())) {
+                    byName.put(region.getName(), region);
+                }
+                for (final Map.Entry<String, String> service : region.getServiceEndpoints()
+                        .entrySet()) {
+                    List<Region> serviceRegions = byService.get(service.getKey());
+                    if (serviceRegions == null) {
+                        serviceRegions = new ArrayList<Region>();
+                        byService.put(service.getKey(), serviceRegions);
+                    }
+                    serviceRegions.add(region);
+
+                    final String host = getUriByEndpoint(service.getValue()).getHost();
+                    if (host != null && !byEndpointHost.containsKey(host)) {
+                        byEndpointHost.put(host, region);
+                    }
+                }
+            }
+
+            regionsByName = Collections.unmodifiableMap(byName);
+            regionsByService = Collections.unmodifiableMap(byService);
+            regionsByEndpointHost = Collections.unmodifiableMap(byEndpointHost);
+        }
+    }
 }
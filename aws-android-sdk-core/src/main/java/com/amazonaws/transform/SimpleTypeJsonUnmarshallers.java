@@ -18,6 +18,8 @@ package com.amazonaws.transform;
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.util.Base64;
 import com.amazonaws.util.DateUtils;
+import com.amazonaws.util.json.AwsBinaryJsonReader;
+import com.amazonaws.util.json.AwsJsonReader;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -312,7 +314,12 @@ public class SimpleTypeJsonUnmarshallers {
             Unmarshaller<ByteBuffer, JsonUnmarshallerContext> {
         @Override
         public ByteBuffer unmarshall(JsonUnmarshallerContext unmarshallerContext) throws Exception {
-            String base64EncodedString = unmarshallerContext.getReader().nextString();
+            final AwsJsonReader reader = unmarshallerContext.getReader();
+            if (reader instanceof AwsBinaryJsonReader) {
+                // blobs are raw bytes in a binary encoding
+                return ((AwsBinaryJsonReader) reader).nextByteBuffer();
+            }
+            String base64EncodedString = reader.nextString();
             byte[] decodedBytes = Base64.decode(base64EncodedString);
             return ByteBuffer.wrap(decodedBytes);
 
@@ -21,6 +21,7 @@ import com.amazonaws.metrics.RequestMetricCollector;
 
 import com.amazonaws.logging.Log;
 import com.amazonaws.logging.LogFactory;
+import com.amazonaws.util.AWSRequestMetrics.Field;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -36,16 +37,33 @@ import java.util.Map.Entry;
  * This class is instantiated instead of {@link AWSRequestMetrics} when request
  * metric collection is required during a particular service request/response
  * cycle.
+ * <p>
+ * The events, counters and properties of a {@link Field}, which are those
+ * recorded by the SDK itself, are kept in arrays indexed by the field rather
+ * than in maps keyed by its name, so that enabling metrics adds little to
+ * each request.
  *
  * @deprecated metrics is deprecated
  */
 @Deprecated
 public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
-    /* Stores some key value pairs. */
+    private static final Field[] FIELDS = Field.values();
+
+    /* Stores some key value pairs, other than those of fields. */
     private final Map<String, List<Object>> properties = new HashMap<String, List<Object>>();
 
-    /* A map to store events that are being profiled. */
+    /* A map to store events that are being profiled, other than fields. */
     private final Map<String, TimingInfo> eventsBeingProfiled = new HashMap<String, TimingInfo>();
+
+    /* Property values of fields, by ordinal. */
+    @SuppressWarnings("unchecked")
+    private final List<Object>[] fieldProperties = new List[FIELDS.length];
+
+    /* Start time in nanosecond of the field events being profiled, by ordinal. */
+    private final long[] fieldEventStartNanos = new long[FIELDS.length];
+    private final boolean[] fieldEventStarted = new boolean[FIELDS.length];
+
+    private final TimingInfoFullSupport fullTimingInfo;
     /* Latency Logger */
     private static final Log LATENCY_LOGGER = LogFactory.getLog("com.amazonaws.latency");
     private static final Object KEY_VALUE_SEPARATOR = "=";
@@ -58,7 +76,12 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
      * @see AWSRequestMetricsFullSupport
      */
     public AWSRequestMetricsFullSupport() {
-        super(TimingInfo.startTimingFullSupport());
+        this((TimingInfoFullSupport) TimingInfo.startTimingFullSupport());
+    }
+
+    private AWSRequestMetricsFullSupport(TimingInfoFullSupport timingInfo) {
+        super(timingInfo);
+        this.fullTimingInfo = timingInfo;
     }
 
     /**
@@ -78,6 +101,11 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
      */
     @Override
     public void startEvent(String eventName) {
+        final Field field = TimingInfoFullSupport.fieldOf(eventName);
+        if (field != null) {
+            startEvent(field);
+            return;
+        }
         /* This will overwrite past events */
         // ignoring the wall clock time
         eventsBeingProfiled.put(eventName, TimingInfo.startTimingFullSupport(System.nanoTime()));
@@ -85,7 +113,13 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
 
     @Override
     public void startEvent(MetricType f) {
-        startEvent(f.name());
+        if (f instanceof Field) {
+            final int index = ((Field) f).ordinal();
+            fieldEventStartNanos[index] = System.nanoTime();
+            fieldEventStarted[index] = true;
+        } else {
+            startEvent(f.name());
+        }
     }
 
     /**
@@ -97,6 +131,11 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
      */
     @Override
     public void endEvent(String eventName) {
+        final Field field = TimingInfoFullSupport.fieldOf(eventName);
+        if (field != null) {
+            endEvent(field);
+            return;
+        }
         TimingInfo event = eventsBeingProfiled.get(eventName);
         /* Somebody tried to end an event that was not started. */
         if (event == null) {
@@ -113,7 +152,18 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
 
     @Override
     public void endEvent(MetricType f) {
-        endEvent(f.name());
+        if (!(f instanceof Field)) {
+            endEvent(f.name());
+            return;
+        }
+        final Field field = (Field) f;
+        /* Somebody tried to end an event that was not started. */
+        if (!fieldEventStarted[field.ordinal()]) {
+            LogFactory.getLog(getClass()).warn("Trying to end an event which was never started: " + field);
+            return;
+        }
+        fullTimingInfo.addSubMeasurement(field, fieldEventStartNanos[field.ordinal()],
+                System.nanoTime());
     }
 
     /**
@@ -133,7 +183,11 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
 
     @Override
     public void incrementCounter(MetricType f) {
-        incrementCounter(f.name());
+        if (f instanceof Field) {
+            fullTimingInfo.incrementCounter((Field) f);
+        } else {
+            incrementCounter(f.name());
+        }
     }
 
     @Override
@@ -143,7 +197,11 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
 
     @Override
     public void setCounter(MetricType f, long count) {
-        setCounter(f.name(), count);
+        if (f instanceof Field) {
+            fullTimingInfo.setCounter((Field) f, count);
+        } else {
+            setCounter(f.name(), count);
+        }
     }
 
     /**
@@ -158,6 +216,11 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
      */
     @Override
     public void addProperty(String propertyName, Object value) {
+        final Field field = TimingInfoFullSupport.fieldOf(propertyName);
+        if (field != null) {
+            addProperty(field, value);
+            return;
+        }
         List<Object> propertyList = properties.get(propertyName);
         if (propertyList == null) {
             propertyList = new ArrayList<Object>();
@@ -169,7 +232,17 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
 
     @Override
     public void addProperty(MetricType f, Object value) {
-        addProperty(f.name(), value);
+        if (!(f instanceof Field)) {
+            addProperty(f.name(), value);
+            return;
+        }
+        final int index = ((Field) f).ordinal();
+        List<Object> propertyList = fieldProperties[index];
+        if (propertyList == null) {
+            propertyList = new ArrayList<Object>(2);
+            fieldProperties[index] = propertyList;
+        }
+        propertyList.add(value);
     }
 
     @Override
@@ -177,6 +250,11 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
         if (LATENCY_LOGGER.isInfoEnabled()) {
             StringBuilder builder = new StringBuilder();
 
+            for (Field field : FIELDS) {
+                if (fieldProperties[field.ordinal()] != null) {
+                    keyValueFormat(field.name(), fieldProperties[field.ordinal()], builder);
+                }
+            }
             for (Entry<String, List<Object>> entry : properties.entrySet()) {
                 keyValueFormat(entry.getKey(), entry.getValue(), builder);
             }
@@ -199,11 +277,18 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
 
     @Override
     public List<Object> getProperty(String propertyName) {
+        final Field field = TimingInfoFullSupport.fieldOf(propertyName);
+        if (field != null) {
+            return getProperty(field);
+        }
         return properties.get(propertyName);
     }
 
     @Override
     public List<Object> getProperty(MetricType f) {
+        if (f instanceof Field) {
+            return fieldProperties[((Field) f).ordinal()];
+        }
         return getProperty(f.name());
     }
 
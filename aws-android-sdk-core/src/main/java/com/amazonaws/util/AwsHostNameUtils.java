@@ -22,6 +22,8 @@ import com.amazonaws.logging.LogFactory;
 
 import java.net.InetAddress;
 import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -33,6 +35,21 @@ public class AwsHostNameUtils {
     private static final Pattern S3_ENDPOINT_PATTERN =
             Pattern.compile("^(?:.+\\.)?s3[.-]([a-z0-9-]+)$");
 
+    /**
+     * Maximum number of parsed region names kept before the cache is cleared.
+     * Clients talk to a handful of hosts, so this is only reached when hosts
+     * are generated, such as bucket names embedded in S3 hosts.
+     */
+    private static final int MAX_CACHED_REGION_NAMES = 512;
+
+    /**
+     * Region names already parsed, keyed by host and service hint. Parsing
+     * runs for every signed request and matches the host against every
+     * host-to-region mapping in the internal config.
+     */
+    private static final Map<String, String> REGION_NAME_CACHE =
+            new ConcurrentHashMap<String, String>();
+
     /**
      * @deprecated in favor of {@link #parseRegionName(String, String)}.
      * @param endpoint the URI endpoint.
@@ -58,6 +75,21 @@ public class AwsHostNameUtils {
         if (host == null) {
             throw new IllegalArgumentException("hostname cannot be null");
         }
+        // Host names cannot contain a space, so the key is unambiguous.
+        final String cacheKey = serviceHint == null ? host : host + " " + serviceHint;
+        String regionName = REGION_NAME_CACHE.get(cacheKey);
+        if (regionName == null) {
+            regionName = parseRegionNameUncached(host, serviceHint);
+            if (REGION_NAME_CACHE.size() >= MAX_CACHED_REGION_NAMES) {
+                REGION_NAME_CACHE.clear();
+            }
+            REGION_NAME_CACHE.put(cacheKey, regionName);
+        }
+        return regionName;
+    }
+
+    private static String parseRegionNameUncached(final String host,
+            final String serviceHint) {
         String regionNameInInternalConfig = parseRegionNameByInternalConfig(host);
         if (regionNameInInternalConfig != null) {
             return regionNameInInternalConfig;
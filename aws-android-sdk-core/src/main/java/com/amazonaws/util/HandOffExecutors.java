@@ -0,0 +1,114 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates bounded pools of daemon threads that hand each task directly to a
+ * thread instead of queueing it.
+ * <p>
+ * Such a pool suits tasks that block for a long time or wait for one another:
+ * a task never waits in a queue behind blocked tasks, so the pool cannot
+ * deadlock. Idle threads are reused and released after the keep-alive time.
+ * A task submitted while all threads are busy is given to the saturation
+ * policy, for instance {@link #spillToNewThreadPolicy(String)} to run it on a
+ * thread of its own, {@link ThreadPoolExecutor.CallerRunsPolicy} to run it on
+ * the submitting thread or {@link ThreadPoolExecutor.AbortPolicy} to reject
+ * it.
+ * </p>
+ */
+public final class HandOffExecutors {
+
+    private HandOffExecutors() {
+    }
+
+    /**
+     * Returns a pool of at most {@code maxThreads} daemon threads.
+     *
+     * @param threadNamePrefix prefix of the thread names, followed by a
+     *            sequence number.
+     * @param maxThreads maximum number of threads, at least 1.
+     * @param keepAliveSeconds seconds an idle thread is kept.
+     * @param saturationPolicy handles tasks submitted while every thread is
+     *            busy.
+     * @return the pool.
+     */
+    public static ThreadPoolExecutor newDaemonPool(String threadNamePrefix, int maxThreads,
+            long keepAliveSeconds, RejectedExecutionHandler saturationPolicy) {
+        if (maxThreads < 1) {
+            throw new IllegalArgumentException("maxThreads must be at least 1");
+        }
+        if (saturationPolicy == null) {
+            throw new IllegalArgumentException("saturationPolicy must not be null");
+        }
+        return new ThreadPoolExecutor(0, maxThreads, keepAliveSeconds, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), daemonThreadFactory(threadNamePrefix),
+                saturationPolicy);
+    }
+
+    /**
+     * Returns a saturation policy that runs a task submitted while every
+     * thread of the pool is busy on a new daemon thread, which ends with the
+     * task. The task neither waits behind the busy threads nor runs on the
+     * submitting thread, which may be one that must not block. Tasks submitted
+     * once the pool is shut down are rejected.
+     *
+     * @param threadNamePrefix prefix of the names of the new threads, followed
+     *            by a sequence number.
+     * @return the saturation policy.
+     */
+    public static RejectedExecutionHandler spillToNewThreadPolicy(String threadNamePrefix) {
+        final ThreadFactory threadFactory = daemonThreadFactory(threadNamePrefix);
+        return new RejectedExecutionHandler() {
+            @Override
+            public void rejectedExecution(Runnable task, ThreadPoolExecutor pool) {
+                if (pool.isShutdown()) {
+                    throw new RejectedExecutionException("Task " + task
+                            + " rejected from " + pool + ", which is shut down");
+                }
+                threadFactory.newThread(task).start();
+            }
+        };
+    }
+
+    /**
+     * Returns a factory of daemon threads named {@code threadNamePrefix}
+     * followed by a sequence number starting at 1.
+     *
+     * @param threadNamePrefix prefix of the thread names.
+     * @return the thread factory.
+     */
+    public static ThreadFactory daemonThreadFactory(final String threadNamePrefix) {
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable,
+                        threadNamePrefix + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+}
@@ -26,10 +26,7 @@ import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLDecoder;
-import java.net.URLEncoder;
 import java.util.Map.Entry;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * HTTP utils class.
@@ -42,44 +39,9 @@ public class HttpUtils {
     private static final int HTTP_STATUS_OK = 200;
 
     /**
-     * Regex which matches any of the sequences that we need to fix up after
-     * URLEncoder.encode().
-     */
-    private static final Pattern ENCODED_CHARACTERS_PATTERN;
-    static {
-        final StringBuilder pattern = new StringBuilder();
-
-        pattern
-                .append(Pattern.quote("+"))
-                .append("|")
-                .append(Pattern.quote("*"))
-                .append("|")
-                .append(Pattern.quote("%7E"))
-                .append("|")
-                .append(Pattern.quote("%2F"));
-
-        ENCODED_CHARACTERS_PATTERN = Pattern.compile(pattern.toString());
-    }
-
-    private static final Pattern DECODED_CHARACTERS_PATTERN;
-    static {
-        final StringBuilder decodePattern = new StringBuilder();
-
-        decodePattern.append(Pattern.quote("%2A"))
-                .append("|")
-                .append(Pattern.quote("%2B"))
-                .append("|");
-
-        DECODED_CHARACTERS_PATTERN = Pattern.compile(decodePattern.toString());
-
-    }
-
-    /**
-     * Encode a string for use in the path of a URL; uses URLEncoder.encode,
-     * (which encodes a string for use in the query portion of a URL), then
-     * applies some postfilters to fix things up per the RFC. Can optionally
-     * handle strings which are meant to encode a path (ie include '/'es which
-     * should NOT be escaped).
+     * Encode a string for use in a URL per RFC 3986, leaving only the
+     * unreserved characters unencoded. Can optionally handle strings which are
+     * meant to encode a path (ie include '/'es which should NOT be escaped).
      *
      * @param value the value to encode
      * @param path true if the value is intended to represent a path
@@ -89,34 +51,7 @@ public class HttpUtils {
         if (value == null) {
             return "";
         }
-
-        try {
-            final String encoded = URLEncoder.encode(value, DEFAULT_ENCODING);
-
-            final Matcher matcher = ENCODED_CHARACTERS_PATTERN.matcher(encoded);
-            final StringBuffer buffer = new StringBuffer(encoded.length());
-
-            while (matcher.find()) {
-                String replacement = matcher.group(0);
-
-                if ("+".equals(replacement)) {
-                    replacement = "%20";
-                } else if ("*".equals(replacement)) {
-                    replacement = "%2A";
-                } else if ("%7E".equals(replacement)) {
-                    replacement = "~";
-                } else if (path && "%2F".equals(replacement)) {
-                    replacement = "/";
-                }
-                matcher.appendReplacement(buffer, replacement);
-            }
-
-            matcher.appendTail(buffer);
-            return buffer.toString();
-
-        } catch (final UnsupportedEncodingException ex) {
-            throw new RuntimeException(ex);
-        }
+        return (path ? PercentEncoder.RFC3986_PATH : PercentEncoder.RFC3986).encode(value);
     }
 
     /**
@@ -178,7 +113,8 @@ public class HttpUtils {
 
     /**
      * Creates an encoded query string from all the parameters in the specified
-     * request.
+     * request. Names and values are encoded as by
+     * {@link #urlEncode(String, boolean)}, the same as for signing.
      *
      * @param request The request containing the parameters to encode.
      * @return Null if no parameters were present, otherwise the encoded query
@@ -190,21 +126,17 @@ public class HttpUtils {
         }
         final StringBuilder sb = new StringBuilder();
         boolean first = true;
-        try {
-            for (final Entry<String, String> entry : request.getParameters().entrySet()) {
-                final String encodedName = URLEncoder.encode(entry.getKey(), DEFAULT_ENCODING);
-                final String value = entry.getValue();
-                final String encodedValue = value == null ? "" : URLEncoder.encode(value,
-                        DEFAULT_ENCODING);
-                if (!first) {
-                    sb.append("&");
-                } else {
-                    first = false;
-                }
-                sb.append(encodedName).append("=").append(encodedValue);
+        for (final Entry<String, String> entry : request.getParameters().entrySet()) {
+            if (!first) {
+                sb.append('&');
+            } else {
+                first = false;
+            }
+            PercentEncoder.RFC3986.encode(entry.getKey(), sb).append('=');
+            final String value = entry.getValue();
+            if (value != null) {
+                PercentEncoder.RFC3986.encode(value, sb);
             }
-        } catch (final UnsupportedEncodingException e) {
-            throw new IllegalArgumentException(e);
         }
         return sb.toString();
     }
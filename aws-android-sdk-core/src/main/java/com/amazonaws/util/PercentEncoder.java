@@ -0,0 +1,160 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util;
+
+/**
+ * Percent-encodes strings as UTF-8 per RFC 3986. The characters left as they
+ * are come from a lookup table built once per encoder: the unreserved
+ * characters (letters, digits, '-', '.', '_' and '~') plus any extra ASCII
+ * characters the encoder is created with. Every other character is written as
+ * the percent-encoded bytes of its UTF-8 form, directly into the caller's
+ * builder.
+ */
+public final class PercentEncoder {
+
+    /** Encodes everything but the unreserved characters. */
+    public static final PercentEncoder RFC3986 = new PercentEncoder("");
+
+    /** Encodes everything but the unreserved characters and '/'. */
+    public static final PercentEncoder RFC3986_PATH = new PercentEncoder("/");
+
+    private static final int ASCII_SIZE = 128;
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+    private static final int HALF_BYTE_BITS = 4;
+    private static final int HALF_BYTE_MASK = 0x0f;
+    private static final int SIX_BITS = 6;
+    private static final int SIX_BITS_MASK = 0x3f;
+    private static final int CONTINUATION_BYTE = 0x80;
+    private static final int TWO_BYTE_LEAD = 0xc0;
+    private static final int THREE_BYTE_LEAD = 0xe0;
+    private static final int FOUR_BYTE_LEAD = 0xf0;
+    private static final int MAX_TWO_BYTE_CHAR = 0x7ff;
+    /** Replacement for an unpaired surrogate, as String.getBytes does. */
+    private static final char MALFORMED_REPLACEMENT = '?';
+    /** Room for the usual amount of escaping when sizing a new builder. */
+    private static final int ESCAPE_HEADROOM = 16;
+
+    private final boolean[] unescaped = new boolean[ASCII_SIZE];
+
+    /**
+     * Creates an encoder that also leaves the given characters unencoded.
+     *
+     * @param safeCharacters ASCII characters to leave unencoded in addition to
+     *            the unreserved characters.
+     */
+    public PercentEncoder(String safeCharacters) {
+        for (char c = 'a'; c <= 'z'; c++) {
+            unescaped[c] = true;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            unescaped[c] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            unescaped[c] = true;
+        }
+        unescaped['-'] = true;
+        unescaped['.'] = true;
+        unescaped['_'] = true;
+        unescaped['~'] = true;
+        for (int i = 0; i < safeCharacters.length(); i++) {
+            final char c = safeCharacters.charAt(i);
+            if (c >= ASCII_SIZE) {
+                throw new IllegalArgumentException("Safe characters must be ASCII: " + c);
+            }
+            unescaped[c] = true;
+        }
+    }
+
+    /**
+     * Encodes the given value.
+     *
+     * @param value the value to encode.
+     * @return the encoded value; the value itself if nothing needs encoding.
+     */
+    public String encode(String value) {
+        final int first = indexOfFirstEscape(value);
+        if (first == value.length()) {
+            return value;
+        }
+        final StringBuilder builder = new StringBuilder(value.length() + ESCAPE_HEADROOM);
+        builder.append(value, 0, first);
+        encode(value, first, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Appends the encoded value to the given builder.
+     *
+     * @param value the value to encode.
+     * @param builder the builder to append to.
+     * @return the builder.
+     */
+    public StringBuilder encode(String value, StringBuilder builder) {
+        final int first = indexOfFirstEscape(value);
+        builder.append(value, 0, first);
+        if (first < value.length()) {
+            encode(value, first, builder);
+        }
+        return builder;
+    }
+
+    private int indexOfFirstEscape(String value) {
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c >= ASCII_SIZE || !unescaped[c]) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    private void encode(String value, int start, StringBuilder builder) {
+        final int length = value.length();
+        for (int i = start; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c < ASCII_SIZE) {
+                if (unescaped[c]) {
+                    builder.append(c);
+                } else {
+                    appendEscaped(builder, c);
+                }
+            } else if (c <= MAX_TWO_BYTE_CHAR) {
+                appendEscaped(builder, TWO_BYTE_LEAD | (c >> SIX_BITS));
+                appendEscaped(builder, CONTINUATION_BYTE | (c & SIX_BITS_MASK));
+            } else if (!Character.isHighSurrogate(c) && !Character.isLowSurrogate(c)) {
+                appendEscaped(builder, THREE_BYTE_LEAD | (c >> (2 * SIX_BITS)));
+                appendEscaped(builder, CONTINUATION_BYTE | ((c >> SIX_BITS) & SIX_BITS_MASK));
+                appendEscaped(builder, CONTINUATION_BYTE | (c & SIX_BITS_MASK));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                appendEscaped(builder, FOUR_BYTE_LEAD | (codePoint >> (3 * SIX_BITS)));
+                appendEscaped(builder, CONTINUATION_BYTE | ((codePoint >> (2 * SIX_BITS)) & SIX_BITS_MASK));
+                appendEscaped(builder, CONTINUATION_BYTE | ((codePoint >> SIX_BITS) & SIX_BITS_MASK));
+                appendEscaped(builder, CONTINUATION_BYTE | (codePoint & SIX_BITS_MASK));
+            } else {
+                appendEscaped(builder, MALFORMED_REPLACEMENT);
+            }
+        }
+    }
+
+    private static void appendEscaped(StringBuilder builder, int b) {
+        builder.append('%')
+                .append(HEX_DIGITS[(b >> HALF_BYTE_BITS) & HALF_BYTE_MASK])
+                .append(HEX_DIGITS[b & HALF_BYTE_MASK]);
+    }
+}
@@ -17,7 +17,10 @@ package com.amazonaws.util;
 
 import com.amazonaws.logging.LogFactory;
 
+import com.amazonaws.util.AWSRequestMetrics.Field;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,10 +32,34 @@ import java.util.Map;
  * <p>
  * This class is instantiated instead of {@link TimingInfo} when request metric
  * collection is required during a particular service request/response cycle.
+ * <p>
+ * Counters and sub-measurements named after a {@link Field} are kept in
+ * primitive arrays indexed by the field, so that recording them neither
+ * hashes nor boxes; sub-measurements are turned into {@link TimingInfo}s when
+ * read.
  */
 class TimingInfoFullSupport extends TimingInfo {
+    private static final Field[] FIELDS = Field.values();
+    private static final Map<String, Field> FIELDS_BY_NAME = new HashMap<String, Field>();
+    /** Marks a field counter that is not set. */
+    private static final long UNSET = Long.MIN_VALUE;
+    /** Longs per pending sub-measurement: field ordinal, start and end. */
+    private static final int SPAN_SIZE = 3;
+    private static final int INITIAL_SPANS = 8;
+
+    static {
+        for (final Field field : FIELDS) {
+            FIELDS_BY_NAME.put(field.name(), field);
+        }
+    }
+
     private final Map<String, List<TimingInfo>> subMeasurementsByName = new HashMap<String, List<TimingInfo>>();
     private final Map<String, Number> countersByName = new HashMap<String, Number>();
+    /* Counters of fields, by ordinal. */
+    private final long[] fieldCounters = newFieldCounters();
+    /* Sub-measurements of fields not yet moved to subMeasurementsByName. */
+    private long[] spans;
+    private int spanLength;
 
     /**
      * A private ctor to facilitate the deprecation of using millisecond and
@@ -52,6 +79,7 @@ class TimingInfoFullSupport extends TimingInfo {
 
     @Override
     public void addSubMeasurement(String subMeasurementName, TimingInfo ti) {
+        materializeSpans();
         List<TimingInfo> timings = subMeasurementsByName.get(subMeasurementName);
         if (timings == null) {
             timings = new ArrayList<TimingInfo>();
@@ -73,6 +101,7 @@ class TimingInfoFullSupport extends TimingInfo {
 
     @Override
     public TimingInfo getSubMeasurement(String subMesurementName, int index) {
+        materializeSpans();
 
         List<TimingInfo> timings = subMeasurementsByName.get(subMesurementName);
         if (index < 0 || timings == null || timings.size() == 0
@@ -85,6 +114,7 @@ class TimingInfoFullSupport extends TimingInfo {
 
     @Override
     public TimingInfo getLastSubMeasurement(String subMeasurementName) {
+        materializeSpans();
 
         if (subMeasurementsByName == null || subMeasurementsByName.size() == 0) {
             return null;
@@ -100,31 +130,53 @@ class TimingInfoFullSupport extends TimingInfo {
 
     @Override
     public List<TimingInfo> getAllSubMeasurements(String subMeasurementName) {
+        materializeSpans();
         return subMeasurementsByName.get(subMeasurementName);
     }
 
     @Override
     public Map<String, List<TimingInfo>> getSubMeasurementsByName() {
+        materializeSpans();
         return subMeasurementsByName;
     }
 
     @Override
     public Number getCounter(String key) {
+        final Field field = FIELDS_BY_NAME.get(key);
+        if (field != null) {
+            final long count = fieldCounters[field.ordinal()];
+            return count == UNSET ? null : Long.valueOf(count);
+        }
         return countersByName.get(key);
     }
 
     @Override
     public Map<String, Number> getAllCounters() {
+        for (int i = 0; i < fieldCounters.length; i++) {
+            if (fieldCounters[i] != UNSET) {
+                countersByName.put(FIELDS[i].name(), Long.valueOf(fieldCounters[i]));
+            }
+        }
         return countersByName;
     }
 
     @Override
     public void setCounter(String key, long count) {
-        countersByName.put(key, count);
+        final Field field = FIELDS_BY_NAME.get(key);
+        if (field != null) {
+            setCounter(field, count);
+        } else {
+            countersByName.put(key, count);
+        }
     }
 
     @Override
     public void incrementCounter(String key) {
+        final Field field = FIELDS_BY_NAME.get(key);
+        if (field != null) {
+            incrementCounter(field);
+            return;
+        }
 
         int count = 0;
         Number counter = getCounter(key);
@@ -135,4 +187,74 @@ class TimingInfoFullSupport extends TimingInfo {
 
         setCounter(key, ++count);
     }
+
+    /**
+     * Sets the counter of a field.
+     *
+     * @param field the field.
+     * @param count the count.
+     */
+    void setCounter(Field field, long count) {
+        fieldCounters[field.ordinal()] = count;
+    }
+
+    /**
+     * Adds 1 to the counter of a field, which starts at 0.
+     *
+     * @param field the field.
+     */
+    void incrementCounter(Field field) {
+        final long count = fieldCounters[field.ordinal()];
+        fieldCounters[field.ordinal()] = count == UNSET ? 1 : count + 1;
+    }
+
+    /**
+     * Adds a sub-measurement of a field without creating a
+     * {@link TimingInfo} until it is read.
+     *
+     * @param field the field.
+     * @param startTimeNano start time in nanosecond.
+     * @param endTimeNano end time in nanosecond.
+     */
+    void addSubMeasurement(Field field, long startTimeNano, long endTimeNano) {
+        if (spans == null) {
+            spans = new long[INITIAL_SPANS * SPAN_SIZE];
+        } else if (spanLength == spans.length) {
+            spans = Arrays.copyOf(spans, spans.length * 2);
+        }
+        spans[spanLength++] = field.ordinal();
+        spans[spanLength++] = startTimeNano;
+        spans[spanLength++] = endTimeNano;
+    }
+
+    /**
+     * @param name a metric name.
+     * @return the field of the name, or null if it isn't the name of a field.
+     */
+    static Field fieldOf(String name) {
+        return FIELDS_BY_NAME.get(name);
+    }
+
+    /**
+     * Moves the pending sub-measurements of fields to subMeasurementsByName,
+     * in the order they were added.
+     */
+    private void materializeSpans() {
+        for (int i = 0; i < spanLength; i += SPAN_SIZE) {
+            final String name = FIELDS[(int) spans[i]].name();
+            List<TimingInfo> timings = subMeasurementsByName.get(name);
+            if (timings == null) {
+                timings = new ArrayList<TimingInfo>();
+                subMeasurementsByName.put(name, timings);
+            }
+            timings.add(TimingInfo.unmodifiableTimingInfo(spans[i + 1], spans[i + 2]));
+        }
+        spanLength = 0;
+    }
+
+    private static long[] newFieldCounters() {
+        final long[] counters = new long[FIELDS.length];
+        Arrays.fill(counters, UNSET);
+        return counters;
+    }
 }
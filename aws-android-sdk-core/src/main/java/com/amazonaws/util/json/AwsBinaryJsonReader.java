@@ -0,0 +1,35 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util.json;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A reader for a binary JSON encoding, such as CBOR, that carries blobs as
+ * raw bytes instead of as Base64 strings.
+ */
+public interface AwsBinaryJsonReader extends AwsJsonReader {
+
+    /**
+     * Gets the next value as a {@link ByteBuffer}, or null if the token is
+     * {@link AwsJsonToken#VALUE_NULL}. A string value is Base64 decoded.
+     *
+     * @return the next value as {@link ByteBuffer}
+     * @throws IOException
+     */
+    ByteBuffer nextByteBuffer() throws IOException;
+}
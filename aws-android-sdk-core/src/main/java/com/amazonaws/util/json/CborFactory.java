@@ -0,0 +1,671 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util.json;
+
+import com.amazonaws.util.Base64;
+import com.amazonaws.util.StringUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Readers and writers of CBOR (RFC 7049), the binary encoding of the AWS JSON
+ * protocol, with the same token model as the JSON ones. Blobs are byte strings
+ * instead of Base64 strings, and timestamps are tagged epoch milliseconds, as
+ * the services expect. Objects and arrays are written with indefinite length
+ * so that they can be streamed.
+ */
+final class CborFactory {
+
+    private static final int MAJOR_TYPE_SHIFT = 5;
+    private static final int ADDITIONAL_INFO_MASK = 0x1f;
+
+    private static final int MAJOR_UNSIGNED = 0;
+    private static final int MAJOR_NEGATIVE = 1;
+    private static final int MAJOR_BYTES = 2;
+    private static final int MAJOR_TEXT = 3;
+    private static final int MAJOR_ARRAY = 4;
+    private static final int MAJOR_MAP = 5;
+    private static final int MAJOR_TAG = 6;
+    private static final int MAJOR_SIMPLE = 7;
+
+    /** Largest argument stored in the initial byte itself. */
+    private static final int MAX_IMMEDIATE = 23;
+    private static final int ONE_BYTE = 24;
+    private static final int TWO_BYTES = 25;
+    private static final int FOUR_BYTES = 26;
+    private static final int EIGHT_BYTES = 27;
+    private static final int INDEFINITE = 31;
+
+    private static final int SIMPLE_FALSE = 20;
+    private static final int SIMPLE_TRUE = 21;
+    private static final int SIMPLE_NULL = 22;
+    private static final int SIMPLE_UNDEFINED = 23;
+    private static final int BREAK = 0xff;
+
+    /** Tag of an epoch based timestamp. */
+    private static final int TAG_EPOCH_TIMESTAMP = 1;
+
+    private static final int BYTE_MASK = 0xff;
+    private static final int BITS_IN_A_BYTE = 8;
+    private static final long UNSIGNED_INT_MASK = 0xffffffffL;
+    private static final int MILLIS_IN_A_SECOND_DIGITS = 3;
+
+    AwsBinaryJsonReader getCborReader(InputStream in) {
+        return new CborReader(in);
+    }
+
+    AwsJsonWriter getCborWriter(OutputStream out) {
+        return new CborWriter(out);
+    }
+
+    private static final class CborReader implements AwsBinaryJsonReader {
+
+        /** An open array or map. */
+        private static final class Container {
+            private final boolean map;
+            /** Items left in a definite length container, or -1. */
+            private long remaining;
+            /** Items read so far; in a map, names are the even ones. */
+            private long read;
+
+            Container(boolean map, long remaining) {
+                this.map = map;
+                this.remaining = remaining;
+            }
+        }
+
+        private final InputStream in;
+        private final List<Container> containers = new ArrayList<Container>();
+
+        /** Initial byte of the next item once peeked, or -1. */
+        private int initial = -1;
+        private long argument;
+        /** Tag preceding the next item, or -1. */
+        private long tag = -1;
+
+        CborReader(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public void beginArray() throws IOException {
+            expect(AwsJsonToken.BEGIN_ARRAY);
+            enter(false, argumentOrIndefinite());
+        }
+
+        @Override
+        public void endArray() throws IOException {
+            expect(AwsJsonToken.END_ARRAY);
+            exit();
+        }
+
+        @Override
+        public void beginObject() throws IOException {
+            expect(AwsJsonToken.BEGIN_OBJECT);
+            final long pairs = argumentOrIndefinite();
+            enter(true, pairs < 0 ? pairs : 2 * pairs);
+        }
+
+        @Override
+        public void endObject() throws IOException {
+            expect(AwsJsonToken.END_OBJECT);
+            exit();
+        }
+
+        @Override
+        public boolean isContainer() throws IOException {
+            final AwsJsonToken token = peek();
+            return AwsJsonToken.BEGIN_ARRAY.equals(token)
+                    || AwsJsonToken.BEGIN_OBJECT.equals(token);
+        }
+
+        @Override
+        public boolean hasNext() throws IOException {
+            final AwsJsonToken token = peek();
+            return token != null
+                    && !AwsJsonToken.END_ARRAY.equals(token)
+                    && !AwsJsonToken.END_OBJECT.equals(token);
+        }
+
+        @Override
+        public String nextName() throws IOException {
+            expect(AwsJsonToken.FIELD_NAME);
+            return readScalarAsString();
+        }
+
+        @Override
+        public String nextString() throws IOException {
+            final AwsJsonToken token = peek();
+            if (token == null || isStructural(token)) {
+                throw new IllegalStateException("Expected a value but was " + token);
+            }
+            return readScalarAsString();
+        }
+
+        @Override
+        public ByteBuffer nextByteBuffer() throws IOException {
+            final AwsJsonToken token = peek();
+            if (token == null || isStructural(token)) {
+                throw new IllegalStateException("Expected a value but was " + token);
+            }
+            final int majorType = initial >>> MAJOR_TYPE_SHIFT;
+            if (majorType == MAJOR_BYTES) {
+                return ByteBuffer.wrap(readStringBytes());
+            }
+            final String value = readScalarAsString();
+            return value == null ? null : ByteBuffer.wrap(Base64.decode(value));
+        }
+
+        @Override
+        public AwsJsonToken peek() throws IOException {
+            final Container container = currentContainer();
+            if (container != null && container.remaining == 0) {
+                return container.map ? AwsJsonToken.END_OBJECT : AwsJsonToken.END_ARRAY;
+            }
+            if (initial < 0 && !readHeader()) {
+                return null;
+            }
+            if (initial == BREAK) {
+                if (container == null || container.remaining >= 0) {
+                    throw new IOException("Unexpected CBOR break");
+                }
+                return container.map ? AwsJsonToken.END_OBJECT : AwsJsonToken.END_ARRAY;
+            }
+            if (container != null && container.map && container.read % 2 == 0) {
+                return AwsJsonToken.FIELD_NAME;
+            }
+            switch (initial >>> MAJOR_TYPE_SHIFT) {
+                case MAJOR_UNSIGNED:
+                case MAJOR_NEGATIVE:
+                    return AwsJsonToken.VALUE_NUMBER;
+                case MAJOR_BYTES:
+                case MAJOR_TEXT:
+                    return AwsJsonToken.VALUE_STRING;
+                case MAJOR_ARRAY:
+                    return AwsJsonToken.BEGIN_ARRAY;
+                case MAJOR_MAP:
+                    return AwsJsonToken.BEGIN_OBJECT;
+                default:
+                    switch (initial & ADDITIONAL_INFO_MASK) {
+                        case SIMPLE_FALSE:
+                        case SIMPLE_TRUE:
+                            return AwsJsonToken.VALUE_BOOLEAN;
+                        case SIMPLE_NULL:
+                        case SIMPLE_UNDEFINED:
+                            return AwsJsonToken.VALUE_NULL;
+                        case TWO_BYTES:
+                        case FOUR_BYTES:
+                        case EIGHT_BYTES:
+                            return AwsJsonToken.VALUE_NUMBER;
+                        default:
+                            return AwsJsonToken.UNKNOWN;
+                    }
+            }
+        }
+
+        @Override
+        public void skipValue() throws IOException {
+            final AwsJsonToken token = peek();
+            if (AwsJsonToken.BEGIN_ARRAY.equals(token)) {
+                beginArray();
+                while (hasNext()) {
+                    skipValue();
+                }
+                endArray();
+            } else if (AwsJsonToken.BEGIN_OBJECT.equals(token)) {
+                beginObject();
+                while (hasNext()) {
+                    nextName();
+                    skipValue();
+                }
+                endObject();
+            } else if (token == null || isStructural(token)) {
+                throw new IllegalStateException("Expected a value but was " + token);
+            } else {
+                final int majorType = initial >>> MAJOR_TYPE_SHIFT;
+                if (majorType == MAJOR_BYTES || majorType == MAJOR_TEXT) {
+                    readStringBytes();
+                } else {
+                    readScalarAsString();
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private static boolean isStructural(AwsJsonToken token) {
+            return AwsJsonToken.BEGIN_ARRAY.equals(token)
+                    || AwsJsonToken.END_ARRAY.equals(token)
+                    || AwsJsonToken.BEGIN_OBJECT.equals(token)
+                    || AwsJsonToken.END_OBJECT.equals(token);
+        }
+
+        private void expect(AwsJsonToken expected) throws IOException {
+            final AwsJsonToken token = peek();
+            if (!expected.equals(token)) {
+                throw new IllegalStateException("Expected " + expected + " but was " + token);
+            }
+        }
+
+        private Container currentContainer() {
+            return containers.isEmpty() ? null : containers.get(containers.size() - 1);
+        }
+
+        private void enter(boolean map, long remaining) {
+            consumeItem();
+            containers.add(new Container(map, remaining));
+        }
+
+        private void exit() {
+            final Container container = containers.remove(containers.size() - 1);
+            if (container.remaining < 0) {
+                // consume the break
+                initial = -1;
+            }
+        }
+
+        /**
+         * Marks the peeked item as read in its container.
+         */
+        private void consumeItem() {
+            initial = -1;
+            tag = -1;
+            final Container container = currentContainer();
+            if (container != null) {
+                container.read++;
+                if (container.remaining > 0) {
+                    container.remaining--;
+                }
+            }
+        }
+
+        private long argumentOrIndefinite() {
+            return (initial & ADDITIONAL_INFO_MASK) == INDEFINITE ? -1 : argument;
+        }
+
+        /**
+         * Reads the header of the next item, skipping any tags but the last.
+         *
+         * @return false at the end of the input.
+         */
+        private boolean readHeader() throws IOException {
+            while (true) {
+                final int b = in.read();
+                if (b < 0) {
+                    if (tag >= 0) {
+                        throw new EOFException("Unexpected end of CBOR input");
+                    }
+                    return false;
+                }
+                initial = b;
+                if (b == BREAK) {
+                    return true;
+                }
+                final int info = b & ADDITIONAL_INFO_MASK;
+                if (b >>> MAJOR_TYPE_SHIFT == MAJOR_SIMPLE) {
+                    // floats are read with the value
+                    argument = info;
+                    return true;
+                }
+                argument = readArgument(info);
+                if (b >>> MAJOR_TYPE_SHIFT != MAJOR_TAG) {
+                    return true;
+                }
+                tag = argument;
+            }
+        }
+
+        private long readArgument(int info) throws IOException {
+            if (info <= MAX_IMMEDIATE) {
+                return info;
+            }
+            switch (info) {
+                case ONE_BYTE:
+                    return readUnsigned(1);
+                case TWO_BYTES:
+                    return readUnsigned(2);
+                case FOUR_BYTES:
+                    return readUnsigned(4);
+                case EIGHT_BYTES:
+                    return readUnsigned(8);
+                case INDEFINITE:
+                    return -1;
+                default:
+                    throw new IOException("Invalid CBOR additional information " + info);
+            }
+        }
+
+        private long readUnsigned(int bytes) throws IOException {
+            long value = 0;
+            for (int i = 0; i < bytes; i++) {
+                final int b = in.read();
+                if (b < 0) {
+                    throw new EOFException("Unexpected end of CBOR input");
+                }
+                value = (value << BITS_IN_A_BYTE) | b;
+            }
+            return value;
+        }
+
+        private void readFully(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                final int read = in.read(bytes, offset, length);
+                if (read < 0) {
+                    throw new EOFException("Unexpected end of CBOR input");
+                }
+                offset += read;
+                length -= read;
+            }
+        }
+
+        /**
+         * Reads the peeked byte or text string, joining the chunks of an
+         * indefinite length one.
+         */
+        private byte[] readStringBytes() throws IOException {
+            final int majorType = initial >>> MAJOR_TYPE_SHIFT;
+            final boolean indefinite = (initial & ADDITIONAL_INFO_MASK) == INDEFINITE;
+            final long length = argument;
+            consumeItem();
+            if (!indefinite) {
+                return readBytes(length);
+            }
+            final ByteArrayOutputStream chunks = new ByteArrayOutputStream();
+            while (true) {
+                final int b = in.read();
+                if (b < 0) {
+                    throw new EOFException("Unexpected end of CBOR input");
+                }
+                if (b == BREAK) {
+                    return chunks.toByteArray();
+                }
+                if (b >>> MAJOR_TYPE_SHIFT != majorType) {
+                    throw new IOException("Invalid chunk in CBOR string");
+                }
+                final byte[] chunk = readBytes(readArgument(b & ADDITIONAL_INFO_MASK));
+                chunks.write(chunk, 0, chunk.length);
+            }
+        }
+
+        private byte[] readBytes(long length) throws IOException {
+            if (length < 0 || length > Integer.MAX_VALUE) {
+                throw new IOException("Invalid CBOR string length " + length);
+            }
+            final byte[] bytes = new byte[(int) length];
+            readFully(bytes, 0, bytes.length);
+            return bytes;
+        }
+
+        /**
+         * Reads the peeked scalar as the string the JSON reader would return
+         * for it: numbers in decimal, blobs in Base64, and timestamps in epoch
+         * seconds.
+         */
+        private String readScalarAsString() throws IOException {
+            final int majorType = initial >>> MAJOR_TYPE_SHIFT;
+            final long itemTag = tag;
+            switch (majorType) {
+                case MAJOR_TEXT:
+                    return new String(readStringBytes(), StringUtils.UTF8);
+                case MAJOR_BYTES:
+                    return Base64.encodeAsString(readStringBytes());
+                case MAJOR_UNSIGNED:
+                case MAJOR_NEGATIVE:
+                    final BigInteger integer = readInteger(majorType);
+                    if (itemTag == TAG_EPOCH_TIMESTAMP) {
+                        return new BigDecimal(integer, MILLIS_IN_A_SECOND_DIGITS).toPlainString();
+                    }
+                    return integer.toString();
+                case MAJOR_SIMPLE:
+                    return readSimpleAsString();
+                default:
+                    throw new IllegalStateException("Expected a value but was major type " + majorType);
+            }
+        }
+
+        private BigInteger readInteger(int majorType) {
+            final long value = argument;
+            consumeItem();
+            BigInteger integer = BigInteger.valueOf(value);
+            if (value < 0) {
+                // an eight byte argument above Long.MAX_VALUE
+                integer = integer.add(BigInteger.ONE.shiftLeft(Long.SIZE));
+            }
+            return majorType == MAJOR_NEGATIVE ? integer.negate().subtract(BigInteger.ONE) : integer;
+        }
+
+        private String readSimpleAsString() throws IOException {
+            final int info = initial & ADDITIONAL_INFO_MASK;
+            consumeItem();
+            switch (info) {
+                case SIMPLE_FALSE:
+                    return "false";
+                case SIMPLE_TRUE:
+                    return "true";
+                case SIMPLE_NULL:
+                case SIMPLE_UNDEFINED:
+                    return null;
+                case TWO_BYTES:
+                    return toPlainString(halfToDouble((int) readUnsigned(2)));
+                case FOUR_BYTES:
+                    return toPlainString(Float.intBitsToFloat((int) readUnsigned(4)));
+                case EIGHT_BYTES:
+                    return toPlainString(Double.longBitsToDouble(readUnsigned(8)));
+                default:
+                    throw new IOException("Unsupported CBOR simple value " + info);
+            }
+        }
+
+        private static String toPlainString(double value) {
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                return Double.toString(value);
+            }
+            return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+        }
+
+        private static double halfToDouble(int half) {
+            final int exponent = (half >> 10) & 0x1f;
+            final int mantissa = half & 0x3ff;
+            double value;
+            if (exponent == 0) {
+                value = Math.scalb((double) mantissa, -24);
+            } else if (exponent != 0x1f) {
+                value = Math.scalb((double) (mantissa + 0x400), exponent - 25);
+            } else {
+                value = mantissa == 0 ? Double.POSITIVE_INFINITY : Double.NaN;
+            }
+            return (half & 0x8000) != 0 ? -value : value;
+        }
+    }
+
+    private static final class CborWriter implements AwsJsonWriter {
+
+        private final OutputStream out;
+        private final byte[] header = new byte[1 + Long.SIZE / BITS_IN_A_BYTE];
+
+        CborWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public AwsJsonWriter beginArray() throws IOException {
+            out.write(MAJOR_ARRAY << MAJOR_TYPE_SHIFT | INDEFINITE);
+            return this;
+        }
+
+        @Override
+        public AwsJsonWriter endArray() throws IOException {
+            out.write(BREAK);
+            return this;
+        }
+
+        @Override
+        public AwsJsonWriter beginObject() throws IOException {
+            out.write(MAJOR_MAP << MAJOR_TYPE_SHIFT | INDEFINITE);
+            return this;
+        }
+
+        @Override
+        public AwsJsonWriter endObject() throws IOException {
+            out.write(BREAK);
+            return this;
+        }
+
+        @Override
+        public AwsJsonWriter name(String name) throws IOException {
+            return value(name);
+        }
+
+        @Override
+        public AwsJsonWriter value(String value) throws IOException {
+            if (value == null) {
+                return value();
+            }
+            final byte[] bytes = value.getBytes(StringUtils.UTF8);
+            writeHeader(MAJOR_TEXT, bytes.length);
+            out.write(bytes);
+            return this;
+        }
+
+        @Override
+        public AwsJsonWriter value(boolean value) throws IOException {
+            out.write(MAJOR_SIMPLE << MAJOR_TYPE_SHIFT | (value ? SIMPLE_TRUE : SIMPLE_FALSE));
+            return this;
+        }
+
+        @Override
+        public AwsJsonWriter value(double value) throws IOException {
+            if (value == Math.rint(value) && Math.abs(value) < Long.MAX_VALUE) {
+                return value((long) value);
+            }
+            header[0] = (byte) (MAJOR_SIMPLE << MAJOR_TYPE_SHIFT | EIGHT_BYTES);
+            final long bits = Double.doubleToLongBits(value);
+            for (int i = 0; i < Long.SIZE / BITS_IN_A_BYTE; i++) {
+                header[1 + i] = (byte) (bits >>> (Long.SIZE - BITS_IN_A_BYTE * (i + 1)));
+            }
+            out.write(header, 0, 1 + Long.SIZE / BITS_IN_A_BYTE);
+            return this;
+        }
+
+        @Override
+        public AwsJsonWriter value(long value) throws IOException {
+            if (value >= 0) {
+                writeHeader(MAJOR_UNSIGNED, value);
+            } else {
+                writeHeader(MAJOR_NEGATIVE, -1 - value);
+            }
+            return this;
+        }
+
+        @Override
+        public AwsJsonWriter value(Number value) throws IOException {
+            if (value == null) {
+                return value();
+            }
+            if (value instanceof Long || value instanceof Integer
+                    || value instanceof Short || value instanceof Byte) {
+                return value(value.longValue());
+            }
+            if (value instanceof BigInteger && ((BigInteger) value).bitLength() < Long.SIZE) {
+                return value(value.longValue());
+            }
+            return value(value.doubleValue());
+        }
+
+        @Override
+        public AwsJsonWriter value(Date value) throws IOException {
+            if (value == null) {
+                return value();
+            }
+            writeHeader(MAJOR_TAG, TAG_EPOCH_TIMESTAMP);
+            return value(value.getTime());
+        }
+
+        @Override
+        public AwsJsonWriter value(ByteBuffer value) throws IOException {
+            if (value == null) {
+                return value();
+            }
+            writeHeader(MAJOR_BYTES, value.remaining());
+            if (value.hasArray()) {
+                out.write(value.array(), value.arrayOffset() + value.position(), value.remaining());
+            } else {
+                final byte[] bytes = new byte[value.remaining()];
+                value.duplicate().get(bytes);
+                out.write(bytes);
+            }
+            return this;
+        }
+
+        @Override
+        public AwsJsonWriter value() throws IOException {
+            out.write(MAJOR_SIMPLE << MAJOR_TYPE_SHIFT | SIMPLE_NULL);
+            return this;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        /**
+         * Writes the initial byte of an item and its argument in the fewest
+         * bytes.
+         */
+        private void writeHeader(int majorType, long argument) throws IOException {
+            final int type = majorType << MAJOR_TYPE_SHIFT;
+            int length;
+            if (argument <= MAX_IMMEDIATE) {
+                header[0] = (byte) (type | argument);
+                length = 1;
+            } else if (argument <= BYTE_MASK) {
+                header[0] = (byte) (type | ONE_BYTE);
+                length = 2;
+            } else if (argument <= 0xffff) {
+                header[0] = (byte) (type | TWO_BYTES);
+                length = 3;
+            } else if (argument <= UNSIGNED_INT_MASK) {
+                header[0] = (byte) (type | FOUR_BYTES);
+                length = 5;
+            } else {
+                header[0] = (byte) (type | EIGHT_BYTES);
+                length = 9;
+            }
+            for (int i = 1; i < length; i++) {
+                header[i] = (byte) (argument >>> (BITS_IN_A_BYTE * (length - 1 - i)));
+            }
+            out.write(header, 0, length);
+        }
+    }
+}
@@ -18,6 +18,8 @@ package com.amazonaws.util.json;
 import com.amazonaws.AmazonClientException;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
@@ -31,6 +33,7 @@ import java.util.Map;
  */
 public class JsonUtils {
     private static final AwsJsonFactory FACTORY = new GsonFactory();
+    private static final CborFactory CBOR_FACTORY = new CborFactory();
 
     /**
      * JSON engine
@@ -90,6 +93,29 @@ public class JsonUtils {
         return FACTORY.getJsonWriter(out);
     }
 
+    /**
+     * Gets a reader of CBOR, the binary encoding of JSON, with the same token
+     * model as a JSON reader. Blobs can be read without Base64 decoding with
+     * {@link AwsBinaryJsonReader#nextByteBuffer()}.
+     *
+     * @param in input stream
+     * @return a CBOR reader
+     */
+    public static AwsBinaryJsonReader getCborReader(InputStream in) {
+        return CBOR_FACTORY.getCborReader(in);
+    }
+
+    /**
+     * Gets a writer of CBOR, the binary encoding of JSON. Blobs are written as
+     * byte strings and dates as epoch milliseconds.
+     *
+     * @param out output stream
+     * @return a CBOR writer
+     */
+    public static AwsJsonWriter getCborWriter(OutputStream out) {
+        return CBOR_FACTORY.getCborWriter(out);
+    }
+
     /**
      * Convenient method to convert a JSON string to a map. Any object or array
      * will be discarded. Number and boolean are stored as string.
@@ -150,9 +176,19 @@ public class JsonUtils {
      * @param in reader
      * @return a non null, unmodifiable, string to string map
      */
-    @SuppressWarnings("unchecked")
     public static Map<String, String> jsonToStringMapWithList(Reader in) {
-        AwsJsonReader reader = getJsonReader(in);
+        return jsonToStringMapWithList(getJsonReader(in));
+    }
+
+    /**
+     * Same as {@link #jsonToStringMapWithList(Reader)}, reading from the given
+     * JSON or CBOR reader. Arrays are stored as JSON strings.
+     *
+     * @param reader JSON or CBOR reader
+     * @return a non null, unmodifiable, string to string map
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, String> jsonToStringMapWithList(AwsJsonReader reader) {
         try {
             // in case it's empty
             if (reader.peek() == null) {
@@ -16,6 +16,7 @@
 package com.amazonaws.handlers;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertTrue;
 
 import com.amazonaws.AmazonClientException;
@@ -50,6 +51,20 @@ public class HandleChainFactoryTest {
         assertEquals(chain.get(0).hashCode(), 1);
     }
 
+    @Test
+    public void testNewRequestHandler2ChainCreatesNewHandlers() throws IOException {
+
+        HandlerChainFactory factory = new HandlerChainFactory();
+        List<RequestHandler2> first = factory
+                .newRequestHandler2Chain("/com/amazonaws/handlers/request.handler2s");
+        List<RequestHandler2> second = new HandlerChainFactory()
+                .newRequestHandler2Chain("/com/amazonaws/handlers/request.handler2s");
+
+        assertEquals(second.size(), 1);
+        assertNotSame(first.get(0), second.get(0));
+        assertEquals(factory.newRequestHandler2Chain("/com/amazonaws/handlers/missing").size(), 0);
+    }
+
     @Test(expected = AmazonClientException.class)
     public void testNewRequestHandlerChainFailsWhenRequest1AndRequest2HandlersMixed()
             throws IOException {
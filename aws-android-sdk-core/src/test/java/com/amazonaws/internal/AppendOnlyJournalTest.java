@@ -0,0 +1,199 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.util.StringUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class AppendOnlyJournalTest {
+
+    private static final long COMPACTION_THRESHOLD = 256;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private AppendOnlyJournal journal;
+
+    @Before
+    public void setUp() throws Exception {
+        file = new File(folder.getRoot(), "journal");
+        journal = new AppendOnlyJournal(file, COMPACTION_THRESHOLD);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        journal.close();
+    }
+
+    private List<AppendOnlyJournal.Record> append(String... payloads) throws Exception {
+        final List<byte[]> bytes = new ArrayList<byte[]>();
+        for (final String payload : payloads) {
+            bytes.add(payload.getBytes(StringUtils.UTF8));
+        }
+        return journal.append(bytes);
+    }
+
+    private List<String> read(List<AppendOnlyJournal.Record> records) throws Exception {
+        final List<String> payloads = new ArrayList<String>();
+        for (final byte[] payload : journal.read(records)) {
+            payloads.add(new String(payload, StringUtils.UTF8));
+        }
+        return payloads;
+    }
+
+    private void reopen() throws Exception {
+        journal.close();
+        journal = new AppendOnlyJournal(file, COMPACTION_THRESHOLD);
+    }
+
+    @Test
+    public void testRecordsAreReadBackInOrder() throws Exception {
+        final List<AppendOnlyJournal.Record> records = append("a", "", "ccc");
+        assertEquals(3, journal.size());
+        assertEquals(3 * AppendOnlyJournal.getRecordSize(0) + 4, journal.sizeInBytes());
+        assertEquals(3, records.get(2).getPayloadLength());
+        assertEquals(Arrays.asList("a", "", "ccc"), read(records));
+        assertEquals(records, journal.getOldest(10));
+        assertEquals(records.subList(0, 2), journal.getOldest(2));
+    }
+
+    @Test
+    public void testRecordsAreReadAtTheirOwnOffsets() throws Exception {
+        final List<AppendOnlyJournal.Record> records = append("first", "second", "third", "fourth");
+        final List<AppendOnlyJournal.Record> gaps = Arrays.asList(records.get(0), records.get(2),
+                records.get(3));
+        assertEquals(Arrays.asList("first", "third", "fourth"), read(gaps));
+    }
+
+    @Test
+    public void testRemovedRecordsStayRemovedAfterReopen() throws Exception {
+        append("a", "b");
+        append("c");
+        journal.removeOldest(2);
+        assertEquals(1, journal.size());
+
+        reopen();
+        assertEquals(1, journal.size());
+        assertEquals(Arrays.asList("c"), read(journal.getOldest(10)));
+    }
+
+    @Test
+    public void testEmptiedJournalReclaimsItsSpace() throws Exception {
+        append("a", "b", "c");
+        journal.removeOldest(3);
+        assertTrue(journal.isEmpty());
+        assertEquals(0, journal.sizeInBytes());
+        assertEquals(8, file.length());
+    }
+
+    @Test
+    public void testTrimToRemovesOldestRecords() throws Exception {
+        append("0123456789", "0123456789", "0123456789");
+        assertEquals(2, journal.trimTo(AppendOnlyJournal.getRecordSize(10)));
+        assertEquals(1, journal.size());
+        assertEquals(0, journal.trimTo(AppendOnlyJournal.getRecordSize(10)));
+    }
+
+    @Test
+    public void testFileIsCompactedOnceRemovedRecordsExceedThreshold() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            // keep the newest record queued so that the file is never emptied
+            append(String.format("record %20d", i));
+            if (journal.size() > 1) {
+                journal.removeOldest(1);
+            }
+            assertTrue(file.length() <= 2 * COMPACTION_THRESHOLD);
+        }
+
+        reopen();
+        assertEquals(Arrays.asList(String.format("record %20d", 99)), read(journal.getOldest(10)));
+    }
+
+    @Test
+    public void testTornTailIsDroppedOnReopen() throws Exception {
+        append("kept 0", "kept 1");
+        append("torn");
+        journal.close();
+
+        final RandomAccessFile data = new RandomAccessFile(file, "rw");
+        try {
+            data.setLength(data.length() - 2);
+        } finally {
+            data.close();
+        }
+
+        journal = new AppendOnlyJournal(file, COMPACTION_THRESHOLD);
+        assertEquals(Arrays.asList("kept 0", "kept 1"), read(journal.getOldest(10)));
+        append("after");
+        reopen();
+        assertEquals(Arrays.asList("kept 0", "kept 1", "after"), read(journal.getOldest(10)));
+    }
+
+    @Test
+    public void testTornLengthPrefixIsDroppedOnReopen() throws Exception {
+        append("kept");
+        journal.close();
+
+        final RandomAccessFile data = new RandomAccessFile(file, "rw");
+        try {
+            // a kill after the first bytes of the next record's length
+            data.seek(data.length());
+            data.write(new byte[] {0, 0});
+        } finally {
+            data.close();
+        }
+
+        journal = new AppendOnlyJournal(file, COMPACTION_THRESHOLD);
+        assertEquals(Arrays.asList("kept"), read(journal.getOldest(10)));
+        assertEquals(8 + AppendOnlyJournal.getRecordSize(4), file.length());
+    }
+
+    @Test
+    public void testInvalidHeadIsIgnored() throws Exception {
+        append("a");
+        journal.close();
+
+        final RandomAccessFile data = new RandomAccessFile(file, "rw");
+        try {
+            data.writeLong(Long.MAX_VALUE);
+        } finally {
+            data.close();
+        }
+
+        journal = new AppendOnlyJournal(file, COMPACTION_THRESHOLD);
+        assertEquals(Arrays.asList("a"), read(journal.getOldest(10)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNonPositiveThreshold() throws Exception {
+        new AppendOnlyJournal(new File(folder.getRoot(), "other"), 0);
+    }
+}
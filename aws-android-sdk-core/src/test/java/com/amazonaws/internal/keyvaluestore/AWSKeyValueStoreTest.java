@@ -0,0 +1,86 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.internal.keyvaluestore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+/**
+ * On API levels 10 to 17 every store has the same encryption key alias, but
+ * its own key in its own encryption key SharedPreferences.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 16)
+public class AWSKeyValueStoreTest {
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.application;
+    }
+
+    private SharedPreferences encryptionKeyPreferences(String sharedPreferencesName) {
+        return context.getSharedPreferences(sharedPreferencesName
+                + AWSKeyValueStore.SHARED_PREFERENCES_ENCRYPTION_KEY_NAMESPACE_SUFFIX,
+                Context.MODE_PRIVATE);
+    }
+
+    @Test
+    public void testStoresOfDifferentNamesKeepTheirOwnKeys() {
+        final AWSKeyValueStore first = new AWSKeyValueStore(context, "store.first", true);
+        first.put("key", "first value");
+        // created after the key of the first store is cached
+        final AWSKeyValueStore second = new AWSKeyValueStore(context, "store.second", true);
+        second.put("key", "second value");
+        first.put("other", "first other value");
+
+        final String firstKey = encryptionKeyPreferences("store.first")
+                .getString(KeyProvider10.KEY_ALIAS, null);
+        final String secondKey = encryptionKeyPreferences("store.second")
+                .getString(KeyProvider10.KEY_ALIAS, null);
+        assertNotNull(firstKey);
+        assertNotNull(secondKey);
+        assertFalse(firstKey.equals(secondKey));
+
+        // new stores decrypt what was persisted, as after a restart
+        AWSKeyValueStore.cacheFactory.clear();
+        final AWSKeyValueStore firstAgain = new AWSKeyValueStore(context, "store.first", true);
+        final AWSKeyValueStore secondAgain = new AWSKeyValueStore(context, "store.second", true);
+        assertEquals("first value", firstAgain.get("key"));
+        assertEquals("first other value", firstAgain.get("other"));
+        assertEquals("second value", secondAgain.get("key"));
+    }
+
+    @Test
+    public void testGeneratedKeyIsThePersistedKey() throws Exception {
+        final SharedPreferences preferences = encryptionKeyPreferences("store.generated");
+        final KeyProvider10 keyProvider = new KeyProvider10(preferences);
+        assertEquals(keyProvider.generateKey(KeyProvider10.KEY_ALIAS),
+                keyProvider.retrieveKey(KeyProvider10.KEY_ALIAS));
+    }
+}
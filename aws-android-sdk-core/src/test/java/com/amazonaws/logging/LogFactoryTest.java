@@ -0,0 +1,94 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class LogFactoryTest {
+
+    /** Provides a mock log for a single tag. */
+    private static final class TagLogProvider implements LogProvider {
+        private final String tag;
+        private final Log log;
+        private final List<String> requestedTags = new ArrayList<String>();
+
+        TagLogProvider(String tag, Log log) {
+            this.tag = tag;
+            this.log = log;
+        }
+
+        @Override
+        public Log getLog(String logTag) {
+            requestedTags.add(logTag);
+            return tag.equals(logTag) ? log : null;
+        }
+    }
+
+    private TagLogProvider provider;
+
+    @After
+    public void teardown() {
+        if (provider != null) {
+            LogFactory.removeLogProvider(provider);
+        }
+    }
+
+    @Test
+    public void testProviderReceivesLogsOfExistingAndNewTags() {
+        final Log existing = LogFactory.getLog("LogFactoryTestExisting");
+        final Log providedExisting = mock(Log.class);
+        when(providedExisting.isInfoEnabled()).thenReturn(true);
+        provider = new TagLogProvider("LogFactoryTestExisting", providedExisting);
+        LogFactory.addLogProvider(provider);
+
+        existing.info("hello");
+        verify(providedExisting).info("hello");
+        assertTrue(existing.isInfoEnabled());
+
+        final Log other = LogFactory.getLog("LogFactoryTestOther");
+        other.info("not forwarded");
+        assertTrue(provider.requestedTags.contains("LogFactoryTestOther"));
+    }
+
+    @Test
+    public void testRemovedProviderReceivesNothing() {
+        final Log log = LogFactory.getLog("LogFactoryTestRemoved");
+        final Log provided = mock(Log.class);
+        provider = new TagLogProvider("LogFactoryTestRemoved", provided);
+        LogFactory.addLogProvider(provider);
+        LogFactory.removeLogProvider(provider);
+
+        log.error("dropped");
+        verify(provided, never()).error("dropped");
+        assertEquals(log, LogFactory.getLog("LogFactoryTestRemoved"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullProvider() {
+        LogFactory.addLogProvider(null);
+    }
+}
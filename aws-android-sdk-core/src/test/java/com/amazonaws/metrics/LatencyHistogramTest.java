@@ -0,0 +1,81 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketsAreContiguous() {
+        long expected = 0;
+        for (int bucket = 0; LatencyHistogram.highestOf(bucket) < (1L << 40) - 1; bucket++) {
+            assertEquals(expected, LatencyHistogram.lowestOf(bucket));
+            assertEquals(bucket, LatencyHistogram.bucketOf(LatencyHistogram.lowestOf(bucket)));
+            assertEquals(bucket, LatencyHistogram.bucketOf(LatencyHistogram.highestOf(bucket)));
+            expected = LatencyHistogram.highestOf(bucket) + 1;
+        }
+    }
+
+    @Test
+    public void testRelativeError() {
+        for (long micros = 64; micros < (1L << 39); micros = micros * 3 / 2 + 1) {
+            final int bucket = LatencyHistogram.bucketOf(micros);
+            final double width = LatencyHistogram.highestOf(bucket)
+                    - LatencyHistogram.lowestOf(bucket) + 1;
+            assertTrue("micros " + micros, width / micros <= 1.0 / 32);
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 1000; millis++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+        final LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(1, snapshot.getMinMillis(), 0.03);
+        assertEquals(1000, snapshot.getMaxMillis(), 30);
+        assertEquals(500.5, snapshot.getMeanMillis(), 15);
+        assertEquals(500, snapshot.getPercentileMillis(50), 15);
+        assertEquals(990, snapshot.getPercentileMillis(99), 30);
+        assertEquals(1, snapshot.getPercentileMillis(0), 0.03);
+    }
+
+    @Test
+    public void testSnapshotAndReset() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(5));
+        histogram.record(-1);
+        histogram.record(TimeUnit.DAYS.toNanos(100));
+        assertEquals(3, histogram.getSnapshotAndReset().getCount());
+        final LatencyHistogram.Snapshot empty = histogram.getSnapshot();
+        assertEquals(0, empty.getCount());
+        assertEquals(0, empty.getPercentileMillis(99), 0);
+        assertEquals(0, empty.getMeanMillis(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPercentile() {
+        new LatencyHistogram().getSnapshot().getPercentileMillis(101);
+    }
+}
@@ -16,6 +16,8 @@
 package com.amazonaws.regions;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
@@ -66,4 +68,23 @@ public class RegionUtilsTest {
 
     }
 
+    @Test
+    public void testGetRegion() {
+        Region usWest2 = RegionUtils.getRegion("us-west-2");
+
+        assertEquals(usWest2.getName(), "us-west-2");
+        assertSame(usWest2, RegionUtils.getRegionByEndpoint("https://dynamodb.us-west-2.amazonaws.com"));
+        assertNull(RegionUtils.getRegion("bogus-region-1"));
+        assertNull(RegionUtils.getRegion(null));
+    }
+
+    @Test
+    public void testGetRegionsForServiceReturnsCopy() {
+        List<Region> regions = RegionUtils.getRegionsForService(ServiceAbbreviations.SimpleDB);
+        regions.clear();
+
+        assertEquals(RegionUtils.getRegionsForService(ServiceAbbreviations.SimpleDB).size(), 9);
+        assertTrue(RegionUtils.getRegionsForService("bogus").isEmpty());
+    }
+
 }
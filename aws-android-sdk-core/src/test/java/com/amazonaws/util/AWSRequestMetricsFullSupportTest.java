@@ -0,0 +1,84 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.util.AWSRequestMetrics.Field;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class AWSRequestMetricsFullSupportTest {
+
+    @Test
+    public void testFieldEventsBecomeSubMeasurements() {
+        final AWSRequestMetricsFullSupport metrics = new AWSRequestMetricsFullSupport();
+        metrics.startEvent(Field.HttpRequestTime);
+        metrics.endEvent(Field.HttpRequestTime);
+        metrics.startEvent(Field.HttpRequestTime.name());
+        metrics.endEvent(Field.HttpRequestTime.name());
+        metrics.startEvent("CustomEvent");
+        metrics.endEvent("CustomEvent");
+
+        final TimingInfo timingInfo = metrics.getTimingInfo();
+        final List<TimingInfo> timings =
+                timingInfo.getAllSubMeasurements(Field.HttpRequestTime.name());
+        assertEquals(2, timings.size());
+        for (final TimingInfo timing : timings) {
+            assertTrue(timing.isEndTimeKnown());
+            assertTrue(timing.getTimeTakenMillis() >= 0);
+        }
+        assertEquals(1, timingInfo.getAllSubMeasurements("CustomEvent").size());
+        assertTrue(timingInfo.getSubMeasurementsByName()
+                .containsKey(Field.HttpRequestTime.name()));
+    }
+
+    @Test
+    public void testFieldCounters() {
+        final AWSRequestMetricsFullSupport metrics = new AWSRequestMetricsFullSupport();
+        final TimingInfo timingInfo = metrics.getTimingInfo();
+        assertNull(timingInfo.getCounter(Field.RequestCount.name()));
+
+        metrics.incrementCounter(Field.RequestCount);
+        metrics.incrementCounter(Field.RequestCount.name());
+        metrics.setCounter(Field.BytesProcessed, 42);
+        metrics.incrementCounter("CustomCounter");
+
+        assertEquals(2, timingInfo.getCounter(Field.RequestCount.name()).intValue());
+        assertEquals(42, timingInfo.getCounter(Field.BytesProcessed.name()).intValue());
+        assertEquals(1, timingInfo.getCounter("CustomCounter").intValue());
+        assertEquals(3, timingInfo.getAllCounters().size());
+    }
+
+    @Test
+    public void testFieldProperties() {
+        final AWSRequestMetricsFullSupport metrics = new AWSRequestMetricsFullSupport();
+        metrics.addProperty(Field.StatusCode, 200);
+        metrics.addProperty(Field.StatusCode.name(), 503);
+        metrics.addProperty("CustomProperty", "value");
+
+        assertEquals(Arrays.<Object> asList(200, 503), metrics.getProperty(Field.StatusCode));
+        assertEquals(Arrays.<Object> asList(200, 503),
+                metrics.getProperty(Field.StatusCode.name()));
+        assertEquals(Arrays.<Object> asList("value"), metrics.getProperty("CustomProperty"));
+        assertNull(metrics.getProperty(Field.AWSRequestID));
+    }
+}
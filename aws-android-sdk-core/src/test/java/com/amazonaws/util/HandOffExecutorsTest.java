@@ -0,0 +1,231 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class HandOffExecutorsTest {
+
+    @Test
+    public void sequentialTasksRunInOrderOnOneReusedThread() throws Exception {
+        final ThreadPoolExecutor pool = HandOffExecutors.newDaemonPool("test-", 4, 60,
+                new ThreadPoolExecutor.AbortPolicy());
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+        final List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>());
+        try {
+            for (int i = 0; i < 5; i++) {
+                final int task = i;
+                final Future<?> future = pool.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        order.add(task);
+                        threads.add(Thread.currentThread());
+                    }
+                });
+                future.get(10, TimeUnit.SECONDS);
+                // The worker takes the next task once it waits for one.
+                waitUntilPolling(threads.get(task));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), order);
+        assertEquals(1, pool.getLargestPoolSize());
+        for (final Thread thread : threads) {
+            assertEquals("test-1", thread.getName());
+        }
+    }
+
+    @Test
+    public void blockedTasksDoNotQueueBehindEachOther() throws Exception {
+        final ThreadPoolExecutor pool = HandOffExecutors.newDaemonPool("test-", 3, 60,
+                new ThreadPoolExecutor.AbortPolicy());
+        final CountDownLatch allStarted = new CountDownLatch(3);
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < 3; i++) {
+                pool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        allStarted.countDown();
+                        await(release);
+                    }
+                });
+            }
+            assertTrue(allStarted.await(10, TimeUnit.SECONDS));
+            assertEquals(0, pool.getQueue().size());
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void saturatedPoolIsBoundedAndUsesThePolicy() throws Exception {
+        final ThreadPoolExecutor pool = HandOffExecutors.newDaemonPool("test-", 2, 60,
+                new ThreadPoolExecutor.AbortPolicy());
+        final CountDownLatch started = new CountDownLatch(2);
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < 2; i++) {
+                pool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        started.countDown();
+                        await(release);
+                    }
+                });
+            }
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            try {
+                pool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                    }
+                });
+                fail("Expected a saturated pool to reject the task");
+            } catch (final RejectedExecutionException expected) {
+                // expected
+            }
+            assertEquals(2, pool.getLargestPoolSize());
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void callerRunsPolicyRunsOnTheSubmittingThread() throws Exception {
+        final ThreadPoolExecutor pool = HandOffExecutors.newDaemonPool("test-", 1, 60,
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicReference<Thread> ranOn = new AtomicReference<Thread>();
+        try {
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    await(release);
+                }
+            });
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ranOn.set(Thread.currentThread());
+                }
+            });
+            assertSame(Thread.currentThread(), ranOn.get());
+            assertEquals(1, pool.getLargestPoolSize());
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void spillToNewThreadPolicyRunsOnAThreadOfItsOwn() throws Exception {
+        final ThreadPoolExecutor pool = HandOffExecutors.newDaemonPool("test-", 1, 60,
+                HandOffExecutors.spillToNewThreadPolicy("spill-"));
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch spilled = new CountDownLatch(1);
+        final AtomicReference<Thread> ranOn = new AtomicReference<Thread>();
+        try {
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    await(release);
+                }
+            });
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ranOn.set(Thread.currentThread());
+                    spilled.countDown();
+                }
+            });
+            // runs while the pooled thread is still busy
+            assertTrue(spilled.await(10, TimeUnit.SECONDS));
+            assertEquals("spill-1", ranOn.get().getName());
+            assertTrue(ranOn.get().isDaemon());
+            assertEquals(1, pool.getLargestPoolSize());
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+        try {
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                }
+            });
+            fail("Expected a shut down pool to reject the task");
+        } catch (final RejectedExecutionException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void threadsAreNamedDaemons() {
+        final Thread thread = HandOffExecutors.daemonThreadFactory("worker-").newThread(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                    }
+                });
+        assertEquals("worker-1", thread.getName());
+        assertTrue(thread.isDaemon());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyPool() {
+        HandOffExecutors.newDaemonPool("test-", 0, 60, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    private static void waitUntilPolling(Thread worker) {
+        while (worker.getState() != Thread.State.TIMED_WAITING) {
+            Thread.yield();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
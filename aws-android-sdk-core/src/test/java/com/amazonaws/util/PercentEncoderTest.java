@@ -0,0 +1,107 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import java.net.URLEncoder;
+import java.util.Random;
+
+public class PercentEncoderTest {
+
+    /**
+     * The encoding HttpUtils.urlEncode produced with URLEncoder.
+     */
+    private static String urlEncoderEncode(String value, boolean path) throws Exception {
+        String encoded = URLEncoder.encode(value, "UTF-8")
+                .replace("+", "%20")
+                .replace("*", "%2A")
+                .replace("%7E", "~");
+        if (path) {
+            encoded = encoded.replace("%2F", "/");
+        }
+        return encoded;
+    }
+
+    @Test
+    public void testUnencodedValueIsReturnedAsIs() {
+        final String value = "abcXYZ019-_.~";
+        assertSame(value, PercentEncoder.RFC3986.encode(value));
+    }
+
+    @Test
+    public void testMultiByteCharacters() {
+        assertEquals("%C3%A9", PercentEncoder.RFC3986.encode("\u00e9"));
+        assertEquals("%E2%82%AC", PercentEncoder.RFC3986.encode("\u20ac"));
+        assertEquals("%F0%9F%98%80", PercentEncoder.RFC3986.encode("\ud83d\ude00"));
+        assertEquals("a%3Fb", PercentEncoder.RFC3986.encode("a\ud83db"));
+    }
+
+    @Test
+    public void testPathKeepsSlashes() {
+        assertEquals("/a%20b/c", PercentEncoder.RFC3986_PATH.encode("/a b/c"));
+        assertEquals("%2Fa%20b%2Fc", PercentEncoder.RFC3986.encode("/a b/c"));
+    }
+
+    @Test
+    public void testSafeCharacters() {
+        final PercentEncoder encoder = new PercentEncoder(" :");
+        assertEquals("a b:c%2F", encoder.encode("a b:c/"));
+    }
+
+    @Test
+    public void testAppendsToBuilder() {
+        final StringBuilder builder = new StringBuilder("key=");
+        PercentEncoder.RFC3986.encode("a&b", builder).append('&');
+        assertEquals("key=a%26b&", builder.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonAsciiSafeCharacterIsRejected() {
+        new PercentEncoder("\u00e9");
+    }
+
+    @Test
+    public void testMatchesUrlEncoder() throws Exception {
+        final Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            final StringBuilder value = new StringBuilder();
+            final int length = random.nextInt(20);
+            for (int j = 0; j < length; j++) {
+                switch (random.nextInt(4)) {
+                    case 0:
+                        value.append((char) random.nextInt(128));
+                        break;
+                    case 1:
+                        value.append((char) (128 + random.nextInt(0x800 - 128)));
+                        break;
+                    case 2:
+                        value.append((char) (0x800 + random.nextInt(0xd800 - 0x800)));
+                        break;
+                    default:
+                        value.appendCodePoint(0x10000 + random.nextInt(0x100000));
+                        break;
+                }
+            }
+            final String test = value.toString();
+            assertEquals(urlEncoderEncode(test, false), PercentEncoder.RFC3986.encode(test));
+            assertEquals(urlEncoderEncode(test, true), PercentEncoder.RFC3986_PATH.encode(test));
+        }
+    }
+}
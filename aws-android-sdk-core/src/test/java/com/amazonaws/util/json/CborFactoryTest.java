@@ -0,0 +1,200 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util.json;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.util.BinaryUtils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.Map;
+
+public class CborFactoryTest {
+
+    private static byte[] bytes(int... values) {
+        final byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+
+    private static AwsBinaryJsonReader reader(byte[] cbor) {
+        return JsonUtils.getCborReader(new ByteArrayInputStream(cbor));
+    }
+
+    @Test
+    public void testWriteEncoding() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final AwsJsonWriter writer = JsonUtils.getCborWriter(out);
+        writer.beginObject()
+                .name("a").value(1)
+                .name("b").beginArray().value(-500).value(true).value().endArray()
+                .name("c").value(ByteBuffer.wrap(new byte[] {
+                        1, 2
+                }))
+                .name("d").value(new Date(1000L))
+                .endObject();
+        writer.close();
+
+        assertArrayEquals(bytes(0xbf,
+                0x61, 'a', 0x01,
+                0x61, 'b', 0x9f, 0x39, 0x01, 0xf3, 0xf5, 0xf6, 0xff,
+                0x61, 'c', 0x42, 0x01, 0x02,
+                0x61, 'd', 0xc1, 0x19, 0x03, 0xe8,
+                0xff), out.toByteArray());
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final byte[] blob = new byte[300];
+        for (int i = 0; i < blob.length; i++) {
+            blob[i] = (byte) i;
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final AwsJsonWriter writer = JsonUtils.getCborWriter(out);
+        writer.beginObject()
+                .name("string").value("Chlo\u00eb")
+                .name("long").value(Long.MAX_VALUE)
+                .name("negative").value(Long.MIN_VALUE)
+                .name("double").value(123.45)
+                .name("false").value(false)
+                .name("null").value((String) null)
+                .name("blob").value(ByteBuffer.wrap(blob))
+                .name("date").value(new Date(1234567L))
+                .name("object").beginObject().endObject()
+                .endObject();
+        writer.close();
+
+        final AwsBinaryJsonReader reader = reader(out.toByteArray());
+        assertEquals(AwsJsonToken.BEGIN_OBJECT, reader.peek());
+        reader.beginObject();
+        assertEquals("string", reader.nextName());
+        assertEquals(AwsJsonToken.VALUE_STRING, reader.peek());
+        assertEquals("Chlo\u00eb", reader.nextString());
+        assertEquals("long", reader.nextName());
+        assertEquals(AwsJsonToken.VALUE_NUMBER, reader.peek());
+        assertEquals(String.valueOf(Long.MAX_VALUE), reader.nextString());
+        assertEquals("negative", reader.nextName());
+        assertEquals(String.valueOf(Long.MIN_VALUE), reader.nextString());
+        assertEquals("double", reader.nextName());
+        assertEquals(AwsJsonToken.VALUE_NUMBER, reader.peek());
+        assertEquals("123.45", reader.nextString());
+        assertEquals("false", reader.nextName());
+        assertEquals(AwsJsonToken.VALUE_BOOLEAN, reader.peek());
+        assertEquals("false", reader.nextString());
+        assertEquals("null", reader.nextName());
+        assertEquals(AwsJsonToken.VALUE_NULL, reader.peek());
+        assertNull(reader.nextString());
+        assertEquals("blob", reader.nextName());
+        assertEquals(ByteBuffer.wrap(blob), reader.nextByteBuffer());
+        assertEquals("date", reader.nextName());
+        assertEquals("1234.567", reader.nextString());
+        assertEquals("object", reader.nextName());
+        assertTrue(reader.isContainer());
+        reader.beginObject();
+        assertFalse(reader.hasNext());
+        reader.endObject();
+        assertFalse(reader.hasNext());
+        reader.endObject();
+        assertNull(reader.peek());
+        reader.close();
+    }
+
+    @Test
+    public void testReadDefiniteLengthAndFloats() throws IOException {
+        // {"a": [h'0102', 1.0 as half, 1.5 as single], "b": "x"}
+        final AwsBinaryJsonReader reader = reader(bytes(0xa2,
+                0x61, 'a', 0x83, 0x42, 0x01, 0x02, 0xf9, 0x3c, 0x00, 0xfa, 0x3f, 0xc0, 0x00, 0x00,
+                0x61, 'b', 0x61, 'x'));
+        reader.beginObject();
+        assertEquals("a", reader.nextName());
+        reader.beginArray();
+        assertEquals(BinaryUtils.toBase64(new byte[] {
+                1, 2
+        }), reader.nextString());
+        assertEquals("1", reader.nextString());
+        assertEquals("1.5", reader.nextString());
+        assertEquals(AwsJsonToken.END_ARRAY, reader.peek());
+        reader.endArray();
+        assertEquals("b", reader.nextName());
+        assertEquals("x", reader.nextString());
+        assertEquals(AwsJsonToken.END_OBJECT, reader.peek());
+        reader.endObject();
+        assertNull(reader.peek());
+    }
+
+    @Test
+    public void testReadIndefiniteLengthString() throws IOException {
+        // (_ h'01', h'0203')
+        final AwsBinaryJsonReader reader = reader(bytes(0x5f, 0x41, 0x01, 0x42, 0x02, 0x03, 0xff));
+        assertEquals(ByteBuffer.wrap(new byte[] {
+                1, 2, 3
+        }), reader.nextByteBuffer());
+        assertNull(reader.peek());
+    }
+
+    @Test
+    public void testSkipValue() throws IOException {
+        // {"a": {"b": [1, (_ "x")]}, "c": 2}
+        final AwsBinaryJsonReader reader = reader(bytes(0xbf,
+                0x61, 'a', 0xa1, 0x61, 'b', 0x82, 0x01, 0x7f, 0x61, 'x', 0xff,
+                0x61, 'c', 0x02,
+                0xff));
+        reader.beginObject();
+        assertEquals("a", reader.nextName());
+        reader.skipValue();
+        assertEquals("c", reader.nextName());
+        assertEquals("2", reader.nextString());
+        reader.endObject();
+        assertNull(reader.peek());
+    }
+
+    @Test
+    public void testJsonToStringMapWithList() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final AwsJsonWriter writer = JsonUtils.getCborWriter(out);
+        writer.beginObject()
+                .name("__type").value("ResourceNotFoundException")
+                .name("message").value("not found")
+                .name("list").beginArray().value("a").value(1).endArray()
+                .name("object").beginObject().name("key").value("value").endObject()
+                .endObject();
+        writer.close();
+
+        final Map<String, String> map = JsonUtils.jsonToStringMapWithList(reader(out.toByteArray()));
+        assertEquals(3, map.size());
+        assertEquals("ResourceNotFoundException", map.get("__type"));
+        assertEquals("not found", map.get("message"));
+        assertEquals("[\"a\",\"1\"]", map.get("list"));
+    }
+
+    @Test
+    public void testEmptyInput() throws IOException {
+        assertNull(reader(new byte[0]).peek());
+        assertTrue(JsonUtils.jsonToStringMapWithList(reader(new byte[0])).isEmpty());
+    }
+}
@@ -1,6 +1,7 @@
 
 package com.amazonaws.mobileconnectors.dynamodbv2.document;
 
+import com.amazonaws.mobileconnectors.dynamodbv2.document.datatype.AttributeNames;
 import com.amazonaws.mobileconnectors.dynamodbv2.document.datatype.Document;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.Condition;
@@ -131,6 +132,11 @@ public class Search {
      */
     private final List<Document> matches = new ArrayList<Document>();
 
+    /**
+     * Attribute names shared by the documents found
+     */
+    private final AttributeNames attributeNames = new AttributeNames();
+
     /**
      * <p>
      * For parallel <i>Scan</i> requests, <i>TotalSegments</i>represents the
@@ -333,9 +339,9 @@ public class Search {
 
         Table.appendDynamoDBDocumentUserAgentString(request);
 
-        final ScanResult result = table.getClient().scan(request);
+        final ScanResult result = table.scan(request);
         for (final Map<String, AttributeValue> item : result.getItems()) {
-            final Document doc = Document.fromAttributeMap(item);
+            final Document doc = Document.fromAttributeMap(item, attributeNames);
             returnValue.add(doc);
             if (this.collectResults) {
                 this.matches.add(doc);
@@ -390,9 +396,9 @@ public class Search {
 
         Table.appendDynamoDBDocumentUserAgentString(request);
 
-        final QueryResult result = table.getClient().query(request);
+        final QueryResult result = table.query(request);
         for (final Map<String, AttributeValue> item : result.getItems()) {
-            final Document doc = Document.fromAttributeMap(item);
+            final Document doc = Document.fromAttributeMap(item, attributeNames);
             returnValue.add(doc);
             if (this.collectResults) {
                 this.matches.add(doc);
@@ -464,6 +470,8 @@ public class Search {
                 return isKeyAttribute(element, attributeName);
             }
         } else {
+            // the index may have been created after the table was described
+            table.invalidateCachedDescription();
             throw new IllegalStateException(String.format(
                     "Unable to locate index %s on table %s", indexName, table.getTableName()));
         }
@@ -514,7 +522,7 @@ public class Search {
                         }
 
                         Table.appendDynamoDBDocumentUserAgentString(request);
-                        final ScanResult result = table.getClient().scan(request);
+                        final ScanResult result = table.scan(request);
                         count = this.matches.size() + result.getCount();
                         return count;
                     }
@@ -543,7 +551,7 @@ public class Search {
 
                         Table.appendDynamoDBDocumentUserAgentString(request);
 
-                        final QueryResult result = table.getClient().query(request);
+                        final QueryResult result = table.query(request);
                         count = this.matches.size() + result.getCount();
                         return count;
                     }
@@ -1,6 +1,7 @@
 
 package com.amazonaws.mobileconnectors.dynamodbv2.document;
 
+import com.amazonaws.AmazonServiceException;
 import com.amazonaws.AmazonWebServiceRequest;
 import com.amazonaws.mobileconnectors.dynamodbv2.document.Search.SearchType;
 import com.amazonaws.mobileconnectors.dynamodbv2.document.datatype.Document;
@@ -25,7 +26,11 @@ import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
 import com.amazonaws.services.dynamodbv2.model.LocalSecondaryIndexDescription;
 import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
 import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
 import com.amazonaws.services.dynamodbv2.model.ReturnValue;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
 import com.amazonaws.services.dynamodbv2.model.TableDescription;
 import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
 import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
@@ -49,6 +54,8 @@ public class Table {
     private final AmazonDynamoDB client;
     private final String tableName;
     private TableDescription tableDescription;
+    /** The cache the description was taken from, null if described directly. */
+    private TableDescriptionCache descriptionCache;
 
     private Map<String, KeyDescription> keys = new HashMap<String, KeyDescription>();
     private Map<String, GlobalSecondaryIndexDescription> globalSecondaryIndexes = new HashMap<String, GlobalSecondaryIndexDescription>();
@@ -97,7 +104,9 @@ public class Table {
     }
 
     /**
-     * Load table configuration.
+     * Load table configuration. This calls DescribeTable; use
+     * {@link #loadTable(AmazonDynamoDB, String, TableDescriptionCache)} to
+     * reuse descriptions across loads.
      *
      * @param client the dynamodb client.
      * @param tableName the tablename.
@@ -105,25 +114,49 @@ public class Table {
      */
     public static Table loadTable(AmazonDynamoDB client, String tableName) {
         final Table table = new Table(client, tableName);
-        // TODO: we need to be able to cache table information so that we can
-        // avoid making too many describe table calls.
         table.loadTableDescription();
         return table;
     }
 
     /**
-     * Load table description.
+     * Load table configuration, with the table description taken from a
+     * cache. A request of the table that fails because the description is
+     * stale removes it from the cache, so that the next load describes the
+     * table again.
+     *
+     * @param client the dynamodb client.
+     * @param tableName the tablename.
+     * @param cache the cache of table descriptions.
+     * @return a table object.
      */
-    public void loadTableDescription() {
-        clear();
+    public static Table loadTable(AmazonDynamoDB client, String tableName,
+            TableDescriptionCache cache) {
+        if (cache == null) {
+            throw new IllegalArgumentException("cache must be specified");
+        }
+        final Table table = new Table(client, tableName);
+        table.applyTableDescription(cache.getTableDescription(client, tableName));
+        table.descriptionCache = cache;
+        return table;
+    }
 
+    /**
+     * Load table description. This always calls DescribeTable.
+     */
+    public void loadTableDescription() {
         final DescribeTableRequest request = Table
                 .appendDynamoDBDocumentUserAgentString(new DescribeTableRequest(this.tableName));
 
         final DescribeTableResult result = client
                 .describeTable(request);
 
-        this.tableDescription = result.getTable();
+        applyTableDescription(result.getTable());
+    }
+
+    private void applyTableDescription(TableDescription tableDescription) {
+        clear();
+
+        this.tableDescription = tableDescription;
 
         for (final KeySchemaElement element : this.tableDescription.getKeySchema()) {
             final String keyName = element.getAttributeName();
@@ -277,7 +310,13 @@ public class Table {
         }
 
         Table.appendDynamoDBDocumentUserAgentString(request);
-        final PutItemResult result = client.putItem(request);
+        final PutItemResult result;
+        try {
+            result = client.putItem(request);
+        } catch (final AmazonServiceException e) {
+            onRequestFailure(e);
+            throw e;
+        }
 
         Document ret = null;
         if (config != null && config.getReturnValue().compareTo(ReturnValue.ALL_OLD) == 0) {
@@ -344,7 +383,13 @@ public class Table {
         }
 
         Table.appendDynamoDBDocumentUserAgentString(request);
-        final GetItemResult response = this.client.getItem(request);
+        final GetItemResult response;
+        try {
+            response = this.client.getItem(request);
+        } catch (final AmazonServiceException e) {
+            onRequestFailure(e);
+            throw e;
+        }
 
         final Map<String, AttributeValue> item = response.getItem();
         if (item == null || item.size() == 0) {
@@ -408,7 +453,13 @@ public class Table {
         }
         Table.appendDynamoDBDocumentUserAgentString(request);
 
-        final DeleteItemResult result = this.client.deleteItem(request);
+        final DeleteItemResult result;
+        try {
+            result = this.client.deleteItem(request);
+        } catch (final AmazonServiceException e) {
+            onRequestFailure(e);
+            throw e;
+        }
 
         final Document returnDocument = this.fromAttributeMap(result.getAttributes());
         returnDocument.commit();
@@ -663,7 +714,13 @@ public class Table {
 
         Table.appendDynamoDBDocumentUserAgentString(updateRequest);
 
-        final UpdateItemResult result = this.client.updateItem(updateRequest);
+        final UpdateItemResult result;
+        try {
+            result = this.client.updateItem(updateRequest);
+        } catch (final AmazonServiceException e) {
+            onRequestFailure(e);
+            throw e;
+        }
         doc.commit();
 
         if (config.getReturnValue() != ReturnValue.NONE) {
@@ -744,6 +801,40 @@ public class Table {
         return client;
     }
 
+    ScanResult scan(ScanRequest request) {
+        try {
+            return client.scan(request);
+        } catch (final AmazonServiceException e) {
+            onRequestFailure(e);
+            throw e;
+        }
+    }
+
+    QueryResult query(QueryRequest request) {
+        try {
+            return client.query(request);
+        } catch (final AmazonServiceException e) {
+            onRequestFailure(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Removes the description of this table from the cache it was loaded
+     * from, if any, so that the next load describes the table again.
+     */
+    void invalidateCachedDescription() {
+        if (descriptionCache != null) {
+            descriptionCache.invalidate(client, tableName);
+        }
+    }
+
+    private void onRequestFailure(AmazonServiceException e) {
+        if (TableDescriptionCache.isStaleDescriptionError(e)) {
+            invalidateCachedDescription();
+        }
+    }
+
     protected void setTableDescription(TableDescription tableDescription) {
         this.tableDescription = tableDescription;
     }
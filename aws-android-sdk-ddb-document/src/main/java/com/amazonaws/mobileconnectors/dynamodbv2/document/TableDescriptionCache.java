@@ -0,0 +1,287 @@
+package com.amazonaws.mobileconnectors.dynamodbv2.document;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableRequest;
+import com.amazonaws.services.dynamodbv2.model.ResourceNotFoundException;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A cache of table descriptions, so that loading a {@link Table} with
+ * {@link Table#loadTable(AmazonDynamoDB, String, TableDescriptionCache)}
+ * doesn't call DescribeTable every time. Descriptions are kept per client and
+ * table name, the least recently used being evicted beyond the maximum number
+ * of tables, so that clients of different accounts or regions never share a
+ * description.
+ * <p>
+ * A description is loaded once however many threads ask for it at the same
+ * time. Past half its time to live it is still returned but reloaded in the
+ * background; past its time to live it is loaded again before being returned.
+ * Descriptions that fail to load are not cached.
+ * </p>
+ * <p>
+ * A table loaded from the cache removes its description when a request fails
+ * in a way a stale description explains: the table no longer exists, a key or
+ * index no longer matches its schema, or an index is not in the description.
+ * Call {@link #invalidate(AmazonDynamoDB, String)} after updating a table
+ * through other means.
+ * </p>
+ */
+public class TableDescriptionCache {
+
+    private static final Log LOGGER = LogFactory.getLog(TableDescriptionCache.class);
+
+    /** Default maximum number of tables. */
+    public static final int DEFAULT_MAX_TABLES = 64;
+    /** Default time to live of a description, in milliseconds. */
+    public static final long DEFAULT_TIME_TO_LIVE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    /** Error code of requests that don't match the table's schema. */
+    private static final String VALIDATION_ERROR_CODE = "ValidationException";
+
+    /**
+     * Identifies a table by client, which fixes the credentials and region,
+     * and name.
+     */
+    private static final class TableKey {
+        private final AmazonDynamoDB client;
+        private final String tableName;
+
+        TableKey(AmazonDynamoDB client, String tableName) {
+            this.client = client;
+            this.tableName = tableName;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(client) + tableName.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof TableKey)) {
+                return false;
+            }
+            final TableKey other = (TableKey) obj;
+            return client == other.client && tableName.equals(other.tableName);
+        }
+    }
+
+    /** A description being loaded or loaded. */
+    private static final class CacheEntry {
+        private final FutureTask<TableDescription> load;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        /** Set before the load completes. */
+        private volatile long loadedAtMillis;
+
+        CacheEntry(final AmazonDynamoDB client, final String tableName) {
+            this.load = new FutureTask<TableDescription>(new Callable<TableDescription>() {
+                @Override
+                public TableDescription call() {
+                    final DescribeTableRequest request = Table.appendDynamoDBDocumentUserAgentString(
+                            new DescribeTableRequest(tableName));
+                    final TableDescription description = client.describeTable(request).getTable();
+                    loadedAtMillis = System.currentTimeMillis();
+                    return description;
+                }
+            });
+        }
+    }
+
+    private final int maxTables;
+    private final long timeToLiveMillis;
+    private final Map<TableKey, CacheEntry> entries;
+    private final ThreadPoolExecutor refreshExecutor;
+
+    /**
+     * Constructs a new cache.
+     *
+     * @param maxTables the maximum number of tables to keep descriptions of.
+     * @param timeToLiveMillis how long a description is used before being
+     *            loaded again, in milliseconds.
+     */
+    public TableDescriptionCache(final int maxTables, long timeToLiveMillis) {
+        if (maxTables < 1) {
+            throw new IllegalArgumentException("maxTables must be positive");
+        }
+        if (timeToLiveMillis < 0) {
+            throw new IllegalArgumentException("timeToLiveMillis can't be negative");
+        }
+        this.maxTables = maxTables;
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.entries = new LinkedHashMap<TableKey, CacheEntry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<TableKey, CacheEntry> eldest) {
+                return size() > maxTables;
+            }
+        };
+        this.refreshExecutor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.MINUTES,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        final Thread t = new Thread(r);
+                        t.setName("dynamodb-table-description-refresh");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        refreshExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return the maximum number of tables to keep descriptions of.
+     */
+    public int getMaxTables() {
+        return maxTables;
+    }
+
+    /**
+     * @return how long a description is used before being loaded again, in
+     *         milliseconds.
+     */
+    public long getTimeToLiveMillis() {
+        return timeToLiveMillis;
+    }
+
+    /**
+     * Gets the description of a table, calling DescribeTable if it isn't
+     * cached or is expired.
+     *
+     * @param client the dynamodb client.
+     * @param tableName the table name.
+     * @return the table description.
+     */
+    public TableDescription getTableDescription(AmazonDynamoDB client, String tableName) {
+        final TableKey key = new TableKey(client, tableName);
+        final long now = System.currentTimeMillis();
+        CacheEntry entry;
+        boolean owner = false;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry == null || (entry.load.isDone()
+                    && now - entry.loadedAtMillis >= timeToLiveMillis)) {
+                entry = new CacheEntry(client, tableName);
+                entries.put(key, entry);
+                owner = true;
+            }
+        }
+
+        if (owner) {
+            entry.load.run();
+        } else if (entry.load.isDone()
+                && now - entry.loadedAtMillis >= timeToLiveMillis / 2) {
+            refresh(key, entry, client, tableName);
+        }
+        return await(key, entry);
+    }
+
+    /**
+     * Removes the description of a table, so that it is loaded again next
+     * time, for example after its indexes were updated.
+     *
+     * @param client the dynamodb client.
+     * @param tableName the table name.
+     */
+    public void invalidate(AmazonDynamoDB client, String tableName) {
+        synchronized (entries) {
+            entries.remove(new TableKey(client, tableName));
+        }
+    }
+
+    /**
+     * Removes all the descriptions.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    private void refresh(final TableKey key, final CacheEntry stale,
+            final AmazonDynamoDB client, final String tableName) {
+        if (!stale.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        final CacheEntry fresh = new CacheEntry(client, tableName);
+        try {
+            refreshExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    fresh.load.run();
+                    try {
+                        fresh.load.get();
+                    } catch (final Exception e) {
+                        // keep the stale description until it expires
+                        LOGGER.debug("Unable to refresh the description of " + tableName, e);
+                        stale.refreshing.set(false);
+                        return;
+                    }
+                    synchronized (entries) {
+                        if (entries.get(key) == stale) {
+                            entries.put(key, fresh);
+                        }
+                    }
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            stale.refreshing.set(false);
+        }
+    }
+
+    private TableDescription await(TableKey key, CacheEntry entry) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return entry.load.get();
+                } catch (final InterruptedException e) {
+                    interrupted = true;
+                } catch (final ExecutionException e) {
+                    synchronized (entries) {
+                        if (entries.get(key) == entry) {
+                            entries.remove(key);
+                        }
+                    }
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new AmazonClientException("Unable to describe table", cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @param e the failure of a request of a table.
+     * @return true if the failure may come from a stale table description.
+     */
+    static boolean isStaleDescriptionError(AmazonServiceException e) {
+        return e instanceof ResourceNotFoundException
+                || VALIDATION_ERROR_CODE.equals(e.getErrorCode());
+    }
+}
@@ -0,0 +1,89 @@
+package com.amazonaws.mobileconnectors.dynamodbv2.document.datatype;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The attribute names of a group of {@link Document}s, such as the items of a
+ * result set. Each name is stored once and given an index, and the documents
+ * sharing the names keep their values in arrays by that index rather than in
+ * maps of their own.
+ * <p>
+ * Names are only ever added, so the names should be shared by documents of
+ * similar attributes only, and not for the lifetime of the application. Like
+ * the keys of a {@link java.util.HashMap}, a name may be null.
+ * </p>
+ */
+public final class AttributeNames {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final ConcurrentMap<String, Integer> indexes = new ConcurrentHashMap<String, Integer>();
+    private volatile String[] names = new String[INITIAL_CAPACITY];
+    private volatile int size;
+    /** Index of the null name, which the map can't hold, or -1. */
+    private volatile int nullIndex = -1;
+
+    /**
+     * Constructs new, empty attribute names.
+     */
+    public AttributeNames() {
+    }
+
+    /**
+     * @return the number of names.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param name the attribute name.
+     * @return the index of the name, or -1 if it isn't one of the names.
+     */
+    int indexOf(Object name) {
+        if (name == null) {
+            return nullIndex;
+        }
+        final Integer index = indexes.get(name);
+        return index == null ? -1 : index.intValue();
+    }
+
+    /**
+     * @param name the attribute name.
+     * @return the index of the name, added if it isn't one of the names.
+     */
+    int add(String name) {
+        final int index = indexOf(name);
+        if (index >= 0) {
+            return index;
+        }
+        synchronized (this) {
+            final int existing = indexOf(name);
+            if (existing >= 0) {
+                return existing;
+            }
+            final int added = size;
+            if (added == names.length) {
+                names = Arrays.copyOf(names, added * 2);
+            }
+            names[added] = name;
+            size = added + 1;
+            if (name == null) {
+                nullIndex = added;
+            } else {
+                indexes.put(name, added);
+            }
+            return added;
+        }
+    }
+
+    /**
+     * @param index the index of a name.
+     * @return the name.
+     */
+    String nameAt(int index) {
+        return names[index];
+    }
+}
@@ -5,30 +5,68 @@ import com.amazonaws.mobileconnectors.dynamodbv2.document.datatype.Primitive.Dyn
 import com.amazonaws.mobileconnectors.dynamodbv2.document.internal.JsonUtils;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
-import com.google.common.base.Objects;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
  * A collection of attribute key-value pairs that defines an item in DynamoDB.
+ * <p>
+ * Values are kept in an array indexed by {@link AttributeNames}, which the
+ * documents of a result set share. The values committed with
+ * {@link #commit()} share that array until the document is next changed, and
+ * the attributes changed since are marked in a bit set.
+ * </p>
  */
 public class Document extends DynamoDBEntry implements Map<String, DynamoDBEntry> {
 
-    private final Map<String, DynamoDBEntry> originalValues;
-    private final Map<String, DynamoDBEntry> currentValues;
+    private static final DynamoDBEntry[] NO_VALUES = new DynamoDBEntry[0];
+    /** Stands for a null value, to tell it from an absent one. */
+    private static final DynamoDBEntry NULL_VALUE = new DynamoDBNull();
+
+    private final AttributeNames names;
+    /** Current values by name index; null for absent attributes. */
+    private DynamoDBEntry[] values = NO_VALUES;
+    private int size;
+    /** Committed values by name index, or null if never committed. */
+    private DynamoDBEntry[] originalValues;
+    /** Whether {@link #values} is also {@link #originalValues}. */
+    private boolean valuesShared;
+    /** Attributes changed since the commit, or null if none. */
+    private BitSet changedAttributes;
+
+    private Set<Entry<String, DynamoDBEntry>> entrySet;
+    private Set<String> keySet;
+    private Collection<DynamoDBEntry> valueCollection;
 
     /**
      * Constructor.
      */
     public Document() {
-        this.originalValues = new HashMap<String, DynamoDBEntry>();
-        this.currentValues = new HashMap<String, DynamoDBEntry>();
+        this(new AttributeNames());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param names the attribute names to share with other documents.
+     */
+    public Document(AttributeNames names) {
+        if (names == null) {
+            throw new IllegalArgumentException("names must not be null");
+        }
+        this.names = names;
     }
 
     /**
@@ -37,68 +75,320 @@ public class Document extends DynamoDBEntry implements Map<String, DynamoDBEntry
      * @param values attribute key-value pair
      */
     public Document(Map<String, DynamoDBEntry> values) {
-        this.currentValues = new HashMap<String, DynamoDBEntry>(values);
-        this.originalValues = new HashMap<String, DynamoDBEntry>();
+        this(new AttributeNames());
+        putAll(values);
     }
 
     @Override
     public DynamoDBEntry put(String key, DynamoDBEntry value) {
-        return this.currentValues.put(key, value);
+        final int index = names.add(key);
+        makeWritable(index + 1);
+        final DynamoDBEntry old = values[index];
+        values[index] = value == null ? NULL_VALUE : value;
+        if (old == null) {
+            size++;
+        }
+        markChanged(index);
+        return unmask(old);
     }
 
     @Override
     public boolean containsKey(Object key) {
-        return this.currentValues.containsKey(key);
+        return indexOf(key) >= 0;
     }
 
     @Override
     public DynamoDBEntry get(Object key) {
-        return this.currentValues.get(key);
+        final int index = indexOf(key);
+        return index < 0 ? null : unmask(values[index]);
     }
 
     @Override
     public DynamoDBEntry remove(Object key) {
-        return this.currentValues.remove(key);
+        final int index = indexOf(key);
+        return index < 0 ? null : removeAt(index);
     }
 
     @Override
     public Set<String> keySet() {
-        return this.currentValues.keySet();
+        if (keySet == null) {
+            keySet = new AbstractSet<String>() {
+                @Override
+                public Iterator<String> iterator() {
+                    return new ValueIterator<String>() {
+                        @Override
+                        String valueAt(int index) {
+                            return names.nameAt(index);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return containsKey(o);
+                }
+
+                @Override
+                public boolean remove(Object o) {
+                    final int index = indexOf(o);
+                    if (index < 0) {
+                        return false;
+                    }
+                    removeAt(index);
+                    return true;
+                }
+
+                @Override
+                public void clear() {
+                    Document.this.clear();
+                }
+            };
+        }
+        return keySet;
     }
 
     @Override
     public Set<Entry<String, DynamoDBEntry>> entrySet() {
-        return this.currentValues.entrySet();
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Entry<String, DynamoDBEntry>>() {
+                @Override
+                public Iterator<Entry<String, DynamoDBEntry>> iterator() {
+                    return new ValueIterator<Entry<String, DynamoDBEntry>>() {
+                        @Override
+                        Entry<String, DynamoDBEntry> valueAt(int index) {
+                            return new DocumentEntry(index);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public void clear() {
+                    Document.this.clear();
+                }
+            };
+        }
+        return entrySet;
     }
 
     @Override
     public int size() {
-        return this.currentValues.size();
+        return size;
     }
 
     @Override
     public boolean isEmpty() {
-        return this.currentValues.isEmpty();
+        return size == 0;
     }
 
     @Override
     public boolean containsValue(Object paramObject) {
-        return this.currentValues.containsValue(paramObject);
+        final DynamoDBEntry[] current = values;
+        for (final DynamoDBEntry value : current) {
+            if (value != null && equal(unmask(value), paramObject)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
     public void putAll(java.util.Map<? extends String, ? extends DynamoDBEntry> m) {
-        this.currentValues.putAll(m);
+        for (final Entry<? extends String, ? extends DynamoDBEntry> entry : m.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
     }
 
     @Override
     public void clear() {
-        this.currentValues.clear();
+        if (size == 0) {
+            return;
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                markChanged(i);
+            }
+        }
+        values = new DynamoDBEntry[values.length];
+        valuesShared = false;
+        size = 0;
     }
 
     @Override
     public Collection<DynamoDBEntry> values() {
-        return this.currentValues.values();
+        if (valueCollection == null) {
+            valueCollection = new AbstractCollection<DynamoDBEntry>() {
+                @Override
+                public Iterator<DynamoDBEntry> iterator() {
+                    return new ValueIterator<DynamoDBEntry>() {
+                        @Override
+                        DynamoDBEntry valueAt(int index) {
+                            return unmask(values[index]);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public void clear() {
+                    Document.this.clear();
+                }
+            };
+        }
+        return valueCollection;
+    }
+
+    /**
+     * @return the attribute names of the document.
+     */
+    public AttributeNames getAttributeNames() {
+        return names;
+    }
+
+    private int indexOf(Object key) {
+        final int index = names.indexOf(key);
+        return index >= 0 && index < values.length && values[index] != null ? index : -1;
+    }
+
+    private DynamoDBEntry removeAt(int index) {
+        makeWritable(index + 1);
+        final DynamoDBEntry old = values[index];
+        values[index] = null;
+        size--;
+        markChanged(index);
+        return unmask(old);
+    }
+
+    /**
+     * Makes {@link #values} an array of its own and at least of a length.
+     */
+    private void makeWritable(int minLength) {
+        if (minLength > values.length) {
+            values = Arrays.copyOf(values,
+                    Math.max(names.size(), values.length + (values.length >> 1) + 1));
+            valuesShared = false;
+        } else if (valuesShared) {
+            values = values.clone();
+            valuesShared = false;
+        }
+    }
+
+    private void markChanged(int index) {
+        if (originalValues == null) {
+            return;
+        }
+        if (changedAttributes == null) {
+            changedAttributes = new BitSet();
+        }
+        changedAttributes.set(index);
+    }
+
+    private static DynamoDBEntry unmask(DynamoDBEntry value) {
+        return value == NULL_VALUE ? null : value;
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static int hash(Object o) {
+        return o == null ? 0 : o.hashCode();
+    }
+
+    /** Iterates over the present attributes, by name index. */
+    private abstract class ValueIterator<T> implements Iterator<T> {
+        private int next = advance(0);
+        private int last = -1;
+
+        private int advance(int from) {
+            int index = from;
+            while (index < values.length && values[index] == null) {
+                index++;
+            }
+            return index;
+        }
+
+        abstract T valueAt(int index);
+
+        @Override
+        public boolean hasNext() {
+            return next < values.length;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next = advance(next + 1);
+            return valueAt(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0 || values[last] == null) {
+                throw new IllegalStateException();
+            }
+            removeAt(last);
+            last = -1;
+        }
+    }
+
+    /** An attribute of the document, reading and writing through to it. */
+    private final class DocumentEntry implements Entry<String, DynamoDBEntry> {
+        private final int index;
+
+        DocumentEntry(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public String getKey() {
+            return names.nameAt(index);
+        }
+
+        @Override
+        public DynamoDBEntry getValue() {
+            return index < values.length ? unmask(values[index]) : null;
+        }
+
+        @Override
+        public DynamoDBEntry setValue(DynamoDBEntry value) {
+            return put(getKey(), value);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Entry)) {
+                return false;
+            }
+            final Entry<?, ?> other = (Entry<?, ?>) obj;
+            return equal(getKey(), other.getKey()) && equal(getValue(), other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return hash(getKey()) ^ hash(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
     }
 
     /**
@@ -137,7 +427,7 @@ public class Document extends DynamoDBEntry implements Map<String, DynamoDBEntry
     @Override
     public AttributeValue convertToAttributeValue() {
         final Map<String, AttributeValue> map = new HashMap<String, AttributeValue>();
-        for (final Entry<String, DynamoDBEntry> item : this.currentValues.entrySet()) {
+        for (final Entry<String, DynamoDBEntry> item : this.entrySet()) {
             final String key = item.getKey();
             final DynamoDBEntry entry = item.getValue();
             final AttributeValue entryAttributeValue = entry
@@ -160,7 +450,7 @@ public class Document extends DynamoDBEntry implements Map<String, DynamoDBEntry
     public Map<String, AttributeValue> toAttributeMap() {
         final Map<String, AttributeValue> ret = new HashMap<String, AttributeValue>();
 
-        for (final Entry<String, DynamoDBEntry> kvp : this.currentValues.entrySet()) {
+        for (final Entry<String, DynamoDBEntry> kvp : this.entrySet()) {
             final String attributeName = kvp.getKey();
             final DynamoDBEntry entry = kvp.getValue();
 
@@ -182,7 +472,7 @@ public class Document extends DynamoDBEntry implements Map<String, DynamoDBEntry
     public Map<String, AttributeValueUpdate> toAttributeUpdateMap(boolean changeAttributesOnly) {
         final Map<String, AttributeValueUpdate> ret = new HashMap<String, AttributeValueUpdate>();
 
-        for (final Entry<String, DynamoDBEntry> kvp : this.currentValues.entrySet()) {
+        for (final Entry<String, DynamoDBEntry> kvp : this.entrySet()) {
             final String attributeName = kvp.getKey();
             final DynamoDBEntry entry = kvp.getValue();
 
@@ -205,8 +495,28 @@ public class Document extends DynamoDBEntry implements Map<String, DynamoDBEntry
      * @return {@link Document}.
      */
     public static Document fromAttributeMap(final Map<String, AttributeValue> attributes) {
-        final Document doc = new Document();
+        return fromAttributeMap(attributes, new AttributeNames());
+    }
+
+    /**
+     * Construct a {@link Document} from an attribute key to
+     * {@link AttributeValueUpdate} value map, sharing attribute names with
+     * other documents, such as the other items of a result set.
+     *
+     * @param attributes an attribute key to {@link AttributeValueUpdate} value
+     *            map.
+     * @param names the attribute names to share.
+     * @return {@link Document}.
+     */
+    public static Document fromAttributeMap(final Map<String, AttributeValue> attributes,
+            final AttributeNames names) {
+        final Document doc = new Document(names);
         if (attributes != null) {
+            int length = 0;
+            for (final String key : attributes.keySet()) {
+                length = Math.max(length, names.add(key) + 1);
+            }
+            doc.values = new DynamoDBEntry[length];
             // Add Primitives and PrimitiveLists
             for (final Entry<String, AttributeValue> attribute : attributes.entrySet()) {
                 final String key = attribute.getKey();
@@ -229,8 +539,14 @@ public class Document extends DynamoDBEntry implements Map<String, DynamoDBEntry
      * @return true if the attribute value has changed.
      */
     public boolean hasAttributeChanged(String attributeName) {
-        final DynamoDBEntry originalEntry = this.originalValues.get(attributeName);
-        final DynamoDBEntry currentEntry = this.currentValues.get(attributeName);
+        final int index = names.indexOf(attributeName);
+        if (index < 0 || changedAttributes == null || !changedAttributes.get(index)
+                || index >= originalValues.length) {
+            // unchanged since the commit, or absent from it
+            return false;
+        }
+        final DynamoDBEntry originalEntry = unmask(this.originalValues[index]);
+        final DynamoDBEntry currentEntry = index < values.length ? unmask(values[index]) : null;
         if (originalEntry == null || currentEntry == null) {
 
             return false;
@@ -427,10 +743,9 @@ public class Document extends DynamoDBEntry implements Map<String, DynamoDBEntry
      * Commit the new values.
      */
     public void commit() {
-        this.originalValues.clear();
-        for (final Entry<String, DynamoDBEntry> entry : this.currentValues.entrySet()) {
-            this.originalValues.put(entry.getKey(), entry.getValue());
-        }
+        this.originalValues = values;
+        this.valuesShared = true;
+        this.changedAttributes = null;
     }
 
     @Override
@@ -445,12 +760,30 @@ public class Document extends DynamoDBEntry implements Map<String, DynamoDBEntry
             return false;
         }
         final Document other = (Document) obj;
-        return Objects.equal(this.currentValues, other.currentValues);
+        if (size != other.size) {
+            return false;
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                continue;
+            }
+            final int index = other.indexOf(names.nameAt(i));
+            if (index < 0 || !equal(unmask(values[i]), unmask(other.values[index]))) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(this.currentValues);
+        int hashCode = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                hashCode += hash(names.nameAt(i)) ^ hash(unmask(values[i]));
+            }
+        }
+        return hashCode;
     }
 
 }
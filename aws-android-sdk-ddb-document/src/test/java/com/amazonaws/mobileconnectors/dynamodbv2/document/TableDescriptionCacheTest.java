@@ -0,0 +1,249 @@
+package com.amazonaws.mobileconnectors.dynamodbv2.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.mobileconnectors.dynamodbv2.document.datatype.Primitive;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableRequest;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableResult;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.ResourceNotFoundException;
+import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TableDescriptionCacheTest {
+
+    private static final String TABLE_NAME = "table";
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private AmazonDynamoDB client;
+    private TableDescriptionCache cache;
+
+    @Before
+    public void setUp() {
+        client = newClient();
+        cache = new TableDescriptionCache(TableDescriptionCache.DEFAULT_MAX_TABLES,
+                TableDescriptionCache.DEFAULT_TIME_TO_LIVE_MILLIS);
+    }
+
+    private static AmazonDynamoDB newClient() {
+        final AmazonDynamoDB client = mock(AmazonDynamoDB.class);
+        when(client.describeTable(any(DescribeTableRequest.class))).thenAnswer(
+                new Answer<DescribeTableResult>() {
+                    @Override
+                    public DescribeTableResult answer(InvocationOnMock invocation) {
+                        final DescribeTableRequest request =
+                                (DescribeTableRequest) invocation.getArguments()[0];
+                        return new DescribeTableResult().withTable(
+                                description(request.getTableName()));
+                    }
+                });
+        return client;
+    }
+
+    private static TableDescription description(String tableName) {
+        return new TableDescription()
+                .withTableName(tableName)
+                .withKeySchema(new KeySchemaElement("id", KeyType.HASH))
+                .withAttributeDefinitions(new AttributeDefinition("id", ScalarAttributeType.S));
+    }
+
+    private static AmazonServiceException validationError() {
+        final AmazonServiceException e = new AmazonServiceException(
+                "The provided key element does not match the schema");
+        e.setErrorCode("ValidationException");
+        return e;
+    }
+
+    @Test
+    public void testDescriptionIsLoadedOnce() {
+        final TableDescription first = cache.getTableDescription(client, TABLE_NAME);
+        assertSame(first, cache.getTableDescription(client, TABLE_NAME));
+        assertEquals(TABLE_NAME, first.getTableName());
+        verify(client, times(1)).describeTable(any(DescribeTableRequest.class));
+    }
+
+    @Test
+    public void testClientsDoNotShareDescriptions() {
+        final AmazonDynamoDB other = newClient();
+        cache.getTableDescription(client, TABLE_NAME);
+        cache.getTableDescription(other, TABLE_NAME);
+        verify(client, times(1)).describeTable(any(DescribeTableRequest.class));
+        verify(other, times(1)).describeTable(any(DescribeTableRequest.class));
+    }
+
+    @Test
+    public void testConcurrentLoadsShareOneCall() throws Exception {
+        final CountDownLatch describing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AmazonDynamoDB slow = mock(AmazonDynamoDB.class);
+        when(slow.describeTable(any(DescribeTableRequest.class))).thenAnswer(
+                new Answer<DescribeTableResult>() {
+                    @Override
+                    public DescribeTableResult answer(InvocationOnMock invocation)
+                            throws InterruptedException {
+                        describing.countDown();
+                        release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                        return new DescribeTableResult().withTable(description(TABLE_NAME));
+                    }
+                });
+
+        final AtomicReference<TableDescription> loaded = new AtomicReference<TableDescription>();
+        final Thread loader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loaded.set(cache.getTableDescription(slow, TABLE_NAME));
+            }
+        });
+        loader.start();
+        describing.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        final Thread waiter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                cache.getTableDescription(slow, TABLE_NAME);
+            }
+        });
+        waiter.start();
+        // wait for the second load to block on the first
+        while (waiter.getState() != Thread.State.WAITING && waiter.isAlive()) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        loader.join();
+        waiter.join();
+
+        assertEquals(TABLE_NAME, loaded.get().getTableName());
+        verify(slow, times(1)).describeTable(any(DescribeTableRequest.class));
+    }
+
+    @Test
+    public void testFailedLoadIsNotCached() {
+        final AmazonDynamoDB flaky = mock(AmazonDynamoDB.class);
+        when(flaky.describeTable(any(DescribeTableRequest.class)))
+                .thenThrow(new AmazonServiceException("throttled"))
+                .thenReturn(new DescribeTableResult().withTable(description(TABLE_NAME)));
+        try {
+            cache.getTableDescription(flaky, TABLE_NAME);
+            fail("expected the DescribeTable failure");
+        } catch (final AmazonServiceException e) {
+            assertEquals("throttled", e.getErrorMessage());
+        }
+        assertEquals(TABLE_NAME, cache.getTableDescription(flaky, TABLE_NAME).getTableName());
+    }
+
+    @Test
+    public void testExpiredDescriptionIsLoadedAgain() {
+        final TableDescriptionCache expiring = new TableDescriptionCache(1, 0);
+        expiring.getTableDescription(client, TABLE_NAME);
+        expiring.getTableDescription(client, TABLE_NAME);
+        verify(client, times(2)).describeTable(any(DescribeTableRequest.class));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedTableIsEvicted() {
+        final TableDescriptionCache small = new TableDescriptionCache(2,
+                TableDescriptionCache.DEFAULT_TIME_TO_LIVE_MILLIS);
+        small.getTableDescription(client, "a");
+        small.getTableDescription(client, "b");
+        small.getTableDescription(client, "a");
+        small.getTableDescription(client, "c");
+        // "b" was the least recently used
+        small.getTableDescription(client, "a");
+        verify(client, times(3)).describeTable(any(DescribeTableRequest.class));
+        small.getTableDescription(client, "b");
+        verify(client, times(4)).describeTable(any(DescribeTableRequest.class));
+    }
+
+    @Test
+    public void testInvalidateAndClear() {
+        cache.getTableDescription(client, TABLE_NAME);
+        cache.invalidate(client, TABLE_NAME);
+        cache.getTableDescription(client, TABLE_NAME);
+        cache.clear();
+        cache.getTableDescription(client, TABLE_NAME);
+        verify(client, times(3)).describeTable(any(DescribeTableRequest.class));
+    }
+
+    @Test
+    public void testLoadTableDescribesUnlessGivenACache() {
+        Table.loadTable(client, TABLE_NAME);
+        Table.loadTable(client, TABLE_NAME);
+        verify(client, times(2)).describeTable(any(DescribeTableRequest.class));
+
+        final Table table = Table.loadTable(client, TABLE_NAME, cache);
+        Table.loadTable(client, TABLE_NAME, cache);
+        verify(client, times(3)).describeTable(any(DescribeTableRequest.class));
+        assertEquals("id", table.getHashKeys().get(0));
+    }
+
+    @Test
+    public void testMissingTableInvalidatesCachedDescription() {
+        when(client.getItem(any(GetItemRequest.class)))
+                .thenThrow(new ResourceNotFoundException("no table"));
+        final Table table = Table.loadTable(client, TABLE_NAME, cache);
+        try {
+            table.getItem(new Primitive("key"));
+            fail("expected the GetItem failure");
+        } catch (final ResourceNotFoundException e) {
+            // expected
+        }
+        Table.loadTable(client, TABLE_NAME, cache);
+        verify(client, times(2)).describeTable(any(DescribeTableRequest.class));
+    }
+
+    @Test
+    public void testSchemaMismatchInvalidatesCachedDescription() {
+        when(client.getItem(any(GetItemRequest.class))).thenThrow(validationError());
+        final Table table = Table.loadTable(client, TABLE_NAME, cache);
+        try {
+            table.getItem(new Primitive("key"));
+            fail("expected the GetItem failure");
+        } catch (final AmazonServiceException e) {
+            assertEquals("ValidationException", e.getErrorCode());
+        }
+        Table.loadTable(client, TABLE_NAME, cache);
+        verify(client, times(2)).describeTable(any(DescribeTableRequest.class));
+    }
+
+    @Test
+    public void testOtherFailuresKeepCachedDescription() {
+        final AmazonServiceException throttled = new AmazonServiceException("throttled");
+        throttled.setErrorCode("ProvisionedThroughputExceededException");
+        when(client.getItem(any(GetItemRequest.class))).thenThrow(throttled);
+        final Table table = Table.loadTable(client, TABLE_NAME, cache);
+        try {
+            table.getItem(new Primitive("key"));
+            fail("expected the GetItem failure");
+        } catch (final AmazonServiceException e) {
+            assertSame(throttled, e);
+        }
+        Table.loadTable(client, TABLE_NAME, cache);
+        verify(client, times(1)).describeTable(any(DescribeTableRequest.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNonPositiveMaxTables() {
+        new TableDescriptionCache(0, 0);
+    }
+}
@@ -0,0 +1,241 @@
+package com.amazonaws.mobileconnectors.dynamodbv2.document.datatype;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+public class DocumentTest {
+
+    private static Map<String, DynamoDBEntry> expected(Object... keysAndValues) {
+        final Map<String, DynamoDBEntry> map = new HashMap<String, DynamoDBEntry>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put((String) keysAndValues[i], (DynamoDBEntry) keysAndValues[i + 1]);
+        }
+        return map;
+    }
+
+    @Test
+    public void testNullKeyIsAbsentUntilPut() {
+        final Document doc = new Document();
+        assertNull(doc.get(null));
+        assertFalse(doc.containsKey(null));
+        assertNull(doc.remove(null));
+        assertFalse(doc.keySet().contains(null));
+        assertTrue(doc.isEmpty());
+    }
+
+    @Test
+    public void testNullKeyIsHeldLikeAnyKey() {
+        final Document doc = new Document();
+        final Primitive value = new Primitive("value");
+        assertNull(doc.put(null, value));
+        doc.put("a", new Primitive("a"));
+
+        assertSame(value, doc.get(null));
+        assertTrue(doc.containsKey(null));
+        assertTrue(doc.keySet().contains(null));
+        assertEquals(expected(null, value, "a", new Primitive("a")), doc);
+        assertEquals(expected(null, value, "a", new Primitive("a")).hashCode(), doc.hashCode());
+
+        assertSame(value, doc.remove(null));
+        assertFalse(doc.containsKey(null));
+        assertEquals(1, doc.size());
+    }
+
+    @Test
+    public void testNullKeyIsSharedThroughAttributeNames() {
+        final AttributeNames names = new AttributeNames();
+        final Document first = new Document(names);
+        final Document second = new Document(names);
+        first.put(null, new Primitive("first"));
+
+        assertFalse(second.containsKey(null));
+        second.put(null, new Primitive("second"));
+        assertEquals(1, names.size());
+        assertEquals(new Primitive("first"), first.get(null));
+        assertEquals(new Primitive("second"), second.get(null));
+    }
+
+    @Test
+    public void testNullValueIsPresent() {
+        final Document doc = new Document();
+        doc.put("a", (DynamoDBEntry) null);
+        assertTrue(doc.containsKey("a"));
+        assertNull(doc.get("a"));
+        assertTrue(doc.containsValue(null));
+        assertEquals(1, doc.size());
+        assertEquals(expected("a", null), doc);
+    }
+
+    @Test
+    public void testDocumentEqualsHashMapOfSameEntries() {
+        final Document doc = new Document();
+        doc.put("a", "1");
+        doc.put("b", 2);
+        final Map<String, DynamoDBEntry> map = expected("a", new Primitive("1"),
+                "b", new Primitive(2));
+        assertEquals(map, doc);
+        assertEquals(map.entrySet(), doc.entrySet());
+        assertEquals(map.keySet(), doc.keySet());
+        assertEquals(map.hashCode(), doc.hashCode());
+        assertEquals(map, new HashMap<String, DynamoDBEntry>(doc));
+    }
+
+    @Test
+    public void testChangesAfterCommitDoNotReachCommittedValues() {
+        final Document doc = new Document();
+        doc.put("a", "1");
+        doc.put("b", "2");
+        doc.commit();
+
+        doc.put("a", "changed");
+        doc.remove("b");
+        doc.put("c", "added");
+        assertTrue(doc.hasAttributeChanged("a"));
+        assertFalse(doc.hasAttributeChanged("b"));
+        assertFalse(doc.hasAttributeChanged("c"));
+
+        // setting the committed value back leaves the attribute unchanged
+        doc.put("a", "1");
+        assertFalse(doc.hasAttributeChanged("a"));
+    }
+
+    @Test
+    public void testCommitStartsAFreshComparison() {
+        final Document doc = new Document();
+        doc.put("a", "1");
+        doc.commit();
+        doc.put("a", "2");
+        doc.commit();
+        assertFalse(doc.hasAttributeChanged("a"));
+
+        doc.put("a", "3");
+        assertTrue(doc.hasAttributeChanged("a"));
+        final Map<String, AttributeValueUpdate> updates = doc.toAttributeUpdateMap(true);
+        assertEquals(1, updates.size());
+        assertEquals("3", updates.get("a").getValue().getS());
+    }
+
+    @Test
+    public void testUpdateMapHoldsChangedAttributesOnly() {
+        final Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+        item.put("a", new AttributeValue("1"));
+        item.put("b", new AttributeValue("2"));
+        final Document doc = Document.fromAttributeMap(item);
+        doc.commit();
+        assertTrue(doc.toAttributeUpdateMap(true).isEmpty());
+
+        doc.put("b", "changed");
+        assertEquals(Arrays.asList("b"),
+                Arrays.asList(doc.toAttributeUpdateMap(true).keySet().toArray()));
+        assertEquals(2, doc.toAttributeUpdateMap(false).size());
+    }
+
+    @Test
+    public void testDocumentsSharingNamesAreIsolated() {
+        final AttributeNames names = new AttributeNames();
+        final Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+        item.put("a", new AttributeValue("1"));
+        final Document first = Document.fromAttributeMap(item, names);
+        final Document second = Document.fromAttributeMap(item, names);
+        first.commit();
+        second.commit();
+
+        first.put("a", "changed");
+        first.put("b", "added");
+        assertEquals(new Primitive("1"), second.get("a"));
+        assertFalse(second.containsKey("b"));
+        assertEquals(1, second.size());
+        assertFalse(second.hasAttributeChanged("a"));
+        assertSame(names, second.getAttributeNames());
+    }
+
+    @Test
+    public void testIterationFollowsNameOrderAndRemoves() {
+        final Document doc = new Document();
+        doc.put("a", "1");
+        doc.put("b", "2");
+        doc.put("c", "3");
+        doc.commit();
+
+        final Iterator<String> keys = doc.keySet().iterator();
+        assertEquals("a", keys.next());
+        assertEquals("b", keys.next());
+        keys.remove();
+        try {
+            keys.remove();
+            fail("expected a second removal to fail");
+        } catch (final IllegalStateException e) {
+            // expected
+        }
+        assertEquals("c", keys.next());
+        assertFalse(keys.hasNext());
+        try {
+            keys.next();
+            fail("expected the end of the iteration");
+        } catch (final NoSuchElementException e) {
+            // expected
+        }
+        assertEquals(expected("a", new Primitive("1"), "c", new Primitive("3")), doc);
+
+        final Iterator<DynamoDBEntry> values = doc.values().iterator();
+        assertEquals(new Primitive("1"), values.next());
+        values.remove();
+        assertEquals(expected("c", new Primitive("3")), doc);
+    }
+
+    @Test
+    public void testEntriesWriteThrough() {
+        final Document doc = new Document();
+        doc.put("a", "1");
+        doc.put(null, "null key");
+        doc.commit();
+
+        for (final Entry<String, DynamoDBEntry> entry : doc.entrySet()) {
+            if ("a".equals(entry.getKey())) {
+                assertEquals(new Primitive("1"), entry.setValue(new Primitive("2")));
+            }
+        }
+        assertEquals(new Primitive("2"), doc.get("a"));
+        assertTrue(doc.hasAttributeChanged("a"));
+
+        final Iterator<Entry<String, DynamoDBEntry>> entries = doc.entrySet().iterator();
+        entries.next();
+        final Entry<String, DynamoDBEntry> nullKeyEntry = entries.next();
+        assertNull(nullKeyEntry.getKey());
+        assertEquals(expected(null, new Primitive("null key")).entrySet().iterator().next(),
+                nullKeyEntry);
+        entries.remove();
+        assertFalse(doc.containsKey(null));
+    }
+
+    @Test
+    public void testClearThroughViews() {
+        final Document doc = new Document();
+        doc.put("a", "1");
+        doc.commit();
+        doc.keySet().clear();
+        assertTrue(doc.isEmpty());
+        assertFalse(doc.containsKey("a"));
+
+        doc.put("a", "2");
+        assertEquals(1, doc.size());
+        doc.values().clear();
+        assertTrue(doc.entrySet().isEmpty());
+    }
+}
@@ -2286,9 +2286,9 @@ public class DynamoDBMapper {
 
     /**
      * Scans through an Amazon DynamoDB table on logically partitioned segments
-     * in parallel. This method will create a thread pool of the specified size,
-     * and each thread will issue scan requests for its assigned segment,
-     * following the returned continuation token, until the end of its segment.
+     * in parallel. Segment scans run on an executor shared by all parallel
+     * scans, and each segment issues scan requests following the returned
+     * continuation token, until the end of its segment.
      * Callers should be responsible for setting the appropriate number of total
      * segments. More scan segments would result in better performance but more
      * consumed capacity of the table. The results are returned in one
@@ -2333,6 +2333,40 @@ public class DynamoDBMapper {
                 config.getPaginationLoadingStrategy(), config);
     }
 
+    /**
+     * Scans through an Amazon DynamoDB table on logically partitioned segments
+     * in parallel, using the given options to bound concurrency, prefetch
+     * pages and throttle the capacity consumed by each segment.
+     *
+     * @param <T> The type of the objects being returned.
+     * @param clazz The class annotated with DynamoDB annotations describing how
+     *            to store the object data in Amazon DynamoDB.
+     * @param scanExpression Details on how to run the scan, including any
+     *            filters to apply to limit results.
+     * @param totalSegments Number of total parallel scan segments. <b>Range:
+     *            </b>1 - 4096
+     * @param config The configuration to use for this scan, which overrides the
+     *            default provided at object construction.
+     * @param options The {@link ParallelScanOptions} for this scan.
+     * @return An unmodifiable list of the objects constructed from the results
+     *         of the scan operation.
+     * @see DynamoDBMapper#parallelScan(Class, DynamoDBScanExpression, int,
+     *      DynamoDBMapperConfig)
+     */
+    public <T> PaginatedParallelScanList<T> parallelScan(Class<T> clazz,
+            DynamoDBScanExpression scanExpression, int totalSegments, DynamoDBMapperConfig config,
+            ParallelScanOptions options) {
+        config = mergeConfig(config);
+
+        final List<ScanRequest> parallelScanRequests = createParallelScanRequestsFromExpression(clazz,
+                scanExpression, totalSegments, config);
+        final ParallelScanTask parallelScanTask = new ParallelScanTask(db, parallelScanRequests,
+                options);
+
+        return new PaginatedParallelScanList<T>(this, clazz, db, parallelScanTask,
+                config.getPaginationLoadingStrategy(), config);
+    }
+
     /**
      * Scans through an Amazon DynamoDB table and returns a single page of
      * matching results. The table to scan is determined by looking at the
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2011-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Tuning options for a parallel scan. Segments are scanned by a bounded number
+ * of workers drawn from a shared executor; a worker that finishes a page picks
+ * up whichever segment is ready next, so a scan may have many more segments
+ * than threads.
+ *
+ * @see DynamoDBMapper#parallelScan(Class, DynamoDBScanExpression, int,
+ *      DynamoDBMapperConfig, ParallelScanOptions)
+ */
+public class ParallelScanOptions {
+
+    private int maxConcurrency;
+    private int prefetchDepth;
+    private double maxCapacityUnitsPerSecondPerSegment;
+    private boolean streamResults;
+    private ExecutorService executorService;
+
+    /**
+     * Returns the maximum number of segments scanned at the same time. Zero
+     * (the default) means the number of segments, bounded by the size of the
+     * executor.
+     *
+     * @return the maximum number of concurrent segment scans.
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Sets the maximum number of segments scanned at the same time.
+     *
+     * @param maxConcurrency the maximum number of concurrent segment scans,
+     *            or zero to use the default.
+     */
+    public void setMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 0) {
+            throw new IllegalArgumentException("maxConcurrency must not be negative");
+        }
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Sets the maximum number of segments scanned at the same time.
+     *
+     * @param maxConcurrency the maximum number of concurrent segment scans,
+     *            or zero to use the default.
+     * @return this object for chaining.
+     */
+    public ParallelScanOptions withMaxConcurrency(int maxConcurrency) {
+        setMaxConcurrency(maxConcurrency);
+        return this;
+    }
+
+    /**
+     * Returns the number of pages each segment may fetch ahead of the
+     * consumer. Zero (the default) only fetches a page when it is asked for.
+     *
+     * @return the per segment prefetch depth.
+     */
+    public int getPrefetchDepth() {
+        return prefetchDepth;
+    }
+
+    /**
+     * Sets the number of pages each segment may fetch ahead of the consumer.
+     *
+     * @param prefetchDepth the per segment prefetch depth.
+     */
+    public void setPrefetchDepth(int prefetchDepth) {
+        if (prefetchDepth < 0) {
+            throw new IllegalArgumentException("prefetchDepth must not be negative");
+        }
+        this.prefetchDepth = prefetchDepth;
+    }
+
+    /**
+     * Sets the number of pages each segment may fetch ahead of the consumer.
+     *
+     * @param prefetchDepth the per segment prefetch depth.
+     * @return this object for chaining.
+     */
+    public ParallelScanOptions withPrefetchDepth(int prefetchDepth) {
+        setPrefetchDepth(prefetchDepth);
+        return this;
+    }
+
+    /**
+     * Returns the read capacity units per second a single segment may
+     * consume. Zero (the default) disables throttling.
+     *
+     * @return the per segment capacity limit.
+     */
+    public double getMaxCapacityUnitsPerSecondPerSegment() {
+        return maxCapacityUnitsPerSecondPerSegment;
+    }
+
+    /**
+     * Sets the read capacity units per second a single segment may consume.
+     * After each page the segment is held back long enough for the capacity
+     * reported by DynamoDB to fit within this rate. Setting a limit requests
+     * consumed capacity on every scan page.
+     *
+     * @param maxCapacityUnitsPerSecondPerSegment the per segment capacity
+     *            limit, or zero to disable throttling.
+     */
+    public void setMaxCapacityUnitsPerSecondPerSegment(double maxCapacityUnitsPerSecondPerSegment) {
+        if (maxCapacityUnitsPerSecondPerSegment < 0) {
+            throw new IllegalArgumentException(
+                    "maxCapacityUnitsPerSecondPerSegment must not be negative");
+        }
+        this.maxCapacityUnitsPerSecondPerSegment = maxCapacityUnitsPerSecondPerSegment;
+    }
+
+    /**
+     * Sets the read capacity units per second a single segment may consume.
+     *
+     * @param maxCapacityUnitsPerSecondPerSegment the per segment capacity
+     *            limit, or zero to disable throttling.
+     * @return this object for chaining.
+     */
+    public ParallelScanOptions withMaxCapacityUnitsPerSecondPerSegment(
+            double maxCapacityUnitsPerSecondPerSegment) {
+        setMaxCapacityUnitsPerSecondPerSegment(maxCapacityUnitsPerSecondPerSegment);
+        return this;
+    }
+
+    /**
+     * Returns whether results are handed to the list as soon as any segment
+     * has a page ready, instead of waiting for one page from every segment.
+     *
+     * @return true if results are streamed.
+     */
+    public boolean isStreamResults() {
+        return streamResults;
+    }
+
+    /**
+     * Sets whether results are handed to the list as soon as any segment has
+     * a page ready. When enabled, a slow segment no longer holds back the
+     * pages of the other segments, but results are returned in the order
+     * they arrive.
+     *
+     * @param streamResults true to stream results.
+     */
+    public void setStreamResults(boolean streamResults) {
+        this.streamResults = streamResults;
+    }
+
+    /**
+     * Sets whether results are handed to the list as soon as any segment has
+     * a page ready.
+     *
+     * @param streamResults true to stream results.
+     * @return this object for chaining.
+     */
+    public ParallelScanOptions withStreamResults(boolean streamResults) {
+        setStreamResults(streamResults);
+        return this;
+    }
+
+    /**
+     * Returns the executor that runs the segment scans, or null to use the
+     * executor shared by all parallel scans.
+     *
+     * @return the executor.
+     */
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    /**
+     * Sets the executor that runs the segment scans. The executor is not shut
+     * down when the scan completes.
+     *
+     * @param executorService the executor, or null to use the executor shared
+     *            by all parallel scans.
+     */
+    public void setExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    /**
+     * Sets the executor that runs the segment scans.
+     *
+     * @param executorService the executor, or null to use the shared executor.
+     * @return this object for chaining.
+     */
+    public ParallelScanOptions withExecutorService(ExecutorService executorService) {
+        setExecutorService(executorService);
+        return this;
+    }
+}
@@ -17,24 +17,50 @@ package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
 import com.amazonaws.services.dynamodbv2.model.ScanRequest;
 import com.amazonaws.services.dynamodbv2.model.ScanResult;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A task thats runs DynamoDB scan operations in parallel.
+ * <p>
+ * Segments are not bound to threads. Each segment that needs a page is put on
+ * a shared run queue, and up to {@link ParallelScanOptions#getMaxConcurrency()}
+ * workers on a bounded executor take whichever segment is ready next. Fetched
+ * pages are handed back to the consumer through a completion queue, so the
+ * consumer never holds a lock while a segment is being scanned.
  */
 public class ParallelScanTask {
 
+    /** Upper bound on the number of threads of the shared executor. */
+    private static final int SHARED_EXECUTOR_MAX_THREADS = Math.max(4,
+            Runtime.getRuntime().availableProcessors() * 2);
+
+    /** Idle threads of the shared executor are released after this time. */
+    private static final long SHARED_EXECUTOR_KEEP_ALIVE_SECONDS = 60L;
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private static ExecutorService sharedExecutor;
+
     /**
      * The list of hard copies of ScanRequest with different segment number.
      */
@@ -42,27 +68,44 @@ public class ParallelScanTask {
 
     private final int totalSegments;
 
-    /**
-     * Cache all the future tasks, so that we can extract the exception when we
-     * see failed segment scan.
-     */
-    private final List<Future<ScanResult>> segmentScanFutureTasks;
+    /** The scan state of each segment, indexed by segment number. */
+    private final List<SegmentScan> segmentScans;
 
     /**
-     * Cache all the most recent ScanResult on each segment.
+     * Segments waiting for a worker. Segments held back by the capacity
+     * throttle stay invisible to workers until their delay expires.
      */
-    private final List<ScanResult> segmentScanResults;
+    private final DelayQueue<SegmentScan> runQueue = new DelayQueue<SegmentScan>();
+
+    /** Pages (or failures) produced by workers, in completion order. */
+    private final BlockingQueue<SegmentPage> completions = new LinkedBlockingQueue<SegmentPage>();
 
     /**
-     * The current state of the scan on each segment. Used as the monitor for
-     * synchronization.
+     * Pages received from the completion queue but not yet returned to the
+     * caller, per segment. Only touched by the consuming thread.
      */
-    private final List<SegmentScanState> segmentScanStates;
+    private final List<ArrayDeque<ScanResult>> receivedPages;
+
+    private final AtomicInteger activeWorkers = new AtomicInteger();
 
     private final ExecutorService executorService;
 
     private final AmazonDynamoDB dynamo;
 
+    private final int maxConcurrency;
+
+    private final int prefetchDepth;
+
+    private final double maxCapacityUnitsPerSecondPerSegment;
+
+    private final boolean streamResults;
+
+    /** Round robin position used when streaming results. */
+    private int nextSegmentToDrain;
+
+    /** The first failure seen by the consumer; rethrown on later calls. */
+    private AmazonClientException failure;
+
     @Deprecated
     @SuppressWarnings("checkstyle:javadocmethod")
     public ParallelScanTask(DynamoDBMapper mapper, AmazonDynamoDB dynamo,
@@ -71,20 +114,63 @@ public class ParallelScanTask {
     }
 
     ParallelScanTask(AmazonDynamoDB dynamo, List<ScanRequest> parallelScanRequests) {
+        this(dynamo, parallelScanRequests, null);
+    }
+
+    ParallelScanTask(AmazonDynamoDB dynamo, List<ScanRequest> parallelScanRequests,
+            ParallelScanOptions options) {
+        if (options == null) {
+            options = new ParallelScanOptions();
+        }
         this.dynamo = dynamo;
         this.parallelScanRequests = parallelScanRequests;
         this.totalSegments = parallelScanRequests.size();
-        executorService = Executors.newCachedThreadPool();
+        this.executorService = options.getExecutorService() != null
+                ? options.getExecutorService() : getSharedExecutor();
+        this.maxConcurrency = options.getMaxConcurrency() > 0
+                ? options.getMaxConcurrency() : Math.max(1, totalSegments);
+        this.prefetchDepth = options.getPrefetchDepth();
+        this.maxCapacityUnitsPerSecondPerSegment = options.getMaxCapacityUnitsPerSecondPerSegment();
+        this.streamResults = options.isStreamResults();
 
-        // Create synchronized views of the list to guarantee any changes are
-        // visible across all threads.
-        segmentScanFutureTasks = Collections.synchronizedList(new ArrayList<Future<ScanResult>>(
-                totalSegments));
-        segmentScanResults = Collections.synchronizedList(new ArrayList<ScanResult>(totalSegments));
-        segmentScanStates = Collections.synchronizedList(new ArrayList<SegmentScanState>(
-                totalSegments));
+        segmentScans = new ArrayList<SegmentScan>(totalSegments);
+        receivedPages = new ArrayList<ArrayDeque<ScanResult>>(totalSegments);
+        for (int segment = 0; segment < totalSegments; segment++) {
+            segmentScans.add(new SegmentScan(segment));
+            receivedPages.add(new ArrayDeque<ScanResult>());
+            if (maxCapacityUnitsPerSecondPerSegment > 0
+                    && parallelScanRequests.get(segment).getReturnConsumedCapacity() == null) {
+                parallelScanRequests.get(segment).setReturnConsumedCapacity(
+                        ReturnConsumedCapacity.TOTAL);
+            }
+        }
+    }
 
-        initSegmentScanStates();
+    /**
+     * Returns the executor shared by all parallel scans that do not supply
+     * their own. The executor is bounded and uses daemon threads, which are
+     * released when idle.
+     */
+    static synchronized ExecutorService getSharedExecutor() {
+        if (sharedExecutor == null) {
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    SHARED_EXECUTOR_MAX_THREADS, SHARED_EXECUTOR_MAX_THREADS,
+                    SHARED_EXECUTOR_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        private final AtomicInteger threadCount = new AtomicInteger();
+
+                        @Override
+                        public Thread newThread(Runnable runnable) {
+                            final Thread thread = new Thread(runnable,
+                                    "dynamodb-parallel-scan-" + threadCount.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            executor.allowCoreThreadTimeOut(true);
+            sharedExecutor = executor;
+        }
+        return sharedExecutor;
     }
 
     String getTableName() {
@@ -96,214 +182,363 @@ public class ParallelScanTask {
      *
      * @return true if scans are finished, false if it isnt.
      */
-    public boolean isAllSegmentScanFinished() {
-        synchronized (segmentScanStates) {
-            for (int segment = 0; segment < totalSegments; segment++) {
-                if (segmentScanStates.get(segment) != SegmentScanState.SegmentScanCompleted) {
-                    return false;
-                }
+    public synchronized boolean isAllSegmentScanFinished() {
+        if (failure != null) {
+            return false;
+        }
+        for (int segment = 0; segment < totalSegments; segment++) {
+            if (!receivedPages.get(segment).isEmpty()
+                    || !segmentScans.get(segment).isCompleted()) {
+                return false;
             }
-            // Shut down if all data have been scanned and loaded.
-            executorService.shutdown();
-            return true;
         }
+        return true;
     }
 
     /**
      * Gets the next batch of scan results.
-     * 
+     * <p>
+     * By default the batch holds the next page of every segment, in segment
+     * order, with a null entry for each segment that has already completed.
+     * When results are streamed the batch holds the pages that are ready,
+     * waiting only until at least one is.
+     *
      * @return list of {@link ScanResult}
      */
-    public List<ScanResult> getNextBatchOfScanResults() {
-        /**
-         * Kick-off all the parallel scan tasks.
-         */
-        startScanNextPages();
-        /**
-         * Wait till all the tasks have finished.
-         */
-        synchronized (segmentScanStates) {
-            while (segmentScanStates.contains(SegmentScanState.Waiting)
-                    || segmentScanStates.contains(SegmentScanState.Scanning)) {
-                try {
-                    segmentScanStates.wait();
-                } catch (final InterruptedException ie) {
-                    throw new AmazonClientException("Parallel scan interrupted by other thread.",
-                            ie);
+    public synchronized List<ScanResult> getNextBatchOfScanResults() {
+        if (failure != null) {
+            throw failure;
+        }
+        return streamResults ? nextAvailableScanResults() : nextScanResultOfEachSegment();
+    }
+
+    private List<ScanResult> nextScanResultOfEachSegment() {
+        for (int segment = 0; segment < totalSegments; segment++) {
+            if (receivedPages.get(segment).isEmpty()) {
+                requestPage(segmentScans.get(segment));
+            }
+        }
+
+        boolean waiting = true;
+        while (waiting) {
+            waiting = false;
+            for (int segment = 0; segment < totalSegments; segment++) {
+                if (receivedPages.get(segment).isEmpty()
+                        && segmentScans.get(segment).hasPendingPage()) {
+                    waiting = true;
+                    break;
                 }
             }
-            /**
-             * Keep the lock on segmentScanStates until all the cached results
-             * are marshaled and returned.
-             */
-            return marshalParallelScanResults();
+            if (waiting) {
+                receive(takeCompletion());
+            }
         }
 
+        final List<ScanResult> scanResults = new LinkedList<ScanResult>();
+        for (int segment = 0; segment < totalSegments; segment++) {
+            scanResults.add(receivedPages.get(segment).isEmpty() ? null : consumePage(segment));
+        }
+        return scanResults;
     }
 
-    private void startScanNextPages() {
-        for (int segment = 0; segment < totalSegments; segment++) {
-            final int currentSegment = segment;
-            final SegmentScanState currentSegmentState = segmentScanStates.get(currentSegment);
-            /**
-             * Assert: Should never see any task in state of "Scanning" when
-             * starting a new batch.
-             */
-            if (currentSegmentState == SegmentScanState.Scanning) {
-                throw new AmazonClientException(
-                        "Should never see a 'Scanning' state when starting parallel scans.");
-            }
-            /**
-             * Skip any failed or completed segment, and clear the corresponding
-             * cached result.
-             */
-            else if (currentSegmentState == SegmentScanState.Failed
-                    || currentSegmentState == SegmentScanState.SegmentScanCompleted) {
-                segmentScanResults.set(currentSegment, null);
-                continue;
+    private List<ScanResult> nextAvailableScanResults() {
+        final List<ScanResult> scanResults = new LinkedList<ScanResult>();
+        while (true) {
+            // Drain whatever has already arrived without blocking.
+            SegmentPage page;
+            while ((page = completions.poll()) != null) {
+                receive(page);
             }
-            /**
-             * Otherwise, submit a new future task and save it in
-             * segmentScanFutureTasks.
-             */
-            else {
-                // Update the state to "Scanning" and notify any waiting thread.
-                synchronized (segmentScanStates) {
-                    segmentScanStates.set(currentSegment, SegmentScanState.Scanning);
-                    segmentScanStates.notifyAll();
+            for (int i = 0; i < totalSegments; i++) {
+                final int segment = (nextSegmentToDrain + i) % totalSegments;
+                while (!receivedPages.get(segment).isEmpty()) {
+                    scanResults.add(consumePage(segment));
                 }
-                final Future<ScanResult> futureTask = executorService.submit(new Callable<ScanResult>() {
-                    @Override
-                    public ScanResult call() throws Exception {
-                        try {
-                            if (currentSegmentState == SegmentScanState.HasNextPage) {
-                                return scanNextPageOfSegment(currentSegment, true);
-                            }
-                            else if (currentSegmentState == SegmentScanState.Waiting) {
-                                return scanNextPageOfSegment(currentSegment, false);
-                            }
-                            else {
-                                throw new AmazonClientException(
-                                        "Should not start a new future task");
-                            }
-                        } catch (final Exception e) {
-                            synchronized (segmentScanStates) {
-                                segmentScanStates.set(currentSegment, SegmentScanState.Failed);
-                                segmentScanStates.notifyAll();
-                            }
-                            throw e;
-                        }
-                    }
-                });
-                // Cache the future task (for getting the Exceptions in the
-                // working thread).
-                segmentScanFutureTasks.set(currentSegment, futureTask);
             }
+            if (!scanResults.isEmpty()) {
+                nextSegmentToDrain = (nextSegmentToDrain + 1) % totalSegments;
+                return scanResults;
+            }
+
+            boolean pending = false;
+            for (final SegmentScan segmentScan : segmentScans) {
+                requestPage(segmentScan);
+                pending |= segmentScan.hasPendingPage();
+            }
+            if (!pending) {
+                return scanResults;
+            }
+            receive(takeCompletion());
         }
     }
 
-    private List<ScanResult> marshalParallelScanResults() {
-        final List<ScanResult> scanResults = new LinkedList<ScanResult>();
-        for (int segment = 0; segment < totalSegments; segment++) {
-            final SegmentScanState currentSegmentState = segmentScanStates.get(segment);
-            /**
-             * Rethrow the exception from any failed segment scan.
-             */
-            if (currentSegmentState == SegmentScanState.Failed) {
-                try {
-                    segmentScanFutureTasks.get(segment).get();
-                    throw new AmazonClientException("No Exception found in the failed scan task.");
-                } catch (final ExecutionException ee) {
-                    if (ee.getCause() instanceof AmazonClientException) {
-                        throw (AmazonClientException) (ee.getCause());
-                    } else {
-                        throw new AmazonClientException(
-                                "Internal error during the scan on segment #" + segment + ".",
-                                ee.getCause());
-                    }
-                } catch (final Exception e) {
-                    throw new AmazonClientException("Error during the scan on segment #" + segment
-                            + ".", e);
+    private SegmentPage takeCompletion() {
+        try {
+            return completions.take();
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException("Parallel scan interrupted by other thread.", ie);
+        }
+    }
+
+    private void receive(SegmentPage page) {
+        if (page.error != null) {
+            if (page.error instanceof AmazonClientException) {
+                failure = (AmazonClientException) page.error;
+            } else {
+                failure = new AmazonClientException(
+                        "Internal error during the scan on segment #" + page.segment + ".",
+                        page.error);
+            }
+            throw failure;
+        }
+        receivedPages.get(page.segment).add(page.result);
+    }
+
+    /**
+     * Hands a received page to the caller, releasing its prefetch slot.
+     */
+    private ScanResult consumePage(int segment) {
+        final ScanResult scanResult = receivedPages.get(segment).poll();
+        final SegmentScan segmentScan = segmentScans.get(segment);
+        segmentScan.releasePage();
+        schedule(segmentScan);
+        return scanResult;
+    }
+
+    /**
+     * Asks for the next page of a segment if none is buffered or on its way.
+     */
+    private void requestPage(SegmentScan segmentScan) {
+        segmentScan.demand();
+        schedule(segmentScan);
+    }
+
+    private void schedule(SegmentScan segmentScan) {
+        if (!segmentScan.tryStartFetch(prefetchDepth)) {
+            return;
+        }
+        runQueue.add(segmentScan);
+        if (tryAcquireWorker()) {
+            try {
+                executorService.execute(new SegmentWorker());
+            } catch (final RejectedExecutionException ree) {
+                // Release the slot taken for the rejected worker. A running
+                // worker still drains the queue; without one the segment's
+                // pending page is reported as failed, rather than throwing
+                // from a worker whose own slot would then never be released.
+                // The segment stays fetching so the consumer waits for it.
+                if (activeWorkers.decrementAndGet() == 0 && runQueue.remove(segmentScan)) {
+                    completions.add(new SegmentPage(segmentScan.segment, null,
+                            new AmazonClientException("Unable to start parallel scan worker.",
+                                    ree)));
                 }
             }
-            /**
-             * Get the ScanResult from cache if the segment scan has finished.
-             */
-            else if (currentSegmentState == SegmentScanState.HasNextPage
-                    || currentSegmentState == SegmentScanState.SegmentScanCompleted) {
-                final ScanResult scanResult = segmentScanResults.get(segment);
-                scanResults.add(scanResult);
+        }
+    }
+
+    private boolean tryAcquireWorker() {
+        while (true) {
+            final int workers = activeWorkers.get();
+            if (workers >= maxConcurrency) {
+                return false;
             }
-            else if (currentSegmentState == SegmentScanState.Waiting
-                    || currentSegmentState == SegmentScanState.Scanning) {
-                throw new AmazonClientException(
-                        "Should never see a 'Scanning' or 'Waiting' state when marshalling parallel scan results.");
+            if (activeWorkers.compareAndSet(workers, workers + 1)) {
+                return true;
             }
         }
-        return scanResults;
+    }
+
+    /**
+     * Scans pages for whichever segment is ready until the run queue is
+     * empty. Throttled segments are waited for only while nothing else is
+     * runnable, and never beyond their delay.
+     */
+    private final class SegmentWorker implements Runnable {
+        @Override
+        public void run() {
+            while (true) {
+                SegmentScan segmentScan = runQueue.poll();
+                if (segmentScan == null) {
+                    final SegmentScan delayed = runQueue.peek();
+                    if (delayed == null) {
+                        activeWorkers.decrementAndGet();
+                        // A segment may have been queued after the poll while
+                        // this worker was still counted as active.
+                        if (runQueue.peek() == null || !tryAcquireWorker()) {
+                            return;
+                        }
+                        continue;
+                    }
+                    try {
+                        segmentScan = runQueue.poll(delayed.getDelay(TimeUnit.NANOSECONDS),
+                                TimeUnit.NANOSECONDS);
+                    } catch (final InterruptedException ie) {
+                        activeWorkers.decrementAndGet();
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    if (segmentScan == null) {
+                        continue;
+                    }
+                }
+                fetchPage(segmentScan);
+            }
+        }
+    }
+
+    private void fetchPage(SegmentScan segmentScan) {
+        ScanResult scanResult = null;
+        Throwable error = null;
+        try {
+            scanResult = scanNextPageOfSegment(segmentScan.segment, segmentScan.started);
+        } catch (final Throwable t) {
+            segmentScan.fail();
+            error = t;
+        }
+        completions.add(new SegmentPage(segmentScan.segment, scanResult, error));
+        schedule(segmentScan);
     }
 
     ScanResult scanNextPageOfSegment(int currentSegment, boolean checkLastEvaluatedKey) {
+        final SegmentScan segmentScan = segmentScans.get(currentSegment);
         final ScanRequest segmentScanRequest = parallelScanRequests.get(currentSegment);
         if (checkLastEvaluatedKey) {
-            final ScanResult lastScanResult = segmentScanResults.get(currentSegment);
-            segmentScanRequest.setExclusiveStartKey(lastScanResult.getLastEvaluatedKey());
+            segmentScanRequest.setExclusiveStartKey(segmentScan.lastEvaluatedKey);
         } else {
             segmentScanRequest.setExclusiveStartKey(null);
         }
         final ScanResult scanResult = dynamo.scan(DynamoDBMapper.applyUserAgent(segmentScanRequest));
-
-        /**
-         * Cache the scan result in segmentScanResults. We should never try to
-         * get these scan results by calling get() on the cached future tasks.
-         */
-        segmentScanResults.set(currentSegment, scanResult);
-
-        /**
-         * Update the state and notify any waiting thread.
-         */
-        synchronized (segmentScanStates) {
-            if (null == scanResult.getLastEvaluatedKey()) {
-                segmentScanStates.set(currentSegment, SegmentScanState.SegmentScanCompleted);
-            } else {
-                segmentScanStates.set(currentSegment, SegmentScanState.HasNextPage);
-            }
-            segmentScanStates.notifyAll();
-        }
+        segmentScan.pageFetched(scanResult, throttleDelayNanos(scanResult));
         return scanResult;
     }
 
-    private void initSegmentScanStates() {
-        for (int segment = 0; segment < totalSegments; segment++) {
-            segmentScanFutureTasks.add(null);
-            segmentScanResults.add(null);
-            segmentScanStates.add(SegmentScanState.Waiting);
+    /**
+     * Returns how long a segment must wait before its next page so that the
+     * capacity consumed by this page fits within the configured rate.
+     */
+    private long throttleDelayNanos(ScanResult scanResult) {
+        if (maxCapacityUnitsPerSecondPerSegment <= 0) {
+            return 0;
         }
+        final ConsumedCapacity consumedCapacity = scanResult.getConsumedCapacity();
+        if (consumedCapacity == null || consumedCapacity.getCapacityUnits() == null) {
+            return 0;
+        }
+        return (long) (consumedCapacity.getCapacityUnits() / maxCapacityUnitsPerSecondPerSegment
+                * NANOS_PER_SECOND);
     }
 
     /**
-     * Enumeration of the possible states of the scan on a segment.
+     * The scan state of one segment. The fields are shared between the
+     * consumer and the worker scanning the segment and are guarded by the
+     * segment itself; at most one worker scans a segment at a time.
      */
-    private static enum SegmentScanState {
+    private static final class SegmentScan implements Delayed {
+        private final int segment;
+
+        /** The key to continue from, taken from the last fetched page. */
+        private Map<String, AttributeValue> lastEvaluatedKey;
+
         /**
-         * The scan on the segment is waiting for resources to execute and has
-         * not started yet.
+         * Whether the first page of the segment has been fetched. Read by the
+         * worker scanning the segment without holding its lock.
          */
-        Waiting,
+        private volatile boolean started;
+
+        /** Whether the last page of the segment has been fetched. */
+        private boolean exhausted;
+
+        private boolean failed;
+
+        /** Whether the segment is queued or being scanned. */
+        private boolean fetching;
 
-        /** The scan is in process, and hasn't finished yet. */
-        Scanning,
+        /** Whether the consumer is waiting for a page of this segment. */
+        private boolean wanted;
 
-        /** The scan has already failed. */
-        Failed,
+        /** Pages fetched but not yet consumed. */
+        private int bufferedPages;
+
+        /** System.nanoTime() before which the segment may not be scanned. */
+        private long notBeforeNanos;
+
+        SegmentScan(int segment) {
+            this.segment = segment;
+        }
+
+        synchronized void demand() {
+            if (bufferedPages == 0) {
+                wanted = true;
+            }
+        }
 
         /**
-         * The scan on the current page has finished, but there are more pages
-         * in the segment to be scanned.
+         * Marks the segment as fetching if it has another page to fetch that
+         * is either wanted by the consumer or fits within the prefetch depth.
          */
-        HasNextPage,
+        synchronized boolean tryStartFetch(int prefetchDepth) {
+            if (fetching || exhausted || failed) {
+                return false;
+            }
+            if (bufferedPages < prefetchDepth || (wanted && bufferedPages == 0)) {
+                fetching = true;
+                return true;
+            }
+            return false;
+        }
 
-        /** The scan on the whole segment has completed. */
-        SegmentScanCompleted,
+        synchronized void pageFetched(ScanResult scanResult, long throttleDelayNanos) {
+            lastEvaluatedKey = scanResult.getLastEvaluatedKey();
+            started = true;
+            exhausted = lastEvaluatedKey == null;
+            notBeforeNanos = System.nanoTime() + throttleDelayNanos;
+            fetching = false;
+            wanted = false;
+            bufferedPages++;
+        }
+
+        synchronized void fail() {
+            failed = true;
+            fetching = false;
+        }
+
+        synchronized void releasePage() {
+            bufferedPages--;
+        }
+
+        /** Whether a page is buffered or on its way. */
+        synchronized boolean hasPendingPage() {
+            return fetching || bufferedPages > 0;
+        }
+
+        synchronized boolean isCompleted() {
+            return exhausted && !fetching && bufferedPages == 0;
+        }
+
+        @Override
+        public synchronized long getDelay(TimeUnit unit) {
+            return unit.convert(notBeforeNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            final long diff = getDelay(TimeUnit.NANOSECONDS)
+                    - other.getDelay(TimeUnit.NANOSECONDS);
+            return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+        }
+    }
+
+    /** A page, or the failure to fetch it, produced by a worker. */
+    private static final class SegmentPage {
+        private final int segment;
+        private final ScanResult result;
+        private final Throwable error;
+
+        SegmentPage(int segment, ScanResult result, Throwable error) {
+            this.segment = segment;
+            this.result = result;
+            this.error = error;
+        }
     }
 }
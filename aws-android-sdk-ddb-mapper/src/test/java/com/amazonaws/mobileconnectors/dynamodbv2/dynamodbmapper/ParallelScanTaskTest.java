@@ -16,9 +16,15 @@
 package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.ScanRequest;
@@ -33,6 +39,11 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class ParallelScanTaskTest {
 
@@ -192,4 +203,104 @@ public class ParallelScanTaskTest {
 
         assertTrue(testTask.isAllSegmentScanFinished());
     }
+
+    @Test
+    public void testMoreSegmentsThanWorkers() {
+        List<ScanRequest> list = new ArrayList<ScanRequest>();
+        for (int segment = 0; segment < 5; segment++) {
+            list.add(new ScanRequest().withTableName(TABLE).withSegment(segment)
+                    .withTotalSegments(5));
+        }
+
+        ParallelScanTask testTask = new ParallelScanTask(mockClient, list,
+                new ParallelScanOptions().withMaxConcurrency(2));
+
+        for (ScanRequest request : list) {
+            EasyMock.expect(mockClient.scan(request)).andReturn(
+                    new ScanResult().withLastEvaluatedKey(null));
+        }
+        EasyMock.replay(mockClient);
+
+        List<ScanResult> batch = testTask.getNextBatchOfScanResults();
+
+        EasyMock.verify(mockClient);
+        assertEquals(batch.size(), 5);
+        for (ScanResult result : batch) {
+            assertNotNull(result);
+        }
+        assertTrue(testTask.isAllSegmentScanFinished());
+    }
+
+    @Test
+    public void testStreamResultsReturnsPagesAsTheyArrive() {
+        ScanRequest scan1 = new ScanRequest().withTableName(TABLE);
+        List<ScanRequest> list = new ArrayList<ScanRequest>();
+        list.add(scan1);
+
+        Map<String, AttributeValue> lastEvaluatedKey = new HashMap<String, AttributeValue>();
+        lastEvaluatedKey.put("TestPrimaryKey", new AttributeValue().withS("Test1"));
+        ScanResult resultWithMoreData = new ScanResult().withLastEvaluatedKey(lastEvaluatedKey);
+        ScanResult resultNoMoreData = new ScanResult().withLastEvaluatedKey(null);
+
+        ParallelScanTask testTask = new ParallelScanTask(mockClient, list,
+                new ParallelScanOptions().withStreamResults(true).withPrefetchDepth(1));
+
+        EasyMock.expect(mockClient.scan(scan1)).andReturn(resultWithMoreData);
+        EasyMock.expect(mockClient.scan(scan1)).andReturn(resultNoMoreData);
+        EasyMock.replay(mockClient);
+
+        List<ScanResult> pages = new ArrayList<ScanResult>();
+        while (!testTask.isAllSegmentScanFinished()) {
+            pages.addAll(testTask.getNextBatchOfScanResults());
+        }
+
+        EasyMock.verify(mockClient);
+        assertEquals(pages.size(), 2);
+        assertEquals(pages.get(0), resultWithMoreData);
+        assertEquals(pages.get(1), resultNoMoreData);
+        assertTrue(testTask.getNextBatchOfScanResults().isEmpty());
+    }
+
+    @Test
+    public void testFailedSegmentIsRethrown() {
+        ScanRequest scan1 = new ScanRequest().withTableName(TABLE);
+        List<ScanRequest> list = new ArrayList<ScanRequest>();
+        list.add(scan1);
+
+        ParallelScanTask testTask = new ParallelScanTask(mockClient, list);
+
+        AmazonServiceException error = new AmazonServiceException("Throttled");
+        EasyMock.expect(mockClient.scan(scan1)).andThrow(error);
+        EasyMock.replay(mockClient);
+
+        try {
+            testTask.getNextBatchOfScanResults();
+            fail("Expected the scan failure to be rethrown");
+        } catch (AmazonServiceException e) {
+            assertSame(e, error);
+        }
+        assertFalse(testTask.isAllSegmentScanFinished());
+    }
+
+    @Test
+    public void testRejectedWorkerFailsTheScan() {
+        ScanRequest scan1 = new ScanRequest().withTableName(TABLE);
+        List<ScanRequest> list = new ArrayList<ScanRequest>();
+        list.add(scan1);
+
+        ExecutorService rejecting = new ThreadPoolExecutor(0, 1, 0L, TimeUnit.MILLISECONDS,
+                new SynchronousQueue<Runnable>());
+        rejecting.shutdown();
+        ParallelScanTask testTask = new ParallelScanTask(mockClient, list,
+                new ParallelScanOptions().withExecutorService(rejecting));
+        EasyMock.replay(mockClient);
+
+        try {
+            testTask.getNextBatchOfScanResults();
+            fail("Expected the rejected worker to fail the scan");
+        } catch (AmazonClientException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertFalse(testTask.isAllSegmentScanFinished());
+    }
 }
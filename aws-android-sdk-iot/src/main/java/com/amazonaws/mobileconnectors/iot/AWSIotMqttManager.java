@@ -41,16 +41,27 @@ import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 
+import java.io.File;
+import java.io.IOException;
 import java.security.KeyManagementException;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.security.UnrecoverableKeyException;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.Map;
 
 import javax.net.SocketFactory;
@@ -86,6 +97,15 @@ public class AWSIotMqttManager {
     public static final Integer DEFAULT_OFFLINE_PUBLISH_QUEUE_BOUND = 100;
     /** Constant for milliseconds between queue publishes. */
     private static final Long DEFAULT_MILLIS_BETWEEN_QUEUE_PUBLISHES = 250L;
+    /**
+     * Default number of messages from the persistent offline queue awaiting
+     * delivery at once. Matches the default in-flight window of the MQTT client.
+     */
+    public static final Integer DEFAULT_MAX_IN_FLIGHT_QUEUED_PUBLISHES = 10;
+    /** Milliseconds the persistent queue drain waits for a delivery before checking the connection again. */
+    private static final long QUEUE_DRAIN_WAIT_MILLIS = 1000L;
+    /** Seconds the persistent queue drain thread is kept alive while idle. */
+    private static final long QUEUE_DRAIN_KEEP_ALIVE_SECONDS = 60L;
     /** Default value for "connection established" hysteresis timer. */
     private static final Integer DEFAULT_CONNECTION_STABILITY_TIME_SECONDS = 10;
 
@@ -158,6 +178,16 @@ public class AWSIotMqttManager {
     private boolean fullQueueKeepsOldest;
     /** Milliseconds between publishes when publishing queued messages (draining interval). */
     private long drainingInterval;
+    /** Disk-backed offline queue, used instead of the in-memory queue when set. */
+    private PersistentPublishQueue persistentPublishQueue;
+    /** Messages from the persistent offline queue awaiting delivery at once. */
+    private int maxInFlightQueuedPublishes;
+    /** Delivery window of the current connection for the persistent offline queue. */
+    private volatile Semaphore queueDrainWindow;
+    /** Is the persistent offline queue being drained? */
+    private final AtomicBoolean drainingPersistentQueue = new AtomicBoolean(false);
+    /** Executor running the persistent offline queue drain, off the main thread. */
+    private ExecutorService queueDrainExecutor;
     /** Was this disconnect requested by the user? */
     private boolean userDisconnect;
     /** Do we need to resubscribe upon reconnecting? */
@@ -504,6 +534,7 @@ public class AWSIotMqttManager {
 
     /**
      * Get the "draining interval" (the time between publish messages are sent from the offline queue when reconnected).
+     * Does not apply to a persistent offline queue, which is drained as messages are delivered.
      * @return long containing the number of milliseconds between publishes.
      */
     public Long getDrainingInterval() {
@@ -512,12 +543,71 @@ public class AWSIotMqttManager {
 
     /**
      * Set the "draining interval" (the time between publish messages are sent from the offline queue when reconnected).
+     * Does not apply to a persistent offline queue, which is drained as messages are delivered.
      * @param interval milliseconds between offline queue publishes.
      */
     public void setDrainingInterval(Long interval) {
         drainingInterval = interval;
     }
 
+    /**
+     * Persist the offline publish queue in the given directory, bounded by the
+     * bytes it holds instead of by message count. Queued messages survive the
+     * process being killed and are published on the next connection.
+     * <p>
+     * The persistent queue is drained off the main thread as fast as the
+     * broker acknowledges messages, with at most
+     * {@link #getMaxInFlightQueuedPublishes()} messages awaiting delivery at
+     * once; the draining interval does not apply to it. Messages are delivered
+     * at least once. Delivery callbacks are not persisted, so messages
+     * restored after a restart are published without one. The full queue
+     * behavior is the same as for the in-memory queue.
+     * </p>
+     * Must be called before connecting.
+     *
+     * @param directory directory to keep the queue file in, for example in the
+     *            application's files directory.
+     * @param maxBytes most bytes of messages to queue while offline.
+     */
+    public void setOfflinePublishQueuePersistence(File directory, long maxBytes) {
+        if (directory == null) {
+            throw new IllegalArgumentException("directory is null");
+        }
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Offline queue size must be > 0");
+        }
+        closePersistentPublishQueue();
+        try {
+            persistentPublishQueue = new PersistentPublishQueue(directory, maxBytes);
+        } catch (final IOException e) {
+            throw new AmazonClientException("Failed to open the offline publish queue.", e);
+        }
+    }
+
+    /**
+     * Get the number of messages from the persistent offline queue that may
+     * await delivery at once.
+     *
+     * @return max number of queued messages in flight.
+     */
+    public int getMaxInFlightQueuedPublishes() {
+        return maxInFlightQueuedPublishes;
+    }
+
+    /**
+     * Set the number of messages from the persistent offline queue that may
+     * await delivery at once. A new message is published from the queue as
+     * soon as an earlier one is delivered.
+     *
+     * @param maxInFlight max number of queued messages in flight.
+     */
+    public void setMaxInFlightQueuedPublishes(int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("Max in-flight queued publishes must be > 0");
+        }
+        maxInFlightQueuedPublishes = maxInFlight;
+    }
+
     /**
      * Keep the oldest messages when publish queue is full?
      * @return boolean true if set to keep oldest messages, false if set to keep newest.
@@ -799,6 +889,7 @@ public class AWSIotMqttManager {
         offlinePublishQueueEnabled = DEFAULT_OFFLINE_PUBLISH_QUEUE_ENABLED;
         offlinePublishQueueBound = DEFAULT_OFFLINE_PUBLISH_QUEUE_BOUND;
         drainingInterval = DEFAULT_MILLIS_BETWEEN_QUEUE_PUBLISHES;
+        maxInFlightQueuedPublishes = DEFAULT_MAX_IN_FLIGHT_QUEUED_PUBLISHES;
         setFullQueueToKeepNewestMessages();
         connectionStabilityTime = DEFAULT_CONNECTION_STABILITY_TIME_SECONDS;
         unitTestMillisOverride = null;
@@ -1171,6 +1262,7 @@ public class AWSIotMqttManager {
                     if (mqttMessageQueue.size() > 0) {
                         publishMessagesFromQueue();
                     }
+                    startDrainingPersistentQueue();
                     userConnectionCallback();
                 }
 
@@ -1341,6 +1433,7 @@ public class AWSIotMqttManager {
                         if (mqttMessageQueue.size() > 0) {
                             publishMessagesFromQueue();
                         }
+                        startDrainingPersistentQueue();
                         userConnectionCallback();
                     }
 
@@ -1635,7 +1728,7 @@ public class AWSIotMqttManager {
         final PublishMessageUserData publishMessageUserData = new PublishMessageUserData(callback, userData);
 
         if (connectionState == MqttManagerConnectionState.Connected) {
-            if (mqttMessageQueue.isEmpty()) {
+            if (isOfflinePublishQueueEmpty()) {
                 try {
                     mqttClient.publish(topic, data, qos.asInt(), false, publishMessageUserData, null);
                 } catch (final MqttException e) {
@@ -1676,6 +1769,11 @@ public class AWSIotMqttManager {
      */
     void putMessageInQueueAndNotify(byte[] data, String topic, AWSIotMqttQos qos,
                                     PublishMessageUserData publishMessageUserData) {
+        if (persistentPublishQueue != null) {
+            putMessageInPersistentQueueAndNotify(data, topic, qos, publishMessageUserData);
+            return;
+        }
+
         final AWSIotMqttQueueMessage message = new AWSIotMqttQueueMessage(topic, data, qos, publishMessageUserData);
 
         if (mqttMessageQueue.size() >= offlinePublishQueueBound) {
@@ -1741,6 +1839,206 @@ public class AWSIotMqttManager {
         }
     }
 
+    /**
+     * Are there no messages waiting in the offline publish queue?
+     *
+     * @return true if the queue in use is empty.
+     */
+    private boolean isOfflinePublishQueueEmpty() {
+        final PersistentPublishQueue queue = persistentPublishQueue;
+        return queue == null ? mqttMessageQueue.isEmpty() : queue.isEmpty();
+    }
+
+    /**
+     * Add a message to the persistent offline queue, and drain it if the
+     * client is connected. Behavior on a full queue is defined by
+     * fullQueueKeepsOldest, as for the in-memory queue.
+     */
+    private void putMessageInPersistentQueueAndNotify(byte[] data, String topic, AWSIotMqttQos qos,
+            PublishMessageUserData publishMessageUserData) {
+        final boolean queued;
+        try {
+            queued = persistentPublishQueue.offer(topic, data, qos, publishMessageUserData,
+                    fullQueueKeepsOldest);
+        } catch (final IOException e) {
+            notifyPublishResult(publishMessageUserData.getUserCallback(),
+                    AWSIotMqttMessageDeliveryCallback.MessageDeliveryStatus.Fail,
+                    publishMessageUserData.getUserData(),
+                    new AmazonClientException("Failed to write the message to the offline publish queue.", e));
+            return;
+        }
+        if (!queued) {
+            notifyPublishResult(publishMessageUserData.getUserCallback(),
+                    AWSIotMqttMessageDeliveryCallback.MessageDeliveryStatus.Fail,
+                    publishMessageUserData.getUserData(),
+                    new AmazonClientException("Failed to publish the message. Queue is full and set to hold onto the oldest messages."));
+            return;
+        }
+        if (connectionState == MqttManagerConnectionState.Connected) {
+            drainPersistentQueue();
+        }
+    }
+
+    /**
+     * Start draining the persistent offline queue on a new connection.
+     * Messages sent on an earlier connection but not delivered are sent again.
+     */
+    private void startDrainingPersistentQueue() {
+        final PersistentPublishQueue queue = persistentPublishQueue;
+        if (queue == null) {
+            return;
+        }
+        queue.resendUnacknowledged();
+        queueDrainWindow = new Semaphore(maxInFlightQueuedPublishes);
+        drainPersistentQueue();
+    }
+
+    /**
+     * Drain the persistent offline queue on a background thread unless a
+     * drain is already running.
+     */
+    private void drainPersistentQueue() {
+        final PersistentPublishQueue queue = persistentPublishQueue;
+        if (queue == null || !queue.hasUnsent() || !drainingPersistentQueue.compareAndSet(false, true)) {
+            return;
+        }
+        getQueueDrainExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    publishMessagesFromPersistentQueue(queue);
+                } finally {
+                    drainingPersistentQueue.set(false);
+                }
+                // Messages may have been queued as this drain finished.
+                if (connectionState == MqttManagerConnectionState.Connected && queue.hasUnsent()) {
+                    drainPersistentQueue();
+                }
+            }
+        });
+    }
+
+    /**
+     * Publish messages from the persistent offline queue for as long as the
+     * connection lasts. Messages are read from the queue in batches and
+     * published whenever the delivery window has room, which opens as the
+     * broker acknowledges earlier messages.
+     *
+     * @param queue the persistent offline queue.
+     */
+    private void publishMessagesFromPersistentQueue(PersistentPublishQueue queue) {
+        final Semaphore window = queueDrainWindow;
+        List<PersistentPublishQueue.Entry> batch = Collections.emptyList();
+        int next = 0;
+        try {
+            while (connectionState == MqttManagerConnectionState.Connected && window == queueDrainWindow) {
+                if (next == batch.size()) {
+                    batch = queue.nextBatch(maxInFlightQueuedPublishes);
+                    next = 0;
+                    if (batch.isEmpty()) {
+                        return;
+                    }
+                }
+                if (window.tryAcquire(QUEUE_DRAIN_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (publishQueuedMessage(queue, batch.get(next), window)) {
+                        next++;
+                    } else {
+                        // Keep the message queued and in order, and try it
+                        // again after a pause.
+                        Thread.sleep(QUEUE_DRAIN_WAIT_MILLIS);
+                    }
+                }
+            }
+        } catch (final IOException e) {
+            LOGGER.error("Failed to read the offline publish queue.", e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            queue.returnUnsent(batch.subList(next, batch.size()));
+        }
+    }
+
+    /**
+     * Publish a message from the persistent offline queue. A message that
+     * fails to publish stays queued; only its place in the delivery window is
+     * given back.
+     *
+     * @return true if the message was handed to the MQTT client.
+     */
+    private boolean publishQueuedMessage(PersistentPublishQueue queue, PersistentPublishQueue.Entry entry,
+            Semaphore window) {
+        final AWSIotMqttQueueMessage message = entry.getMessage();
+        final PublishMessageUserData userData = message.getUserData();
+        final QueuedPublishUserData context = new QueuedPublishUserData(
+                userData == null ? null : userData.getUserCallback(),
+                userData == null ? null : userData.getUserData(),
+                queue, entry.getSequence(), window);
+        try {
+            mqttClient.publish(message.getTopic(), message.getMessage(), message.getQos().asInt(),
+                    false, context, null);
+            return true;
+        } catch (final MqttException e) {
+            window.release();
+            LOGGER.warn("Failed to publish a queued message, it stays queued.", e);
+            return false;
+        }
+    }
+
+    private synchronized ExecutorService getQueueDrainExecutor() {
+        if (queueDrainExecutor == null) {
+            queueDrainExecutor = new ThreadPoolExecutor(0, 1,
+                    QUEUE_DRAIN_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable runnable) {
+                            final Thread thread = new Thread(runnable, "AWSIotMqttManager-offline-queue");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+        }
+        return queueDrainExecutor;
+    }
+
+    private void closePersistentPublishQueue() {
+        if (persistentPublishQueue != null) {
+            try {
+                persistentPublishQueue.close();
+            } catch (final IOException e) {
+                LOGGER.warn("Failed to close the offline publish queue.", e);
+            }
+            persistentPublishQueue = null;
+        }
+    }
+
+    /**
+     * Publish user data of a message from the persistent offline queue.
+     * Delivery removes the message from the queue and opens the delivery
+     * window for the next one.
+     */
+    private static final class QueuedPublishUserData extends PublishMessageUserData {
+        private final PersistentPublishQueue queue;
+        private final long sequence;
+        private final Semaphore window;
+
+        QueuedPublishUserData(AWSIotMqttMessageDeliveryCallback userCallback, Object userData,
+                PersistentPublishQueue queue, long sequence, Semaphore window) {
+            super(userCallback, userData);
+            this.queue = queue;
+            this.sequence = sequence;
+            this.window = window;
+        }
+
+        void onDelivered() {
+            window.release();
+            try {
+                queue.acknowledge(sequence);
+            } catch (final IOException e) {
+                LOGGER.warn("Failed to remove a delivered message from the offline publish queue.", e);
+            }
+        }
+    }
+
     /**
      * Setup the MQTT client calbacks. The Paho MQTT client exposes callbacks
      * for connection status, publish status and incoming messages. The Android
@@ -1788,6 +2086,9 @@ public class AWSIotMqttManager {
                 LOGGER.info("delivery is complete");
                 if (token != null) {
                     final Object o = token.getUserContext();
+                    if (o instanceof QueuedPublishUserData) {
+                        ((QueuedPublishUserData) o).onDelivered();
+                    }
                     if (o instanceof PublishMessageUserData) {
                         final PublishMessageUserData pmud = (PublishMessageUserData) o;
                         notifyPublishResult(pmud.getUserCallback(),
@@ -0,0 +1,331 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.iot;
+
+import com.amazonaws.internal.AppendOnlyJournal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A disk-backed queue of messages published while offline, bounded by the
+ * bytes it holds rather than by message count.
+ * <p>
+ * Messages are kept in an {@link AppendOnlyJournal}, so queued messages
+ * survive the process being killed. A message leaves the journal once it and
+ * all older messages are delivered.
+ * </p>
+ * <p>
+ * Messages are read in batches and stay queued until they are acknowledged,
+ * so messages sent on a connection that is lost before they are delivered
+ * are sent again on the next one. Delivery is at least once. Delivery
+ * callbacks are kept in memory only; messages restored after a restart are
+ * published without one.
+ * </p>
+ */
+class PersistentPublishQueue {
+
+    /** Name of the queue file in the queue directory. */
+    static final String FILE_NAME = "aws-iot-offline-publish-queue";
+
+    /** Most bytes read from the file for one batch, unless a single record is larger. */
+    private static final int MAX_BATCH_BYTES = 64 * 1024;
+
+    /**
+     * A message read from the queue, with the sequence number used to
+     * acknowledge it.
+     */
+    static final class Entry {
+        private final long sequence;
+        private final AWSIotMqttQueueMessage message;
+
+        Entry(long sequence, AWSIotMqttQueueMessage message) {
+            this.sequence = sequence;
+            this.message = message;
+        }
+
+        long getSequence() {
+            return sequence;
+        }
+
+        AWSIotMqttQueueMessage getMessage() {
+            return message;
+        }
+    }
+
+    /** In-memory state of a queued message. */
+    private static final class Record {
+        private final long sequence;
+        private final AppendOnlyJournal.Record journalRecord;
+        private final PublishMessageUserData userData;
+        private boolean sent;
+        private boolean acknowledged;
+
+        Record(long sequence, AppendOnlyJournal.Record journalRecord,
+                PublishMessageUserData userData) {
+            this.sequence = sequence;
+            this.journalRecord = journalRecord;
+            this.userData = userData;
+        }
+    }
+
+    private final AppendOnlyJournal journal;
+    private final long maxBytes;
+
+    /** Queued messages, oldest first, as in the journal. */
+    private final ArrayDeque<Record> records = new ArrayDeque<Record>();
+    /** Queued messages not yet sent on the current connection, oldest first. */
+    private final ArrayDeque<Record> unsent = new ArrayDeque<Record>();
+    private long nextSequence;
+
+    /**
+     * Opens the queue in the given directory, restoring any messages queued
+     * by an earlier process.
+     *
+     * @param directory directory holding the queue file.
+     * @param maxBytes most bytes of messages the queue holds.
+     * @throws IOException if the queue file cannot be opened.
+     */
+    PersistentPublishQueue(File directory, long maxBytes) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create directory " + directory);
+        }
+        this.maxBytes = maxBytes;
+        this.journal = new AppendOnlyJournal(new File(directory, FILE_NAME), maxBytes);
+        for (final AppendOnlyJournal.Record journalRecord : journal.getOldest(Integer.MAX_VALUE)) {
+            final Record record = new Record(nextSequence++, journalRecord, null);
+            records.addLast(record);
+            unsent.addLast(record);
+        }
+    }
+
+    /**
+     * Appends a message to the queue. When the message does not fit, the
+     * oldest messages are dropped to make room for it, unless the queue is
+     * set to keep them.
+     *
+     * @param topic message topic.
+     * @param payload message content.
+     * @param qos message quality of service.
+     * @param userData user callback and context data, kept in memory only.
+     * @param keepOldest true to reject the message rather than drop older ones
+     *            on a full queue.
+     * @return true if the message was queued, false if it was rejected.
+     * @throws IOException if the message cannot be written.
+     */
+    synchronized boolean offer(String topic, byte[] payload, AWSIotMqttQos qos,
+            PublishMessageUserData userData, boolean keepOldest) throws IOException {
+        final byte[] encoded = encode(topic, payload, qos);
+        final long size = AppendOnlyJournal.getRecordSize(encoded.length);
+        if (size > maxBytes) {
+            return false;
+        }
+        if (journal.sizeInBytes() + size > maxBytes) {
+            if (keepOldest) {
+                return false;
+            }
+            final int dropped = journal.trimTo(maxBytes - size);
+            for (int i = 0; i < dropped; i++) {
+                unsent.remove(records.removeFirst());
+            }
+        }
+
+        final AppendOnlyJournal.Record journalRecord =
+                journal.append(Collections.singletonList(encoded)).get(0);
+        final Record record = new Record(nextSequence++, journalRecord, userData);
+        records.addLast(record);
+        unsent.addLast(record);
+        return true;
+    }
+
+    /**
+     * Reads the next messages not yet sent on the current connection, and
+     * marks them as sent.
+     *
+     * @param maxMessages most messages to read.
+     * @return the messages, oldest first; empty if all messages have been
+     *         sent.
+     * @throws IOException if the messages cannot be read.
+     */
+    synchronized List<Entry> nextBatch(int maxMessages) throws IOException {
+        if (unsent.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final List<Record> batch = new ArrayList<Record>();
+        final List<AppendOnlyJournal.Record> journalRecords = new ArrayList<AppendOnlyJournal.Record>();
+        long batchBytes = 0;
+        while (!unsent.isEmpty() && batch.size() < maxMessages
+                && (batch.isEmpty() || batchBytes
+                        + unsent.peekFirst().journalRecord.getPayloadLength() <= MAX_BATCH_BYTES)) {
+            final Record record = unsent.removeFirst();
+            record.sent = true;
+            batchBytes += record.journalRecord.getPayloadLength();
+            batch.add(record);
+            journalRecords.add(record.journalRecord);
+        }
+
+        final List<byte[]> payloads = journal.read(journalRecords);
+        final List<Entry> entries = new ArrayList<Entry>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            final Record record = batch.get(i);
+            entries.add(new Entry(record.sequence, decode(payloads.get(i), record.userData)));
+        }
+        return entries;
+    }
+
+    /**
+     * Marks a message as delivered. It is removed from the file once all
+     * older messages are delivered too.
+     *
+     * @param sequence sequence number of the message.
+     * @throws IOException if the file cannot be updated.
+     */
+    synchronized void acknowledge(long sequence) throws IOException {
+        boolean found = false;
+        for (final Record record : records) {
+            if (record.sequence == sequence) {
+                record.acknowledged = true;
+                found = true;
+                break;
+            }
+        }
+        if (!found) {
+            return;
+        }
+        int delivered = 0;
+        final Iterator<Record> iterator = records.iterator();
+        while (iterator.hasNext() && iterator.next().acknowledged) {
+            iterator.remove();
+            delivered++;
+        }
+        journal.removeOldest(delivered);
+    }
+
+    /**
+     * Marks all messages not yet delivered as unsent, so that they are sent
+     * again. Called when a new connection is established.
+     */
+    synchronized void resendUnacknowledged() {
+        for (final Record record : records) {
+            record.sent = false;
+        }
+        rebuildUnsent();
+    }
+
+    /**
+     * Returns messages read from the queue but not sent, so that they are
+     * read again first.
+     *
+     * @param entries the messages that were not sent.
+     */
+    synchronized void returnUnsent(List<Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        for (final Entry entry : entries) {
+            for (final Record record : records) {
+                if (record.sequence == entry.getSequence()) {
+                    record.sent = false;
+                    break;
+                }
+            }
+        }
+        rebuildUnsent();
+    }
+
+    /**
+     * @return the number of queued messages.
+     */
+    synchronized int size() {
+        return records.size();
+    }
+
+    /**
+     * @return the bytes held by queued messages.
+     */
+    synchronized long sizeInBytes() {
+        return journal.sizeInBytes();
+    }
+
+    /**
+     * @return true if no messages are queued.
+     */
+    synchronized boolean isEmpty() {
+        return records.isEmpty();
+    }
+
+    /**
+     * @return true if some queued messages have not been sent on the current
+     *         connection.
+     */
+    synchronized boolean hasUnsent() {
+        return !unsent.isEmpty();
+    }
+
+    /**
+     * Closes the queue file.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    synchronized void close() throws IOException {
+        journal.close();
+    }
+
+    private void rebuildUnsent() {
+        unsent.clear();
+        for (final Record record : records) {
+            if (!record.sent && !record.acknowledged) {
+                unsent.addLast(record);
+            }
+        }
+    }
+
+    /**
+     * Encodes a message as a journal record: the QoS, the topic and the
+     * payload.
+     */
+    private static byte[] encode(String topic, byte[] payload, AWSIotMqttQos qos)
+            throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+                topic.length() + payload.length + 3);
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(qos.asInt());
+        out.writeUTF(topic);
+        out.write(payload);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static AWSIotMqttQueueMessage decode(byte[] record, PublishMessageUserData userData)
+            throws IOException {
+        final ByteArrayInputStream in = new ByteArrayInputStream(record);
+        final DataInputStream data = new DataInputStream(in);
+        final AWSIotMqttQos qos = data.readByte() == 0 ? AWSIotMqttQos.QOS0 : AWSIotMqttQos.QOS1;
+        final String topic = data.readUTF();
+        final byte[] payload = new byte[in.available()];
+        data.readFully(payload);
+        return new AWSIotMqttQueueMessage(topic, payload, qos, userData);
+    }
+}
@@ -11,12 +11,16 @@ import com.amazonaws.regions.Regions;
 import com.amazonaws.util.StringUtils;
 import com.amazonaws.util.VersionInfoUtils;
 
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
 import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.robolectric.Robolectric;
 import org.robolectric.RobolectricTestRunner;
@@ -28,10 +32,13 @@ import java.security.KeyStore;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.fail;
 import static org.junit.Assert.assertEquals;
@@ -42,6 +49,9 @@ import static org.junit.Assert.assertTrue;
 @Config(manifest = Config.NONE, sdk = 16)
 public class AWSIotMqttManagerTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     // This certificate is an invalid (to AWS IoT) certificate for unit testing only.
     private final static String TestCert = "-----BEGIN CERTIFICATE-----\n" +
             "MIIDlTCCAn2gAwIBAgIVAKuR4L6GajQRv1DzXlUFigMoiwzsMA0GCSqGSIb3DQEB\n" +
@@ -2137,6 +2147,51 @@ public class AWSIotMqttManagerTest {
         assertEquals(3, mockClient.publishCalls);
     }
 
+    @Test
+    public void testPersistentOfflinePublishQueueKeepsMessageThatFailsToPublish() throws Exception {
+        FlakyPublishMqttClient mockClient = new FlakyPublishMqttClient();
+
+        AWSIotMqttManager testClient = new AWSIotMqttManager("test-client",
+                Region.getRegion(Regions.US_EAST_1), TEST_ENDPOINT_PREFIX);
+        testClient.setMqttClient(mockClient);
+        testClient.setOfflinePublishQueuePersistence(folder.newFolder(), 1024);
+
+        TestClientStatusCallback csb = new TestClientStatusCallback();
+        TestMessageDeliveryCallback mdcb = new TestMessageDeliveryCallback();
+
+        KeyStore testKeystore = AWSIotKeystoreHelper
+                .getIotKeystore(CERT_ID, KEYSTORE_PATH, KEYSTORE_NAME, KEYSTORE_PASSWORD);
+        testClient.connect(testKeystore, csb);
+        mockClient.mockConnectSuccess();
+        mockClient.mockDisconnect();
+        assertEquals(MqttManagerConnectionState.Reconnecting, testClient.getConnectionState());
+
+        testClient.publishString("test payload 0", "test/topic", AWSIotMqttQos.QOS1, mdcb, "0");
+        testClient.publishString("test payload 1", "test/topic", AWSIotMqttQos.QOS1, mdcb, "1");
+
+        // The first publish of the drain fails.
+        mockClient.failuresLeft.set(1);
+        final int connectCalls = mockClient.connectCalls;
+        for (int i = 0; i < 10 && mockClient.connectCalls == connectCalls; i++) {
+            Robolectric.getForegroundThreadScheduler().advanceBy(1000, TimeUnit.MILLISECONDS);
+        }
+        mockClient.mockConnectSuccess();
+
+        assertTrue(mockClient.awaitPublished(2, 10, TimeUnit.SECONDS));
+        assertEquals(0, mockClient.failuresLeft.get());
+        assertEquals(Arrays.asList("test payload 0", "test payload 1"), mockClient.publishedPayloads);
+        assertEquals(0, mdcb.statuses.size());
+
+        for (final Object context : mockClient.publishedContexts) {
+            MockDeliveryToken testDeliveryToken = new MockDeliveryToken();
+            testDeliveryToken.setUserContext(context);
+            mockClient.mockCallback.deliveryComplete(testDeliveryToken);
+        }
+        assertEquals(Arrays.asList(AWSIotMqttMessageDeliveryCallback.MessageDeliveryStatus.Success,
+                AWSIotMqttMessageDeliveryCallback.MessageDeliveryStatus.Success), mdcb.statuses);
+        assertEquals(Arrays.<Object>asList("0", "1"), mdcb.userDatas);
+    }
+
     @Test
     public void testOfflinePublishQueuePublishWhenConnectedButQueueNotYetEmpty() throws Exception {
         MockMqttClient mockClient = new MockMqttClient();
@@ -3099,6 +3154,48 @@ public class AWSIotMqttManagerTest {
     /**
      * Test Publish Status Callback
      */
+    /**
+     * Mock client whose publishes fail while failuresLeft is positive, and
+     * which records what it publishes from any thread.
+     */
+    private static class FlakyPublishMqttClient extends MockMqttClient {
+        final AtomicInteger failuresLeft = new AtomicInteger();
+        final List<String> publishedPayloads = new CopyOnWriteArrayList<String>();
+        final List<Object> publishedContexts = new CopyOnWriteArrayList<Object>();
+
+        FlakyPublishMqttClient() throws MqttException {
+            super();
+        }
+
+        @Override
+        public IMqttDeliveryToken publish(String topic, byte[] payload, int qos, boolean retained,
+                Object userContext, IMqttActionListener callback) throws MqttException {
+            if (failuresLeft.get() > 0) {
+                failuresLeft.decrementAndGet();
+                throw new MqttException(MqttException.REASON_CODE_CLIENT_EXCEPTION);
+            }
+            synchronized (this) {
+                publishedPayloads.add(new String(payload, StringUtils.UTF8));
+                publishedContexts.add(userContext);
+                notifyAll();
+            }
+            return super.publish(topic, payload, qos, retained, userContext, callback);
+        }
+
+        synchronized boolean awaitPublished(int count, long timeout, TimeUnit unit)
+                throws InterruptedException {
+            final long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (publishedPayloads.size() < count) {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            return true;
+        }
+    }
+
     private class TestMessageDeliveryCallback implements AWSIotMqttMessageDeliveryCallback {
         ArrayList<MessageDeliveryStatus> statuses;
         ArrayList<Object> userDatas;
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.iot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.util.StringUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+public class PersistentPublishQueueTest {
+
+    private static final long MAX_BYTES = 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private PersistentPublishQueue queue;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = folder.newFolder();
+        queue = new PersistentPublishQueue(directory, MAX_BYTES);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        queue.close();
+    }
+
+    private boolean offer(String payload, boolean keepOldest) throws Exception {
+        return queue.offer("test/topic", payload.getBytes(StringUtils.UTF8), AWSIotMqttQos.QOS1,
+                null, keepOldest);
+    }
+
+    private static String payload(PersistentPublishQueue.Entry entry) {
+        return new String(entry.getMessage().getMessage(), StringUtils.UTF8);
+    }
+
+    private PersistentPublishQueue reopen() throws Exception {
+        queue.close();
+        queue = new PersistentPublishQueue(directory, MAX_BYTES);
+        return queue;
+    }
+
+    @Test
+    public void testMessagesAreReadInOrderInBatches() throws Exception {
+        final PublishMessageUserData userData = new PublishMessageUserData(null, "token");
+        assertTrue(queue.offer("test/topic", "payload 0".getBytes(StringUtils.UTF8),
+                AWSIotMqttQos.QOS0, userData, false));
+        for (int i = 1; i < 5; i++) {
+            assertTrue(offer("payload " + i, false));
+        }
+        assertEquals(5, queue.size());
+
+        final List<PersistentPublishQueue.Entry> first = queue.nextBatch(3);
+        assertEquals(3, first.size());
+        assertEquals("payload 0", payload(first.get(0)));
+        assertEquals("test/topic", first.get(0).getMessage().getTopic());
+        assertEquals(AWSIotMqttQos.QOS0, first.get(0).getMessage().getQos());
+        assertSame(userData, first.get(0).getMessage().getUserData());
+        assertEquals("payload 2", payload(first.get(2)));
+
+        final List<PersistentPublishQueue.Entry> second = queue.nextBatch(3);
+        assertEquals(2, second.size());
+        assertEquals("payload 3", payload(second.get(0)));
+        assertEquals(AWSIotMqttQos.QOS1, second.get(0).getMessage().getQos());
+        assertFalse(queue.hasUnsent());
+        assertTrue(queue.nextBatch(3).isEmpty());
+    }
+
+    @Test
+    public void testMessagesSurviveReopen() throws Exception {
+        final PublishMessageUserData userData = new PublishMessageUserData(null, "token");
+        assertTrue(queue.offer("test/topic", "payload 0".getBytes(StringUtils.UTF8),
+                AWSIotMqttQos.QOS1, userData, false));
+        assertTrue(offer("payload 1", false));
+        assertTrue(offer("payload 2", false));
+        final List<PersistentPublishQueue.Entry> sent = queue.nextBatch(2);
+        queue.acknowledge(sent.get(0).getSequence());
+
+        reopen();
+        assertEquals(2, queue.size());
+        final List<PersistentPublishQueue.Entry> restored = queue.nextBatch(10);
+        assertEquals(2, restored.size());
+        assertEquals("payload 1", payload(restored.get(0)));
+        assertEquals("payload 2", payload(restored.get(1)));
+        assertNull(restored.get(0).getMessage().getUserData());
+    }
+
+    @Test
+    public void testAcknowledgedMessagesAreRemovedInOrder() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(offer("payload " + i, false));
+        }
+        final List<PersistentPublishQueue.Entry> sent = queue.nextBatch(3);
+
+        queue.acknowledge(sent.get(1).getSequence());
+        assertEquals(3, queue.size());
+        queue.acknowledge(sent.get(0).getSequence());
+        assertEquals(1, queue.size());
+        queue.acknowledge(sent.get(2).getSequence());
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.sizeInBytes());
+        assertEquals(8, new File(directory, PersistentPublishQueue.FILE_NAME).length());
+    }
+
+    @Test
+    public void testUnacknowledgedMessagesAreResent() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(offer("payload " + i, false));
+        }
+        final List<PersistentPublishQueue.Entry> sent = queue.nextBatch(3);
+        queue.acknowledge(sent.get(0).getSequence());
+        assertFalse(queue.hasUnsent());
+
+        queue.resendUnacknowledged();
+        final List<PersistentPublishQueue.Entry> resent = queue.nextBatch(3);
+        assertEquals(2, resent.size());
+        assertEquals("payload 1", payload(resent.get(0)));
+
+        queue.returnUnsent(resent.subList(1, 2));
+        final List<PersistentPublishQueue.Entry> returned = queue.nextBatch(3);
+        assertEquals(1, returned.size());
+        assertEquals("payload 2", payload(returned.get(0)));
+    }
+
+    @Test
+    public void testResendSkipsDeliveredMessageBetweenUndeliveredOnes() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            assertTrue(offer("payload " + i, false));
+        }
+        final List<PersistentPublishQueue.Entry> sent = queue.nextBatch(4);
+        queue.acknowledge(sent.get(1).getSequence());
+
+        queue.resendUnacknowledged();
+        final List<PersistentPublishQueue.Entry> resent = queue.nextBatch(10);
+        assertEquals(3, resent.size());
+        assertEquals("payload 0", payload(resent.get(0)));
+        assertEquals(sent.get(2).getSequence(), resent.get(1).getSequence());
+        assertEquals("payload 2", payload(resent.get(1)));
+        assertEquals("payload 3", payload(resent.get(2)));
+        assertFalse(queue.hasUnsent());
+
+        // The delivered message is still in the file behind an undelivered
+        // one, so it is sent again after a restart; every payload stays with
+        // its own message.
+        reopen();
+        assertEquals(4, queue.size());
+        final List<PersistentPublishQueue.Entry> restored = queue.nextBatch(10);
+        assertEquals(4, restored.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals("payload " + i, payload(restored.get(i)));
+        }
+    }
+
+    @Test
+    public void testFullQueueDropsOldestMessages() throws Exception {
+        int queued = 0;
+        while (queue.sizeInBytes() + 100 <= MAX_BYTES) {
+            assertTrue(offer(String.format("payload %80d", queued++), false));
+        }
+        assertEquals(queued, queue.size());
+
+        assertTrue(offer(String.format("payload %80d", queued), false));
+        assertEquals(queued, queue.size());
+        assertTrue(queue.sizeInBytes() <= MAX_BYTES);
+        assertEquals(String.format("payload %80d", 1), payload(queue.nextBatch(1).get(0)));
+    }
+
+    @Test
+    public void testFullQueueKeepsOldestMessages() throws Exception {
+        int queued = 0;
+        while (queue.sizeInBytes() + 100 <= MAX_BYTES) {
+            assertTrue(offer(String.format("payload %80d", queued++), false));
+        }
+        assertFalse(offer(String.format("payload %80d", queued), true));
+        assertEquals(queued, queue.size());
+        assertEquals(String.format("payload %80d", 0), payload(queue.nextBatch(1).get(0)));
+    }
+
+    @Test
+    public void testMessageLargerThanQueueIsRejected() throws Exception {
+        assertFalse(offer(String.format("%2000d", 0), false));
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testFileIsCompactedOnceDeliveredMessagesExceedBound() throws Exception {
+        final File file = new File(directory, PersistentPublishQueue.FILE_NAME);
+        long previous = -1;
+        for (int i = 0; i < 100; i++) {
+            // keep the newest message queued so that the file is never emptied
+            assertTrue(offer(String.format("payload %80d", i), false));
+            final long sequence = queue.nextBatch(1).get(0).getSequence();
+            if (previous >= 0) {
+                queue.acknowledge(previous);
+            }
+            previous = sequence;
+            assertEquals(1, queue.size());
+            assertTrue(file.length() <= 2 * MAX_BYTES);
+        }
+
+        reopen();
+        assertEquals(1, queue.size());
+        assertEquals(String.format("payload %80d", 99), payload(queue.nextBatch(1).get(0)));
+    }
+
+    @Test
+    public void testTornRecordIsDroppedOnReopen() throws Exception {
+        assertTrue(offer("payload 0", false));
+        assertTrue(offer("payload 1", false));
+        queue.close();
+
+        final File file = new File(directory, PersistentPublishQueue.FILE_NAME);
+        final RandomAccessFile data = new RandomAccessFile(file, "rw");
+        try {
+            data.setLength(data.length() - 3);
+        } finally {
+            data.close();
+        }
+
+        queue = new PersistentPublishQueue(directory, MAX_BYTES);
+        assertEquals(1, queue.size());
+        assertEquals("payload 0", payload(queue.nextBatch(10).get(0)));
+        assertTrue(offer("payload 2", false));
+        assertEquals("payload 2", payload(queue.nextBatch(10).get(0)));
+    }
+}
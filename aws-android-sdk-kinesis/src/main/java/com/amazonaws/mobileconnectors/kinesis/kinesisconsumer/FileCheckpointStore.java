@@ -0,0 +1,128 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisconsumer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Properties;
+
+/**
+ * Keeps the checkpoint of each shard in a local file: the sequence number of
+ * the last processed record, or a marker once the shard has been processed to
+ * its end. The file is rewritten through a temporary file and a rename on
+ * every change, so a crash leaves either the old or the new checkpoints.
+ */
+class FileCheckpointStore {
+
+    /** Checkpoint of a shard that has been processed to its end. */
+    static final String SHARD_END = "SHARD_END";
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File file;
+    private final Properties checkpoints = new Properties();
+
+    /**
+     * @param file the checkpoint file; created on the first checkpoint.
+     * @throws IOException if an existing file cannot be read.
+     */
+    FileCheckpointStore(File file) throws IOException {
+        this.file = file;
+        if (file.exists()) {
+            final InputStream in = new FileInputStream(file);
+            try {
+                checkpoints.load(in);
+            } finally {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * @param shardId the shard id.
+     * @return the sequence number of the last processed record of the shard,
+     *         or null if none.
+     */
+    synchronized String getCheckpoint(String shardId) {
+        final String checkpoint = checkpoints.getProperty(shardId);
+        return SHARD_END.equals(checkpoint) ? null : checkpoint;
+    }
+
+    /**
+     * @param shardId the shard id.
+     * @return true if the shard has been processed to its end.
+     */
+    synchronized boolean isShardEnded(String shardId) {
+        return SHARD_END.equals(checkpoints.getProperty(shardId));
+    }
+
+    /**
+     * Records the last processed record of a shard.
+     *
+     * @param shardId the shard id.
+     * @param sequenceNumber the sequence number of the record.
+     * @throws IOException if the file cannot be written.
+     */
+    synchronized void checkpoint(String shardId, String sequenceNumber) throws IOException {
+        checkpoints.setProperty(shardId, sequenceNumber);
+        save();
+    }
+
+    /**
+     * Records that a shard has been processed to its end.
+     *
+     * @param shardId the shard id.
+     * @throws IOException if the file cannot be written.
+     */
+    synchronized void markShardEnded(String shardId) throws IOException {
+        checkpoints.setProperty(shardId, SHARD_END);
+        save();
+    }
+
+    /**
+     * Drops the checkpoints of shards that are no longer listed, i.e. that are
+     * past the retention period of the stream.
+     *
+     * @param shardIds the ids of the listed shards.
+     * @throws IOException if the file cannot be written.
+     */
+    synchronized void retainAll(Collection<String> shardIds) throws IOException {
+        if (checkpoints.keySet().retainAll(shardIds)) {
+            save();
+        }
+    }
+
+    private void save() throws IOException {
+        final File temp = new File(file.getPath() + TEMP_SUFFIX);
+        final FileOutputStream out = new FileOutputStream(temp);
+        try {
+            checkpoints.store(out, null);
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(file)) {
+            // renameTo does not replace an existing file on every platform
+            if (!file.delete() || !temp.renameTo(file)) {
+                throw new IOException("Unable to replace checkpoint file " + file);
+            }
+        }
+    }
+}
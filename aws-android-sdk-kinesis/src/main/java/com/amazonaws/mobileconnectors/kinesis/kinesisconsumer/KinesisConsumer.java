@@ -0,0 +1,283 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisconsumer;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+import com.amazonaws.services.kinesis.AmazonKinesis;
+import com.amazonaws.services.kinesis.model.ListShardsRequest;
+import com.amazonaws.services.kinesis.model.ListShardsResult;
+import com.amazonaws.services.kinesis.model.Shard;
+import com.amazonaws.services.kinesis.model.ShardIteratorType;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * The KinesisConsumer reads all shards of an Amazon Kinesis stream in
+ * parallel and hands their records to a {@link RecordProcessor}, keeping a
+ * checkpoint per shard in a local directory so that a restarted consumer
+ * resumes where it left off.
+ * <p>
+ * Each shard is read by its own poller, which reads batches ahead of the
+ * processor and polls faster while the shard is behind the tip of the stream.
+ * The pollers and the record processing of all shards share a bounded pool of
+ * threads. The shards of the stream are listed periodically and whenever a
+ * shard ends, and the shards created by a split or a merge are read once
+ * their parents have been processed to their end, so records with the same
+ * partition key are processed in order across resharding.
+ * <p>
+ * The consumer is meant for a single reader per stream and directory, such as
+ * a device following a control stream; it does not balance shards across
+ * several consumers.
+ * <p>
+ * KinesisConsumer requires an IAM policy that allows the ListShards,
+ * GetShardIterator and GetRecords actions on the stream.
+ */
+public class KinesisConsumer {
+
+    private static final Log LOGGER = LogFactory.getLog(KinesisConsumer.class);
+
+    /**
+     * Valid stream name pattern.
+     */
+    private static final Pattern STREAM_NAME_PATTERN = Pattern.compile("[a-zA-Z0-9_.-]{1,128}");
+    private static final String CHECKPOINT_FILE_SUFFIX = ".checkpoints";
+
+    private final AmazonKinesis client;
+    private final String streamName;
+    private final RecordProcessor processor;
+    private final KinesisConsumerConfig config;
+    private final FileCheckpointStore checkpointStore;
+    private final ScheduledThreadPoolExecutor executor;
+    /** Shards being read, by id. */
+    private final Map<String, ShardConsumer> shardConsumers = new HashMap<String, ShardConsumer>();
+
+    private final Runnable syncTask = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                syncShards();
+            } catch (final AmazonClientException e) {
+                LOGGER.warn("Unable to list the shards of " + streamName, e);
+            }
+        }
+    };
+
+    private boolean started;
+    private boolean shutdown;
+
+    /**
+     * Constructs a new consumer with the default configuration.
+     *
+     * @param client the client to read the stream with.
+     * @param streamName the name of the stream.
+     * @param directory a directory private to this consumer for the
+     *            checkpoints of the stream.
+     * @param processor the processor of the records.
+     * @throws IOException if existing checkpoints cannot be read.
+     */
+    public KinesisConsumer(AmazonKinesis client, String streamName, File directory,
+            RecordProcessor processor) throws IOException {
+        this(client, streamName, directory, processor, new KinesisConsumerConfig());
+    }
+
+    /**
+     * Constructs a new consumer.
+     *
+     * @param client the client to read the stream with.
+     * @param streamName the name of the stream.
+     * @param directory a directory private to this consumer for the
+     *            checkpoints of the stream.
+     * @param processor the processor of the records.
+     * @param config the configuration of the consumer.
+     * @throws IOException if existing checkpoints cannot be read.
+     */
+    public KinesisConsumer(AmazonKinesis client, String streamName, File directory,
+            RecordProcessor processor, KinesisConsumerConfig config) throws IOException {
+        if (client == null || directory == null || processor == null || config == null) {
+            throw new IllegalArgumentException("client, directory, processor and config can't be null");
+        }
+        if (streamName == null || !STREAM_NAME_PATTERN.matcher(streamName).matches()) {
+            throw new IllegalArgumentException("Invalid stream name: " + streamName);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create directory " + directory);
+        }
+        this.client = client;
+        this.streamName = streamName;
+        this.processor = processor;
+        this.config = new KinesisConsumerConfig(config);
+        this.checkpointStore = new FileCheckpointStore(
+                new File(directory, streamName + CHECKPOINT_FILE_SUFFIX));
+        this.executor = new ScheduledThreadPoolExecutor(this.config.getMaxThreads(),
+                new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        final Thread t = new Thread(r);
+                        t.setName("kinesis-consumer-" + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        executor.setContinueExistingPeriodicTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Starts reading the stream in the background.
+     */
+    public synchronized void start() {
+        if (shutdown) {
+            throw new IllegalStateException("The consumer has been shut down");
+        }
+        if (started) {
+            return;
+        }
+        started = true;
+        executor.scheduleWithFixedDelay(syncTask, 0, config.getShardSyncIntervalMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops reading the stream. Record processing in progress completes, and
+     * its checkpoint is kept.
+     */
+    public synchronized void shutdown() {
+        shutdown = true;
+        for (final ShardConsumer shardConsumer : shardConsumers.values()) {
+            shardConsumer.shutdown();
+        }
+        shardConsumers.clear();
+        executor.shutdown();
+    }
+
+    /**
+     * Waits for record processing in progress to complete after
+     * {@link #shutdown()}.
+     *
+     * @param timeout the maximum time to wait.
+     * @param unit the unit of the timeout.
+     * @return true if the consumer stopped, false if the timeout elapsed.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * @return the ids of the shards being read.
+     */
+    public synchronized Set<String> getActiveShardIds() {
+        return Collections.unmodifiableSet(new HashSet<String>(shardConsumers.keySet()));
+    }
+
+    /**
+     * Lists the shards of the stream and starts reading those that are ready:
+     * not processed to their end yet, and with no parent left to process.
+     */
+    void syncShards() {
+        final Map<String, Shard> shards = listShards();
+        if (!shards.isEmpty()) {
+            try {
+                checkpointStore.retainAll(shards.keySet());
+            } catch (final IOException e) {
+                LOGGER.warn("Unable to drop checkpoints of expired shards", e);
+            }
+        }
+
+        synchronized (this) {
+            if (shutdown) {
+                return;
+            }
+            for (final Shard shard : shards.values()) {
+                final String shardId = shard.getShardId();
+                if (shardConsumers.containsKey(shardId) || checkpointStore.isShardEnded(shardId)) {
+                    continue;
+                }
+                if (!isDone(shard.getParentShardId(), shards)
+                        || !isDone(shard.getAdjacentParentShardId(), shards)) {
+                    continue;
+                }
+                // a child shard holds the records written since the resharding
+                final boolean child = shards.containsKey(shard.getParentShardId())
+                        || shards.containsKey(shard.getAdjacentParentShardId());
+                final ShardConsumer shardConsumer = new ShardConsumer(this, client, streamName,
+                        shardId, child ? ShardIteratorType.TRIM_HORIZON : config.getInitialPosition(),
+                        config, checkpointStore, processor, executor);
+                shardConsumers.put(shardId, shardConsumer);
+                shardConsumer.start();
+            }
+        }
+    }
+
+    /**
+     * Called once a shard has been processed to its end, to start its
+     * children.
+     */
+    void onShardEnded(ShardConsumer shardConsumer) {
+        synchronized (this) {
+            if (shutdown) {
+                return;
+            }
+            shardConsumers.remove(shardConsumer.getShardId());
+        }
+        try {
+            executor.execute(syncTask);
+        } catch (final RejectedExecutionException e) {
+            // the consumer is shutting down
+        }
+    }
+
+    private boolean isDone(String parentShardId, Map<String, Shard> shards) {
+        // a parent that is no longer listed is past the retention period
+        return parentShardId == null || !shards.containsKey(parentShardId)
+                || checkpointStore.isShardEnded(parentShardId);
+    }
+
+    private Map<String, Shard> listShards() {
+        final Map<String, Shard> shards = new LinkedHashMap<String, Shard>();
+        ListShardsRequest request = new ListShardsRequest().withStreamName(streamName);
+        while (true) {
+            final ListShardsResult result = client.listShards(request);
+            if (result.getShards() != null) {
+                for (final Shard shard : result.getShards()) {
+                    shards.put(shard.getShardId(), shard);
+                }
+            }
+            if (result.getNextToken() == null) {
+                return shards;
+            }
+            // the stream name must not be set along with a token
+            request = new ListShardsRequest().withNextToken(result.getNextToken());
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisconsumer;
+
+import com.amazonaws.services.kinesis.model.ShardIteratorType;
+
+/**
+ * Allows configuration of certain KinesisConsumer parameters, such as the
+ * number of threads and the polling intervals.
+ */
+public class KinesisConsumerConfig {
+
+    private static final int DEFAULT_MAX_THREADS = 4;
+    private static final int DEFAULT_MAX_RECORDS_PER_CALL = 1000;
+    private static final int MAX_RECORDS_PER_CALL = 10000;
+    /** Kinesis allows five GetRecords calls per second per shard. */
+    private static final long DEFAULT_MIN_POLL_INTERVAL_MILLIS = 200;
+    private static final long DEFAULT_MAX_POLL_INTERVAL_MILLIS = 1000;
+    private static final long DEFAULT_SHARD_SYNC_INTERVAL_MILLIS = 60 * 1000;
+    private static final int DEFAULT_MAX_PREFETCHED_BATCHES = 2;
+
+    private int maxThreads = DEFAULT_MAX_THREADS;
+    private int maxRecordsPerCall = DEFAULT_MAX_RECORDS_PER_CALL;
+    private long minPollIntervalMillis = DEFAULT_MIN_POLL_INTERVAL_MILLIS;
+    private long maxPollIntervalMillis = DEFAULT_MAX_POLL_INTERVAL_MILLIS;
+    private long shardSyncIntervalMillis = DEFAULT_SHARD_SYNC_INTERVAL_MILLIS;
+    private int maxPrefetchedBatches = DEFAULT_MAX_PREFETCHED_BATCHES;
+    private ShardIteratorType initialPosition = ShardIteratorType.LATEST;
+
+    /**
+     * Construct an instance of KinesisConsumerConfig with default values: 4
+     * threads, 1000 records per call, polling every 200 to 1000 ms, listing
+     * shards every minute, prefetching up to 2 batches per shard, and starting
+     * at the latest record of shards without a checkpoint.
+     */
+    public KinesisConsumerConfig() {
+    }
+
+    /**
+     * Creates a copy of the passed in KinesisConsumerConfig.
+     *
+     * @param other the KinesisConsumerConfig to copy.
+     */
+    public KinesisConsumerConfig(KinesisConsumerConfig other) {
+        this.maxThreads = other.maxThreads;
+        this.maxRecordsPerCall = other.maxRecordsPerCall;
+        this.minPollIntervalMillis = other.minPollIntervalMillis;
+        this.maxPollIntervalMillis = other.maxPollIntervalMillis;
+        this.shardSyncIntervalMillis = other.shardSyncIntervalMillis;
+        this.maxPrefetchedBatches = other.maxPrefetchedBatches;
+        this.initialPosition = other.initialPosition;
+    }
+
+    /**
+     * Sets the number of threads shared by the pollers and record processing
+     * of all shards.
+     *
+     * @param maxThreads the number of threads.
+     * @return This class for chaining
+     */
+    public KinesisConsumerConfig withMaxThreads(int maxThreads) {
+        if (maxThreads <= 0) {
+            throw new IllegalArgumentException("maxThreads must be positive");
+        }
+        this.maxThreads = maxThreads;
+        return this;
+    }
+
+    /**
+     * @return the number of threads shared by all shards.
+     */
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    /**
+     * Sets the maximum number of records read by one GetRecords call, at most
+     * 10000.
+     *
+     * @param maxRecordsPerCall the maximum number of records per call.
+     * @return This class for chaining
+     */
+    public KinesisConsumerConfig withMaxRecordsPerCall(int maxRecordsPerCall) {
+        if (maxRecordsPerCall <= 0 || maxRecordsPerCall > MAX_RECORDS_PER_CALL) {
+            throw new IllegalArgumentException("maxRecordsPerCall must be between 1 and "
+                    + MAX_RECORDS_PER_CALL);
+        }
+        this.maxRecordsPerCall = maxRecordsPerCall;
+        return this;
+    }
+
+    /**
+     * @return the maximum number of records read by one GetRecords call.
+     */
+    public int getMaxRecordsPerCall() {
+        return maxRecordsPerCall;
+    }
+
+    /**
+     * Sets the range of the interval between GetRecords calls on a shard. A
+     * shard is polled at the minimum interval while it is behind the tip of
+     * the stream, and the interval grows towards the maximum while polls come
+     * back empty.
+     *
+     * @param minPollIntervalMillis the interval while catching up.
+     * @param maxPollIntervalMillis the interval of an idle shard.
+     * @return This class for chaining
+     */
+    public KinesisConsumerConfig withPollIntervalMillis(long minPollIntervalMillis,
+            long maxPollIntervalMillis) {
+        if (minPollIntervalMillis <= 0 || maxPollIntervalMillis < minPollIntervalMillis) {
+            throw new IllegalArgumentException(
+                    "Poll intervals must be positive and the maximum no less than the minimum");
+        }
+        this.minPollIntervalMillis = minPollIntervalMillis;
+        this.maxPollIntervalMillis = maxPollIntervalMillis;
+        return this;
+    }
+
+    /**
+     * @return the interval between GetRecords calls while catching up.
+     */
+    public long getMinPollIntervalMillis() {
+        return minPollIntervalMillis;
+    }
+
+    /**
+     * @return the interval between GetRecords calls on an idle shard.
+     */
+    public long getMaxPollIntervalMillis() {
+        return maxPollIntervalMillis;
+    }
+
+    /**
+     * Sets how often the shards of the stream are listed to pick up shards
+     * created by splits and merges. Shards are also listed whenever a shard
+     * ends.
+     *
+     * @param shardSyncIntervalMillis the interval between shard listings.
+     * @return This class for chaining
+     */
+    public KinesisConsumerConfig withShardSyncIntervalMillis(long shardSyncIntervalMillis) {
+        if (shardSyncIntervalMillis <= 0) {
+            throw new IllegalArgumentException("shardSyncIntervalMillis must be positive");
+        }
+        this.shardSyncIntervalMillis = shardSyncIntervalMillis;
+        return this;
+    }
+
+    /**
+     * @return the interval between shard listings.
+     */
+    public long getShardSyncIntervalMillis() {
+        return shardSyncIntervalMillis;
+    }
+
+    /**
+     * Sets how many batches of a shard are read ahead of the one being
+     * processed.
+     *
+     * @param maxPrefetchedBatches the number of batches read ahead.
+     * @return This class for chaining
+     */
+    public KinesisConsumerConfig withMaxPrefetchedBatches(int maxPrefetchedBatches) {
+        if (maxPrefetchedBatches <= 0) {
+            throw new IllegalArgumentException("maxPrefetchedBatches must be positive");
+        }
+        this.maxPrefetchedBatches = maxPrefetchedBatches;
+        return this;
+    }
+
+    /**
+     * @return how many batches of a shard are read ahead.
+     */
+    public int getMaxPrefetchedBatches() {
+        return maxPrefetchedBatches;
+    }
+
+    /**
+     * Sets where to start reading a shard that has no checkpoint yet, either
+     * {@link ShardIteratorType#LATEST} or
+     * {@link ShardIteratorType#TRIM_HORIZON}. Shards created by a split or a
+     * merge are always read from the start once their parents are done.
+     *
+     * @param initialPosition the position to start at.
+     * @return This class for chaining
+     */
+    public KinesisConsumerConfig withInitialPosition(ShardIteratorType initialPosition) {
+        if (initialPosition != ShardIteratorType.LATEST
+                && initialPosition != ShardIteratorType.TRIM_HORIZON) {
+            throw new IllegalArgumentException("initialPosition must be LATEST or TRIM_HORIZON");
+        }
+        this.initialPosition = initialPosition;
+        return this;
+    }
+
+    /**
+     * @return where to start reading a shard that has no checkpoint yet.
+     */
+    public ShardIteratorType getInitialPosition() {
+        return initialPosition;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisconsumer;
+
+import com.amazonaws.services.kinesis.model.Record;
+
+import java.util.List;
+
+/**
+ * Processes the records a {@link KinesisConsumer} reads from a stream.
+ * <p>
+ * Batches of one shard are delivered in order and never concurrently, while
+ * batches of different shards may be delivered concurrently on different
+ * threads. A batch is checkpointed once this method returns, so records are
+ * delivered at least once: a batch that was being processed when the consumer
+ * stopped is delivered again after a restart.
+ */
+public interface RecordProcessor {
+
+    /**
+     * Processes a batch of records. If this method throws, the same batch is
+     * delivered again after the maximum poll interval.
+     *
+     * @param shardId the shard the records were read from.
+     * @param records the records, in sequence number order; never empty.
+     * @throws Exception if the batch could not be processed.
+     */
+    void processRecords(String shardId, List<Record> records) throws Exception;
+}
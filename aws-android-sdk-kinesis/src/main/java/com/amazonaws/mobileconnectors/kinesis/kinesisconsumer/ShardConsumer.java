@@ -0,0 +1,287 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisconsumer;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+import com.amazonaws.services.kinesis.AmazonKinesis;
+import com.amazonaws.services.kinesis.model.ExpiredIteratorException;
+import com.amazonaws.services.kinesis.model.GetRecordsRequest;
+import com.amazonaws.services.kinesis.model.GetRecordsResult;
+import com.amazonaws.services.kinesis.model.GetShardIteratorRequest;
+import com.amazonaws.services.kinesis.model.ProvisionedThroughputExceededException;
+import com.amazonaws.services.kinesis.model.Record;
+import com.amazonaws.services.kinesis.model.ShardIteratorType;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads one shard. A poll task reads batches ahead into a bounded queue while
+ * a process task hands them to the {@link RecordProcessor} one at a time and
+ * checkpoints them, so reading the next batch overlaps processing the current
+ * one. Both run as short tasks on the executor shared by all shards.
+ */
+class ShardConsumer {
+
+    private static final Log LOGGER = LogFactory.getLog(ShardConsumer.class);
+
+    /** A batch read from the shard; the last one has {@code end} set. */
+    private static final class Batch {
+        private final List<Record> records;
+        private final boolean end;
+
+        Batch(List<Record> records, boolean end) {
+            this.records = records;
+            this.end = end;
+        }
+    }
+
+    private final KinesisConsumer owner;
+    private final AmazonKinesis client;
+    private final String streamName;
+    private final String shardId;
+    private final ShardIteratorType initialPosition;
+    private final KinesisConsumerConfig config;
+    private final FileCheckpointStore checkpointStore;
+    private final RecordProcessor processor;
+    private final ScheduledExecutorService executor;
+
+    private final Runnable pollTask = new Runnable() {
+        @Override
+        public void run() {
+            poll();
+        }
+    };
+    private final Runnable processTask = new Runnable() {
+        @Override
+        public void run() {
+            process();
+        }
+    };
+
+    /** Touched by the poll task only, which never runs concurrently. */
+    private String shardIterator;
+    private String lastReadSequenceNumber;
+    private long pollIntervalMillis;
+
+    /** Guarded by this. */
+    private final Queue<Batch> batches = new ArrayDeque<Batch>();
+    private boolean polling;
+    private boolean processing;
+    private boolean endRead;
+    private volatile boolean shutdown;
+
+    ShardConsumer(KinesisConsumer owner, AmazonKinesis client, String streamName, String shardId,
+            ShardIteratorType initialPosition, KinesisConsumerConfig config,
+            FileCheckpointStore checkpointStore, RecordProcessor processor,
+            ScheduledExecutorService executor) {
+        this.owner = owner;
+        this.client = client;
+        this.streamName = streamName;
+        this.shardId = shardId;
+        this.initialPosition = initialPosition;
+        this.config = config;
+        this.checkpointStore = checkpointStore;
+        this.processor = processor;
+        this.executor = executor;
+        this.pollIntervalMillis = config.getMinPollIntervalMillis();
+    }
+
+    String getShardId() {
+        return shardId;
+    }
+
+    synchronized void start() {
+        polling = true;
+        schedule(pollTask, 0);
+    }
+
+    /**
+     * Stops polling and processing after the tasks in progress.
+     */
+    void shutdown() {
+        shutdown = true;
+    }
+
+    private void poll() {
+        if (shutdown) {
+            return;
+        }
+        long delayMillis;
+        try {
+            if (shardIterator == null) {
+                shardIterator = getShardIterator();
+            }
+            final GetRecordsResult result = client.getRecords(new GetRecordsRequest()
+                    .withShardIterator(shardIterator)
+                    .withLimit(config.getMaxRecordsPerCall()));
+            shardIterator = result.getNextShardIterator();
+            final List<Record> records = result.getRecords() == null
+                    ? Collections.<Record> emptyList() : result.getRecords();
+            if (!records.isEmpty()) {
+                lastReadSequenceNumber = records.get(records.size() - 1).getSequenceNumber();
+            }
+            delayMillis = adjustPollInterval(records.isEmpty(), result.getMillisBehindLatest());
+
+            final boolean end = shardIterator == null;
+            if (!records.isEmpty() || end) {
+                if (!enqueue(new Batch(records, end))) {
+                    // the queue is full, process() resumes polling
+                    return;
+                }
+            }
+            if (end) {
+                return;
+            }
+        } catch (final ExpiredIteratorException e) {
+            LOGGER.debug("Shard iterator of " + shardId + " expired, getting a new one");
+            shardIterator = null;
+            delayMillis = config.getMinPollIntervalMillis();
+        } catch (final ProvisionedThroughputExceededException e) {
+            LOGGER.debug("Reads of " + shardId + " throttled, backing off");
+            delayMillis = pollIntervalMillis = config.getMaxPollIntervalMillis();
+        } catch (final AmazonClientException e) {
+            LOGGER.warn("Unable to read records of " + shardId + ", retrying", e);
+            delayMillis = config.getMaxPollIntervalMillis();
+        }
+        schedule(pollTask, delayMillis);
+    }
+
+    private String getShardIterator() {
+        final GetShardIteratorRequest request = new GetShardIteratorRequest()
+                .withStreamName(streamName)
+                .withShardId(shardId);
+        String after = lastReadSequenceNumber;
+        if (after == null) {
+            after = checkpointStore.getCheckpoint(shardId);
+        }
+        if (after != null) {
+            request.withShardIteratorType(ShardIteratorType.AFTER_SEQUENCE_NUMBER)
+                    .withStartingSequenceNumber(after);
+        } else {
+            request.withShardIteratorType(initialPosition);
+        }
+        return client.getShardIterator(request).getShardIterator();
+    }
+
+    /**
+     * Polls as fast as allowed while the shard is behind the tip of the
+     * stream, and backs off exponentially while it is idle.
+     */
+    private long adjustPollInterval(boolean empty, Long millisBehindLatest) {
+        final long min = config.getMinPollIntervalMillis();
+        final long max = config.getMaxPollIntervalMillis();
+        if (millisBehindLatest != null && millisBehindLatest > 0 && !empty) {
+            pollIntervalMillis = min;
+        } else if (empty) {
+            pollIntervalMillis = Math.min(max, pollIntervalMillis * 2);
+        } else {
+            pollIntervalMillis = Math.max(min, pollIntervalMillis / 2);
+        }
+        return pollIntervalMillis;
+    }
+
+    /**
+     * @return false if polling should pause because the queue is full.
+     */
+    private synchronized boolean enqueue(Batch batch) {
+        batches.add(batch);
+        if (batch.end) {
+            endRead = true;
+        }
+        if (!processing) {
+            processing = true;
+            schedule(processTask, 0);
+        }
+        if (batch.end || batches.size() >= config.getMaxPrefetchedBatches()) {
+            polling = false;
+            return false;
+        }
+        return true;
+    }
+
+    private void process() {
+        if (shutdown) {
+            return;
+        }
+        final Batch batch;
+        synchronized (this) {
+            batch = batches.peek();
+            if (batch == null) {
+                processing = false;
+                return;
+            }
+        }
+
+        if (!batch.records.isEmpty()) {
+            try {
+                processor.processRecords(shardId, batch.records);
+            } catch (final Exception e) {
+                LOGGER.warn("Record processor failed on " + shardId + ", retrying the batch", e);
+                schedule(processTask, config.getMaxPollIntervalMillis());
+                return;
+            }
+        }
+        try {
+            if (batch.end) {
+                checkpointStore.markShardEnded(shardId);
+            } else {
+                checkpointStore.checkpoint(shardId,
+                        batch.records.get(batch.records.size() - 1).getSequenceNumber());
+            }
+        } catch (final IOException e) {
+            LOGGER.warn("Unable to checkpoint " + shardId, e);
+        }
+
+        if (batch.end) {
+            owner.onShardEnded(this);
+            return;
+        }
+        synchronized (this) {
+            batches.remove();
+            if (!polling && !endRead) {
+                polling = true;
+                schedule(pollTask, 0);
+            }
+            if (batches.isEmpty()) {
+                processing = false;
+                return;
+            }
+        }
+        // yield the thread to other shards between batches
+        schedule(processTask, 0);
+    }
+
+    private void schedule(Runnable task, long delayMillis) {
+        if (shutdown) {
+            return;
+        }
+        try {
+            executor.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (final RejectedExecutionException e) {
+            // the consumer is shutting down
+            shutdown = true;
+        }
+    }
+}
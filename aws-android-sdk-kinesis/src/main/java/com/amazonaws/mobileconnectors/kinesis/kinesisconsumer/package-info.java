@@ -0,0 +1,44 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * A lightweight consumer of Amazon Kinesis streams with local checkpoints.
+ * <p>
+ * KinesisConsumer reads all shards of a stream in parallel, follows splits
+ * and merges, and keeps the position of each shard in a local directory so
+ * that it resumes where it left off after a restart. It suits a single reader
+ * per stream, such as a device following a control stream.
+ * <p>
+ * The following is an example of KinesisConsumer.
+ * <pre>
+ * AmazonKinesisClient client = new AmazonKinesisClient(credentialsProvider);
+ * client.setRegion(Region.getRegion(Regions.US_WEST_2));
+ * KinesisConsumer consumer = new KinesisConsumer(client, &quot;my_stream&quot;,
+ *         new File(context.getFilesDir(), &quot;kinesis_consumer&quot;),
+ *         new RecordProcessor() {
+ *             &#064;Override
+ *             public void processRecords(String shardId, List&lt;Record&gt; records) {
+ *                 for (Record record : records) {
+ *                     handle(record.getData());
+ *                 }
+ *             }
+ *         });
+ * consumer.start();
+ * ...
+ * consumer.shutdown();
+ * </pre>
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisconsumer;
@@ -51,6 +51,11 @@ public class AmazonKinesisClient extends AmazonWebServiceClient implements Amazo
      */
     protected List<JsonErrorUnmarshaller> jsonErrorUnmarshallers;
 
+    /**
+     * Whether data-plane requests are sent in CBOR instead of JSON.
+     */
+    private volatile boolean cborEnabled;
+
     /**
      * Constructs a new client to invoke service methods on AmazonKinesis. A
      * credentials provider chain will be used that searches for credentials in
@@ -303,6 +308,26 @@ public class AmazonKinesisClient extends AmazonWebServiceClient implements Amazo
         init();
     }
 
+    /**
+     * Sets whether PutRecord, PutRecords and GetRecords requests are sent in CBOR, the binary
+     * encoding of JSON, instead of JSON. In CBOR, record data travels as raw
+     * bytes rather than Base64 text, which is a third smaller on the wire and
+     * saves encoding and decoding it. Disabled by default.
+     *
+     * @param cborEnabled true to send PutRecord, PutRecords and GetRecords requests in CBOR.
+     */
+    public void setCborEnabled(boolean cborEnabled) {
+        this.cborEnabled = cborEnabled;
+    }
+
+    /**
+     * @return true if PutRecord, PutRecords and GetRecords requests are sent in CBOR.
+     * @see #setCborEnabled(boolean)
+     */
+    public boolean isCborEnabled() {
+        return cborEnabled;
+    }
+
     private void init() {
         jsonErrorUnmarshallers = new ArrayList<JsonErrorUnmarshaller>();
         jsonErrorUnmarshallers.add(new ExpiredIteratorExceptionUnmarshaller());
@@ -1014,7 +1039,7 @@ public class AmazonKinesisClient extends AmazonWebServiceClient implements Amazo
         try {
             awsRequestMetrics.startEvent(Field.RequestMarshallTime);
             try {
-                request = new GetRecordsRequestMarshaller().marshall(getRecordsRequest);
+                request = new GetRecordsRequestMarshaller(cborEnabled).marshall(getRecordsRequest);
                 // Binds the request metrics to the current request.
                 request.setAWSRequestMetrics(awsRequestMetrics);
             } finally {
@@ -1563,7 +1588,7 @@ public class AmazonKinesisClient extends AmazonWebServiceClient implements Amazo
         try {
             awsRequestMetrics.startEvent(Field.RequestMarshallTime);
             try {
-                request = new PutRecordRequestMarshaller().marshall(putRecordRequest);
+                request = new PutRecordRequestMarshaller(cborEnabled).marshall(putRecordRequest);
                 // Binds the request metrics to the current request.
                 request.setAWSRequestMetrics(awsRequestMetrics);
             } finally {
@@ -1703,7 +1728,7 @@ public class AmazonKinesisClient extends AmazonWebServiceClient implements Amazo
         try {
             awsRequestMetrics.startEvent(Field.RequestMarshallTime);
             try {
-                request = new PutRecordsRequestMarshaller().marshall(putRecordsRequest);
+                request = new PutRecordsRequestMarshaller(cborEnabled).marshall(putRecordsRequest);
                 // Binds the request metrics to the current request.
                 request.setAWSRequestMetrics(awsRequestMetrics);
             } finally {
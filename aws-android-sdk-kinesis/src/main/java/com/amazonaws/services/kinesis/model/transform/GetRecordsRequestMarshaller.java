@@ -40,6 +40,24 @@ import com.amazonaws.util.json.JsonUtils;
 public class GetRecordsRequestMarshaller implements
         Marshaller<Request<GetRecordsRequest>, GetRecordsRequest> {
 
+    private final boolean cbor;
+
+    /**
+     * Creates a marshaller that encodes the request as JSON.
+     */
+    public GetRecordsRequestMarshaller() {
+        this(false);
+    }
+
+    /**
+     * @param cbor true to encode the request as CBOR, so that the records in
+     *            the response carry their data as raw bytes instead of Base64
+     *            text.
+     */
+    public GetRecordsRequestMarshaller(boolean cbor) {
+        this.cbor = cbor;
+    }
+
     public Request<GetRecordsRequest> marshall(GetRecordsRequest getRecordsRequest) {
         if (getRecordsRequest == null) {
             throw new AmazonClientException(
@@ -54,6 +72,10 @@ public class GetRecordsRequestMarshaller implements
 
         String uriResourcePath = "/";
         request.setResourcePath(uriResourcePath);
+        if (cbor) {
+            marshallCbor(getRecordsRequest, request);
+            return request;
+        }
         try {
             StringWriter stringWriter = new StringWriter();
             AwsJsonWriter jsonWriter = JsonUtils.getJsonWriter(stringWriter);
@@ -86,4 +108,34 @@ public class GetRecordsRequestMarshaller implements
 
         return request;
     }
+
+    private void marshallCbor(GetRecordsRequest getRecordsRequest,
+            Request<GetRecordsRequest> request) {
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            AwsJsonWriter cborWriter = JsonUtils.getCborWriter(baos);
+            cborWriter.beginObject();
+
+            if (getRecordsRequest.getShardIterator() != null) {
+                cborWriter.name("ShardIterator");
+                cborWriter.value(getRecordsRequest.getShardIterator());
+            }
+            if (getRecordsRequest.getLimit() != null) {
+                cborWriter.name("Limit");
+                cborWriter.value(getRecordsRequest.getLimit());
+            }
+
+            cborWriter.endObject();
+            cborWriter.close();
+            byte[] content = baos.toByteArray();
+            request.setContent(new ByteArrayInputStream(content));
+            request.addHeader("Content-Length", Integer.toString(content.length));
+        } catch (Throwable t) {
+            throw new AmazonClientException(
+                    "Unable to marshall request to CBOR: " + t.getMessage(), t);
+        }
+        if (!request.getHeaders().containsKey("Content-Type")) {
+            request.addHeader("Content-Type", "application/x-amz-cbor-1.1");
+        }
+    }
 }
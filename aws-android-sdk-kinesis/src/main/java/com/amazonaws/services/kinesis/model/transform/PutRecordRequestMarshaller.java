@@ -16,6 +16,7 @@ package com.amazonaws.services.kinesis.model.transform;
 
 import static com.amazonaws.util.StringUtils.UTF8;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.OutputStreamWriter;
@@ -42,6 +43,23 @@ import com.amazonaws.util.json.JsonUtils;
  */
 public class PutRecordRequestMarshaller implements Marshaller<Request<PutRecordRequest>, PutRecordRequest> {
 
+    private final boolean cbor;
+
+    /**
+     * Creates a marshaller that encodes the request as JSON.
+     */
+    public PutRecordRequestMarshaller() {
+        this(false);
+    }
+
+    /**
+     * @param cbor true to encode the request as CBOR, which carries record
+     *            data as raw bytes instead of Base64 text.
+     */
+    public PutRecordRequestMarshaller(boolean cbor) {
+        this.cbor = cbor;
+    }
+
     public Request<PutRecordRequest> marshall(PutRecordRequest putRecordRequest) {
     if (putRecordRequest == null) {
         throw new AmazonClientException("Invalid argument passed to marshall(...)");
@@ -57,8 +75,9 @@ public class PutRecordRequestMarshaller implements Marshaller<Request<PutRecordR
         try {
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
             GZIPOutputStream gos = new GZIPOutputStream(baos, 8192);
-            Writer writer = new OutputStreamWriter(gos, StringUtils.UTF8);
-            AwsJsonWriter jsonWriter = JsonUtils.getJsonWriter(writer);
+            AwsJsonWriter jsonWriter = cbor
+                    ? JsonUtils.getCborWriter(new BufferedOutputStream(gos))
+                    : JsonUtils.getJsonWriter(new OutputStreamWriter(gos, StringUtils.UTF8));
 
             jsonWriter.beginObject();
             
@@ -81,12 +100,13 @@ public class PutRecordRequestMarshaller implements Marshaller<Request<PutRecordR
             jsonWriter.endObject();
             jsonWriter.flush();
             gos.finish();
-            writer.close();
+            jsonWriter.close();
 
             byte[] content = baos.toByteArray();
             request.setContent(new ByteArrayInputStream(content));
             request.addHeader("Content-Length", Integer.toString(content.length));
-            request.addHeader("Content-Type", "application/x-amz-json-1.1");
+            request.addHeader("Content-Type",
+                    cbor ? "application/x-amz-cbor-1.1" : "application/x-amz-json-1.1");
             request.addHeader("Content-Encoding", "gzip");
         } catch(Throwable t) {
             throw new AmazonClientException("Unable to marshall request to JSON: " + t.getMessage(), t);
@@ -16,6 +16,7 @@
 package com.amazonaws.services.kinesis.model.transform;
 
 import static com.amazonaws.util.StringUtils.UTF8;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.OutputStreamWriter;
@@ -41,6 +42,23 @@ import com.amazonaws.util.json.JsonUtils;
 public class PutRecordsRequestMarshaller implements
         Marshaller<Request<PutRecordsRequest>, PutRecordsRequest> {
 
+    private final boolean cbor;
+
+    /**
+     * Creates a marshaller that encodes the request as JSON.
+     */
+    public PutRecordsRequestMarshaller() {
+        this(false);
+    }
+
+    /**
+     * @param cbor true to encode the request as CBOR, which carries record
+     *            data as raw bytes instead of Base64 text.
+     */
+    public PutRecordsRequestMarshaller(boolean cbor) {
+        this.cbor = cbor;
+    }
+
     public Request<PutRecordsRequest> marshall(PutRecordsRequest putRecordsRequest) {
         if (putRecordsRequest == null) {
             throw new AmazonClientException(
@@ -58,8 +76,9 @@ public class PutRecordsRequestMarshaller implements
         try {
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
             GZIPOutputStream gos = new GZIPOutputStream(baos, 8192);
-            Writer writer = new OutputStreamWriter(gos, StringUtils.UTF8);
-            AwsJsonWriter jsonWriter = JsonUtils.getJsonWriter(writer);
+            AwsJsonWriter jsonWriter = cbor
+                    ? JsonUtils.getCborWriter(new BufferedOutputStream(gos))
+                    : JsonUtils.getJsonWriter(new OutputStreamWriter(gos, StringUtils.UTF8));
             jsonWriter.beginObject();
 
             if (putRecordsRequest.getRecords() != null) {
@@ -83,7 +102,7 @@ public class PutRecordsRequestMarshaller implements
             jsonWriter.endObject();
             jsonWriter.flush();
             gos.finish();
-            writer.close();
+            jsonWriter.close();
 
             byte[] content = baos.toByteArray();
             request.setContent(new ByteArrayInputStream(content));
@@ -94,7 +113,8 @@ public class PutRecordsRequestMarshaller implements
                     "Unable to marshall request to JSON: " + t.getMessage(), t);
         }
         if (!request.getHeaders().containsKey("Content-Type")) {
-            request.addHeader("Content-Type", "application/x-amz-json-1.1");
+            request.addHeader("Content-Type",
+                    cbor ? "application/x-amz-cbor-1.1" : "application/x-amz-json-1.1");
         }
 
         return request;
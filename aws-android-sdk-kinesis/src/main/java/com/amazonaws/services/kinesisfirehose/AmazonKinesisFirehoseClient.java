@@ -54,6 +54,11 @@ public class AmazonKinesisFirehoseClient extends AmazonWebServiceClient implemen
      */
     protected List<JsonErrorUnmarshaller> jsonErrorUnmarshallers;
 
+    /**
+     * Whether data-plane requests are sent in CBOR instead of JSON.
+     */
+    private volatile boolean cborEnabled;
+
     /**
      * Constructs a new client to invoke service methods on
      * AmazonKinesisFirehose. A credentials provider chain will be used that
@@ -335,6 +340,26 @@ public class AmazonKinesisFirehoseClient extends AmazonWebServiceClient implemen
         init();
     }
 
+    /**
+     * Sets whether PutRecordBatch requests are sent in CBOR, the binary
+     * encoding of JSON, instead of JSON. In CBOR, record data travels as raw
+     * bytes rather than Base64 text, which is a third smaller on the wire and
+     * saves encoding and decoding it. Disabled by default.
+     *
+     * @param cborEnabled true to send PutRecordBatch requests in CBOR.
+     */
+    public void setCborEnabled(boolean cborEnabled) {
+        this.cborEnabled = cborEnabled;
+    }
+
+    /**
+     * @return true if PutRecordBatch requests are sent in CBOR.
+     * @see #setCborEnabled(boolean)
+     */
+    public boolean isCborEnabled() {
+        return cborEnabled;
+    }
+
     private void init() {
         jsonErrorUnmarshallers = new ArrayList<JsonErrorUnmarshaller>();
         jsonErrorUnmarshallers.add(new InvalidArgumentExceptionUnmarshaller());
@@ -474,7 +499,7 @@ public class AmazonKinesisFirehoseClient extends AmazonWebServiceClient implemen
         try {
             awsRequestMetrics.startEvent(Field.RequestMarshallTime);
             try {
-                request = new PutRecordBatchRequestMarshaller().marshall(putRecordBatchRequest);
+                request = new PutRecordBatchRequestMarshaller(cborEnabled).marshall(putRecordBatchRequest);
                 // Binds the request metrics to the current request.
                 request.setAWSRequestMetrics(awsRequestMetrics);
             } finally {
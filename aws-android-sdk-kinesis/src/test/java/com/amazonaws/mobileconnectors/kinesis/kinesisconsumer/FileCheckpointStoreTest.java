@@ -0,0 +1,69 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisconsumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+
+public class FileCheckpointStoreTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testCheckpointsSurviveReopen() throws Exception {
+        final File file = new File(temp.getRoot(), "stream.checkpoints");
+        FileCheckpointStore store = new FileCheckpointStore(file);
+        assertNull(store.getCheckpoint("shard-1"));
+        assertFalse(file.exists());
+
+        store.checkpoint("shard-1", "100");
+        store.checkpoint("shard-1", "200");
+        store.markShardEnded("shard-2");
+
+        store = new FileCheckpointStore(file);
+        assertEquals("200", store.getCheckpoint("shard-1"));
+        assertFalse(store.isShardEnded("shard-1"));
+        assertNull(store.getCheckpoint("shard-2"));
+        assertTrue(store.isShardEnded("shard-2"));
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void testRetainAll() throws Exception {
+        final File file = new File(temp.getRoot(), "stream.checkpoints");
+        FileCheckpointStore store = new FileCheckpointStore(file);
+        store.checkpoint("shard-1", "100");
+        store.markShardEnded("shard-2");
+        store.checkpoint("shard-3", "300");
+
+        store.retainAll(Arrays.asList("shard-2", "shard-3"));
+
+        store = new FileCheckpointStore(file);
+        assertNull(store.getCheckpoint("shard-1"));
+        assertTrue(store.isShardEnded("shard-2"));
+        assertEquals("300", store.getCheckpoint("shard-3"));
+    }
+}
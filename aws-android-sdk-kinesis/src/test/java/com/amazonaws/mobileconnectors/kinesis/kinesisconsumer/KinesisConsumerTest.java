@@ -0,0 +1,284 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisconsumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.logging.LogFactory;
+import com.amazonaws.services.kinesis.AmazonKinesis;
+import com.amazonaws.services.kinesis.model.GetRecordsRequest;
+import com.amazonaws.services.kinesis.model.GetRecordsResult;
+import com.amazonaws.services.kinesis.model.GetShardIteratorRequest;
+import com.amazonaws.services.kinesis.model.GetShardIteratorResult;
+import com.amazonaws.services.kinesis.model.ListShardsRequest;
+import com.amazonaws.services.kinesis.model.ListShardsResult;
+import com.amazonaws.services.kinesis.model.ProvisionedThroughputExceededException;
+import com.amazonaws.services.kinesis.model.Record;
+import com.amazonaws.services.kinesis.model.Shard;
+import com.amazonaws.services.kinesis.model.ShardIteratorType;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class KinesisConsumerTest {
+
+    private static final String STREAM_NAME = "stream";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private AmazonKinesis client;
+    private File directory;
+    /** Records of each shard; a shard is open while it is in openShards. */
+    private final Map<String, List<String>> shardRecords = new HashMap<String, List<String>>();
+    private final Map<String, Boolean> openShards = new ConcurrentHashMap<String, Boolean>();
+    private final Map<String, ShardIteratorType> iteratorTypes =
+            new ConcurrentHashMap<String, ShardIteratorType>();
+    private List<Shard> shards;
+
+    @Before
+    public void setup() {
+        // create the logger on the test thread, so that it logs to the console
+        LogFactory.getLog(ShardConsumer.class);
+        directory = temp.getRoot();
+        client = mock(AmazonKinesis.class);
+        when(client.listShards(any(ListShardsRequest.class))).thenAnswer(new Answer<ListShardsResult>() {
+            @Override
+            public ListShardsResult answer(InvocationOnMock invocation) {
+                return new ListShardsResult().withShards(shards);
+            }
+        });
+        when(client.getShardIterator(any(GetShardIteratorRequest.class))).thenAnswer(
+                new Answer<GetShardIteratorResult>() {
+                    @Override
+                    public GetShardIteratorResult answer(InvocationOnMock invocation) {
+                        final GetShardIteratorRequest request =
+                                (GetShardIteratorRequest) invocation.getArguments()[0];
+                        iteratorTypes.put(request.getShardId(),
+                                ShardIteratorType.fromValue(request.getShardIteratorType()));
+                        final int position = request.getStartingSequenceNumber() == null
+                                ? 0 : Integer.parseInt(request.getStartingSequenceNumber()) + 1;
+                        return new GetShardIteratorResult()
+                                .withShardIterator(request.getShardId() + ":" + position);
+                    }
+                });
+        when(client.getRecords(any(GetRecordsRequest.class))).thenAnswer(new Answer<GetRecordsResult>() {
+            @Override
+            public GetRecordsResult answer(InvocationOnMock invocation) {
+                final GetRecordsRequest request = (GetRecordsRequest) invocation.getArguments()[0];
+                final String[] iterator = request.getShardIterator().split(":");
+                final String shardId = iterator[0];
+                final int position = Integer.parseInt(iterator[1]);
+                final List<String> data = shardRecords.get(shardId);
+                final int end = Math.min(data.size(), position + request.getLimit());
+                final List<Record> records = new ArrayList<Record>();
+                for (int i = position; i < end; i++) {
+                    records.add(new Record().withSequenceNumber(String.valueOf(i))
+                            .withPartitionKey(data.get(i)));
+                }
+                final boolean open = openShards.containsKey(shardId);
+                return new GetRecordsResult()
+                        .withRecords(records)
+                        .withMillisBehindLatest(end < data.size() ? 1000L : 0L)
+                        .withNextShardIterator(!open && end == data.size()
+                                ? null : shardId + ":" + end);
+            }
+        });
+    }
+
+    private static Shard shard(String id, String parent, String adjacentParent) {
+        return new Shard().withShardId(id).withParentShardId(parent)
+                .withAdjacentParentShardId(adjacentParent);
+    }
+
+    private static List<String> records(String prefix, int count) {
+        final List<String> records = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            records.add(prefix + i);
+        }
+        return records;
+    }
+
+    private KinesisConsumerConfig config() {
+        return new KinesisConsumerConfig()
+                .withPollIntervalMillis(1, 5)
+                .withMaxRecordsPerCall(3)
+                .withInitialPosition(ShardIteratorType.TRIM_HORIZON);
+    }
+
+    /** Collects records per shard and counts down when all are seen. */
+    private static final class CollectingProcessor implements RecordProcessor {
+        private final Map<String, List<String>> received = new HashMap<String, List<String>>();
+        private final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        private final CountDownLatch latch;
+
+        CollectingProcessor(int expected) {
+            latch = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void processRecords(String shardId, List<Record> records) {
+            synchronized (received) {
+                List<String> list = received.get(shardId);
+                if (list == null) {
+                    list = new ArrayList<String>();
+                    received.put(shardId, list);
+                }
+                for (final Record record : records) {
+                    list.add(record.getPartitionKey());
+                    order.add(record.getPartitionKey());
+                    latch.countDown();
+                }
+            }
+        }
+
+        List<String> get(String shardId) {
+            synchronized (received) {
+                return received.get(shardId);
+            }
+        }
+    }
+
+    @Test
+    public void testConsumesShardsInParallelAndFollowsSplit() throws Exception {
+        // shard-0 split into shard-1 and shard-2; shard-3 is unrelated
+        shards = new ArrayList<Shard>();
+        shards.add(shard("shard-0", null, null));
+        shards.add(shard("shard-1", "shard-0", null));
+        shards.add(shard("shard-2", "shard-0", null));
+        shards.add(shard("shard-3", null, null));
+        shardRecords.put("shard-0", records("a", 10));
+        shardRecords.put("shard-1", records("b", 4));
+        shardRecords.put("shard-2", records("c", 5));
+        shardRecords.put("shard-3", records("d", 7));
+        openShards.put("shard-1", true);
+        openShards.put("shard-2", true);
+        openShards.put("shard-3", true);
+
+        final CollectingProcessor processor = new CollectingProcessor(26);
+        final KinesisConsumer consumer = new KinesisConsumer(client, STREAM_NAME, directory,
+                processor, config());
+        consumer.start();
+        assertTrue(processor.latch.await(10, TimeUnit.SECONDS));
+        consumer.shutdown();
+        assertTrue(consumer.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(shardRecords.get("shard-0"), processor.get("shard-0"));
+        assertEquals(shardRecords.get("shard-1"), processor.get("shard-1"));
+        assertEquals(shardRecords.get("shard-2"), processor.get("shard-2"));
+        assertEquals(shardRecords.get("shard-3"), processor.get("shard-3"));
+        // children are read from their start, after their parent
+        assertTrue(processor.order.indexOf("a9") < processor.order.indexOf("b0"));
+        assertTrue(processor.order.indexOf("a9") < processor.order.indexOf("c0"));
+        assertEquals(ShardIteratorType.TRIM_HORIZON, iteratorTypes.get("shard-1"));
+
+        final FileCheckpointStore store = new FileCheckpointStore(
+                new File(directory, STREAM_NAME + ".checkpoints"));
+        assertTrue(store.isShardEnded("shard-0"));
+        assertEquals("3", store.getCheckpoint("shard-1"));
+        assertEquals("6", store.getCheckpoint("shard-3"));
+    }
+
+    @Test
+    public void testResumesFromCheckpoint() throws Exception {
+        shards = Collections.singletonList(shard("shard-0", null, null));
+        shardRecords.put("shard-0", records("a", 10));
+        openShards.put("shard-0", true);
+        new FileCheckpointStore(new File(directory, STREAM_NAME + ".checkpoints"))
+                .checkpoint("shard-0", "5");
+
+        final CollectingProcessor processor = new CollectingProcessor(4);
+        final KinesisConsumer consumer = new KinesisConsumer(client, STREAM_NAME, directory,
+                processor, config());
+        consumer.start();
+        assertTrue(processor.latch.await(10, TimeUnit.SECONDS));
+        consumer.shutdown();
+
+        assertEquals(shardRecords.get("shard-0").subList(6, 10), processor.get("shard-0"));
+        assertEquals(ShardIteratorType.AFTER_SEQUENCE_NUMBER, iteratorTypes.get("shard-0"));
+    }
+
+    @Test
+    public void testRetriesFailedBatchAndThrottledReads() throws Exception {
+        shards = Collections.singletonList(shard("shard-0", null, null));
+        shardRecords.put("shard-0", records("a", 3));
+        openShards.put("shard-0", true);
+        doThrow(new ProvisionedThroughputExceededException("slow down"))
+                .doAnswer(new Answer<GetRecordsResult>() {
+                    @Override
+                    public GetRecordsResult answer(InvocationOnMock invocation) {
+                        final GetRecordsRequest request =
+                                (GetRecordsRequest) invocation.getArguments()[0];
+                        final boolean first = request.getShardIterator().endsWith(":0");
+                        final List<Record> records = new ArrayList<Record>();
+                        if (first) {
+                            for (int i = 0; i < 3; i++) {
+                                records.add(new Record().withSequenceNumber(String.valueOf(i))
+                                        .withPartitionKey("a" + i));
+                            }
+                        }
+                        return new GetRecordsResult().withRecords(records)
+                                .withMillisBehindLatest(0L)
+                                .withNextShardIterator("shard-0:3");
+                    }
+                }).when(client).getRecords(any(GetRecordsRequest.class));
+
+        final CountDownLatch delivered = new CountDownLatch(1);
+        final AtomicInteger attempts = new AtomicInteger();
+        final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+        final RecordProcessor processor = new RecordProcessor() {
+            @Override
+            public void processRecords(String shardId, List<Record> records) throws Exception {
+                if (attempts.incrementAndGet() == 1) {
+                    throw new Exception("transient failure");
+                }
+                for (final Record record : records) {
+                    received.add(record.getPartitionKey());
+                }
+                delivered.countDown();
+            }
+        };
+        final KinesisConsumer consumer = new KinesisConsumer(client, STREAM_NAME, directory,
+                processor, config());
+        consumer.start();
+        assertTrue(delivered.await(10, TimeUnit.SECONDS));
+        consumer.shutdown();
+        assertTrue(consumer.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(shardRecords.get("shard-0"), received);
+        assertEquals(2, attempts.get());
+    }
+}
@@ -23,11 +23,11 @@ import com.amazonaws.kinesisvideo.common.preconditions.Preconditions;
 import com.amazonaws.kinesisvideo.encoding.ChunkEncoder;
 import com.amazonaws.kinesisvideo.http.ParallelSimpleHttpClient;
 import com.amazonaws.kinesisvideo.signing.KinesisVideoSigner;
+import com.amazonaws.kinesisvideo.stream.throttling.AckObservingInputStream;
+import com.amazonaws.kinesisvideo.stream.throttling.AdaptivePacer;
 import com.amazonaws.kinesisvideo.stream.throttling.BandwidthMeasuringOutputStream;
-import com.amazonaws.kinesisvideo.stream.throttling.BandwidthThrottledOutputStream;
-import com.amazonaws.kinesisvideo.stream.throttling.BandwidthThrottler;
-import com.amazonaws.kinesisvideo.stream.throttling.BandwidthThrottlerImpl;
 import com.amazonaws.kinesisvideo.stream.throttling.OpsPerSecondMeasurer;
+import com.amazonaws.kinesisvideo.stream.throttling.PacedOutputStream;
 import com.amazonaws.kinesisvideo.util.VersionUtil;
 
 import static com.amazonaws.kinesisvideo.common.preconditions.Preconditions.checkNotNull;
@@ -48,6 +48,7 @@ import java.util.Map;
 public final class PutMediaClient {
     private static final double BYTES_IN_MB = 1024.0 * 1024.0;
     private static final long BITS_IN_A_KILOBIT = 1024L;
+    private static final long DEFAULT_MAX_ACK_LATENCY_MILLIS = 5000L;
     private static final String STREAM_NAME_HEADER = "x-amzn-stream-name";
     private static final String FRAGMENT_TIME_CODE_TYPE_HEADER = "x-amzn-fragment-timecode-type";
     private static final String PRODUCER_START_TIMESTAMP_HEADER = "x-amzn-producer-start-timestamp";
@@ -73,14 +74,49 @@ public final class PutMediaClient {
     }
 
     public void putMediaInBackground() {
-        putMediaWithSender(sendChunkEncodedMvkStream(0));
+        putMediaWithPacing(0);
     }
 
+    /**
+     * Puts media paced to the rate the connection and the service keep up with, instead of sleeping a fixed time
+     * after every chunk.
+     *
+     * @param sleepTime the longest time in milliseconds to wait before sending a chunk.
+     */
     public void putMediaInBackgroundWithSleep(final int sleepTime) {
-        putMediaWithSender(sendChunkEncodedMvkStream(sleepTime));
+        putMediaWithPacing(sleepTime);
     }
 
-    private void putMediaWithSender(final Consumer<OutputStream> sender) {
+    private void putMediaWithPacing(final int maxPacingWait) {
+        final AdaptivePacer pacer = createPacer(maxPacingWait);
+        putMediaWithSender(sendChunkEncodedMvkStream(pacer), receiveAcks(pacer));
+    }
+
+    /**
+     * Creates the pacer for the upload, or returns null if the upload is neither limited nor paced.
+     */
+    private AdaptivePacer createPacer(final int maxPacingWait) {
+        if (mBuilder.upstreamKbps == null && maxPacingWait <= 0) {
+            return null;
+        }
+        final long maxBytesPerSecond = mBuilder.upstreamKbps == null
+                ? 0 : mBuilder.upstreamKbps * BITS_IN_A_KILOBIT / Byte.SIZE;
+        return new AdaptivePacer(maxBytesPerSecond, mBuilder.mMaxAckLatencyMillis, Math.max(maxPacingWait, 0));
+    }
+
+    private Consumer<InputStream> receiveAcks(final AdaptivePacer pacer) {
+        if (pacer == null) {
+            return mBuilder.mAcksReceiver;
+        }
+        return new Consumer<InputStream>() {
+            @Override
+            public void accept(final InputStream ackStream) {
+                mBuilder.mAcksReceiver.accept(new AckObservingInputStream(ackStream, pacer));
+            }
+        };
+    }
+
+    private void putMediaWithSender(final Consumer<OutputStream> sender, final Consumer<InputStream> acksReceiver) {
         final ParallelSimpleHttpClient.Builder clientBuilder = ParallelSimpleHttpClient.builder()
             .uri(mBuilder.mUri).method(POST)
             .log(log)
@@ -88,7 +124,7 @@ public final class PutMediaClient {
             .header(TRANSFER_ENCODING, CHUNKED)
             .header(CONNECTION, KEEP_ALIVE)
             .header(USER_AGENT, VersionUtil.getUserAgent());
-        clientBuilder.setReceiverCallback(mBuilder.mAcksReceiver);
+        clientBuilder.setReceiverCallback(acksReceiver);
         clientBuilder.header(PRODUCER_START_TIMESTAMP_HEADER,
                              String.format(Locale.US, "%.3f", mBuilder.mTimestamp / MILLI_TO_SEC));
         clientBuilder.header(FRAGMENT_TIME_CODE_TYPE_HEADER, mBuilder.mFragmentTimecodeType);
@@ -118,20 +154,23 @@ public final class PutMediaClient {
         }
     }
 
-    private Consumer<OutputStream> sendChunkEncodedMvkStream(final int fragmentThrottle) {
+    private Consumer<OutputStream> sendChunkEncodedMvkStream(final AdaptivePacer pacer) {
         return new Consumer<OutputStream>() {
             @Override
             public void accept(final OutputStream rawOutputStream) {
                 FileOutputStream outputFileStream = null;
                 try {
-                    final OutputStream throttledOutputStream = throttleAndMeasureOutput(rawOutputStream);
+                    final OutputStream throttledOutputStream = throttleAndMeasureOutput(rawOutputStream, pacer);
                     outputFileStream = createOutputFileStream();
-                    final byte[] buffer = new byte[BUFFER_SIZE];
+                    // Reserve room around the payload for the chunk framing so that each chunk is written
+                    // straight from this buffer.
+                    final byte[] buffer =
+                            new byte[ChunkEncoder.MAX_HEADER_SIZE + BUFFER_SIZE + ChunkEncoder.TRAILER_SIZE];
                     int mkvBytesRead;
                     long counter = 0;
                     boolean continueLoop = true;
                     while (continueLoop) {
-                        mkvBytesRead = mBuilder.mMkvStream.read(buffer);
+                        mkvBytesRead = mBuilder.mMkvStream.read(buffer, ChunkEncoder.MAX_HEADER_SIZE, BUFFER_SIZE);
                         counter++;
                         if (counter % LOGGING_INTERVAL == 0) {
                             log.debug("Sending data, counter : " + counter);
@@ -140,14 +179,11 @@ public final class PutMediaClient {
                             log.info("End-of-stream is reported. Terminating...");
                             continueLoop = false;
                         } else {
-                            throttledOutputStream.write(ChunkEncoder.encode(buffer, mkvBytesRead));
-                            tryWriteToFile(outputFileStream, buffer, mkvBytesRead);
-                            if (fragmentThrottle > 0) {
-                                Thread.sleep(fragmentThrottle);
-                            }
+                            ChunkEncoder.writeChunk(throttledOutputStream, buffer, mkvBytesRead);
+                            tryWriteToFile(outputFileStream, buffer, ChunkEncoder.MAX_HEADER_SIZE, mkvBytesRead);
                         }
                     }
-                    throttledOutputStream.write(ChunkEncoder.encode(buffer, 0));
+                    ChunkEncoder.writeChunk(throttledOutputStream, buffer, 0);
                     rawOutputStream.flush();
                     log.debug("Data sent. counter : " + counter);
                 } catch (final Exception e) {
@@ -160,19 +196,13 @@ public final class PutMediaClient {
         };
     }
 
-    private OutputStream throttleAndMeasureOutput(final OutputStream rawOutputStream) {
-        final OutputStream throttledOutputStream = throttleStream(rawOutputStream);
+    private OutputStream throttleAndMeasureOutput(final OutputStream rawOutputStream, final AdaptivePacer pacer) {
+        final OutputStream throttledOutputStream = pacer == null
+                ? rawOutputStream
+                : new PacedOutputStream(rawOutputStream, pacer);
         return mBuilder.mLogUsedBandwidth ? logBytesPerSecond(throttledOutputStream) : throttledOutputStream;
     }
 
-    private OutputStream throttleStream(final OutputStream rawOutputStream) {
-        if (mBuilder.upstreamKbps != null) {
-            final BandwidthThrottler throttler = new BandwidthThrottlerImpl(mBuilder.upstreamKbps * BITS_IN_A_KILOBIT);
-            return new BandwidthThrottledOutputStream(rawOutputStream, throttler);
-        }
-        return rawOutputStream;
-    }
-
     private OutputStream logBytesPerSecond(final OutputStream outputStream) {
         final OpsPerSecondMeasurer bandwidthMeasurer = new OpsPerSecondMeasurer(logBytesPerSecond());
         return new BandwidthMeasuringOutputStream(outputStream, bandwidthMeasurer);
@@ -196,12 +226,13 @@ public final class PutMediaClient {
         }
     }
 
-    private void tryWriteToFile(final FileOutputStream fileOutputStream, final byte[] buffer, final int bytesToWrite) {
+    private void tryWriteToFile(final FileOutputStream fileOutputStream, final byte[] buffer, final int offset,
+                                final int bytesToWrite) {
         if (fileOutputStream == null) {
             return;
         }
         try {
-            fileOutputStream.write(buffer, 0, bytesToWrite);
+            fileOutputStream.write(buffer, offset, bytesToWrite);
             fileOutputStream.flush();
         } catch (final IOException e) {
             e.printStackTrace();
@@ -236,6 +267,7 @@ public final class PutMediaClient {
         private boolean mLogUsedBandwidth;
         private String mFileOutputPath;
         private Long upstreamKbps;
+        private long mMaxAckLatencyMillis = DEFAULT_MAX_ACK_LATENCY_MILLIS;
         private Consumer<Exception> mCompletion;
         // TODO: Set to correct output channel
         private Log mLog = new Log(Log.SYSTEM_OUT);
@@ -306,6 +338,14 @@ public final class PutMediaClient {
             return this;
         }
 
+        /**
+         * Sets how long a paced upload may go without receiving an ACK before it lowers its send rate.
+         */
+        public Builder maxAckLatencyMillis(final long maxAckLatencyMillis) {
+            mMaxAckLatencyMillis = maxAckLatencyMillis;
+            return this;
+        }
+
         public Builder log(final Log log) {
             mLog = Preconditions.checkNotNull(log);
             return this;
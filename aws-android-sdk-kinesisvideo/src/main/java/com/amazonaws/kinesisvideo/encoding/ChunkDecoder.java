@@ -36,6 +36,9 @@ public final class ChunkDecoder {
     private static final int BUFFER_SIZE = 4 * 1024;
     private static final String LINE_DELIMITER = "\r\n";
     private static final String PAYLOAD_DELIMITER = "\r\n\r\n";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final byte[] LINE_DELIMITER_BYTES = LINE_DELIMITER.getBytes(UTF8);
+    private static final byte[] PAYLOAD_DELIMITER_BYTES = PAYLOAD_DELIMITER.getBytes(UTF8);
     // TODO: Set to correct output channel
     private static final Log LOG = new Log(Log.SYSTEM_OUT);
 
@@ -53,7 +56,7 @@ public final class ChunkDecoder {
 
         try {
             final String headersAsString =
-                    readInputStream(inputStream, PAYLOAD_DELIMITER.getBytes(Charset.forName("UTF-8")));
+                    readInputStream(inputStream, PAYLOAD_DELIMITER_BYTES);
             for (final String line : headersAsString.split(LINE_DELIMITER)) {
                 headerParts = line.split(":", 2);
                 if (headerParts.length == 2) {
@@ -73,7 +76,7 @@ public final class ChunkDecoder {
 
     private static ResponseStatus parseStatusLine(final InputStream inputStream) {
         try {
-            final String statusLine = readInputStream(inputStream, LINE_DELIMITER.getBytes(Charset.forName("UTF-8")));
+            final String statusLine = readInputStream(inputStream, LINE_DELIMITER_BYTES);
             final String[] statusLineArray = statusLine.split("\\s");
 
             return ResponseStatus
@@ -102,15 +105,34 @@ public final class ChunkDecoder {
         return builder.toString();
     }
 
+    /**
+     * Reads up to and including the delimiter. Reads one byte at a time so that nothing after the delimiter is
+     * consumed; callers reading from a socket should pass a buffered stream and keep reading from it.
+     */
     private static String readInputStream(final InputStream inputStream, final byte[] delimiter)
             throws IOException {
 
         final byte[] buffer = new byte[BUFFER_SIZE];
-        int result = 0, offset = 0;
+        int result, offset = 0;
         do {
-            result = inputStream.read(buffer, offset++, 1);
-        } while (result > -1 && arrayIndexOf(buffer, 0, offset, delimiter) == -1);
-        return new String(buffer, 0 , offset, Charset.forName("UTF-8"));
+            result = inputStream.read();
+            if (result > -1) {
+                buffer[offset++] = (byte) result;
+            }
+        } while (result > -1 && !endsWith(buffer, offset, delimiter));
+        return new String(buffer, 0, offset, UTF8);
+    }
+
+    private static boolean endsWith(final byte[] buffer, final int length, final byte[] suffix) {
+        if (length < suffix.length) {
+            return false;
+        }
+        for (int i = 0; i < suffix.length; i++) {
+            if (buffer[length - suffix.length + i] != suffix[i]) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public static int arrayIndexOf(final byte[] haystack, final int tail, final int head, final byte[] needle) {
@@ -192,13 +214,16 @@ public final class ChunkDecoder {
 
             // Parse chunk data
             LOG.debug("Chunk size: " + line);
+            char[] buff = new char[MAX_BUFFER_BYTES];
             do {
                 chunkSize = Integer.parseInt(line.trim(), HEX_RADIX);
                 if (chunkSize == 0) {
                     break;
                 }
 
-                final char[] buff = new char[MAX_BUFFER_BYTES];
+                if (buff.length < chunkSize + 2) {
+                    buff = new char[chunkSize + 2];
+                }
                 offset = 0;
                 do {
                     numBytesRead = reader.read(buff, offset, chunkSize + 2 - offset);
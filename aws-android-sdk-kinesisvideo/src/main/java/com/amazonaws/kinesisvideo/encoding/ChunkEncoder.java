@@ -17,43 +17,94 @@
 
 package com.amazonaws.kinesisvideo.encoding;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 
 public final class ChunkEncoder {
+    /**
+     * Space to reserve in front of a payload for its chunk header: the chunk size as up to 8 hex digits and CRLF.
+     */
+    public static final int MAX_HEADER_SIZE = 10;
+
+    /**
+     * Space to reserve after a payload for the CRLF ending the chunk.
+     */
+    public static final int TRAILER_SIZE = 2;
+
+    private static final int HEX_RADIX = 16;
+    private static final int HEX_DIGIT_BITS = 4;
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
 
     public static byte[] encode(final byte[] bytes, final int count) {
-        try {
-            final ByteArrayOutputStream writer = new ByteArrayOutputStream();
+        final int headerSize = hexDigits(count) + TRAILER_SIZE;
+        final byte[] chunk = new byte[headerSize + count + TRAILER_SIZE];
+        writeHeader(chunk, headerSize, count);
+        System.arraycopy(bytes, 0, chunk, headerSize, count);
+        writeCRLF(chunk, headerSize + count);
+        return chunk;
+    }
 
-            writeChunkSize(writer, count);
-            writeCRLF(writer);
-            writePayload(writer, bytes, count);
-            writeCRLF(writer);
+    /**
+     * Writes a chunk whose payload was read into the buffer at offset {@link #MAX_HEADER_SIZE}, leaving
+     * {@link #TRAILER_SIZE} bytes free after it. The header and trailer are written around the payload in the buffer,
+     * so the whole chunk goes out in a single write without copying the payload.
+     *
+     * @param outputStream the stream to write the chunk to.
+     * @param buffer the buffer holding the payload.
+     * @param count the size of the payload.
+     * @throws IOException if writing fails.
+     */
+    public static void writeChunk(final OutputStream outputStream, final byte[] buffer, final int count)
+            throws IOException {
+        final int start = frame(buffer, count);
+        outputStream.write(buffer, start, chunkLength(start, count));
+    }
 
-            return writer.toByteArray();
-        } catch (final Throwable e) {
-            throw new RuntimeException("Exception while encoding chunks ! ", e);
+    /**
+     * Writes the chunk header in front of the payload and CRLF after it.
+     *
+     * @return the offset at which the chunk starts.
+     */
+    private static int frame(final byte[] buffer, final int count) {
+        if (count < 0 || MAX_HEADER_SIZE + count + TRAILER_SIZE > buffer.length) {
+            throw new IllegalArgumentException("No room for the chunk framing of " + count + " bytes");
         }
+        writeCRLF(buffer, MAX_HEADER_SIZE + count);
+        return writeHeader(buffer, MAX_HEADER_SIZE, count);
     }
 
-    private static void writeChunkSize(final OutputStream socketWrite, final int count) throws Exception {
-        final String hexCount = Integer.toHexString(count);
-        socketWrite.write(hexCount.getBytes(StandardCharsets.US_ASCII));
+    /**
+     * Writes the chunk size in hex and CRLF so that they end at the given offset.
+     *
+     * @return the offset at which the header starts.
+     */
+    private static int writeHeader(final byte[] buffer, final int end, final int count) {
+        int position = end - TRAILER_SIZE;
+        writeCRLF(buffer, position);
+        int remaining = count;
+        do {
+            buffer[--position] = HEX_DIGITS[remaining % HEX_RADIX];
+            remaining >>>= HEX_DIGIT_BITS;
+        } while (remaining != 0);
+        return position;
     }
 
-    private static void writeCRLF(final OutputStream socketWrite) throws Exception {
-        socketWrite.write('\r');
-        socketWrite.write('\n');
+    private static void writeCRLF(final byte[] buffer, final int offset) {
+        buffer[offset] = '\r';
+        buffer[offset + 1] = '\n';
     }
 
-    private static void writePayload(
-            final OutputStream socketWrite,
-            final byte[] payloadBytes,
-            final int count) throws Exception {
+    private static int hexDigits(final int count) {
+        int digits = 1;
+        for (int remaining = count >>> HEX_DIGIT_BITS; remaining != 0; remaining >>>= HEX_DIGIT_BITS) {
+            digits++;
+        }
+        return digits;
+    }
 
-        socketWrite.write(payloadBytes, 0, count);
+    private static int chunkLength(final int start, final int count) {
+        return MAX_HEADER_SIZE - start + count + TRAILER_SIZE;
     }
 
     private ChunkEncoder() { }
@@ -31,11 +31,14 @@ import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import com.amazonaws.kinesisvideo.common.function.Consumer;
 import com.amazonaws.kinesisvideo.common.logging.Log;
 import com.amazonaws.kinesisvideo.socket.SocketFactory;
+import com.amazonaws.util.HandOffExecutors;
 
 import androidx.annotation.NonNull;
 
@@ -45,6 +48,20 @@ public final class ParallelSimpleHttpClient implements HttpClient {
     private static final String HTTP_1_1 = "HTTP/1.1";
     private static final String HEADER_FORMAT = "%s: %s";
     private static final String HOST_HEADER = "Host";
+    /**
+     * Maximum number of I/O threads, two per session.
+     */
+    static final int MAX_IO_THREADS = 16;
+    private static final long IO_THREAD_KEEP_ALIVE_SECONDS = 60;
+
+    /**
+     * Runs the sending and receiving sides of all clients. Each side blocks on its socket for the whole session, so a
+     * session never waits for a thread: idle threads are reused, for instance when a stream restarts, and a session
+     * started while all {@link #MAX_IO_THREADS} threads are busy fails to start.
+     */
+    private static final ExecutorService IO_EXECUTOR = HandOffExecutors.newDaemonPool("kvs-http-io-",
+            MAX_IO_THREADS, IO_THREAD_KEEP_ALIVE_SECONDS, new ThreadPoolExecutor.AbortPolicy());
+
     private final Log log;
 
     private static final Consumer<OutputStream> NO_OP_SENDER = new Consumer<OutputStream>() {
@@ -133,8 +150,8 @@ public final class ParallelSimpleHttpClient implements HttpClient {
     private Socket mSocket;
     private InputStream mInputStream;
     private OutputStream mOutputStream;
-    private ExecutorService payloadSender;
-    private ExecutorService responseReceiver;
+    private volatile Future<?> payloadSender;
+    private volatile Future<?> responseReceiver;
 
     private ParallelSimpleHttpClient(final Builder builder) {
             mBuilder = builder;
@@ -176,8 +193,15 @@ public final class ParallelSimpleHttpClient implements HttpClient {
 
     private void startCommunication() throws Exception {
         sendInitRequest();
-        sendPayloadInBackground();
-        receiveResponseInBackground();
+        try {
+            sendPayloadInBackground();
+            receiveResponseInBackground();
+        } catch (final RejectedExecutionException e) {
+            // Too many sessions: don't leave half of this one running.
+            cancel(payloadSender);
+            closeSocket();
+            throw e;
+        }
     }
 
     private void sendInitRequest() throws Exception {
@@ -240,8 +264,7 @@ public final class ParallelSimpleHttpClient implements HttpClient {
 
     private void sendPayloadInBackground() {
         if (mBuilder.mSender != null) {
-            payloadSender = Executors.newFixedThreadPool(1);
-            payloadSender.execute(
+            payloadSender = IO_EXECUTOR.submit(
                     new Runnable() {
                         @Override
                         public void run() {
@@ -258,7 +281,6 @@ public final class ParallelSimpleHttpClient implements HttpClient {
                                 if (storedException != null) {
                                     mBuilder.mCompletion.accept(storedException);
                                 }
-                                payloadSender.shutdownNow();
                             }
                         }
                     });
@@ -267,8 +289,7 @@ public final class ParallelSimpleHttpClient implements HttpClient {
 
     private void receiveResponseInBackground() {
         if (mBuilder.mReceiver != null) {
-            responseReceiver = Executors.newFixedThreadPool(1);
-            responseReceiver.execute(
+            responseReceiver = IO_EXECUTOR.submit(
                     new Runnable() {
                         @Override
                         public void run() {
@@ -282,7 +303,6 @@ public final class ParallelSimpleHttpClient implements HttpClient {
                                 storedException = e;
                             } finally {
                                 mBuilder.mCompletion.accept(storedException);
-                                responseReceiver.shutdownNow();
                                 closeSocket();
                             }
                         }
@@ -305,9 +325,15 @@ public final class ParallelSimpleHttpClient implements HttpClient {
 
     @Override
     public void close() throws IOException {
-        payloadSender.shutdownNow();
-        responseReceiver.shutdownNow();
+        cancel(payloadSender);
+        cancel(responseReceiver);
         closeSocket();
         mBuilder.mCompletion.accept(null);
     }
+
+    private static void cancel(final Future<?> task) {
+        if (task != null) {
+            task.cancel(true);
+        }
+    }
 }
@@ -31,6 +31,7 @@ import androidx.annotation.NonNull;
 
 import static com.amazonaws.kinesisvideo.common.preconditions.Preconditions.checkNotNull;
 
+import java.io.BufferedInputStream;
 import java.io.InputStream;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -41,6 +42,7 @@ class BlockingAckConsumer implements Consumer<InputStream> {
     private static final int HTTP_BAD_REQUEST = 400;
     private static final int HTTP_NOT_FOUND = 404;
     private static final int HTTP_ACCESS_DENIED = 403;
+    private static final int RESPONSE_BUFFER_SIZE = 4 * 1024;
     private final Consumer<InputStream> inputStreamConsumer;
     private final CountDownLatch responseLatch;
     private Exception storedException;
@@ -56,8 +58,12 @@ class BlockingAckConsumer implements Consumer<InputStream> {
     }
 
     @Override
-    public void accept(final @NonNull InputStream inputStream) {
-        checkNotNull(inputStream);
+    public void accept(final @NonNull InputStream rawInputStream) {
+        checkNotNull(rawInputStream);
+
+        // The status line and headers are parsed a byte at a time. Buffer the socket stream so that doesn't cost a
+        // read from the socket per byte, and hand the same buffered stream on to read the acks.
+        final InputStream inputStream = new BufferedInputStream(rawInputStream, RESPONSE_BUFFER_SIZE);
 
         // Await for the header
         try {
@@ -33,6 +33,12 @@ public class SocketFactory {
     private static final int DEFAULT_HTTPS_PORT = 443;
     private static final KeyManager[] NO_KEY_MANAGERS = null;
 
+    /**
+     * Shared by all sockets so that its TLS session cache lets a reconnect to the same endpoint, such as a PutMedia
+     * session restarting after an error, resume the previous session instead of running a full handshake.
+     */
+    private static SSLContext sslContext;
+
     public Socket createSocket(final URI uri) {
         try {
             return openSocket(uri);
@@ -51,11 +57,17 @@ public class SocketFactory {
     }
 
     private Socket createSslSocket(final InetAddress address, final int port) throws Exception {
-        final SSLContext context = SSLContext.getInstance("TLSv1.2");
-        context.init(NO_KEY_MANAGERS, new X509ExtendedTrustManager[] {
-                                new HostnameVerifyingX509ExtendedTrustManager(true)}, new SecureRandom());
-        return context.getSocketFactory().createSocket(address, port);
+        return getSslContext().getSocketFactory().createSocket(address, port);
+    }
 
+    private static synchronized SSLContext getSslContext() throws Exception {
+        if (sslContext == null) {
+            final SSLContext context = SSLContext.getInstance("TLSv1.2");
+            context.init(NO_KEY_MANAGERS, new X509ExtendedTrustManager[] {
+                                    new HostnameVerifyingX509ExtendedTrustManager(true)}, new SecureRandom());
+            sslContext = context;
+        }
+        return sslContext;
     }
 
     private boolean isHttps(final URI uri) {
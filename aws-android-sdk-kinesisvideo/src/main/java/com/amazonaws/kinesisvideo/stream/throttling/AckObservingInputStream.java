@@ -0,0 +1,78 @@
+/**
+ * Copyright 2017-2018 Amazon.com,
+ * Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Amazon Software License (the "License").
+ * You may not use this file except in compliance with the
+ * License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/asl/
+ *
+ * or in the "license" file accompanying this file. This file is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, express or implied. See the License
+ * for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.kinesisvideo.stream.throttling;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An input stream of the PutMedia response that tells an {@link AdaptivePacer} whenever ACK data arrives.
+ * <p>
+ * The stream starts with the HTTP status line and headers, which the service sends before any data is acknowledged,
+ * so only bytes after the blank line ending the headers count as ACKs.
+ */
+public class AckObservingInputStream extends FilterInputStream {
+    private static final byte[] END_OF_HEADERS = {'\r', '\n', '\r', '\n'};
+
+    private final AdaptivePacer pacer;
+    private int endOfHeadersMatched;
+
+    // This is so that we don't have to allocate it all the time. Just one byte!
+    private final byte[] oneByteBuffer = new byte[1];
+
+    public AckObservingInputStream(final InputStream ackStream, final AdaptivePacer pacer) {
+        super(ackStream);
+        this.pacer = pacer;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int result = super.read();
+        if (result >= 0) {
+            oneByteBuffer[0] = (byte) result;
+            observe(oneByteBuffer, 0, 1);
+        }
+        return result;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        final int result = super.read(b, off, len);
+        if (result > 0) {
+            observe(b, off, result);
+        }
+        return result;
+    }
+
+    private void observe(final byte[] b, final int off, final int len) {
+        int bodyStart = off;
+        final int end = off + len;
+        while (endOfHeadersMatched < END_OF_HEADERS.length && bodyStart < end) {
+            if (b[bodyStart] == END_OF_HEADERS[endOfHeadersMatched]) {
+                endOfHeadersMatched++;
+            } else {
+                endOfHeadersMatched = b[bodyStart] == END_OF_HEADERS[0] ? 1 : 0;
+            }
+            bodyStart++;
+        }
+        if (bodyStart < end) {
+            pacer.onAckReceived();
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/**
+ * Copyright 2017-2018 Amazon.com,
+ * Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Amazon Software License (the "License").
+ * You may not use this file except in compliance with the
+ * License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/asl/
+ *
+ * or in the "license" file accompanying this file. This file is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, express or implied. See the License
+ * for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.kinesisvideo.stream.throttling;
+
+import static com.amazonaws.kinesisvideo.common.preconditions.Preconditions.checkArgument;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces an upload to the rate the connection and the service keep up with.
+ * <p>
+ * The send rate is cut by a quarter when a write blocks for longer than the bytes should have taken at the current
+ * rate, meaning the socket send buffer is full, or when no ACK has been received for longer than the latency bound
+ * since data was sent. It is raised gradually again while writes complete promptly and ACKs keep arriving, up to the
+ * configured maximum. Without a maximum, data is sent without waiting until the first sign of pressure, so fast links
+ * never sleep idle.
+ * <p>
+ * The sending thread calls {@link #awaitSendPermit(int)} and {@link #onBytesWritten(int, long)} around each write; the
+ * thread reading ACKs calls {@link #onAckReceived()}.
+ */
+public class AdaptivePacer {
+    private static final long NANOS_IN_A_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final double UNLIMITED = Double.POSITIVE_INFINITY;
+    private static final double MIN_BYTES_PER_SECOND = 8 * 1024;
+    private static final double DECREASE_FACTOR = 0.75;
+    private static final double INCREASE_FRACTION = 0.05;
+    /**
+     * Writes shorter than this are never taken as back-pressure, as they are within scheduling noise.
+     */
+    private static final long MIN_BLOCKED_WRITE_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    /**
+     * How far the schedule may fall behind before unused send time is dropped, bounding bursts after a pause.
+     */
+    private static final long MAX_BURST_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * Time source of the pacer, replaced in tests.
+     */
+    interface Clock {
+        long nanoTime();
+
+        void sleepNanos(long nanos) throws InterruptedException;
+    }
+
+    private static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+
+        @Override
+        public void sleepNanos(final long nanos) throws InterruptedException {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        }
+    };
+
+    private final Clock mClock;
+    private final double mMaxBytesPerSecond;
+    private final long mMaxAckLatencyNanos;
+    private final long mMaxWaitNanos;
+
+    private double mBytesPerSecond;
+    private boolean mScheduled;
+    private long mNextSendNanos;
+    private boolean mUnacked;
+    private long mUnackedSinceNanos;
+    private boolean mDecreased;
+    private long mLastDecreaseNanos;
+    private boolean mAckReceived;
+    private boolean mWindowStarted;
+    private long mWindowStartNanos;
+    private long mWindowBytes;
+
+    /**
+     * @param maxBytesPerSecond the highest rate to send at, or 0 for no limit.
+     * @param maxAckLatencyMillis the longest time data may go without an ACK before the rate is lowered.
+     * @param maxWaitMillis the longest a single write waits for its turn, or 0 for no limit.
+     */
+    public AdaptivePacer(final long maxBytesPerSecond, final long maxAckLatencyMillis, final long maxWaitMillis) {
+        this(maxBytesPerSecond, maxAckLatencyMillis, maxWaitMillis, SYSTEM_CLOCK);
+    }
+
+    AdaptivePacer(final long maxBytesPerSecond, final long maxAckLatencyMillis, final long maxWaitMillis,
+                  final Clock clock) {
+        checkArgument(maxBytesPerSecond >= 0, "Maximum rate cannot be negative");
+        checkArgument(maxAckLatencyMillis > 0, "ACK latency bound must be positive");
+        checkArgument(maxWaitMillis >= 0, "Maximum wait cannot be negative");
+        mMaxBytesPerSecond = maxBytesPerSecond > 0 ? maxBytesPerSecond : UNLIMITED;
+        mMaxAckLatencyNanos = TimeUnit.MILLISECONDS.toNanos(maxAckLatencyMillis);
+        mMaxWaitNanos = maxWaitMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(maxWaitMillis) : Long.MAX_VALUE;
+        mBytesPerSecond = mMaxBytesPerSecond;
+        mClock = clock;
+    }
+
+    /**
+     * Blocks until the given number of bytes may be sent at the current rate.
+     *
+     * @param bytes the number of bytes about to be written.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public void awaitSendPermit(final int bytes) throws InterruptedException {
+        final long waitNanos = reserve(bytes, mClock.nanoTime());
+        if (waitNanos > 0) {
+            mClock.sleepNanos(waitNanos);
+        }
+    }
+
+    /**
+     * Records a completed write.
+     *
+     * @param bytes the number of bytes written.
+     * @param elapsedNanos how long the write took.
+     */
+    public synchronized void onBytesWritten(final int bytes, final long elapsedNanos) {
+        final long now = mClock.nanoTime();
+        if (!mUnacked) {
+            mUnacked = true;
+            mUnackedSinceNanos = now;
+        }
+        if (bytes <= 0) {
+            return;
+        }
+        if (!mWindowStarted || now - mWindowStartNanos > mMaxAckLatencyNanos) {
+            mWindowStarted = true;
+            mWindowStartNanos = now - elapsedNanos;
+            mWindowBytes = 0;
+        }
+        mWindowBytes += bytes;
+
+        final double expectedNanos = mBytesPerSecond == UNLIMITED
+                ? 0 : bytes * NANOS_IN_A_SECOND / mBytesPerSecond;
+        if (elapsedNanos > MIN_BLOCKED_WRITE_NANOS && elapsedNanos > expectedNanos) {
+            // The write blocked: the connection is slower than the current rate.
+            decrease((double) bytes * NANOS_IN_A_SECOND / elapsedNanos, now);
+        } else if (!isAckOverdue(now)) {
+            increase();
+        }
+    }
+
+    /**
+     * Records that an ACK was received for data sent so far.
+     */
+    public synchronized void onAckReceived() {
+        mAckReceived = true;
+        mUnacked = false;
+    }
+
+    /**
+     * @return the current send rate in bytes per second, or {@link Long#MAX_VALUE} while sending unpaced.
+     */
+    public synchronized long getBytesPerSecond() {
+        return mBytesPerSecond == UNLIMITED ? Long.MAX_VALUE : (long) mBytesPerSecond;
+    }
+
+    /**
+     * @return the current time of the pacer's clock, for timing writes.
+     */
+    long nanoTime() {
+        return mClock.nanoTime();
+    }
+
+    private synchronized long reserve(final int bytes, final long now) {
+        if (isAckOverdue(now) && (!mDecreased || now - mLastDecreaseNanos > mMaxAckLatencyNanos)) {
+            // The service is falling behind what has been sent, back off once per latency period.
+            decrease(getObservedBytesPerSecond(now), now);
+        }
+        if (mBytesPerSecond == UNLIMITED) {
+            return 0;
+        }
+
+        if (!mScheduled || now - mNextSendNanos > MAX_BURST_NANOS) {
+            mScheduled = true;
+            mNextSendNanos = now - MAX_BURST_NANOS;
+        }
+        final long sendAt = Math.max(now, mNextSendNanos);
+        mNextSendNanos = sendAt + (long) (bytes * NANOS_IN_A_SECOND / mBytesPerSecond);
+        return Math.min(sendAt - now, mMaxWaitNanos);
+    }
+
+    private double getObservedBytesPerSecond(final long now) {
+        final long elapsedNanos = now - mWindowStartNanos;
+        return !mWindowStarted || elapsedNanos <= 0
+                ? mBytesPerSecond : (double) mWindowBytes * NANOS_IN_A_SECOND / elapsedNanos;
+    }
+
+    private boolean isAckOverdue(final long now) {
+        return mAckReceived && mUnacked && now - mUnackedSinceNanos > mMaxAckLatencyNanos;
+    }
+
+    private void decrease(final double observedBytesPerSecond, final long now) {
+        final double current = Math.min(mBytesPerSecond, observedBytesPerSecond);
+        if (current == UNLIMITED) {
+            return;
+        }
+        mBytesPerSecond = Math.max(MIN_BYTES_PER_SECOND, current * DECREASE_FACTOR);
+        mDecreased = true;
+        mLastDecreaseNanos = now;
+    }
+
+    private void increase() {
+        if (mBytesPerSecond == UNLIMITED) {
+            return;
+        }
+        final double increased = mBytesPerSecond * (1 + INCREASE_FRACTION);
+        mBytesPerSecond = increased >= mMaxBytesPerSecond ? mMaxBytesPerSecond : increased;
+    }
+}
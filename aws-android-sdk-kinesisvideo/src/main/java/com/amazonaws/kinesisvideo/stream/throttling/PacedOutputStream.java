@@ -0,0 +1,73 @@
+/**
+ * Copyright 2017-2018 Amazon.com,
+ * Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Amazon Software License (the "License").
+ * You may not use this file except in compliance with the
+ * License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/asl/
+ *
+ * or in the "license" file accompanying this file. This file is
+ * distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, express or implied. See the License
+ * for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.kinesisvideo.stream.throttling;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+/**
+ * An output stream that is paced by an {@link AdaptivePacer}. Each write waits for its turn and reports how long it
+ * took, so that the pacer can tell when the connection pushes back.
+ */
+public class PacedOutputStream extends OutputStream {
+    private final OutputStream outputStream;
+    private final AdaptivePacer pacer;
+
+    // This is so that we don't have to allocate it all the time. Just one byte!
+    private final byte[] oneByteBuffer = new byte[1];
+
+    public PacedOutputStream(final OutputStream outputStream, final AdaptivePacer pacer) {
+        this.outputStream = outputStream;
+        this.pacer = pacer;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        oneByteBuffer[0] = (byte) b;
+        write(oneByteBuffer, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] b) throws IOException {
+        write(b, 0, b.length);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        try {
+            pacer.awaitSendPermit(len);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while pacing the upload");
+        }
+        final long start = pacer.nanoTime();
+        outputStream.write(b, off, len);
+        pacer.onBytesWritten(len, pacer.nanoTime() - start);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        outputStream.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        outputStream.close();
+    }
+}
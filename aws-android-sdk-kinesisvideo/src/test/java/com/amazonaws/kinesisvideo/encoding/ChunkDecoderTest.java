@@ -0,0 +1,21 @@
+package com.amazonaws.kinesisvideo.encoding;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+public class ChunkDecoderTest {
+
+    @Test
+    public void readStatusLineAndHeadersLeavesBodyInStream() {
+        final ByteArrayInputStream input = new ByteArrayInputStream(
+                "HTTP/1.1 200 OK\r\nx-amzn-RequestId: id\r\n\r\nack".getBytes(StandardCharsets.US_ASCII));
+
+        assertEquals(200, ChunkDecoder.readStatusLine(input).getStatusCode());
+        assertEquals("id", ChunkDecoder.decodeHeaders(input).get("x-amzn-RequestId"));
+        assertEquals('a', input.read());
+    }
+}
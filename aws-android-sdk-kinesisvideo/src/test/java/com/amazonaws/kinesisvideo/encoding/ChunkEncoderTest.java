@@ -0,0 +1,41 @@
+package com.amazonaws.kinesisvideo.encoding;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+public class ChunkEncoderTest {
+
+    private static byte[] ascii(final String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void encodeFramesPayload() {
+        assertArrayEquals(ascii("3\r\nabc\r\n"), ChunkEncoder.encode(ascii("abcdef"), 3));
+        assertArrayEquals(ascii("0\r\n\r\n"), ChunkEncoder.encode(new byte[0], 0));
+    }
+
+    @Test
+    public void writeChunkFramesPayloadInPlace() throws Exception {
+        final byte[] payload = new byte[0x1a2b];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) i;
+        }
+        final byte[] buffer = new byte[ChunkEncoder.MAX_HEADER_SIZE + payload.length + ChunkEncoder.TRAILER_SIZE];
+        System.arraycopy(payload, 0, buffer, ChunkEncoder.MAX_HEADER_SIZE, payload.length);
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ChunkEncoder.writeChunk(output, buffer, payload.length);
+
+        assertArrayEquals(ChunkEncoder.encode(payload, payload.length), output.toByteArray());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void writeChunkRejectsBufferWithoutRoomForFraming() throws Exception {
+        ChunkEncoder.writeChunk(new ByteArrayOutputStream(), new byte[4], 4);
+    }
+}
@@ -0,0 +1,204 @@
+package com.amazonaws.kinesisvideo.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.kinesisvideo.common.function.Consumer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ParallelSimpleHttpClientTest {
+    private static final String RESPONSE = "HTTP/1.1 200 OK\r\n\r\n{}";
+
+    private ServerSocket server;
+    private URI uri;
+    private final List<Socket> accepted = new ArrayList<Socket>();
+
+    @Before
+    public void setup() throws IOException {
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        uri = URI.create("http://127.0.0.1:" + server.getLocalPort() + "/putMedia");
+    }
+
+    @After
+    public void teardown() throws IOException {
+        for (final Socket socket : accepted) {
+            socket.close();
+        }
+        server.close();
+    }
+
+    @Test
+    public void headersPrecedePayloadAndResponseIsReceived() throws Exception {
+        final AtomicReference<String> response = new AtomicReference<String>();
+        final AtomicReference<Exception> completion = new AtomicReference<Exception>();
+        final CountDownLatch completed = new CountDownLatch(1);
+
+        final ParallelSimpleHttpClient client = ParallelSimpleHttpClient.builder()
+                .uri(uri)
+                .method(HttpMethodName.POST)
+                .header("x-amzn-stream-name", "stream")
+                .setSenderCallback(new Consumer<OutputStream>() {
+                    @Override
+                    public void accept(final OutputStream out) {
+                        try {
+                            out.write("chunk-1;".getBytes("UTF-8"));
+                            out.write("chunk-2;".getBytes("UTF-8"));
+                            out.flush();
+                        } catch (final IOException e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                })
+                .setReceiverCallback(new Consumer<InputStream>() {
+                    @Override
+                    public void accept(final InputStream in) {
+                        response.set(readAll(in));
+                    }
+                })
+                .completionCallback(new Consumer<Exception>() {
+                    @Override
+                    public void accept(final Exception e) {
+                        completion.set(e);
+                        completed.countDown();
+                    }
+                })
+                .build();
+        client.connectAndProcessInBackground();
+
+        final Socket socket = accept();
+        final String payload = "chunk-1;chunk-2;";
+        final String request = readUntilSuffix(socket.getInputStream(), payload);
+        socket.getOutputStream().write(RESPONSE.getBytes("UTF-8"));
+        socket.shutdownOutput();
+
+        assertTrue(completed.await(10, TimeUnit.SECONDS));
+        assertNull(completion.get());
+        assertEquals(RESPONSE, response.get());
+
+        assertTrue(request, request.startsWith("POST /putMedia HTTP/1.1\r\n"));
+        final int headersEnd = request.indexOf("\r\n\r\n");
+        assertTrue(request, headersEnd > 0);
+        assertTrue(request, request.substring(0, headersEnd).contains("\r\nx-amzn-stream-name: stream"));
+        assertTrue(request, request.substring(0, headersEnd).contains("\r\nHost: 127.0.0.1"));
+        assertEquals(payload, request.substring(headersEnd + 4));
+    }
+
+    @Test
+    public void sessionBeyondThePoolBoundFailsAndClosesItsSocket() throws Exception {
+        final int sessions = ParallelSimpleHttpClient.MAX_IO_THREADS / 2;
+        final CountDownLatch sending = new CountDownLatch(sessions);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch completed = new CountDownLatch(sessions);
+
+        for (int i = 0; i < sessions; i++) {
+            blockingClient(sending, release, completed).connectAndProcessInBackground();
+            accept();
+        }
+        // Every I/O thread is now busy with a sender or a receiver.
+        assertTrue(sending.await(10, TimeUnit.SECONDS));
+
+        try {
+            blockingClient(sending, release, completed).connectAndProcessInBackground();
+            fail("Expected the session to be rejected");
+        } catch (final RuntimeException expected) {
+            assertTrue(expected.getCause() instanceof RejectedExecutionException);
+        }
+        // The rejected session sent its request and closed the connection.
+        final InputStream rejected = accept().getInputStream();
+        assertTrue(readAll(rejected).startsWith("POST /putMedia HTTP/1.1\r\n"));
+
+        // Ending the sessions frees their threads for new ones.
+        release.countDown();
+        for (final Socket socket : accepted) {
+            socket.close();
+        }
+        assertTrue(completed.await(10, TimeUnit.SECONDS));
+    }
+
+    private ParallelSimpleHttpClient blockingClient(final CountDownLatch sending,
+                                                    final CountDownLatch release,
+                                                    final CountDownLatch completed) {
+        return ParallelSimpleHttpClient.builder()
+                .uri(uri)
+                .method(HttpMethodName.POST)
+                .setSenderCallback(new Consumer<OutputStream>() {
+                    @Override
+                    public void accept(final OutputStream out) {
+                        sending.countDown();
+                        try {
+                            release.await();
+                        } catch (final InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                })
+                .setReceiverCallback(new Consumer<InputStream>() {
+                    @Override
+                    public void accept(final InputStream in) {
+                        readAll(in);
+                    }
+                })
+                .completionCallback(new Consumer<Exception>() {
+                    @Override
+                    public void accept(final Exception e) {
+                        completed.countDown();
+                    }
+                })
+                .build();
+    }
+
+    private Socket accept() throws IOException {
+        server.setSoTimeout(10000);
+        final Socket socket = server.accept();
+        socket.setSoTimeout(10000);
+        accepted.add(socket);
+        return socket;
+    }
+
+    private static String readUntilSuffix(final InputStream in, final String suffix) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        while (!bytes.toString("UTF-8").endsWith(suffix)) {
+            final int read = in.read();
+            if (read == -1) {
+                break;
+            }
+            bytes.write(read);
+        }
+        return bytes.toString("UTF-8");
+    }
+
+    private static String readAll(final InputStream in) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[256];
+        try {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            return bytes.toString("UTF-8");
+        } catch (final IOException e) {
+            // The socket was closed under the reader.
+            return null;
+        }
+    }
+}
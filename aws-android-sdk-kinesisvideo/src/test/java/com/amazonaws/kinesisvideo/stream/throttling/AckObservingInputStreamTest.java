@@ -0,0 +1,89 @@
+package com.amazonaws.kinesisvideo.stream.throttling;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class AckObservingInputStreamTest {
+
+    private static final String HEADERS = "HTTP/1.1 200 OK\r\nContent-Type: application/json\r\n"
+            + "Transfer-Encoding: chunked\r\n\r\n";
+    private static final String ACK = "3a\r\n{\"EventType\":\"RECEIVED\",\"FragmentTimecode\":0}\r\n";
+
+    @Test
+    public void headersAreNotAcks() throws IOException {
+        final CountingPacer pacer = new CountingPacer();
+        final InputStream in = new AckObservingInputStream(stream(HEADERS), pacer);
+        drain(in, 1024);
+        assertEquals(0, pacer.acks);
+    }
+
+    @Test
+    public void bodyAfterHeadersInTheSameReadIsAnAck() throws IOException {
+        final CountingPacer pacer = new CountingPacer();
+        final InputStream in = new AckObservingInputStream(stream(HEADERS + ACK), pacer);
+        drain(in, 1024);
+        assertEquals(1, pacer.acks);
+    }
+
+    @Test
+    public void headersSplitAcrossReadsAreNotAcks() throws IOException {
+        final CountingPacer pacer = new CountingPacer();
+        final InputStream in = new AckObservingInputStream(stream(HEADERS + ACK), pacer);
+        // Byte by byte, the blank line ending the headers spans four reads.
+        for (int i = 0; i < HEADERS.length(); i++) {
+            in.read();
+        }
+        assertEquals(0, pacer.acks);
+        in.read();
+        assertEquals(1, pacer.acks);
+    }
+
+    @Test
+    public void everyBodyReadIsAnAck() throws IOException {
+        final CountingPacer pacer = new CountingPacer();
+        final InputStream in = new AckObservingInputStream(stream(HEADERS + ACK + ACK), pacer);
+        final byte[] headers = new byte[HEADERS.length()];
+        assertEquals(headers.length, in.read(headers, 0, headers.length));
+        assertEquals(0, pacer.acks);
+        drain(in, ACK.length());
+        assertEquals(2, pacer.acks);
+    }
+
+    @Test
+    public void lineBreaksWithinHeadersDoNotEndThem() throws IOException {
+        final CountingPacer pacer = new CountingPacer();
+        final InputStream in = new AckObservingInputStream(stream("HTTP/1.1 200 OK\r\n\r\r\nX: y\r\n"), pacer);
+        drain(in, 1024);
+        assertEquals(0, pacer.acks);
+    }
+
+    private static InputStream stream(final String content) {
+        return new ByteArrayInputStream(content.getBytes());
+    }
+
+    private static void drain(final InputStream in, final int readSize) throws IOException {
+        final byte[] buffer = new byte[readSize];
+        while (in.read(buffer, 0, readSize) != -1) {
+            // keep reading
+        }
+    }
+
+    private static final class CountingPacer extends AdaptivePacer {
+        private int acks;
+
+        CountingPacer() {
+            super(0, 1000, 0);
+        }
+
+        @Override
+        public synchronized void onAckReceived() {
+            acks++;
+            super.onAckReceived();
+        }
+    }
+}
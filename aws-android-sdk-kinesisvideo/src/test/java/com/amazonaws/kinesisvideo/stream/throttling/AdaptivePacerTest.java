@@ -0,0 +1,132 @@
+package com.amazonaws.kinesisvideo.stream.throttling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class AdaptivePacerTest {
+
+    private static final long MAX_BYTES_PER_SECOND = 1024 * 1024;
+    private static final long MAX_ACK_LATENCY_MILLIS = 1000;
+
+    private final FakeClock clock = new FakeClock();
+
+    @Test
+    public void unlimitedPacerDoesNotWaitWithoutPressure() throws Exception {
+        final AdaptivePacer pacer = new AdaptivePacer(0, MAX_ACK_LATENCY_MILLIS, 0, clock);
+        for (int i = 0; i < 1000; i++) {
+            pacer.awaitSendPermit(64 * 1024);
+            pacer.onBytesWritten(64 * 1024, 0);
+        }
+        assertEquals(0, clock.sleptNanos);
+        assertEquals(Long.MAX_VALUE, pacer.getBytesPerSecond());
+    }
+
+    @Test
+    public void limitedPacerSpacesWritesAtTheRate() throws Exception {
+        final AdaptivePacer pacer = new AdaptivePacer(MAX_BYTES_PER_SECOND, MAX_ACK_LATENCY_MILLIS, 0, clock);
+        for (int i = 0; i < 32; i++) {
+            pacer.awaitSendPermit(64 * 1024);
+            pacer.onBytesWritten(64 * 1024, 0);
+        }
+        // The first write goes at once and each following one 62.5 ms later.
+        assertEquals(31 * TimeUnit.MICROSECONDS.toNanos(62500), clock.sleptNanos, TimeUnit.MICROSECONDS.toNanos(1));
+    }
+
+    @Test
+    public void blockedWriteLowersRate() {
+        final AdaptivePacer pacer = new AdaptivePacer(MAX_BYTES_PER_SECOND, MAX_ACK_LATENCY_MILLIS, 0, clock);
+        // 64 KB taking a second means the connection carries 64 KB/s.
+        pacer.onBytesWritten(64 * 1024, TimeUnit.SECONDS.toNanos(1));
+        assertEquals(48 * 1024, pacer.getBytesPerSecond());
+    }
+
+    @Test
+    public void promptWritesRaiseRateUpToMaximum() {
+        final AdaptivePacer pacer = new AdaptivePacer(MAX_BYTES_PER_SECOND, MAX_ACK_LATENCY_MILLIS, 0, clock);
+        pacer.onBytesWritten(64 * 1024, TimeUnit.SECONDS.toNanos(1));
+        for (int i = 0; i < 1000; i++) {
+            pacer.onBytesWritten(1024, 0);
+            assertTrue(pacer.getBytesPerSecond() <= MAX_BYTES_PER_SECOND);
+        }
+        assertEquals(MAX_BYTES_PER_SECOND, pacer.getBytesPerSecond());
+    }
+
+    @Test
+    public void overdueAckLowersRateToWhatWasSent() throws Exception {
+        final AdaptivePacer pacer = new AdaptivePacer(MAX_BYTES_PER_SECOND, MAX_ACK_LATENCY_MILLIS, 0, clock);
+        pacer.onAckReceived();
+        pacer.onBytesWritten(64 * 1024, 0);
+        clock.advance(TimeUnit.MILLISECONDS.toNanos(MAX_ACK_LATENCY_MILLIS / 2));
+        pacer.awaitSendPermit(1024);
+        assertEquals(MAX_BYTES_PER_SECOND, pacer.getBytesPerSecond());
+
+        // 64 KB sent in the 2 seconds without an ACK.
+        clock.advance(TimeUnit.MILLISECONDS.toNanos(2000 - MAX_ACK_LATENCY_MILLIS / 2));
+        pacer.awaitSendPermit(1024);
+        assertEquals(24 * 1024, pacer.getBytesPerSecond());
+    }
+
+    @Test
+    public void arrivingAcksKeepTheRate() throws Exception {
+        final AdaptivePacer pacer = new AdaptivePacer(MAX_BYTES_PER_SECOND, MAX_ACK_LATENCY_MILLIS, 0, clock);
+        for (int i = 0; i < 10; i++) {
+            pacer.awaitSendPermit(64 * 1024);
+            pacer.onBytesWritten(64 * 1024, 0);
+            clock.advance(TimeUnit.MILLISECONDS.toNanos(MAX_ACK_LATENCY_MILLIS));
+            pacer.onAckReceived();
+        }
+        assertEquals(MAX_BYTES_PER_SECOND, pacer.getBytesPerSecond());
+    }
+
+    @Test
+    public void missingAcksAreNotPressureBeforeTheFirstAck() throws Exception {
+        final AdaptivePacer pacer = new AdaptivePacer(MAX_BYTES_PER_SECOND, MAX_ACK_LATENCY_MILLIS, 0, clock);
+        pacer.onBytesWritten(64 * 1024, 0);
+        clock.advance(TimeUnit.MILLISECONDS.toNanos(10 * MAX_ACK_LATENCY_MILLIS));
+        pacer.awaitSendPermit(1024);
+        assertEquals(MAX_BYTES_PER_SECOND, pacer.getBytesPerSecond());
+    }
+
+    @Test
+    public void waitIsCappedByMaximumWait() throws Exception {
+        final AdaptivePacer pacer = new AdaptivePacer(8 * 1024, MAX_ACK_LATENCY_MILLIS, 10, clock);
+        for (int i = 0; i < 5; i++) {
+            final long slept = clock.sleptNanos;
+            pacer.awaitSendPermit(64 * 1024);
+            assertTrue(clock.sleptNanos - slept <= TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(40), clock.sleptNanos);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeRate() {
+        new AdaptivePacer(-1, MAX_ACK_LATENCY_MILLIS, 0);
+    }
+
+    /**
+     * A clock that only moves when told to or when the pacer sleeps.
+     */
+    static final class FakeClock implements AdaptivePacer.Clock {
+        private long nanos;
+        private long sleptNanos;
+
+        @Override
+        public long nanoTime() {
+            return nanos;
+        }
+
+        @Override
+        public void sleepNanos(final long nanos) {
+            sleptNanos += nanos;
+            advance(nanos);
+        }
+
+        void advance(final long nanos) {
+            this.nanos += nanos;
+        }
+    }
+}
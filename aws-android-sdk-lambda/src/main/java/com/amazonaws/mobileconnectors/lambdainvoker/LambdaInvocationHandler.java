@@ -18,6 +18,8 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.net.HttpURLConnection;
 import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Invocation handler for Lambda.
@@ -32,6 +34,9 @@ class LambdaInvocationHandler implements InvocationHandler {
     private final AWSLambda lambda;
     private final LambdaDataBinder binder;
     private final ClientContext clientContext;
+    // Invocation plans of the interface methods, built on first use
+    private final ConcurrentMap<Method, InvocationPlan> plans =
+            new ConcurrentHashMap<Method, InvocationPlan>();
 
     // -------------------------------------------------------------
     // Constructors
@@ -69,10 +74,7 @@ class LambdaInvocationHandler implements InvocationHandler {
     // Methods - Private
     // -------------------------------------------------------------
     void validateInterfaceMethod(Method method, Object[] args) {
-        if (method.getAnnotation(LambdaFunction.class) == null) {
-            throw new UnsupportedOperationException("No LambdaFunction annotation for method "
-                    + method.getName());
-        }
+        getInvocationPlan(method);
 
         if (args != null && args.length > 1) {
             throw new UnsupportedOperationException(
@@ -81,27 +83,14 @@ class LambdaInvocationHandler implements InvocationHandler {
     }
 
     InvokeRequest buildInvokeRequest(Method method, Object object) throws IOException {
-        final LambdaFunction lambdaFunction = method.getAnnotation(LambdaFunction.class);
+        final InvocationPlan plan = getInvocationPlan(method);
 
         final InvokeRequest invokeRequest = new InvokeRequest();
-
-        if (lambdaFunction.functionName().isEmpty()) {
-            invokeRequest.setFunctionName(method.getName());
-        } else {
-            invokeRequest.setFunctionName(lambdaFunction.functionName());
-        }
-
-        invokeRequest.setLogType(lambdaFunction.logType());
-
-        // If the log type is other than 'None', force to be RequestResponse.
-        if (!LogType.None.toString().equals(lambdaFunction.logType())) {
-            invokeRequest.setInvocationType(InvocationType.RequestResponse);
-        } else {
-            invokeRequest.setInvocationType(lambdaFunction.invocationType());
-        }
-
-        if (!lambdaFunction.qualifier().isEmpty()) {
-            invokeRequest.setQualifier(lambdaFunction.qualifier());
+        invokeRequest.setFunctionName(plan.functionName);
+        invokeRequest.setLogType(plan.logType);
+        invokeRequest.setInvocationType(plan.invocationType);
+        if (plan.qualifier != null) {
+            invokeRequest.setQualifier(plan.qualifier);
         }
 
         // set base64 encoded client context string
@@ -116,6 +105,7 @@ class LambdaInvocationHandler implements InvocationHandler {
 
     Object processInvokeResult(Method method, InvokeResult invokeResult)
             throws IOException {
+        final InvocationPlan plan = getInvocationPlan(method);
         if (invokeResult.getLogResult() != null) {
             LOGGER.debug(method.getName() + " log: "
                     + new String(Base64.decode(invokeResult.getLogResult()), StringUtils.UTF8));
@@ -128,11 +118,57 @@ class LambdaInvocationHandler implements InvocationHandler {
 
         // deserialize payload
         if (invokeResult.getStatusCode() == HttpURLConnection.HTTP_NO_CONTENT
-                || void.class.equals(method.getReturnType())) {
+                || plan.returnType == void.class) {
             return null;
         }
 
-        return binder.deserialize(invokeResult.getPayload().array(),
-                method.getReturnType());
+        return binder.deserialize(invokeResult.getPayload().array(), plan.returnType);
+    }
+
+    /**
+     * Returns the invocation plan of a method, reading its
+     * {@link LambdaFunction} annotation the first time the method is invoked.
+     *
+     * @param method interface method
+     * @return the invocation plan
+     */
+    InvocationPlan getInvocationPlan(Method method) {
+        InvocationPlan plan = plans.get(method);
+        if (plan == null) {
+            plan = new InvocationPlan(method);
+            final InvocationPlan existing = plans.putIfAbsent(method, plan);
+            if (existing != null) {
+                plan = existing;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * What {@link LambdaFunction} resolves to for one interface method.
+     */
+    static final class InvocationPlan {
+        private final String functionName;
+        private final String logType;
+        private final String invocationType;
+        private final String qualifier;
+        private final Class<?> returnType;
+
+        InvocationPlan(Method method) {
+            final LambdaFunction lambdaFunction = method.getAnnotation(LambdaFunction.class);
+            if (lambdaFunction == null) {
+                throw new UnsupportedOperationException("No LambdaFunction annotation for method "
+                        + method.getName());
+            }
+
+            functionName = lambdaFunction.functionName().isEmpty()
+                    ? method.getName() : lambdaFunction.functionName();
+            logType = lambdaFunction.logType();
+            // If the log type is other than 'None', force to be RequestResponse.
+            invocationType = LogType.None.toString().equals(logType)
+                    ? lambdaFunction.invocationType() : InvocationType.RequestResponse.toString();
+            qualifier = lambdaFunction.qualifier().isEmpty() ? null : lambdaFunction.qualifier();
+            returnType = method.getReturnType();
+        }
     }
 }
@@ -18,6 +18,8 @@ package com.amazonaws.mobileconnectors.lambdainvoker;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import com.amazonaws.ClientConfiguration;
 import com.amazonaws.services.lambda.AWSLambda;
@@ -34,6 +36,7 @@ import com.amazonaws.mobile.config.AWSConfiguration;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
 import org.mockito.Mockito;
 import org.robolectric.RobolectricTestRunner;
@@ -41,6 +44,14 @@ import org.robolectric.RobolectricTestRunner;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 @RunWith(RobolectricTestRunner.class)
 public class LambdaInvocationHandlerTest {
@@ -296,6 +307,75 @@ public class LambdaInvocationHandlerTest {
         }
     }
 
+    @Test
+    public void testFunctionNameDefaultsToMethodName() throws Exception {
+        InvokeRequest request = handler.buildInvokeRequest(getMethod("echoNoArgument"), null);
+        assertEquals("function name", "echoNoArgument", request.getFunctionName());
+        assertEquals("log type", "None", request.getLogType());
+        assertEquals("invocation type", "RequestResponse", request.getInvocationType());
+    }
+
+    @Test
+    public void testLogTypeOtherThanNoneForcesRequestResponse() throws Exception {
+        InvokeRequest request = handler.buildInvokeRequest(
+                getMethod("echoAliasLogTail", String.class), "a");
+        assertEquals("log type", "Tail", request.getLogType());
+        assertEquals("invocation type", "RequestResponse", request.getInvocationType());
+    }
+
+    @Test
+    public void testQualifierIsPassedToLambda() {
+        InvokeResult invokeResult = createInvokeResult(200, null, "\"a\"");
+        Mockito.when(lambda.invoke(Matchers.any(InvokeRequest.class))).thenReturn(invokeResult);
+        invoker.echoVersion("a");
+        invoker.echo("a");
+
+        ArgumentCaptor<InvokeRequest> requests = ArgumentCaptor.forClass(InvokeRequest.class);
+        Mockito.verify(lambda, Mockito.times(2)).invoke(requests.capture());
+        assertEquals("qualifier", "version", requests.getAllValues().get(0).getQualifier());
+        assertNull("no qualifier", requests.getAllValues().get(1).getQualifier());
+    }
+
+    @Test
+    public void testPlanIsReusedAcrossCalls() throws Exception {
+        final Method echo = getMethod("echo", String.class);
+        final LambdaInvocationHandler.InvocationPlan plan = handler.getInvocationPlan(echo);
+        handler.buildInvokeRequest(echo, "a");
+        handler.processInvokeResult(echo, createInvokeResult(200, null, "\"a\""));
+        assertSame(plan, handler.getInvocationPlan(echo));
+    }
+
+    @Test
+    public void testConcurrentCallsShareOnePlan() throws Exception {
+        final LambdaInvocationHandler fresh = new LambdaInvocationHandler(lambda,
+                new LambdaJsonBinder(), null);
+        final Method echo = getMethod("echo", String.class);
+        final int threads = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<LambdaInvocationHandler.InvocationPlan>> plans =
+                    new ArrayList<Future<LambdaInvocationHandler.InvocationPlan>>();
+            for (int i = 0; i < threads; i++) {
+                plans.add(executor.submit(new Callable<LambdaInvocationHandler.InvocationPlan>() {
+                    @Override
+                    public LambdaInvocationHandler.InvocationPlan call() throws Exception {
+                        start.await();
+                        return fresh.getInvocationPlan(echo);
+                    }
+                }));
+            }
+            start.countDown();
+            final LambdaInvocationHandler.InvocationPlan plan = fresh.getInvocationPlan(echo);
+            for (Future<LambdaInvocationHandler.InvocationPlan> future : plans) {
+                assertSame(plan, future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
     private Method getMethod(String name, Class<?>... classes)
             throws NoSuchMethodException, SecurityException {
         return MockInterface.class.getMethod(name, classes);
@@ -734,8 +734,8 @@ public class InteractionClient {
                     public void onBufferReceived(byte[] buffer) {
                         // No operation required. This callback is invoked by AudioRecorder. The bytes received
                         // in this callback are PCM encoded. LexAudioRecorder extends AudioRecorder to
-                        // allow other audio encoders, and pipe the encoded bytes through a PipedInputStream.
-                        // The PipedInputStream used in the request to the
+                        // allow other audio encoders, and hand the encoded bytes through a ring buffer.
+                        // The ring buffer's input stream is used in the request to the
                         // Amazon Lex service.
                     }
 
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.lex.interactionkit.internal.audio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A lock-free ring buffer that hands recorded audio from the recording thread
+ * to the thread uploading it. It replaces a PipedOutputStream and
+ * PipedInputStream pair, which synchronize on every write and poll with
+ * one-second waits.
+ * <p>
+ * Exactly one thread writes and one thread reads. Each side only advances its
+ * own position, so neither takes a lock; a side that has to wait, the reader
+ * for audio or the writer for free space, parks until the other side moves.
+ * PCM samples can be written directly, encoded in place as 16-bit audio,
+ * without an intermediate byte array.
+ * </p>
+ */
+class AudioRingBuffer {
+
+    /**
+     * Longest time a waiting side parks before checking the positions again.
+     */
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final int BYTES_PER_SAMPLE = 2;
+    private static final int BYTE_MASK = 0xff;
+
+    private final byte[] mBuffer;
+    private final int mMask;
+
+    /**
+     * Total bytes written, only advanced by the writer.
+     */
+    private final AtomicLong mWritePosition = new AtomicLong();
+
+    /**
+     * Total bytes read, only advanced by the reader.
+     */
+    private final AtomicLong mReadPosition = new AtomicLong();
+
+    private volatile boolean mWriterClosed;
+    private volatile boolean mReaderClosed;
+    private volatile Thread mWaitingReader;
+    private volatile Thread mWaitingWriter;
+
+    private final InputStream mInputStream = new RingBufferInputStream();
+
+    /**
+     * Create a ring buffer that holds at least the given number of bytes.
+     *
+     * @param minCapacity the minimum capacity in bytes, rounded up to a power
+     *            of two.
+     */
+    AudioRingBuffer(final int minCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(minCapacity, BYTES_PER_SAMPLE));
+        if (capacity < minCapacity) {
+            capacity <<= 1;
+        }
+        mBuffer = new byte[capacity];
+        mMask = capacity - 1;
+    }
+
+    /**
+     * Get the stream the reader reads the audio from.
+     *
+     * @return the input stream.
+     */
+    InputStream getInputStream() {
+        return mInputStream;
+    }
+
+    /**
+     * Get the capacity of the buffer.
+     *
+     * @return the capacity in bytes.
+     */
+    int capacity() {
+        return mBuffer.length;
+    }
+
+    /**
+     * Write encoded audio, waiting for the reader while the buffer is full.
+     *
+     * @param bytes the audio bytes.
+     * @param offset the offset of the first byte to write.
+     * @param length the number of bytes to write.
+     * @throws IOException if the reader closed the stream or the writer was
+     *             interrupted.
+     */
+    void write(final byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            final long position = mWritePosition.get();
+            final int chunk = Math.min(length, awaitFreeSpace(position, 1));
+            final int index = (int) position & mMask;
+            final int first = Math.min(chunk, mBuffer.length - index);
+            System.arraycopy(bytes, offset, mBuffer, index, first);
+            System.arraycopy(bytes, offset + first, mBuffer, 0, chunk - first);
+            publish(position + chunk);
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    /**
+     * Write PCM samples as 16-bit audio in the given byte order, encoding them
+     * directly into the buffer.
+     *
+     * @param samples the samples.
+     * @param numSamples the number of samples to write.
+     * @param order the byte order of the encoded samples.
+     * @throws IOException if the reader closed the stream or the writer was
+     *             interrupted.
+     */
+    void writeSamples(final short[] samples, final int numSamples, final ByteOrder order)
+            throws IOException {
+        // Shift of the byte written first and second.
+        final int firstShift = order == ByteOrder.LITTLE_ENDIAN ? 0 : Byte.SIZE;
+        final int secondShift = Byte.SIZE - firstShift;
+        int sample = 0;
+        while (sample < numSamples) {
+            final long position = mWritePosition.get();
+            final int chunk = Math.min(numSamples - sample,
+                    awaitFreeSpace(position, BYTES_PER_SAMPLE) / BYTES_PER_SAMPLE);
+            long index = position;
+            for (final int end = sample + chunk; sample < end; sample++) {
+                mBuffer[(int) index++ & mMask] = (byte) ((samples[sample] >> firstShift) & BYTE_MASK);
+                mBuffer[(int) index++ & mMask] = (byte) ((samples[sample] >> secondShift) & BYTE_MASK);
+            }
+            publish(index);
+        }
+    }
+
+    /**
+     * Close the writing side; the reader reaches the end of the stream once it
+     * has read the remaining audio.
+     */
+    void close() {
+        mWriterClosed = true;
+        LockSupport.unpark(mWaitingReader);
+    }
+
+    /**
+     * Wait until the buffer has room for more audio.
+     *
+     * @param position the write position to wait for room after.
+     * @param minimum the number of bytes to wait for.
+     * @return the number of free bytes after the position.
+     */
+    private int awaitFreeSpace(final long position, final int minimum) throws IOException {
+        while (true) {
+            if (mReaderClosed) {
+                throw new IOException("Audio stream closed by the reader");
+            }
+            final int free = mBuffer.length - (int) (position - mReadPosition.get());
+            if (free >= minimum) {
+                return free;
+            }
+            mWaitingWriter = Thread.currentThread();
+            if (mBuffer.length - (int) (position - mReadPosition.get()) < minimum
+                    && !mReaderClosed) {
+                LockSupport.parkNanos(this, MAX_PARK_NANOS);
+            }
+            mWaitingWriter = null;
+            if (Thread.interrupted()) {
+                throw new InterruptedIOException("Interrupted while writing audio");
+            }
+        }
+    }
+
+    private void publish(final long position) {
+        mWritePosition.set(position);
+        final Thread reader = mWaitingReader;
+        if (reader != null) {
+            LockSupport.unpark(reader);
+        }
+    }
+
+    /**
+     * The reading side of the ring buffer.
+     */
+    private final class RingBufferInputStream extends InputStream {
+
+        @Override
+        public int read() throws IOException {
+            final byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & BYTE_MASK;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length)
+                throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            final long position = mReadPosition.get();
+            final int available = awaitAudio(position);
+            if (available == -1) {
+                return -1;
+            }
+            final int chunk = Math.min(length, available);
+            final int index = (int) position & mMask;
+            final int first = Math.min(chunk, mBuffer.length - index);
+            System.arraycopy(mBuffer, index, bytes, offset, first);
+            System.arraycopy(mBuffer, 0, bytes, offset + first, chunk - first);
+            mReadPosition.set(position + chunk);
+            final Thread writer = mWaitingWriter;
+            if (writer != null) {
+                LockSupport.unpark(writer);
+            }
+            return chunk;
+        }
+
+        @Override
+        public int available() {
+            return (int) (mWritePosition.get() - mReadPosition.get());
+        }
+
+        @Override
+        public void close() {
+            mReaderClosed = true;
+            LockSupport.unpark(mWaitingWriter);
+        }
+
+        /**
+         * Wait until there is audio to read.
+         *
+         * @return the number of bytes available, or -1 at the end of the
+         *         stream.
+         */
+        private int awaitAudio(final long position) throws IOException {
+            while (true) {
+                final long written = mWritePosition.get();
+                if (written > position) {
+                    return (int) (written - position);
+                }
+                if (mWriterClosed) {
+                    // The last audio is published before the writer closes.
+                    if (mWritePosition.get() == position) {
+                        return -1;
+                    }
+                    continue;
+                }
+                mWaitingReader = Thread.currentThread();
+                if (mWritePosition.get() == position && !mWriterClosed) {
+                    LockSupport.parkNanos(this, MAX_PARK_NANOS);
+                }
+                mWaitingReader = null;
+                if (Thread.interrupted()) {
+                    throw new InterruptedIOException("Interrupted while reading audio");
+                }
+            }
+        }
+    }
+}
@@ -22,14 +22,15 @@ import android.util.Log;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.mobileconnectors.lex.interactionkit.internal.audio.encoder.AudioEncoder;
+import com.amazonaws.mobileconnectors.lex.interactionkit.internal.audio.encoder.BufferedAudioEncoder;
+import com.amazonaws.mobileconnectors.lex.interactionkit.internal.audio.encoder.L16PcmEncoder;
 import com.amazonaws.mobileconnectors.lex.interactionkit.internal.vad.VoiceActivityDetector;
 import com.amazonaws.mobileconnectors.lex.interactionkit.internal.vad.VoiceActivityDetector.VADState;
 import com.google.common.base.Preconditions;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
+import java.nio.ByteOrder;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -60,14 +61,15 @@ public class LexAudioRecorder extends AudioRecorder implements ChunkedAudioSourc
     private long mRecordStartTime;
 
     /**
-     * Stream to be read by wake word service.
+     * Whether the encoder passes PCM samples through unchanged, so samples
+     * can be written to the audio buffer without encoding them first.
      */
-    private PipedInputStream mConsumerStream;
+    private final boolean mPcmPassThrough;
 
     /**
-     * Stream used to output recorded audio.
+     * Buffer handing recorded audio to the stream read by the service.
      */
-    private PipedOutputStream mProducerStream;
+    private AudioRingBuffer mAudioBuffer;
 
     /**
      * The state of the audio recorder before recording the next sample.
@@ -141,6 +143,7 @@ public class LexAudioRecorder extends AudioRecorder implements ChunkedAudioSourc
         mAudioEncoder = Preconditions.checkNotNull(audioEncoder, "AudioEncoder cannot be null");
         mVAD = Preconditions.checkNotNull(vad, "VAD cannot be null");
         mAudioTimeouts = Preconditions.checkNotNull(audioTimeouts, "Audio timeouts cannot be null");
+        mPcmPassThrough = isPcmPassThrough(audioEncoder);
 
         setupStreamPipe();
     }
@@ -168,6 +171,7 @@ public class LexAudioRecorder extends AudioRecorder implements ChunkedAudioSourc
         mAudioEncoder = Preconditions.checkNotNull(audioEncoder, "AudioEncoder cannot be null");
         mVAD = Preconditions.checkNotNull(vad, "VAD cannot be null");
         mAudioTimeouts = Preconditions.checkNotNull(audioTimeouts, "Audio timeouts cannot be null");
+        mPcmPassThrough = isPcmPassThrough(audioEncoder);
 
         setupStreamPipe();
     }
@@ -179,7 +183,22 @@ public class LexAudioRecorder extends AudioRecorder implements ChunkedAudioSourc
 
     @Override
     public InputStream getConsumerStream() {
-        return mConsumerStream;
+        return mAudioBuffer.getInputStream();
+    }
+
+    /**
+     * Whether an encoder outputs PCM samples unchanged as 16-bit audio in
+     * the native byte order, as L16 PCM does.
+     *
+     * @param audioEncoder the audio encoder.
+     * @return whether samples can bypass the encoder.
+     */
+    private static boolean isPcmPassThrough(final AudioEncoder audioEncoder) {
+        if (audioEncoder instanceof BufferedAudioEncoder) {
+            return isPcmPassThrough(((BufferedAudioEncoder) audioEncoder).getEncoder());
+        }
+        // A subclass may encode differently.
+        return audioEncoder.getClass() == L16PcmEncoder.class;
     }
 
     /**
@@ -196,12 +215,7 @@ public class LexAudioRecorder extends AudioRecorder implements ChunkedAudioSourc
                 * (SAMPLE_SIZE / Byte.SIZE);
 
         // Set up the audio stream pipe.
-        mProducerStream = new PipedOutputStream();
-        try {
-            mConsumerStream = new PipedInputStream(mProducerStream, pipeSize);
-        } catch (final IOException e) {
-            throw new AudioSourceException("Error openning consumer stream", e);
-        }
+        mAudioBuffer = new AudioRingBuffer(pipeSize);
     }
 
     /**
@@ -257,12 +271,15 @@ public class LexAudioRecorder extends AudioRecorder implements ChunkedAudioSourc
             // Process the samples through the VAD and get current VAD state.
             currentState = mVAD.processSamples(buffer, numSamplesRead);
 
-            // Encode audio for sending to service.
-            final byte[] compressedBuffer = mAudioEncoder.encode(buffer, numSamplesRead);
-
             try {
-                mProducerStream.write(compressedBuffer, 0, compressedBuffer.length);
-                mProducerStream.flush();
+                if (mPcmPassThrough) {
+                    // Encode the samples in place in the audio buffer.
+                    mAudioBuffer.writeSamples(buffer, numSamplesRead, ByteOrder.nativeOrder());
+                } else {
+                    // Encode audio for sending to service.
+                    final byte[] compressedBuffer = mAudioEncoder.encode(buffer, numSamplesRead);
+                    mAudioBuffer.write(compressedBuffer, 0, compressedBuffer.length);
+                }
             } catch (final IOException e) {
                 throw new AudioSourceException(
                         "Error writing to audio upload output stream", e);
@@ -314,7 +331,7 @@ public class LexAudioRecorder extends AudioRecorder implements ChunkedAudioSourc
      */
     @Override
     protected void cleanUpUtilityComponents() throws IOException {
-        mProducerStream.close();
+        mAudioBuffer.close();
         Log.v(TAG, "Released producer stream");
 
         mAudioEncoder.close();
@@ -322,12 +339,12 @@ public class LexAudioRecorder extends AudioRecorder implements ChunkedAudioSourc
     }
 
     /**
-     * Return the producer stream.
+     * Return the buffer recorded audio is written to.
      *
-     * @return the producer stream.
+     * @return the audio buffer.
      */
-    PipedOutputStream getProducerStream() {
-        return mProducerStream;
+    AudioRingBuffer getAudioBuffer() {
+        return mAudioBuffer;
     }
 
     /**
@@ -28,6 +28,8 @@ import java.util.List;
  */
 public class BufferedAudioEncoder implements AudioEncoder {
 
+    private static final byte[] EMPTY_BYTES = new byte[0];
+
     private final AudioEncoder mEncoder;
     private final ShortBuffer mSamplesBuffer;
 
@@ -51,27 +53,39 @@ public class BufferedAudioEncoder implements AudioEncoder {
         int samplesProcessed = 0;
         int toWrite = 0;
 
-        final List<byte[]> encodedBytesList = new ArrayList<byte[]>();
-        final short[] buffer = new short[mSamplesBuffer.capacity()];
+        byte[] firstEncoded = null;
+        List<byte[]> encodedBytesList = null;
 
         // Loop while there are enough samples to fill the buffer.
         while (mSamplesBuffer.remaining() <= numSamples - samplesProcessed) {
             // Copy samples into buffer.
             toWrite = mSamplesBuffer.remaining();
-            System.arraycopy(samples, samplesProcessed, buffer, 0, toWrite);
-
-            mSamplesBuffer.put(buffer, 0, toWrite);
+            mSamplesBuffer.put(samples, samplesProcessed, toWrite);
             samplesProcessed += toWrite;
 
             // Process samples.
-            encodedBytesList
-                    .add(mEncoder.encode(mSamplesBuffer.array(), mSamplesBuffer.capacity()));
+            final byte[] encoded = mEncoder.encode(mSamplesBuffer.array(),
+                    mSamplesBuffer.capacity());
+            if (firstEncoded == null) {
+                firstEncoded = encoded;
+            } else {
+                if (encodedBytesList == null) {
+                    encodedBytesList = new ArrayList<byte[]>();
+                    encodedBytesList.add(firstEncoded);
+                }
+                encodedBytesList.add(encoded);
+            }
             mSamplesBuffer.clear();
         }
 
         // If any samples remain, copy into buffer.
         mSamplesBuffer.put(samples, samplesProcessed, numSamples - samplesProcessed);
-        return concatenateBytes(encodedBytesList);
+
+        // Most calls encode at most one frame, which needs no copy.
+        if (encodedBytesList != null) {
+            return concatenateBytes(encodedBytesList);
+        }
+        return firstEncoded != null ? firstEncoded : EMPTY_BYTES;
     }
 
     /**
@@ -95,6 +109,15 @@ public class BufferedAudioEncoder implements AudioEncoder {
         return concatenatedByteArray;
     }
 
+    /**
+     * Get the underlying encoder.
+     *
+     * @return the encoder that encodes full frames.
+     */
+    public AudioEncoder getEncoder() {
+        return mEncoder;
+    }
+
     @Override
     public MediaType getMediaType() {
         return mEncoder.getMediaType();
@@ -42,12 +42,14 @@ public class L16PcmEncoder implements AudioEncoder {
         Preconditions.checkArgument(samples.length >= numSamples,
                 "Sample buffer length must be at least as long as numSamples");
         final byte[] buffer = new byte[numSamples * 2];
-        for (int i = 0; i < numSamples; i++) {
-            // One sample is two bytes.
-            if (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN) {
+        // One sample is two bytes.
+        if (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN) {
+            for (int i = 0; i < numSamples; i++) {
                 buffer[i * 2] = (byte) (samples[i] & 0xff);
                 buffer[i * 2 + 1] = (byte) ((samples[i] >> Byte.SIZE) & 0xff);
-            } else {
+            }
+        } else {
+            for (int i = 0; i < numSamples; i++) {
                 buffer[i * 2] = (byte) ((samples[i] >> Byte.SIZE) & 0xff);
                 buffer[i * 2 + 1] = (byte) (samples[i] & 0xff);
             }
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.lex.interactionkit.internal.audio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteOrder;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class AudioRingBufferTest {
+
+    @Test
+    public void capacityIsRoundedUpToAPowerOfTwo() {
+        assertEquals(16, new AudioRingBuffer(16).capacity());
+        assertEquals(32, new AudioRingBuffer(17).capacity());
+        assertEquals(2, new AudioRingBuffer(1).capacity());
+    }
+
+    @Test
+    public void readsAndWritesWrapAroundTheEnd() throws IOException {
+        final AudioRingBuffer ring = new AudioRingBuffer(8);
+        final InputStream in = ring.getInputStream();
+        final byte[] read = new byte[8];
+
+        ring.write(new byte[] {
+                1, 2, 3, 4, 5, 6
+        }, 0, 6);
+        assertEquals(6, in.read(read, 0, 6));
+
+        // Positions 6..11: the write and the read both wrap after 2 bytes.
+        ring.write(new byte[] {
+                0, 7, 8, 9, 10, 11, 12
+        }, 1, 6);
+        assertEquals(6, in.available());
+        assertEquals(6, in.read(read, 0, 8));
+        assertArrayEquals(new byte[] {
+                7, 8, 9, 10, 11, 12
+        }, slice(read, 6));
+    }
+
+    @Test
+    public void writeSamplesEncodesLittleEndian() throws IOException {
+        final AudioRingBuffer ring = new AudioRingBuffer(8);
+        final InputStream in = ring.getInputStream();
+        // Start at an odd offset so the samples wrap around the end.
+        ring.write(new byte[5], 0, 5);
+        in.read(new byte[5], 0, 5);
+
+        ring.writeSamples(new short[] {
+                0x0102, (short) 0xfffe, 0x7f80, 9
+        }, 3, ByteOrder.LITTLE_ENDIAN);
+        final byte[] read = new byte[6];
+        assertEquals(6, readFully(in, read));
+        assertArrayEquals(new byte[] {
+                0x02, 0x01, (byte) 0xfe, (byte) 0xff, (byte) 0x80, 0x7f
+        }, read);
+    }
+
+    @Test
+    public void writeSamplesEncodesBigEndian() throws IOException {
+        final AudioRingBuffer ring = new AudioRingBuffer(8);
+        ring.writeSamples(new short[] {
+                0x0102, (short) 0xfffe
+        }, 2, ByteOrder.BIG_ENDIAN);
+        final byte[] read = new byte[4];
+        assertEquals(4, readFully(ring.getInputStream(), read));
+        assertArrayEquals(new byte[] {
+                0x01, 0x02, (byte) 0xff, (byte) 0xfe
+        }, read);
+    }
+
+    @Test
+    public void readerReachesEndOfStreamOnceWriterClosesAndIsDrained() throws IOException {
+        final AudioRingBuffer ring = new AudioRingBuffer(8);
+        final InputStream in = ring.getInputStream();
+        ring.write(new byte[] {
+                1, 2, 3
+        }, 0, 3);
+        ring.close();
+
+        final byte[] read = new byte[8];
+        assertEquals(3, in.read(read, 0, 8));
+        assertEquals(-1, in.read(read, 0, 8));
+        assertEquals(-1, in.read());
+    }
+
+    @Test
+    public void closingWriterWakesBlockedReader() throws Exception {
+        final AudioRingBuffer ring = new AudioRingBuffer(8);
+        final CountDownLatch reading = new CountDownLatch(1);
+        final AtomicReference<Integer> result = new AtomicReference<Integer>();
+        final Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                reading.countDown();
+                try {
+                    result.set(ring.getInputStream().read());
+                } catch (final IOException e) {
+                    result.set(Integer.MIN_VALUE);
+                }
+            }
+        });
+        reader.start();
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+        ring.close();
+        reader.join(5000);
+        assertEquals(Integer.valueOf(-1), result.get());
+    }
+
+    @Test
+    public void writerBlocksWhileFullAndResumesWhenRead() throws Exception {
+        final AudioRingBuffer ring = new AudioRingBuffer(4);
+        final InputStream in = ring.getInputStream();
+        final byte[] audio = {
+                1, 2, 3, 4, 5, 6, 7, 8, 9, 10
+        };
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    ring.write(audio, 0, audio.length);
+                    ring.close();
+                } catch (final Throwable t) {
+                    failure.set(t);
+                }
+            }
+        });
+        writer.start();
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] read = new byte[3];
+        int length;
+        while ((length = in.read(read, 0, read.length)) != -1) {
+            assertTrue(length <= ring.capacity());
+            out.write(read, 0, length);
+        }
+        writer.join(5000);
+        assertEquals(null, failure.get());
+        assertArrayEquals(audio, out.toByteArray());
+    }
+
+    @Test
+    public void closingReaderUnblocksWriter() throws Exception {
+        final AudioRingBuffer ring = new AudioRingBuffer(4);
+        ring.write(new byte[4], 0, 4);
+        final CountDownLatch writing = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writing.countDown();
+                try {
+                    // The buffer is full, so this waits for the reader.
+                    ring.write(new byte[1], 0, 1);
+                } catch (final Throwable t) {
+                    failure.set(t);
+                }
+            }
+        });
+        writer.start();
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        ring.getInputStream().close();
+        writer.join(5000);
+        assertTrue(!writer.isAlive());
+        assertTrue(failure.get() instanceof IOException);
+    }
+
+    @Test
+    public void writeAfterReaderClosedFails() throws IOException {
+        final AudioRingBuffer ring = new AudioRingBuffer(4);
+        ring.getInputStream().close();
+        try {
+            ring.writeSamples(new short[1], 1, ByteOrder.LITTLE_ENDIAN);
+            fail("Expected an IOException");
+        } catch (final IOException expected) {
+            // expected
+        }
+    }
+
+    private static int readFully(InputStream in, byte[] bytes) throws IOException {
+        int total = 0;
+        while (total < bytes.length) {
+            final int read = in.read(bytes, total, bytes.length - total);
+            if (read == -1) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static byte[] slice(byte[] bytes, int length) {
+        final byte[] slice = new byte[length];
+        System.arraycopy(bytes, 0, slice, 0, length);
+        return slice;
+    }
+}
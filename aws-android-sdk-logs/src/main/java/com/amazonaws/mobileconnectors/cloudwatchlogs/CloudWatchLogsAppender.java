@@ -0,0 +1,491 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cloudwatchlogs;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+import com.amazonaws.logging.LogProvider;
+import com.amazonaws.services.logs.AmazonCloudWatchLogs;
+import com.amazonaws.services.logs.model.CreateLogGroupRequest;
+import com.amazonaws.services.logs.model.CreateLogStreamRequest;
+import com.amazonaws.services.logs.model.DataAlreadyAcceptedException;
+import com.amazonaws.services.logs.model.InputLogEvent;
+import com.amazonaws.services.logs.model.InvalidSequenceTokenException;
+import com.amazonaws.services.logs.model.PutLogEventsRequest;
+import com.amazonaws.services.logs.model.PutLogEventsResult;
+import com.amazonaws.services.logs.model.RejectedLogEventsInfo;
+import com.amazonaws.services.logs.model.ResourceAlreadyExistsException;
+import com.amazonaws.services.logs.model.ResourceNotFoundException;
+import com.amazonaws.util.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The CloudWatchLogsAppender sends log messages to an Amazon CloudWatch Logs
+ * stream in batches.
+ * <p>
+ * Messages are buffered in memory, written to a journal in a local directory
+ * and sent from a background thread with PutLogEvents calls, at a set interval
+ * or as soon as a full batch is buffered. Each call carries as many events as
+ * the service accepts, at most 10,000 events or 1 MB, and calls are spaced to
+ * stay within the limit of 5 calls per second per stream. The sequence token
+ * of the stream is tracked across calls. Events that could not be sent, for
+ * example while offline, stay in the journal and are sent once the service
+ * can be reached again, also by a later process; the journal is bounded and
+ * drops the oldest events when full. Messages logged since the last flush
+ * are lost if the process is killed.
+ * </p>
+ * <p>
+ * The appender is a {@link LogProvider}, so that SDK and application logs go
+ * to CloudWatch Logs along with the platform log once it is added to the
+ * {@link LogFactory} with {@link LogFactory#addLogProvider(LogProvider)}.
+ * Messages logged by the appender's own thread, such as those of the
+ * PutLogEvents calls, are not sent. The appender requires an IAM policy that
+ * allows the PutLogEvents action on the stream, and the CreateLogGroup and
+ * CreateLogStream actions unless creation is turned off in the
+ * {@link CloudWatchLogsAppenderConfig}.
+ * </p>
+ */
+public class CloudWatchLogsAppender implements LogProvider {
+
+    private static final Log LOGGER = LogFactory.getLog(CloudWatchLogsAppender.class);
+
+    /** Most events in one PutLogEvents call. */
+    private static final int MAX_BATCH_EVENTS = 10000;
+    /** Most bytes in one PutLogEvents call, counting 26 bytes per event. */
+    private static final int MAX_BATCH_BYTES = 1024 * 1024;
+    /** Most bytes of one event, including its overhead. */
+    private static final int MAX_EVENT_BYTES = 256 * 1024;
+    /** Longest time between the events of one PutLogEvents call. */
+    private static final long MAX_BATCH_SPAN_MILLIS = 24 * 60 * 60 * 1000L;
+    /** CloudWatch Logs allows five PutLogEvents calls per second per stream. */
+    private static final long MIN_PUT_INTERVAL_MILLIS = 200;
+    /** Attempts of one batch to recover a sequence token or a stream. */
+    private static final int MAX_SEND_ATTEMPTS = 3;
+    private static final String JOURNAL_FILE_NAME = "log-events.journal";
+
+    private static final Comparator<InputLogEvent> BY_TIMESTAMP = new Comparator<InputLogEvent>() {
+        @Override
+        public int compare(InputLogEvent lhs, InputLogEvent rhs) {
+            return lhs.getTimestamp().compareTo(rhs.getTimestamp());
+        }
+    };
+
+    private final AmazonCloudWatchLogs client;
+    private final String logGroupName;
+    private final String logStreamName;
+    private final CloudWatchLogsAppenderConfig config;
+    private final LogEventJournal journal;
+    private final ScheduledThreadPoolExecutor executor;
+    /** The thread of the executor, whose messages are not sent. */
+    private volatile Thread flushThread;
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (CloudWatchLogsAppender.this) {
+                flushRequested = false;
+            }
+            flushJournal();
+        }
+    };
+
+    /** Guarded by this. */
+    private final ArrayDeque<InputLogEvent> pending = new ArrayDeque<InputLogEvent>();
+    private long pendingBytes;
+    private boolean flushRequested;
+    private boolean closed;
+
+    /** Serializes moving pending events to the journal. */
+    private final Object drainLock = new Object();
+
+    /** Touched by the flush thread only. */
+    private String sequenceToken;
+    private long lastPutMillis;
+
+    /**
+     * Constructs a new appender with the default configuration.
+     *
+     * @param client the client to send the log events with.
+     * @param logGroupName the name of the log group.
+     * @param logStreamName the name of the log stream.
+     * @param directory a directory private to this appender for the journal
+     *            of unsent log events.
+     * @throws IOException if the journal cannot be opened.
+     */
+    public CloudWatchLogsAppender(AmazonCloudWatchLogs client, String logGroupName,
+            String logStreamName, File directory) throws IOException {
+        this(client, logGroupName, logStreamName, directory, new CloudWatchLogsAppenderConfig());
+    }
+
+    /**
+     * Constructs a new appender and starts flushing in the background.
+     *
+     * @param client the client to send the log events with.
+     * @param logGroupName the name of the log group.
+     * @param logStreamName the name of the log stream.
+     * @param directory a directory private to this appender for the journal
+     *            of unsent log events.
+     * @param config the configuration of the appender.
+     * @throws IOException if the journal cannot be opened.
+     */
+    public CloudWatchLogsAppender(AmazonCloudWatchLogs client, String logGroupName,
+            String logStreamName, File directory, CloudWatchLogsAppenderConfig config)
+            throws IOException {
+        if (client == null || logGroupName == null || logStreamName == null
+                || directory == null || config == null) {
+            throw new IllegalArgumentException(
+                    "client, logGroupName, logStreamName, directory and config can't be null");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create directory " + directory);
+        }
+        this.client = client;
+        this.logGroupName = logGroupName;
+        this.logStreamName = logStreamName;
+        this.config = new CloudWatchLogsAppenderConfig(config);
+        this.journal = new LogEventJournal(new File(directory, JOURNAL_FILE_NAME),
+                this.config.getMaxJournalBytes());
+        this.executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread t = new Thread(r);
+                t.setName("cloudwatch-logs-appender");
+                t.setDaemon(true);
+                flushThread = t;
+                return t;
+            }
+        });
+        executor.scheduleWithFixedDelay(flushTask, this.config.getFlushIntervalMillis(),
+                this.config.getFlushIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets a log that sends its messages to the stream, at the level of the
+     * configuration.
+     *
+     * @param tag the tag of the messages.
+     * @return the log.
+     */
+    @Override
+    public Log getLog(String tag) {
+        return new CloudWatchLogsLog(this, tag, config.getLevel());
+    }
+
+    /**
+     * Requests the buffered log events to be sent without waiting for the
+     * flush interval.
+     */
+    public synchronized void flush() {
+        requestFlush();
+    }
+
+    /**
+     * Stops the appender: it is removed from the {@link LogFactory}, stops
+     * accepting messages, and makes a last attempt to send the buffered log
+     * events in the background. Events it could not send are kept in the
+     * journal for the next appender on the same directory.
+     */
+    public void close() {
+        LogFactory.removeLogProvider(this);
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    flushJournal();
+                    try {
+                        journal.close();
+                    } catch (final IOException e) {
+                        LOGGER.warn("Unable to close the log journal", e);
+                    }
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            // already shut down
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Waits for the last flush to complete after {@link #close()}.
+     *
+     * @param timeout the maximum time to wait.
+     * @param unit the unit of the timeout.
+     * @return true if the appender stopped, false if the timeout elapsed.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * Buffers a message to be sent.
+     *
+     * @param level the level of the message.
+     * @param tag the tag of the message.
+     * @param message the message.
+     * @param throwable a throwable whose stack trace follows the message, or
+     *            null.
+     */
+    void append(LogFactory.Level level, String tag, Object message, Throwable throwable) {
+        if (Thread.currentThread() == flushThread) {
+            // don't send the logs of sending logs
+            return;
+        }
+        final StringBuilder text = new StringBuilder()
+                .append(level.name()).append('/').append(tag).append(": ").append(message);
+        if (throwable != null) {
+            final StringWriter stackTrace = new StringWriter();
+            throwable.printStackTrace(new PrintWriter(stackTrace));
+            text.append('\n').append(stackTrace);
+        }
+        final InputLogEvent event = new InputLogEvent()
+                .withTimestamp(System.currentTimeMillis())
+                .withMessage(truncate(text.toString()));
+        final long eventBytes = event.getMessage().length() * 3L
+                + LogEventJournal.EVENT_OVERHEAD_BYTES;
+
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            pending.addLast(event);
+            pendingBytes += eventBytes;
+            // bound the memory held while the flush thread waits on the network
+            while (pendingBytes > config.getMaxJournalBytes() && pending.size() > 1) {
+                pendingBytes -= pending.removeFirst().getMessage().length() * 3L
+                        + LogEventJournal.EVENT_OVERHEAD_BYTES;
+            }
+            if (pending.size() >= MAX_BATCH_EVENTS || pendingBytes >= MAX_BATCH_BYTES) {
+                requestFlush();
+            }
+        }
+    }
+
+    /**
+     * Truncates a message to the most bytes allowed in an event, on a
+     * character boundary.
+     */
+    private static String truncate(String message) {
+        final int maxMessageBytes = MAX_EVENT_BYTES - LogEventJournal.EVENT_OVERHEAD_BYTES;
+        // a char takes at most 3 bytes in UTF-8
+        if (message.length() * 3 <= maxMessageBytes) {
+            return message;
+        }
+        final byte[] bytes = message.getBytes(StringUtils.UTF8);
+        if (bytes.length <= maxMessageBytes) {
+            return message;
+        }
+        int end = maxMessageBytes;
+        while (end > 0 && (bytes[end] & 0xC0) == 0x80) {
+            end--;
+        }
+        return new String(bytes, 0, end, StringUtils.UTF8);
+    }
+
+    /** Must hold the lock of this. */
+    private void requestFlush() {
+        if (flushRequested || closed) {
+            return;
+        }
+        flushRequested = true;
+        try {
+            executor.execute(flushTask);
+        } catch (final RejectedExecutionException e) {
+            // the appender is closing
+            flushRequested = false;
+        }
+    }
+
+    /**
+     * Moves the pending events to the journal.
+     */
+    private void drainPending() {
+        synchronized (drainLock) {
+            final List<InputLogEvent> events;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                events = new ArrayList<InputLogEvent>(pending);
+                pending.clear();
+                pendingBytes = 0;
+            }
+            try {
+                final int dropped = journal.append(events);
+                if (dropped > 0) {
+                    LOGGER.warn("Log journal full, dropped " + dropped + " oldest log events");
+                }
+            } catch (final IOException e) {
+                LOGGER.warn("Unable to write " + events.size() + " log events to the journal", e);
+            }
+        }
+    }
+
+    /**
+     * Sends the events of the journal in batches until it is empty or a batch
+     * fails, which is retried at the next flush. Runs on the flush thread.
+     */
+    private void flushJournal() {
+        drainPending();
+        while (!journal.isEmpty()) {
+            final List<InputLogEvent> batch;
+            try {
+                batch = journal.peek(MAX_BATCH_EVENTS, MAX_BATCH_BYTES, MAX_BATCH_SPAN_MILLIS);
+            } catch (final IOException e) {
+                LOGGER.warn("Unable to read log events from the journal", e);
+                return;
+            }
+            if (!send(batch)) {
+                return;
+            }
+            try {
+                journal.remove(batch.size());
+            } catch (final IOException e) {
+                LOGGER.warn("Unable to remove sent log events from the journal", e);
+                return;
+            }
+            drainPending();
+        }
+    }
+
+    /**
+     * Sends a batch, recovering from a stale sequence token and a missing
+     * stream.
+     *
+     * @return true if the batch was accepted, and is done with.
+     */
+    private boolean send(List<InputLogEvent> batch) {
+        final List<InputLogEvent> events = new ArrayList<InputLogEvent>(batch);
+        // the service requires the events in chronological order
+        Collections.sort(events, BY_TIMESTAMP);
+        boolean createStream = false;
+        for (int attempt = 0; attempt < MAX_SEND_ATTEMPTS; attempt++) {
+            if (!pace()) {
+                return false;
+            }
+            try {
+                if (createStream) {
+                    createLogStream();
+                    createStream = false;
+                }
+                final PutLogEventsResult result = client.putLogEvents(new PutLogEventsRequest()
+                        .withLogGroupName(logGroupName)
+                        .withLogStreamName(logStreamName)
+                        .withLogEvents(events)
+                        .withSequenceToken(sequenceToken));
+                sequenceToken = result.getNextSequenceToken();
+                logRejected(result.getRejectedLogEventsInfo());
+                return true;
+            } catch (final InvalidSequenceTokenException e) {
+                sequenceToken = toSequenceToken(e.getExpectedSequenceToken());
+            } catch (final DataAlreadyAcceptedException e) {
+                sequenceToken = toSequenceToken(e.getExpectedSequenceToken());
+                return true;
+            } catch (final ResourceNotFoundException e) {
+                if (!config.isCreateLogStream()) {
+                    LOGGER.warn("Log stream " + logGroupName + "/" + logStreamName
+                            + " doesn't exist", e);
+                    return false;
+                }
+                createStream = true;
+                sequenceToken = null;
+            } catch (final AmazonClientException e) {
+                LOGGER.warn("Unable to send " + events.size() + " log events, retrying later", e);
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Waits until the next call is allowed.
+     *
+     * @return false if interrupted.
+     */
+    private boolean pace() {
+        final long waitMillis = lastPutMillis + MIN_PUT_INTERVAL_MILLIS - System.currentTimeMillis();
+        if (waitMillis > 0) {
+            try {
+                Thread.sleep(waitMillis);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        lastPutMillis = System.currentTimeMillis();
+        return true;
+    }
+
+    private void createLogStream() {
+        try {
+            client.createLogGroup(new CreateLogGroupRequest().withLogGroupName(logGroupName));
+        } catch (final ResourceAlreadyExistsException e) {
+            // created by another device
+        }
+        try {
+            client.createLogStream(new CreateLogStreamRequest()
+                    .withLogGroupName(logGroupName)
+                    .withLogStreamName(logStreamName));
+        } catch (final ResourceAlreadyExistsException e) {
+            // created by another appender
+        }
+    }
+
+    /**
+     * The expected token is absent for a stream without events, and is then
+     * unmarshalled as "null".
+     */
+    private static String toSequenceToken(String expected) {
+        return expected == null || "null".equals(expected) ? null : expected;
+    }
+
+    /**
+     * Events outside the time range accepted by the service are rejected; they
+     * are dropped as they would be rejected again.
+     */
+    private void logRejected(RejectedLogEventsInfo rejected) {
+        if (rejected == null) {
+            return;
+        }
+        if (rejected.getTooOldLogEventEndIndex() != null
+                || rejected.getExpiredLogEventEndIndex() != null) {
+            LOGGER.warn("Dropped log events older than the retention of " + logGroupName);
+        }
+        if (rejected.getTooNewLogEventStartIndex() != null) {
+            LOGGER.warn("Dropped log events more than 2 hours in the future");
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cloudwatchlogs;
+
+import com.amazonaws.logging.LogFactory;
+
+/**
+ * Allows configuration of certain CloudWatchLogsAppender parameters, such as
+ * the flush interval and the size of the local journal.
+ */
+public class CloudWatchLogsAppenderConfig {
+
+    private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 5 * 1000;
+    private static final long DEFAULT_MAX_JOURNAL_BYTES = 5 * 1024 * 1024;
+    /** Smallest journal, so that a full batch fits. */
+    private static final long MIN_JOURNAL_BYTES = 1024 * 1024;
+
+    private long flushIntervalMillis = DEFAULT_FLUSH_INTERVAL_MILLIS;
+    private long maxJournalBytes = DEFAULT_MAX_JOURNAL_BYTES;
+    private LogFactory.Level level = LogFactory.Level.INFO;
+    private boolean createLogStream = true;
+
+    /**
+     * Construct an instance of CloudWatchLogsAppenderConfig with default
+     * values: flushing every 5 seconds, a 5 MB journal, sending INFO and
+     * above, and creating the log group and stream when they don't exist.
+     */
+    public CloudWatchLogsAppenderConfig() {
+    }
+
+    /**
+     * Creates a copy of the passed in CloudWatchLogsAppenderConfig.
+     *
+     * @param other the CloudWatchLogsAppenderConfig to copy.
+     */
+    public CloudWatchLogsAppenderConfig(CloudWatchLogsAppenderConfig other) {
+        this.flushIntervalMillis = other.flushIntervalMillis;
+        this.maxJournalBytes = other.maxJournalBytes;
+        this.level = other.level;
+        this.createLogStream = other.createLogStream;
+    }
+
+    /**
+     * Sets the interval between flushes of the buffered log events. A full
+     * batch is flushed without waiting for the interval.
+     *
+     * @param flushIntervalMillis the flush interval.
+     * @return This class for chaining
+     */
+    public CloudWatchLogsAppenderConfig withFlushIntervalMillis(long flushIntervalMillis) {
+        if (flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("flushIntervalMillis must be positive");
+        }
+        this.flushIntervalMillis = flushIntervalMillis;
+        return this;
+    }
+
+    /**
+     * @return the interval between flushes.
+     */
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    /**
+     * Sets the most bytes of unsent log events kept in the local journal, at
+     * least 1 MB. The oldest events are dropped when the journal is full.
+     *
+     * @param maxJournalBytes the size of the journal.
+     * @return This class for chaining
+     */
+    public CloudWatchLogsAppenderConfig withMaxJournalBytes(long maxJournalBytes) {
+        if (maxJournalBytes < MIN_JOURNAL_BYTES) {
+            throw new IllegalArgumentException("maxJournalBytes must be at least "
+                    + MIN_JOURNAL_BYTES);
+        }
+        this.maxJournalBytes = maxJournalBytes;
+        return this;
+    }
+
+    /**
+     * @return the most bytes kept in the local journal.
+     */
+    public long getMaxJournalBytes() {
+        return maxJournalBytes;
+    }
+
+    /**
+     * Sets the lowest level of the log events sent, unless changed on a
+     * {@link CloudWatchLogsLog}.
+     *
+     * @param level the lowest level sent.
+     * @return This class for chaining
+     */
+    public CloudWatchLogsAppenderConfig withLevel(LogFactory.Level level) {
+        if (level == null) {
+            throw new IllegalArgumentException("level can't be null");
+        }
+        this.level = level;
+        return this;
+    }
+
+    /**
+     * @return the lowest level of the log events sent.
+     */
+    public LogFactory.Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Sets whether the log group and stream are created when they don't
+     * exist. This requires the CreateLogGroup and CreateLogStream actions.
+     *
+     * @param createLogStream true to create the log group and stream.
+     * @return This class for chaining
+     */
+    public CloudWatchLogsAppenderConfig withCreateLogStream(boolean createLogStream) {
+        this.createLogStream = createLogStream;
+        return this;
+    }
+
+    /**
+     * @return true if the log group and stream are created when missing.
+     */
+    public boolean isCreateLogStream() {
+        return createLogStream;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cloudwatchlogs;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
+/**
+ * Log that sends its messages to a CloudWatch Logs stream through a
+ * {@link CloudWatchLogsAppender}. It conforms to the
+ * {@code com.amazonaws.logging.Log} interface.
+ */
+public final class CloudWatchLogsLog implements Log {
+
+    /** Tag for the log message */
+    private final String tag;
+
+    /** Appender of the log events */
+    private final CloudWatchLogsAppender appender;
+
+    /** Only this level and above logs will be sent by this logger **/
+    private volatile LogFactory.Level level;
+
+    CloudWatchLogsLog(CloudWatchLogsAppender appender, String tag, LogFactory.Level level) {
+        this.appender = appender;
+        this.tag = tag;
+        this.level = level;
+    }
+
+    @Override
+    public boolean isDebugEnabled() {
+        return isEnabled(LogFactory.Level.DEBUG);
+    }
+
+    @Override
+    public boolean isErrorEnabled() {
+        return isEnabled(LogFactory.Level.ERROR);
+    }
+
+    @Override
+    public boolean isInfoEnabled() {
+        return isEnabled(LogFactory.Level.INFO);
+    }
+
+    @Override
+    public boolean isTraceEnabled() {
+        return isEnabled(LogFactory.Level.TRACE);
+    }
+
+    @Override
+    public boolean isWarnEnabled() {
+        return isEnabled(LogFactory.Level.WARN);
+    }
+
+    @Override
+    public void trace(Object message) {
+        log(LogFactory.Level.TRACE, message, null);
+    }
+
+    @Override
+    public void trace(Object message, Throwable t) {
+        log(LogFactory.Level.TRACE, message, t);
+    }
+
+    @Override
+    public void debug(Object message) {
+        log(LogFactory.Level.DEBUG, message, null);
+    }
+
+    @Override
+    public void debug(Object message, Throwable t) {
+        log(LogFactory.Level.DEBUG, message, t);
+    }
+
+    @Override
+    public void info(Object message) {
+        log(LogFactory.Level.INFO, message, null);
+    }
+
+    @Override
+    public void info(Object message, Throwable t) {
+        log(LogFactory.Level.INFO, message, t);
+    }
+
+    @Override
+    public void warn(Object message) {
+        log(LogFactory.Level.WARN, message, null);
+    }
+
+    @Override
+    public void warn(Object message, Throwable t) {
+        log(LogFactory.Level.WARN, message, t);
+    }
+
+    @Override
+    public void error(Object message) {
+        log(LogFactory.Level.ERROR, message, null);
+    }
+
+    @Override
+    public void error(Object message, Throwable t) {
+        log(LogFactory.Level.ERROR, message, t);
+    }
+
+    @Override
+    public void setLevel(LogFactory.Level level) {
+        if (level == null) {
+            throw new IllegalArgumentException("level can't be null");
+        }
+        this.level = level;
+    }
+
+    private boolean isEnabled(LogFactory.Level messageLevel) {
+        return level.getValue() <= messageLevel.getValue();
+    }
+
+    private void log(LogFactory.Level messageLevel, Object message, Throwable throwable) {
+        if (isEnabled(messageLevel)) {
+            appender.append(messageLevel, tag, message, throwable);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cloudwatchlogs;
+
+import com.amazonaws.internal.AppendOnlyJournal;
+import com.amazonaws.services.logs.model.InputLogEvent;
+import com.amazonaws.util.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A disk-backed queue of log events waiting to be sent, bounded by the bytes
+ * it holds. When full, the oldest events are dropped.
+ * <p>
+ * Events are kept in an {@link AppendOnlyJournal} as records of a timestamp
+ * followed by the UTF-8 message, so queued events survive the process being
+ * killed. Only the oldest events that may go in the next batch are read back
+ * into memory.
+ * </p>
+ */
+class LogEventJournal {
+
+    /** Bytes PutLogEvents counts for each event on top of its UTF-8 message. */
+    static final int EVENT_OVERHEAD_BYTES = 26;
+
+    /** Size of the timestamp at the start of each record. */
+    private static final int TIMESTAMP_SIZE = 8;
+
+    private final AppendOnlyJournal journal;
+    private final long maxBytes;
+
+    /**
+     * Opens the journal, restoring any events queued by an earlier process.
+     *
+     * @param file the journal file.
+     * @param maxBytes most bytes of events the journal holds.
+     * @throws IOException if the journal file cannot be opened.
+     */
+    LogEventJournal(File file, long maxBytes) throws IOException {
+        this.journal = new AppendOnlyJournal(file, maxBytes);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Appends events to the journal in one write, dropping the oldest events
+     * if they do not fit.
+     *
+     * @param events the events, each with a timestamp and a message.
+     * @return the number of events dropped.
+     * @throws IOException if the events cannot be written.
+     */
+    synchronized int append(List<InputLogEvent> events) throws IOException {
+        if (events.isEmpty()) {
+            return 0;
+        }
+        final List<byte[]> records = new ArrayList<byte[]>(events.size());
+        for (final InputLogEvent event : events) {
+            final byte[] message = event.getMessage().getBytes(StringUtils.UTF8);
+            records.add(ByteBuffer.allocate(TIMESTAMP_SIZE + message.length)
+                    .putLong(event.getTimestamp())
+                    .put(message)
+                    .array());
+        }
+        journal.append(records);
+        return journal.trimTo(maxBytes);
+    }
+
+    /**
+     * Gets the oldest events that fit in one PutLogEvents call. The events
+     * stay queued until removed.
+     *
+     * @param maxEvents most events in the batch.
+     * @param maxBatchBytes most bytes in the batch, as counted by the service.
+     * @param maxSpanMillis longest time between the events of the batch.
+     * @return the events, oldest first; empty if none are queued.
+     * @throws IOException if the events cannot be read.
+     */
+    synchronized List<InputLogEvent> peek(int maxEvents, int maxBatchBytes, long maxSpanMillis)
+            throws IOException {
+        // Read only the events that fit by size, then cut the batch by time.
+        final List<AppendOnlyJournal.Record> candidates = journal.getOldest(maxEvents);
+        long batchBytes = 0;
+        int fitting = 0;
+        for (final AppendOnlyJournal.Record record : candidates) {
+            final int eventSize = getEventSize(record);
+            if (fitting > 0 && batchBytes + eventSize > maxBatchBytes) {
+                break;
+            }
+            batchBytes += eventSize;
+            fitting++;
+        }
+
+        final List<byte[]> records = journal.read(candidates.subList(0, fitting));
+        final List<InputLogEvent> batch = new ArrayList<InputLogEvent>(records.size());
+        long earliest = Long.MAX_VALUE;
+        long latest = Long.MIN_VALUE;
+        for (final byte[] record : records) {
+            final ByteBuffer buffer = ByteBuffer.wrap(record);
+            final long timestamp = buffer.getLong();
+            if (!batch.isEmpty()
+                    && Math.max(latest, timestamp) - Math.min(earliest, timestamp) > maxSpanMillis) {
+                break;
+            }
+            batch.add(new InputLogEvent()
+                    .withTimestamp(timestamp)
+                    .withMessage(new String(record, TIMESTAMP_SIZE, record.length - TIMESTAMP_SIZE,
+                            StringUtils.UTF8)));
+            earliest = Math.min(earliest, timestamp);
+            latest = Math.max(latest, timestamp);
+        }
+        return batch;
+    }
+
+    /**
+     * Removes the oldest events, once sent.
+     *
+     * @param count the number of events to remove.
+     * @throws IOException if the file cannot be updated.
+     */
+    synchronized void remove(int count) throws IOException {
+        journal.removeOldest(count);
+    }
+
+    /**
+     * @return the number of queued events.
+     */
+    synchronized int size() {
+        return journal.size();
+    }
+
+    /**
+     * @return true if no events are queued.
+     */
+    synchronized boolean isEmpty() {
+        return journal.isEmpty();
+    }
+
+    /**
+     * Closes the journal file.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    synchronized void close() throws IOException {
+        journal.close();
+    }
+
+    /** @return the bytes PutLogEvents counts for the event of a record. */
+    private static int getEventSize(AppendOnlyJournal.Record record) {
+        return record.getPayloadLength() - TIMESTAMP_SIZE + EVENT_OVERHEAD_BYTES;
+    }
+}
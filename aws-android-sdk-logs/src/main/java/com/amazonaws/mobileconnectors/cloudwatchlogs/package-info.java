@@ -0,0 +1,36 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * A batched appender of log messages to Amazon CloudWatch Logs.
+ * <p>
+ * CloudWatchLogsAppender buffers the messages of the
+ * {@code com.amazonaws.logging.Log} loggers in a bounded local journal and
+ * sends them in batches from a background thread, so that logging neither
+ * waits on the network nor loses the messages it could not send yet.
+ * <p>
+ * The following is an example of CloudWatchLogsAppender.
+ * <pre>
+ * AmazonCloudWatchLogsClient client = new AmazonCloudWatchLogsClient(credentialsProvider);
+ * client.setRegion(Region.getRegion(Regions.US_WEST_2));
+ * CloudWatchLogsAppender appender = new CloudWatchLogsAppender(client,
+ *         &quot;my_app&quot;, deviceId, new File(context.getFilesDir(), &quot;cloudwatch_logs&quot;));
+ * LogFactory.addLogProvider(appender);
+ * ...
+ * appender.close();
+ * </pre>
+ */
+
+package com.amazonaws.mobileconnectors.cloudwatchlogs;
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cloudwatchlogs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.logging.Log;
+import com.amazonaws.services.logs.AmazonCloudWatchLogs;
+import com.amazonaws.services.logs.model.CreateLogGroupRequest;
+import com.amazonaws.services.logs.model.CreateLogStreamRequest;
+import com.amazonaws.services.logs.model.InputLogEvent;
+import com.amazonaws.services.logs.model.InvalidSequenceTokenException;
+import com.amazonaws.services.logs.model.PutLogEventsRequest;
+import com.amazonaws.services.logs.model.PutLogEventsResult;
+import com.amazonaws.services.logs.model.ResourceNotFoundException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class CloudWatchLogsAppenderTest {
+
+    private static final String GROUP = "group";
+    private static final String STREAM = "stream";
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private AmazonCloudWatchLogs client;
+    private PutLogEvents putLogEvents;
+    private CloudWatchLogsAppender appender;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = folder.newFolder();
+        client = mock(AmazonCloudWatchLogs.class);
+        putLogEvents = new PutLogEvents();
+        when(client.putLogEvents(any(PutLogEventsRequest.class))).thenAnswer(putLogEvents);
+        appender = newAppender(client);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        appender.close();
+        assertTrue(appender.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    private CloudWatchLogsAppender newAppender(AmazonCloudWatchLogs client) throws Exception {
+        // flush only when asked to
+        return new CloudWatchLogsAppender(client, GROUP, STREAM, directory,
+                new CloudWatchLogsAppenderConfig().withFlushIntervalMillis(TimeUnit.HOURS.toMillis(1)));
+    }
+
+    private static List<String> messages(PutLogEventsRequest request) {
+        final List<String> messages = new ArrayList<String>();
+        for (final InputLogEvent event : request.getLogEvents()) {
+            messages.add(event.getMessage());
+        }
+        return messages;
+    }
+
+    @Test
+    public void testMessagesAreSentInOneBatchOnFlush() throws Exception {
+        final Log log = appender.getLog("tag");
+        log.info("one");
+        log.debug("below the level");
+        log.warn("two");
+        appender.flush();
+
+        final PutLogEventsRequest request = putLogEvents.next();
+        assertEquals(GROUP, request.getLogGroupName());
+        assertEquals(STREAM, request.getLogStreamName());
+        assertNull(request.getSequenceToken());
+        assertEquals(Arrays.asList("INFO/tag: one", "WARN/tag: two"), messages(request));
+        final long first = request.getLogEvents().get(0).getTimestamp();
+        assertTrue(first <= request.getLogEvents().get(1).getTimestamp());
+    }
+
+    @Test
+    public void testSequenceTokenIsCarriedToTheNextCall() throws Exception {
+        final Log log = appender.getLog("tag");
+        putLogEvents.results.add(new PutLogEventsResult().withNextSequenceToken("token-1"));
+        log.info("one");
+        appender.flush();
+        assertNull(putLogEvents.next().getSequenceToken());
+
+        log.info("two");
+        appender.flush();
+        final PutLogEventsRequest request = putLogEvents.next();
+        assertEquals("token-1", request.getSequenceToken());
+        assertEquals(Arrays.asList("INFO/tag: two"), messages(request));
+    }
+
+    @Test
+    public void testInvalidSequenceTokenIsRecovered() throws Exception {
+        final InvalidSequenceTokenException stale = new InvalidSequenceTokenException("stale");
+        stale.setExpectedSequenceToken("token-7");
+        putLogEvents.failures.add(stale);
+
+        appender.getLog("tag").error("message");
+        appender.flush();
+        assertNull(putLogEvents.next().getSequenceToken());
+        final PutLogEventsRequest retry = putLogEvents.next();
+        assertEquals("token-7", retry.getSequenceToken());
+        assertEquals(Arrays.asList("ERROR/tag: message"), messages(retry));
+    }
+
+    @Test
+    public void testMissingStreamIsCreated() throws Exception {
+        putLogEvents.failures.add(new ResourceNotFoundException("no stream"));
+
+        appender.getLog("tag").info("message");
+        appender.flush();
+        putLogEvents.next();
+        final PutLogEventsRequest retry = putLogEvents.next();
+        assertEquals(Arrays.asList("INFO/tag: message"), messages(retry));
+        verify(client).createLogGroup(any(CreateLogGroupRequest.class));
+        verify(client).createLogStream(any(CreateLogStreamRequest.class));
+    }
+
+    @Test
+    public void testUnsentEventsAreSentByTheNextAppender() throws Exception {
+        // only one appender may use the journal at a time
+        appender.close();
+        assertTrue(appender.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        final AmazonCloudWatchLogs offline = mock(AmazonCloudWatchLogs.class);
+        when(offline.putLogEvents(any(PutLogEventsRequest.class)))
+                .thenThrow(new AmazonClientException("offline"));
+        final CloudWatchLogsAppender first = newAppender(offline);
+        first.getLog("tag").info("kept");
+        first.close();
+        assertTrue(first.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        verify(offline).putLogEvents(any(PutLogEventsRequest.class));
+
+        appender = newAppender(client);
+        appender.flush();
+        assertEquals(Arrays.asList("INFO/tag: kept"), messages(putLogEvents.next()));
+    }
+
+    /**
+     * Records the PutLogEvents requests, failing or answering them in turn.
+     */
+    private static final class PutLogEvents implements Answer<PutLogEventsResult> {
+        private final BlockingQueue<PutLogEventsRequest> requests =
+                new LinkedBlockingQueue<PutLogEventsRequest>();
+        private final ConcurrentLinkedQueue<RuntimeException> failures =
+                new ConcurrentLinkedQueue<RuntimeException>();
+        private final ConcurrentLinkedQueue<PutLogEventsResult> results =
+                new ConcurrentLinkedQueue<PutLogEventsResult>();
+
+        @Override
+        public PutLogEventsResult answer(InvocationOnMock invocation) {
+            final PutLogEventsRequest request = (PutLogEventsRequest) invocation.getArguments()[0];
+            // copy the events, the list may be reused
+            requests.add(new PutLogEventsRequest()
+                    .withLogGroupName(request.getLogGroupName())
+                    .withLogStreamName(request.getLogStreamName())
+                    .withSequenceToken(request.getSequenceToken())
+                    .withLogEvents(new ArrayList<InputLogEvent>(request.getLogEvents())));
+            final RuntimeException failure = failures.poll();
+            if (failure != null) {
+                throw failure;
+            }
+            final PutLogEventsResult result = results.poll();
+            return result != null ? result : new PutLogEventsResult();
+        }
+
+        PutLogEventsRequest next() throws InterruptedException {
+            final PutLogEventsRequest request = requests.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertNotNull("no PutLogEvents call", request);
+            return request;
+        }
+    }
+}
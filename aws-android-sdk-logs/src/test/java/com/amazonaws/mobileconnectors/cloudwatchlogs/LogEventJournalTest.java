@@ -0,0 +1,138 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.cloudwatchlogs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.services.logs.model.InputLogEvent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class LogEventJournalTest {
+
+    private static final long MAX_BYTES = 1024;
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private LogEventJournal journal;
+
+    @Before
+    public void setUp() throws Exception {
+        file = new File(folder.getRoot(), "log-events.journal");
+        journal = new LogEventJournal(file, MAX_BYTES);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        journal.close();
+    }
+
+    private static InputLogEvent event(long timestamp, String message) {
+        return new InputLogEvent().withTimestamp(timestamp).withMessage(message);
+    }
+
+    private static List<String> messages(List<InputLogEvent> events) {
+        final List<String> messages = new ArrayList<String>();
+        for (final InputLogEvent event : events) {
+            messages.add(event.getMessage());
+        }
+        return messages;
+    }
+
+    @Test
+    public void testEventsAreReadBackWithTheirTimestamps() throws Exception {
+        assertEquals(0, journal.append(Arrays.asList(event(1000L, "first"),
+                event(2000L, "second é中"))));
+        final List<InputLogEvent> batch = journal.peek(10, 1024 * 1024, DAY_MILLIS);
+        assertEquals(2, batch.size());
+        assertEquals(Long.valueOf(1000L), batch.get(0).getTimestamp());
+        assertEquals("second é中", batch.get(1).getMessage());
+        assertEquals(Long.valueOf(2000L), batch.get(1).getTimestamp());
+        // peeking doesn't remove
+        assertEquals(2, journal.size());
+    }
+
+    @Test
+    public void testBatchIsLimitedByCountBytesAndSpan() throws Exception {
+        journal.append(Arrays.asList(event(0L, "a"), event(1L, "b"), event(2L, "c"),
+                event(DAY_MILLIS + 1, "d")));
+
+        assertEquals(Arrays.asList("a", "b"), messages(journal.peek(2, 1024 * 1024, DAY_MILLIS)));
+        // each event counts 26 bytes besides its message
+        assertEquals(Arrays.asList("a", "b"), messages(journal.peek(10, 2 * 27, DAY_MILLIS)));
+        assertEquals(Arrays.asList("a", "b", "c"), messages(journal.peek(10, 1024 * 1024, DAY_MILLIS)));
+        // a single event is returned even if it is over the byte limit
+        assertEquals(Arrays.asList("a"), messages(journal.peek(10, 1, DAY_MILLIS)));
+    }
+
+    @Test
+    public void testRemovedEventsAreNotReadAgain() throws Exception {
+        journal.append(Arrays.asList(event(0L, "a"), event(1L, "b"), event(2L, "c")));
+        journal.remove(2);
+        assertEquals(Arrays.asList("c"), messages(journal.peek(10, 1024 * 1024, DAY_MILLIS)));
+        journal.remove(1);
+        assertTrue(journal.isEmpty());
+    }
+
+    @Test
+    public void testFullJournalDropsOldestEvents() throws Exception {
+        final List<InputLogEvent> events = new ArrayList<InputLogEvent>();
+        for (int i = 0; i < 20; i++) {
+            events.add(event(i, String.format("event %80d", i)));
+        }
+        final int dropped = journal.append(events);
+        assertTrue(dropped > 0);
+        assertEquals(20 - dropped, journal.size());
+        assertEquals(String.format("event %80d", dropped),
+                journal.peek(1, 1024 * 1024, DAY_MILLIS).get(0).getMessage());
+    }
+
+    @Test
+    public void testUnsentEventsSurviveACrashWithATornTail() throws Exception {
+        journal.append(Arrays.asList(event(0L, "sent"), event(1L, "unsent 1")));
+        journal.remove(1);
+        journal.append(Arrays.asList(event(2L, "unsent 2"), event(3L, "torn")));
+        journal.close();
+
+        // a kill in the middle of the last append
+        final RandomAccessFile data = new RandomAccessFile(file, "rw");
+        try {
+            data.setLength(data.length() - 3);
+        } finally {
+            data.close();
+        }
+
+        journal = new LogEventJournal(file, MAX_BYTES);
+        assertEquals(2, journal.size());
+        final List<InputLogEvent> restored = journal.peek(10, 1024 * 1024, DAY_MILLIS);
+        assertEquals(Arrays.asList("unsent 1", "unsent 2"), messages(restored));
+        assertEquals(Long.valueOf(2L), restored.get(1).getTimestamp());
+    }
+}
@@ -98,6 +98,7 @@ import com.amazonaws.mobileconnectors.cognitoidentityprovider.handlers.GetDetail
 import com.amazonaws.mobileconnectors.cognitoidentityprovider.handlers.SignUpHandler;
 import com.amazonaws.mobileconnectors.cognitoidentityprovider.handlers.UpdateAttributesHandler;
 import com.amazonaws.mobileconnectors.cognitoidentityprovider.handlers.VerificationHandler;
+import com.amazonaws.mobileconnectors.cognitoidentityprovider.util.CognitoBackgroundExecutor;
 import com.amazonaws.mobileconnectors.cognitoidentityprovider.util.CognitoPinpointSharedContext;
 import com.amazonaws.mobileconnectors.cognitoidentityprovider.util.CognitoServiceConstants;
 import com.amazonaws.regions.Region;
@@ -749,12 +750,12 @@ public final class AWSMobileClient implements AWSCredentialsProvider {
         if (hasChanged) {
             synchronized (listeners) {
                 for (final UserStateListener listener : listeners) {
-                    new Thread(new Runnable() {
+                    CognitoBackgroundExecutor.execute(new Runnable() {
                         @Override
                         public void run() {
                             listener.onUserStateChanged(details);
                         }
-                    }).start();
+                    });
                 }
             }
         }
@@ -3290,7 +3291,7 @@ public final class AWSMobileClient implements AWSCredentialsProvider {
                                                 }
                                             });
                                 }
-                                new Thread(new Runnable() {
+                                CognitoBackgroundExecutor.execute(new Runnable() {
                                     @Override
                                     public void run() {
                                         final UserStateDetails userStateDetails =
@@ -3298,7 +3299,7 @@ public final class AWSMobileClient implements AWSCredentialsProvider {
                                         callback.onResult(userStateDetails);
                                         setUserState(userStateDetails);
                                     }
-                                }).start();
+                                });
                             }
 
                             @Override
@@ -3313,12 +3314,12 @@ public final class AWSMobileClient implements AWSCredentialsProvider {
                                             "has signaled success at least once.");
                                     return;
                                 }
-                                new Thread(new Runnable() {
+                                CognitoBackgroundExecutor.execute(new Runnable() {
                                     @Override
                                     public void run() {
                                         callback.onError(e);
                                     }
-                                }).start();
+                                });
                             }
                         });
                 if (scopes != null) {
@@ -3825,9 +3826,7 @@ class AWSMobileClientStore {
     void set(final Map<String, String> attributes) {
         try {
             mReadWriteLock.writeLock().lock();
-            for (String key : attributes.keySet()) {
-                mAWSKeyValueStore.put(key, attributes.get(key));
-            }
+            mAWSKeyValueStore.putAll(attributes);
         } finally {
             mReadWriteLock.writeLock().unlock();
         }
@@ -20,6 +20,7 @@ package com.amazonaws.mobile.client.internal;
 import android.util.Log;
 
 import com.amazonaws.mobile.client.Callback;
+import com.amazonaws.mobileconnectors.cognitoidentityprovider.util.CognitoBackgroundExecutor;
 
 import java.util.concurrent.CountDownLatch;
 
@@ -94,7 +95,7 @@ public class InternalCallback<R> implements Callback<R> {
         }
         mode = Mode.Async;
         lock = null;
-        new Thread(new Runnable() {
+        CognitoBackgroundExecutor.execute(new Runnable() {
             @Override
             public void run() {
                 try {
@@ -103,7 +104,7 @@ public class InternalCallback<R> implements Callback<R> {
                     call(null, e);
                 }
             }
-        }).start();
+        });
     }
 
     public R await(final Runnable runnable) throws Exception {
@@ -1,6 +1,7 @@
 package com.amazonaws.mobile.client.internal;
 
 import com.amazonaws.mobile.client.Callback;
+import com.amazonaws.mobileconnectors.cognitoidentityprovider.util.CognitoBackgroundExecutor;
 
 /**
  * Internal class to allow easy surfacing of synchronous and asynchronous operations.
@@ -37,7 +38,7 @@ public abstract class ReturningRunnable<R> {
      * @param callback receives the result or error from the operation
      */
     public void async(final Callback<R> callback) {
-        new Thread(new Runnable() {
+        CognitoBackgroundExecutor.execute(new Runnable() {
             @Override
             public void run() {
                 try {
@@ -50,6 +51,6 @@ public abstract class ReturningRunnable<R> {
                     }
                 }
             }
-        }).start();
+        });
     }
 }
@@ -17,6 +17,7 @@
 
 package com.amazonaws.mobile.client.results;
 
+import com.amazonaws.mobileconnectors.cognitoidentityprovider.util.CognitoJWTClaims;
 import com.amazonaws.mobileconnectors.cognitoidentityprovider.util.CognitoJWTParser;
 
 import java.util.Date;
@@ -25,6 +26,7 @@ public class Token {
 
     public static final int MILLIS_PER_SEC = 1000;
     private final String token;
+    private volatile CognitoJWTClaims claims;
 
     public Token(final String token) {
         this.token = token;
@@ -68,13 +70,7 @@ public class Token {
 
     Date getClaimDate(final String claimStr) {
         try {
-            final String claim = CognitoJWTParser.getClaim(token, claimStr);
-            if (claim == null) {
-                return null;
-            }
-            final long epocTimeSec = Long.parseLong(claim);
-            final long epocTimeMilliSec = epocTimeSec * MILLIS_PER_SEC;
-            return new Date(epocTimeMilliSec);
+            return new Date(getClaims().getClaimAsMillis(claimStr));
         } catch (final Exception e) {
             throw new RuntimeException("Failed to get claim from token", e);
         }
@@ -86,6 +82,15 @@ public class Token {
      * @return value of the claim from the token
      */
     public String getClaim(final String claim) {
-        return CognitoJWTParser.getClaim(token, claim);
+        return getClaims().getClaim(claim);
+    }
+
+    private CognitoJWTClaims getClaims() {
+        CognitoJWTClaims result = claims;
+        if (result == null) {
+            result = CognitoJWTParser.getClaims(token);
+            claims = result;
+        }
+        return result;
     }
 }
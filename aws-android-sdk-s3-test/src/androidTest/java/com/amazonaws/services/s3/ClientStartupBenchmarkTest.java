@@ -0,0 +1,109 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.services.s3;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.util.Log;
+
+import com.amazonaws.AmazonWebServiceClient;
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.regions.Region;
+import com.amazonaws.regions.Regions;
+import com.amazonaws.services.sns.AmazonSNSClient;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to construct a service client and resolve
+ * everything it needs to sign its first request: the request handler chain,
+ * the region metadata and the signer. Only the first client of a process pays
+ * for loading the shared metadata, so the first measurement of each client
+ * type is logged separately from the median of the following ones, which
+ * must stay within {@link #WARM_BUDGET_MILLIS}. Other tests in the process
+ * may already have loaded the metadata, so the cold time is only logged. No
+ * request is sent.
+ */
+public class ClientStartupBenchmarkTest {
+
+    private static final String TAG = ClientStartupBenchmarkTest.class.getSimpleName();
+
+    private static final int WARM_ITERATIONS = 20;
+
+    /**
+     * Upper bound of the median warm time to first request. Reading the
+     * handler chain resources or creating signers reflectively again on each
+     * client would exceed it by far on any device.
+     */
+    private static final long WARM_BUDGET_MILLIS = 20;
+
+    private static final AWSCredentials CREDENTIALS =
+            new BasicAWSCredentials("accessKey", "secretKey");
+
+    private interface ClientFactory {
+        AmazonWebServiceClient newClient();
+    }
+
+    @Test
+    public void benchmarkClientStartup() {
+        benchmark("AmazonS3Client", new ClientFactory() {
+            @Override
+            public AmazonWebServiceClient newClient() {
+                return new AmazonS3Client(CREDENTIALS);
+            }
+        });
+        benchmark("AmazonSNSClient", new ClientFactory() {
+            @Override
+            public AmazonWebServiceClient newClient() {
+                return new AmazonSNSClient(CREDENTIALS);
+            }
+        });
+    }
+
+    private static void benchmark(String clientType, ClientFactory factory) {
+        final long cold = timeToFirstRequest(factory);
+
+        final long[] warm = new long[WARM_ITERATIONS];
+        for (int i = 0; i < WARM_ITERATIONS; i++) {
+            warm[i] = timeToFirstRequest(factory);
+        }
+        Arrays.sort(warm);
+        final long warmMedian = warm[WARM_ITERATIONS / 2];
+
+        Log.d(TAG, clientType + " time to first request: cold " + cold + " ns, warm median "
+                + warmMedian + " ns.");
+        // The median discards the odd warm run slowed down by a GC pause.
+        assertTrue(clientType + " warm time to first request " + warmMedian + " ns exceeds "
+                + WARM_BUDGET_MILLIS + " ms",
+                warmMedian < TimeUnit.MILLISECONDS.toNanos(WARM_BUDGET_MILLIS));
+    }
+
+    private static long timeToFirstRequest(ClientFactory factory) {
+        final long begin = System.nanoTime();
+
+        final AmazonWebServiceClient client = factory.newClient();
+        client.setRegion(Region.getRegion(Regions.US_WEST_2));
+        assertNotNull(client.getSignerByURI(URI.create(client.getEndpoint())));
+
+        return System.nanoTime() - begin;
+    }
+}
@@ -0,0 +1,507 @@
+/**
+ * Copyright 2015-2019 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transferutility;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3EncryptionClient;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static com.amazonaws.services.s3.internal.Constants.MAXIMUM_UPLOAD_PARTS;
+
+/**
+ * Uploads an InputStream of unknown length as a multipart upload while the
+ * stream is being read, without copying it to a temporary file first.
+ *
+ * The stream is read into part buffers taken from a bounded pool; each part is
+ * submitted to the pool reserved for streamed parts as soon as it is full and
+ * its buffer is returned to the pool once the part task finishes, so reading
+ * blocks while {@link #MAX_PART_BUFFERS} parts are in flight. Like
+ * {@link UploadTask}, the last part of an encrypted upload is held until all
+ * the other parts have been uploaded. An empty stream
+ * is uploaded with a single PutObject request instead. Every part has a record in
+ * the database, like the parts of a file upload, which holds its ETag for
+ * completing the upload. When parts are spilled to disk, the record points to
+ * a file holding the part until S3 acknowledges it; once the whole stream has
+ * been read, such an upload is resumed by {@link UploadTask} like any other
+ * multipart upload.
+ */
+class StreamingUploadTask extends UploadTask {
+
+    private static final Log LOGGER = LogFactory.getLog(StreamingUploadTask.class);
+
+    /**
+     * Prefix of the directory holding the spilled parts of a streaming upload.
+     * The summary record of the upload points to this directory, which is
+     * only created when parts are spilled to disk.
+     */
+    static final String SPILL_DIRECTORY_PREFIX = TransferStatusUpdater.TEMP_FILE_PREFIX + "-stream-";
+
+    /**
+     * Size of each part but the last one.
+     */
+    static final int PART_SIZE = TransferUtility.MINIMUM_UPLOAD_PART_SIZE;
+
+    /**
+     * Maximum number of part buffers held in memory.
+     */
+    static final int MAX_PART_BUFFERS = 3;
+
+    private static final String STREAM_INTERRUPTED_MESSAGE =
+            "The streaming upload was interrupted and can't be resumed.";
+
+    private final AmazonS3 s3;
+    private final TransferRecord upload;
+    private final TransferDBUtil dbUtil;
+    private final TransferStatusUpdater updater;
+    private final InputStream inputStream;
+    private final boolean spillToDisk;
+    private final File spillDirectory;
+    private final boolean deferLastPart;
+
+    private final BlockingQueue<byte[]> freeBuffers = new LinkedBlockingQueue<byte[]>();
+    private int allocatedBuffers;
+    private volatile Exception partFailure;
+    private volatile boolean partWaitingForNetwork;
+    private boolean streamRead;
+    private int partCount;
+    private UploadPartTaskMetadata lastPart;
+    private StreamedPartTask lastPartTask;
+
+    StreamingUploadTask(TransferRecord uploadInfo,
+                        AmazonS3 s3,
+                        TransferDBUtil dbUtil,
+                        TransferStatusUpdater updater,
+                        InputStream inputStream,
+                        boolean spillToDisk) {
+        super(uploadInfo, s3, dbUtil, updater);
+        this.upload = uploadInfo;
+        this.s3 = s3;
+        this.dbUtil = dbUtil;
+        this.updater = updater;
+        this.inputStream = inputStream;
+        this.spillToDisk = spillToDisk;
+        this.spillDirectory = new File(uploadInfo.file);
+        /*
+         * The encryption client appends the authentication tag of the whole
+         * object to the last part, so the last part is uploaded after all the
+         * others.
+         */
+        this.deferLastPart = s3 instanceof AmazonS3EncryptionClient;
+    }
+
+    /**
+     * Returns a new spill directory for a streaming upload. The directory is
+     * only created if parts are spilled to disk.
+     *
+     * @param spillToDisk whether parts are spilled to disk
+     * @return the spill directory
+     * @throws IOException if the directory can't be created
+     */
+    static File newSpillDirectory(boolean spillToDisk) throws IOException {
+        final File directory = new File(System.getProperty("java.io.tmpdir"),
+                SPILL_DIRECTORY_PREFIX + UUID.randomUUID().toString());
+        if (spillToDisk && !directory.mkdirs()) {
+            throw new IOException("Unable to create directory " + directory);
+        }
+        return directory;
+    }
+
+    /**
+     * @param transfer a transfer record
+     * @return whether the record is the summary of a streaming upload
+     */
+    static boolean isStreamingUpload(TransferRecord transfer) {
+        return transfer.file != null
+                && new File(transfer.file).getName().startsWith(SPILL_DIRECTORY_PREFIX);
+    }
+
+    /**
+     * @param transfer a transfer record
+     * @return whether the record is a streaming upload that can't be resumed,
+     *         because the end of the stream wasn't read or its parts weren't
+     *         spilled to disk
+     */
+    static boolean isIncompleteStream(TransferRecord transfer) {
+        return isStreamingUpload(transfer)
+                && (transfer.bytesTotal < 0 || !new File(transfer.file).isDirectory());
+    }
+
+    /*
+     * Runs the streaming upload and returns whether successfully uploaded.
+     */
+    @Override
+    public Boolean call() throws Exception {
+        updater.updateState(upload.id, TransferState.IN_PROGRESS);
+
+        final PushbackInputStream in = new PushbackInputStream(inputStream, 1);
+        try {
+            if (isAtEnd(in)) {
+                // A multipart upload needs at least one part, so it can't
+                // hold an empty object.
+                return putEmptyObject();
+            }
+        } catch (final IOException ioe) {
+            LOGGER.error("Error reading the stream of upload: " + upload.id, ioe);
+            TransferStatusUpdater.deleteTempFile(spillDirectory);
+            updater.throwError(upload.id, ioe);
+            updater.updateState(upload.id, TransferState.FAILED);
+            return false;
+        }
+
+        final PutObjectRequest putObjectRequest = createPutObjectRequest(upload);
+        TransferUtility.appendMultipartTransferServiceUserAgentString(putObjectRequest);
+        try {
+            upload.multipartId = initiateMultipartUpload(putObjectRequest);
+        } catch (final AmazonClientException ace) {
+            LOGGER.error("Error initiating multipart upload: " + upload.id
+                    + " due to " + ace.getMessage(), ace);
+            TransferStatusUpdater.deleteTempFile(spillDirectory);
+            updater.throwError(upload.id, ace);
+            updater.updateState(upload.id, TransferState.FAILED);
+            return false;
+        }
+        dbUtil.updateMultipartId(upload.id, upload.multipartId);
+
+        try {
+            upload.bytesTotal = readAndUploadParts(in);
+            // The parts are all recorded, so the upload can be resumed from here
+            dbUtil.updateTransferRecord(upload);
+            LOGGER.info("Streaming upload " + upload.id + " read " + upload.bytesTotal
+                    + " bytes in " + partCount + " parts.");
+
+            boolean isSuccess = true;
+            for (final UploadPartTaskMetadata task : uploadPartTasks.values()) {
+                // UploadPartTask returns false when the network is lost
+                isSuccess &= task.uploadPartTask.get();
+            }
+            if (isSuccess && lastPart != null) {
+                uploadPartTasks.put(lastPart.uploadPartRequest.getPartNumber(), lastPart);
+                lastPart.uploadPartTask = TransferThreadPool.submitStreamedPartTask(lastPartTask);
+                isSuccess &= lastPart.uploadPartTask.get();
+            }
+            if (!isSuccess) {
+                return handleInterruption(null);
+            }
+        } catch (final Exception e) {
+            LOGGER.error("Streaming upload resulted in an exception. " + e);
+            for (final UploadPartTaskMetadata task : uploadPartTasks.values()) {
+                if (task.uploadPartTask != null) {
+                    task.uploadPartTask.cancel(true);
+                }
+            }
+            return handleInterruption(e);
+        }
+
+        LOGGER.info("Completing the streaming upload " + upload.id);
+        try {
+            completeMultiPartUpload(upload.id, upload.bucketName, upload.key,
+                    upload.multipartId);
+            updater.updateProgress(upload.id, upload.bytesTotal, upload.bytesTotal, true);
+            updater.updateState(upload.id, TransferState.COMPLETED);
+            return true;
+        } catch (final AmazonClientException ace) {
+            LOGGER.error("Failed to complete multipart: " + upload.id
+                    + " due to " + ace.getMessage(), ace);
+            abortMultiPartUpload(upload.id, upload.bucketName, upload.key,
+                    upload.multipartId);
+            TransferStatusUpdater.deleteTempFile(spillDirectory);
+            updater.throwError(upload.id, ace);
+            updater.updateState(upload.id, TransferState.FAILED);
+            return false;
+        }
+    }
+
+    /**
+     * Reads the stream to the end, submitting each part as soon as it's read
+     * but the last part of an encrypted upload.
+     *
+     * @return the length of the stream
+     */
+    private long readAndUploadParts(PushbackInputStream in) throws Exception {
+        final UploadTaskProgressListener progressListener = new UploadTaskProgressListener(upload);
+        long bytesRead = 0;
+        int partNumber = 0;
+        boolean isLastPart = false;
+        while (!isLastPart) {
+            if (partNumber == MAXIMUM_UPLOAD_PARTS) {
+                throw new AmazonClientException("The input stream exceeds the "
+                        + MAXIMUM_UPLOAD_PARTS + " parts of a streaming upload.");
+            }
+            final byte[] buffer = takeBuffer();
+            checkParts();
+            final int length = readPart(in, buffer);
+            isLastPart = length < buffer.length || isAtEnd(in);
+            partNumber++;
+            bytesRead += length;
+            uploadPart(partNumber, buffer, length, isLastPart, progressListener);
+        }
+        partCount = partNumber;
+        streamRead = true;
+        return bytesRead;
+    }
+
+    /**
+     * Uploads an empty object with a single PutObject request.
+     */
+    private Boolean putEmptyObject() {
+        final PutObjectRequest putObjectRequest = createPutObjectRequest(upload);
+        putObjectRequest.setFile(null);
+        putObjectRequest.setInputStream(new ByteArrayInputStream(new byte[0]));
+        putObjectRequest.getMetadata().setContentLength(0);
+        TransferUtility.appendTransferServiceUserAgentString(putObjectRequest);
+        try {
+            s3.putObject(putObjectRequest);
+        } catch (final AmazonClientException ace) {
+            LOGGER.error("Failed to upload the empty stream: " + upload.id
+                    + " due to " + ace.getMessage(), ace);
+            TransferStatusUpdater.deleteTempFile(spillDirectory);
+            updater.throwError(upload.id, ace);
+            updater.updateState(upload.id, TransferState.FAILED);
+            return false;
+        }
+        upload.bytesTotal = 0;
+        dbUtil.updateTransferRecord(upload);
+        TransferStatusUpdater.deleteTempFile(spillDirectory);
+        updater.updateProgress(upload.id, 0, 0, true);
+        updater.updateState(upload.id, TransferState.COMPLETED);
+        return true;
+    }
+
+    /**
+     * Stops reading the stream once the upload can no longer succeed.
+     */
+    private void checkParts() throws Exception {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (partFailure != null) {
+            throw partFailure;
+        }
+        if (partWaitingForNetwork && !spillToDisk) {
+            throw new AmazonClientException(STREAM_INTERRUPTED_MESSAGE);
+        }
+    }
+
+    private void uploadPart(int partNumber, byte[] buffer, int length, boolean isLastPart,
+            UploadTaskProgressListener progressListener) throws IOException {
+        File spillFile = null;
+        if (spillToDisk) {
+            spillFile = new File(spillDirectory, "part-" + partNumber);
+            writeSpillFile(spillFile, buffer, length);
+        }
+        final int partId = dbUtil.insertStreamingPartRecord(upload.id, upload.bucketName,
+                upload.key, spillFile != null ? spillFile : spillDirectory, partNumber,
+                upload.multipartId, length, isLastPart ? 1 : 0);
+
+        final UploadPartRequest request = new UploadPartRequest()
+                .withId(partId)
+                .withMainUploadId(upload.id)
+                .withBucketName(upload.bucketName)
+                .withKey(upload.key)
+                .withUploadId(upload.multipartId)
+                .withInputStream(new ByteArrayInputStream(buffer, 0, length))
+                .withPartNumber(partNumber)
+                .withPartSize(length)
+                .withLastPart(isLastPart);
+        TransferUtility.appendMultipartTransferServiceUserAgentString(request);
+
+        final UploadPartTaskMetadata uploadPartTaskMetadata = new UploadPartTaskMetadata();
+        uploadPartTaskMetadata.uploadPartRequest = request;
+        uploadPartTaskMetadata.bytesTransferredSoFar = 0;
+        uploadPartTaskMetadata.state = TransferState.WAITING;
+        final StreamedPartTask task = new StreamedPartTask(uploadPartTaskMetadata,
+                progressListener, request, buffer, spillFile);
+        if (deferLastPart && isLastPart) {
+            lastPart = uploadPartTaskMetadata;
+            lastPartTask = task;
+            return;
+        }
+        uploadPartTasks.put(partNumber, uploadPartTaskMetadata);
+        uploadPartTaskMetadata.uploadPartTask = TransferThreadPool.submitStreamedPartTask(task);
+    }
+
+    /**
+     * Sets the final state of an upload that didn't complete. Only an upload
+     * whose stream was read to the end and whose parts were spilled to disk
+     * can be paused or wait for the network; any other upload fails.
+     *
+     * @param e the exception that stopped the upload, or null if parts are
+     *            waiting for the network
+     */
+    private Boolean handleInterruption(Exception e) {
+        if (TransferState.PENDING_CANCEL.equals(upload.state)) {
+            TransferStatusUpdater.deleteTempFile(spillDirectory);
+            updater.updateState(upload.id, TransferState.CANCELED);
+            LOGGER.info("Transfer is " + TransferState.CANCELED);
+            return false;
+        }
+
+        final boolean waitingForNetwork = isWaitingForNetwork();
+        if (spillToDisk && streamRead) {
+            if (TransferState.PENDING_PAUSE.equals(upload.state)) {
+                updater.updateState(upload.id, TransferState.PAUSED);
+                LOGGER.info("Transfer is " + TransferState.PAUSED);
+                return false;
+            }
+            if (waitingForNetwork) {
+                LOGGER.info("Network not connected. Setting the state to WAITING_FOR_NETWORK.");
+                updater.updateState(upload.id, TransferState.WAITING_FOR_NETWORK);
+                return false;
+            }
+        }
+
+        Exception error = e;
+        if (e instanceof ExecutionException && e.getCause() instanceof Exception) {
+            error = (Exception) e.getCause();
+        }
+        if (e == null || e instanceof InterruptedException || waitingForNetwork
+                || TransferState.PENDING_PAUSE.equals(upload.state)) {
+            error = new AmazonClientException(STREAM_INTERRUPTED_MESSAGE, e);
+        }
+        LOGGER.error("Error encountered during streaming upload: " + upload.id
+                + " due to " + error.getMessage(), error);
+        abortMultiPartUpload(upload.id, upload.bucketName, upload.key, upload.multipartId);
+        TransferStatusUpdater.deleteTempFile(spillDirectory);
+        updater.throwError(upload.id, error);
+        updater.updateState(upload.id, TransferState.FAILED);
+        return false;
+    }
+
+    private boolean isWaitingForNetwork() {
+        if (partWaitingForNetwork) {
+            return true;
+        }
+        try {
+            if (TransferNetworkLossHandler.getInstance() != null &&
+                !TransferNetworkLossHandler.getInstance().isNetworkConnected()) {
+                return true;
+            }
+        } catch (TransferUtilityException transferUtilityException) {
+            LOGGER.error("TransferUtilityException: [" + transferUtilityException + "]");
+        }
+        return false;
+    }
+
+    /**
+     * Takes a free part buffer, allocating one while fewer than
+     * {@link #MAX_PART_BUFFERS} exist and waiting for one otherwise. Only the
+     * reading thread takes buffers.
+     */
+    private byte[] takeBuffer() throws InterruptedException {
+        final byte[] buffer = freeBuffers.poll();
+        if (buffer != null) {
+            return buffer;
+        }
+        if (allocatedBuffers < MAX_PART_BUFFERS) {
+            allocatedBuffers++;
+            return new byte[PART_SIZE];
+        }
+        return freeBuffers.take();
+    }
+
+    /**
+     * Reads until the buffer is full or the stream ends.
+     *
+     * @return the number of bytes read
+     */
+    static int readPart(InputStream in, byte[] buffer) throws IOException {
+        int length = 0;
+        while (length < buffer.length) {
+            final int read = in.read(buffer, length, buffer.length - length);
+            if (read == -1) {
+                break;
+            }
+            length += read;
+        }
+        return length;
+    }
+
+    private static boolean isAtEnd(PushbackInputStream in) throws IOException {
+        final int next = in.read();
+        if (next == -1) {
+            return true;
+        }
+        in.unread(next);
+        return false;
+    }
+
+    private static void writeSpillFile(File file, byte[] buffer, int length) throws IOException {
+        final OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(buffer, 0, length);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Uploads a part from its buffer, then returns the buffer to the pool and
+     * deletes the spilled copy of the part once S3 has acknowledged it.
+     */
+    private final class StreamedPartTask extends UploadPartTask {
+        private final byte[] buffer;
+        private final File spillFile;
+
+        StreamedPartTask(UploadPartTaskMetadata uploadPartTaskMetadata,
+                         UploadTaskProgressListener uploadTaskProgressListener,
+                         UploadPartRequest uploadPartRequest,
+                         byte[] buffer,
+                         File spillFile) {
+            super(uploadPartTaskMetadata, uploadTaskProgressListener, uploadPartRequest, s3, dbUtil);
+            this.buffer = buffer;
+            this.spillFile = spillFile;
+        }
+
+        @Override
+        public Boolean call() throws Exception {
+            boolean uploaded = false;
+            try {
+                uploaded = super.call();
+                if (!uploaded) {
+                    partWaitingForNetwork = true;
+                }
+                return uploaded;
+            } catch (final Exception e) {
+                if (partFailure == null) {
+                    partFailure = e;
+                }
+                throw e;
+            } finally {
+                freeBuffers.offer(buffer);
+                if (uploaded && spillFile != null) {
+                    spillFile.delete();
+                }
+            }
+        }
+    }
+}
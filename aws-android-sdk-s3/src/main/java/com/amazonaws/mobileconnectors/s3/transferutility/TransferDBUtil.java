@@ -104,6 +104,30 @@ class TransferDBUtil {
         return transferDBBase.insert(transferDBBase.getContentUri(), values);
     }
 
+    /**
+     * Inserts a part record of a streaming upload, whose parts are added to
+     * the summary record as the stream is read.
+     *
+     * @param mainUploadId The id of the summary record of the upload.
+     * @param bucket The name of the bucket to upload to.
+     * @param key The key in the specified bucket by which to store the new
+     *            object.
+     * @param file The file the part is spilled to.
+     * @param partNumber The part number of this part.
+     * @param uploadId The multipart upload id of the upload.
+     * @param bytesTotal The size of the part.
+     * @param isLastPart Whether this part is the last part of the upload.
+     * @return The id of the record inserted.
+     */
+    public int insertStreamingPartRecord(int mainUploadId, String bucket, String key, File file,
+            int partNumber, String uploadId, long bytesTotal, int isLastPart) {
+        final ContentValues values = generateContentValuesForMultiPartUpload(bucket, key, file,
+                0, partNumber, uploadId, bytesTotal, isLastPart, new ObjectMetadata(), null, null);
+        values.put(TransferTable.COLUMN_MAIN_UPLOAD_ID, mainUploadId);
+        final Uri uri = transferDBBase.insert(transferDBBase.getContentUri(), values);
+        return Integer.parseInt(uri.getLastPathSegment());
+    }
+
     /**
      * Inserts a transfer record into database with the given values.
      *
@@ -29,6 +29,7 @@ import com.amazonaws.logging.LogFactory;
 import com.google.gson.Gson;
 
 import java.io.File;
+import java.io.InputStream;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -191,6 +192,31 @@ class TransferRecord {
         return false;
     }
 
+    /**
+     * Starts a streaming upload of the given input stream. Unlike
+     * {@link #start}, the upload can't wait for the preferred network because
+     * the stream is being produced now.
+     *
+     * @param inputStream the stream to upload
+     * @param spillToDisk whether unacknowledged parts are written to disk
+     * @param s3 s3 instance
+     * @param dbUtil database util
+     * @param updater status updater
+     * @return Whether the task is running.
+     */
+    boolean startStreaming(final InputStream inputStream,
+                           final boolean spillToDisk,
+                           final AmazonS3 s3,
+                           final TransferDBUtil dbUtil,
+                           final TransferStatusUpdater updater) {
+        if (isRunning() || !checkIsReadyToRun()) {
+            return false;
+        }
+        submittedTask = TransferThreadPool.submitTask(
+                new StreamingUploadTask(this, s3, dbUtil, updater, inputStream, spillToDisk));
+        return true;
+    }
+
     /**
      * Pauses a running transfer.
      *
@@ -275,6 +301,10 @@ class TransferRecord {
                         }
                     }
                 }).start();
+                // remove the parts spilled by a streaming upload
+                if (StreamingUploadTask.isStreamingUpload(this)) {
+                    TransferStatusUpdater.deleteTempFile(new File(file));
+                }
             } else if (TransferType.DOWNLOAD.equals(type)) {
                 // remove the partially download file
                 new File(file).delete();
@@ -18,6 +18,7 @@ package com.amazonaws.mobileconnectors.s3.transferutility;
 import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 
 import com.amazonaws.event.ProgressEvent;
 import com.amazonaws.event.ProgressListener;
@@ -26,13 +27,17 @@ import com.amazonaws.logging.Log;
 import com.amazonaws.logging.LogFactory;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A class that tracks active transfers. It has a static map that holds weak
@@ -75,6 +80,51 @@ class TransferStatusUpdater {
      */
     private static TransferStatusUpdater transferStatusUpdater;
 
+    /**
+     * Latest progress of the transfers whose listeners haven't been notified
+     * of it yet.
+     */
+    private final Map<Integer, TransferProgress> pendingProgress;
+
+    /**
+     * When the progress of each transfer was last written to the database.
+     */
+    private final Map<Integer, Long> progressSavedAt;
+
+    /**
+     * Number of state callbacks of each transfer posted to the main thread
+     * but not yet run. Progress reported after a state change is held back
+     * until the state change is delivered.
+     */
+    private final ConcurrentMap<Integer, AtomicInteger> stateCallbacksInFlight;
+
+    /**
+     * Whether the progress dispatcher has been posted to the main thread.
+     */
+    private final AtomicBoolean progressDispatchScheduled;
+
+    /**
+     * Delivers the pending progress of all transfers on the main thread.
+     */
+    private final Runnable progressDispatcher = new Runnable() {
+        @Override
+        public void run() {
+            dispatchProgress();
+        }
+    };
+
+    /**
+     * Minimum time in milliseconds between two progress callbacks of a
+     * transfer.
+     */
+    private volatile long progressUpdateInterval =
+            TransferUtilityOptions.getDefaultProgressUpdateInterval();
+
+    /**
+     * When the progress dispatcher last ran, in uptime milliseconds.
+     */
+    private volatile long progressDispatchedAt;
+
     /**
      * Prefix for temporary File created when client uploads an InputStream.   When the 
      * upload completes, the File is deleted, if it was created by the library, but not if it was
@@ -92,6 +142,19 @@ class TransferStatusUpdater {
         dbUtil = dbUtilInstance;
         mainHandler = new Handler(Looper.getMainLooper());
         transfers = new ConcurrentHashMap<Integer, TransferRecord>();
+        pendingProgress = new ConcurrentHashMap<Integer, TransferProgress>();
+        progressSavedAt = new ConcurrentHashMap<Integer, Long>();
+        stateCallbacksInFlight = new ConcurrentHashMap<Integer, AtomicInteger>();
+        progressDispatchScheduled = new AtomicBoolean();
+    }
+
+    /**
+     * Sets the minimum time between two progress callbacks of a transfer.
+     *
+     * @param interval the interval in milliseconds
+     */
+    void setProgressUpdateInterval(long interval) {
+        progressUpdateInterval = interval;
     }
 
     /**
@@ -146,6 +209,9 @@ class TransferStatusUpdater {
             LISTENERS.remove(id);
         }
         transfers.remove(id);
+        pendingProgress.remove(id);
+        progressSavedAt.remove(id);
+        stateCallbacksInFlight.remove(id);
     }
     
     /**
@@ -157,16 +223,31 @@ class TransferStatusUpdater {
         // Remove temporary file
         TransferRecord transferRecord = dbUtil.getTransferById(id);
         if (transferRecord != null) {
-            String path = transferRecord.file;
-            String fileName = new File(path).getName();
-            if (fileName.startsWith(TEMP_FILE_PREFIX)) {
-                new File(path).delete();
-            }
+            deleteTempFile(new File(transferRecord.file));
         }
         S3ClientReference.remove(id);
         dbUtil.deleteTransferRecords(id);
     }
 
+    /**
+     * Deletes a file or directory created by the library to hold the data of
+     * an InputStream upload. Files provided by the client are left alone.
+     *
+     * @param file the file or directory to delete
+     */
+    static void deleteTempFile(File file) {
+        if (!file.getName().startsWith(TEMP_FILE_PREFIX)) {
+            return;
+        }
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                child.delete();
+            }
+        }
+        file.delete();
+    }
+
     /**
      * Updates the state of an active transfer. If the transfer isn't tracked,
      * i.e. not active, it won't do anything. It writes the status of the
@@ -210,6 +291,9 @@ class TransferStatusUpdater {
             removeTransferRecordFromDB(id);
         }
 
+        // Progress reported before the state change is delivered before it
+        final TransferProgress progress = pendingProgress.remove(id);
+
         synchronized (LISTENERS) {
             final List<TransferListener> list = LISTENERS.get(id);
             if (list == null || list.isEmpty()) {
@@ -217,14 +301,23 @@ class TransferStatusUpdater {
             }
 
             // invoke TransferListener callback on main thread
-            for (final TransferListener l : list) {
-                mainHandler.post(new Runnable() {
-                    @Override
-                    public void run() {
+            final List<TransferListener> listeners = new ArrayList<TransferListener>(list);
+            final AtomicInteger inFlight = getStateCallbacksInFlight(id);
+            inFlight.incrementAndGet();
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    for (final TransferListener l : listeners) {
+                        if (progress != null) {
+                            l.onProgressChanged(id, progress.bytesCurrent, progress.bytesTotal);
+                        }
                         l.onStateChanged(id, newState);
                     }
-                });
-            }
+                    if (inFlight.decrementAndGet() == 0 && pendingProgress.containsKey(id)) {
+                        scheduleProgressDispatch(SystemClock.uptimeMillis());
+                    }
+                }
+            });
 
             // remove all LISTENERS when the transfer is in a final state so
             // as to release resources ASAP.
@@ -239,15 +332,18 @@ class TransferStatusUpdater {
     /**
      * Updates the transfer progress of a transfer. It will trigger
      * {@link TransferListener#onProgressChanged(int, long, long)} of associated
-     * LISTENERS if the update exceeds either time threshold.
+     * LISTENERS with the latest progress at most once per progress update
+     * interval. Progress is reported from many transfer threads at once, so
+     * this only records it; a single dispatcher on the main thread delivers
+     * it, and the database is updated at most once per interval.
      *
      * @param id id of the transfer
      * @param bytesCurrent current transferred bytes
      * @param bytesTotal total bytes
      */
-    synchronized void updateProgress(final int id, 
-        final long bytesCurrent, 
-        final long bytesTotal, 
+    void updateProgress(final int id,
+        final long bytesCurrent,
+        final long bytesTotal,
         final boolean notifyListener) {
 
         final TransferRecord transfer = transfers.get(id);
@@ -257,28 +353,68 @@ class TransferStatusUpdater {
         }
 
         // update bytes transferred so that the transfer observer may pick it
-        // up.
-        dbUtil.updateBytesTransferred(id, bytesCurrent);
+        // up. A tracked transfer writes its latest progress with its state.
+        final long now = SystemClock.uptimeMillis();
+        final Long savedAt = progressSavedAt.get(id);
+        if (transfer == null || savedAt == null || now - savedAt >= progressUpdateInterval) {
+            progressSavedAt.put(id, now);
+            dbUtil.updateBytesTransferred(id, bytesCurrent);
+        }
 
         if (!notifyListener) {
             return;
         }
 
-        // invoke LISTENERS
-        synchronized (LISTENERS) {
-            final List<TransferListener> list = LISTENERS.get(id);
-            if (list == null || list.isEmpty()) {
-                return;
-            }
+        pendingProgress.put(id, new TransferProgress(bytesCurrent, bytesTotal));
+        scheduleProgressDispatch(now);
+    }
+
+    /**
+     * Posts the progress dispatcher unless it is already posted, no sooner
+     * than one interval after it last ran.
+     */
+    private void scheduleProgressDispatch(long now) {
+        if (progressDispatchScheduled.compareAndSet(false, true)) {
+            final long delay = progressDispatchedAt + progressUpdateInterval - now;
+            mainHandler.postDelayed(progressDispatcher, Math.max(0, delay));
+        }
+    }
 
+    private AtomicInteger getStateCallbacksInFlight(int id) {
+        final AtomicInteger created = new AtomicInteger();
+        final AtomicInteger existing = stateCallbacksInFlight.putIfAbsent(id, created);
+        return existing != null ? existing : created;
+    }
+
+    /**
+     * Invokes the progress callbacks of all transfers with pending progress.
+     * Runs on the main thread.
+     */
+    private void dispatchProgress() {
+        progressDispatchedAt = SystemClock.uptimeMillis();
+        // Progress reported from here on schedules the next dispatch
+        progressDispatchScheduled.set(false);
+
+        for (final Integer id : pendingProgress.keySet()) {
+            final AtomicInteger inFlight = stateCallbacksInFlight.get(id);
+            if (inFlight != null && inFlight.get() > 0) {
+                // delivered once the state change before it is
+                continue;
+            }
+            final TransferProgress progress = pendingProgress.remove(id);
+            if (progress == null) {
+                continue;
+            }
+            final List<TransferListener> list;
+            synchronized (LISTENERS) {
+                list = LISTENERS.get(id);
+            }
+            if (list == null) {
+                continue;
+            }
+            // iterates over a snapshot of the copy-on-write list
             for (final TransferListener l : list) {
-                // invoke on main thread
-                mainHandler.post(new Runnable() {
-                    @Override
-                    public void run() {
-                        l.onProgressChanged(id, bytesCurrent, bytesTotal);
-                    }
-                });
+                l.onProgressChanged(id, progress.bytesCurrent, progress.bytesTotal);
             }
         }
     }
@@ -318,6 +454,9 @@ class TransferStatusUpdater {
             LISTENERS.clear();
         }
         transfers.clear();
+        pendingProgress.clear();
+        stateCallbacksInFlight.clear();
+        progressSavedAt.clear();
     }
 
     /**
@@ -364,6 +503,19 @@ class TransferStatusUpdater {
         }
     }
 
+    /**
+     * Progress of a transfer waiting to be delivered to its listeners.
+     */
+    private static final class TransferProgress {
+        private final long bytesCurrent;
+        private final long bytesTotal;
+
+        TransferProgress(long bytesCurrent, long bytesTotal) {
+            this.bytesCurrent = bytesCurrent;
+            this.bytesTotal = bytesTotal;
+        }
+    }
+
     /**
      * A helper class that updates transfer progress.
      */
@@ -31,6 +31,7 @@ class TransferThreadPool {
 
     private static ExecutorService executorMainTask;
     private static ExecutorService executorPartTask;
+    private static ExecutorService executorStreamedPartTask;
 
     static synchronized void init(final int transferThreadPoolSize) {
         LOGGER.debug("Initializing the thread pool of size: " + transferThreadPoolSize);
@@ -43,6 +44,13 @@ class TransferThreadPool {
         if (executorPartTask == null) {
             executorPartTask = buildExecutor(poolSize);
         }
+        if (executorStreamedPartTask == null) {
+            executorStreamedPartTask = buildExecutor(poolSize);
+            // A streaming upload waits for its parts, so a part must never be
+            // silently dropped; its upload fails instead.
+            ((ThreadPoolExecutor) executorStreamedPartTask)
+                    .setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        }
     }
 
     public static <T> Future<T> submitTask(Callable<T> c) {
@@ -54,7 +62,25 @@ class TransferThreadPool {
         }
     }
 
+    /**
+     * Submits a part of a streaming upload. These parts run on their own pool
+     * so that the reading task never waits behind the parts of other uploads.
+     *
+     * @param c the part task
+     * @return the future of the part task
+     * @throws java.util.concurrent.RejectedExecutionException if the pool is
+     *             shut down
+     */
+    static <T> Future<T> submitStreamedPartTask(Callable<T> c) {
+        init(TransferUtilityOptions.getDefaultThreadPoolSize());
+        return executorStreamedPartTask.submit(c);
+    }
+
     public static void closeThreadPool() {
+        if (executorStreamedPartTask != null) {
+            shutdown(executorStreamedPartTask);
+            executorStreamedPartTask = null;
+        }
         if (executorPartTask != null) {
             shutdown(executorPartTask);
             executorPartTask = null;
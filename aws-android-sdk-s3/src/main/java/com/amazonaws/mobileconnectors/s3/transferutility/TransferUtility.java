@@ -326,6 +326,7 @@ public class TransferUtility {
         this.transferUtilityOptions = tuOptions;
         this.dbUtil = new TransferDBUtil(context.getApplicationContext());
         this.updater = TransferStatusUpdater.getInstance(context.getApplicationContext());
+        this.updater.setProgressUpdateInterval(this.transferUtilityOptions.getProgressUpdateInterval());
         TransferThreadPool.init(this.transferUtilityOptions.getTransferThreadPoolSize());
         this.connManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
     }
@@ -347,6 +348,7 @@ public class TransferUtility {
         this.transferUtilityOptions = new TransferUtilityOptions();
         this.dbUtil = new TransferDBUtil(context.getApplicationContext());
         this.updater = TransferStatusUpdater.getInstance(context.getApplicationContext());
+        this.updater.setProgressUpdateInterval(this.transferUtilityOptions.getProgressUpdateInterval());
         TransferThreadPool.init(this.transferUtilityOptions.getTransferThreadPoolSize());
         this.connManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
     }
@@ -622,6 +624,17 @@ public class TransferUtility {
      * @return A TransferObserver used to track upload progress and state
      */
     public TransferObserver upload(String key, InputStream inputStream, UploadOptions options) throws IOException {
+        if (options.isStreaming()) {
+            return uploadStream(
+                    options.getBucket() != null ? options.getBucket() : getDefaultBucketOrThrow(),
+                    key,
+                    inputStream,
+                    options.getMetadata() != null ? options.getMetadata() : new ObjectMetadata(),
+                    options.getCannedAcl(),
+                    options.getTransferListener(),
+                    options.isSpillToDisk()
+            );
+        }
         File file = writeInputStreamToFile(inputStream);
         return upload(
                 options.getBucket() != null ? options.getBucket() : getDefaultBucketOrThrow(),
@@ -633,6 +646,38 @@ public class TransferUtility {
         );
     }
 
+    /**
+     * Starts a multipart upload of the inputStream that uploads its parts
+     * while the stream is being read. The summary record points to the
+     * directory the parts are spilled to, if they are, and its total bytes
+     * are unknown (-1) until the end of the stream is read.
+     */
+    private TransferObserver uploadStream(String bucket, String key, InputStream inputStream,
+            ObjectMetadata metadata, CannedAccessControlList cannedAcl, TransferListener listener,
+            boolean spillToDisk) throws IOException {
+        if (inputStream == null) {
+            throw new IllegalArgumentException("Invalid inputStream: " + inputStream);
+        }
+        final File spillDirectory = StreamingUploadTask.newSpillDirectory(spillToDisk);
+        final ContentValues values = dbUtil.generateContentValuesForMultiPartUpload(bucket, key,
+                spillDirectory, 0, 0, "", -1, 0, metadata, cannedAcl, transferUtilityOptions);
+        final int recordId = dbUtil.bulkInsertTransferRecords(new ContentValues[] {
+                values
+        });
+
+        final TransferObserver transferObserver = new TransferObserver(recordId, dbUtil, bucket, key,
+                spillDirectory, listener);
+        S3ClientReference.put(recordId, s3);
+        final TransferRecord transfer = dbUtil.getTransferById(recordId);
+        if (transfer == null) {
+            TransferStatusUpdater.deleteTempFile(spillDirectory);
+            throw new IOException("Cannot find transfer with id: " + recordId);
+        }
+        updater.addTransfer(transfer);
+        transfer.startStreaming(inputStream, spillToDisk, s3, dbUtil, updater);
+        return transferObserver;
+    }
+
     /**
      * Gets a TransferObserver instance to track the record with the given id.
      *
@@ -49,6 +49,11 @@ public class TransferUtilityOptions implements Serializable {
      */
     private static final int MILLIS_IN_MINUTE = 60 * 1000;
 
+    /**
+     * Default minimum time in milliseconds between two progress callbacks.
+     */
+    private static final long DEFAULT_PROGRESS_UPDATE_INTERVAL = 100;
+
     /**
      * TransferService checks for the transfers that are waiting or in progress
      * and restarts the transfer for every time interval in milliseconds.
@@ -68,6 +73,12 @@ public class TransferUtilityOptions implements Serializable {
      * Type of connection to use for transfers.
      */
     private TransferNetworkConnectionType transferNetworkConnectionType;
+
+    /**
+     * Minimum time in milliseconds between two progress callbacks of a
+     * transfer.
+     */
+    private long progressUpdateInterval;
     
     /**
      * Constructor that sets the options to the
@@ -78,6 +89,7 @@ public class TransferUtilityOptions implements Serializable {
         this.transferServiceCheckTimeInterval = getDefaultCheckTimeInterval();
         this.transferThreadPoolSize = getDefaultThreadPoolSize();
         this.transferNetworkConnectionType = getDefaultTransferNetworkConnectionType();
+        this.progressUpdateInterval = getDefaultProgressUpdateInterval();
     }
 
     /**
@@ -93,6 +105,7 @@ public class TransferUtilityOptions implements Serializable {
         this.transferServiceCheckTimeInterval = getDefaultCheckTimeInterval();
         this.transferThreadPoolSize = transferThreadPoolSize;
         this.transferNetworkConnectionType = transferNetworkConnectionType;
+        this.progressUpdateInterval = getDefaultProgressUpdateInterval();
     }
 
     /**
@@ -153,6 +166,32 @@ public class TransferUtilityOptions implements Serializable {
         return transferNetworkConnectionType;
     }
 
+    /**
+     * Retrieve the minimum time between two progress callbacks of a transfer.
+     *
+     * @return the progressUpdateInterval in milliseconds
+     */
+    public long getProgressUpdateInterval() {
+        return progressUpdateInterval;
+    }
+
+    /**
+     * Set the minimum time between two progress callbacks of a transfer.
+     * Progress reported within the interval is coalesced into a single
+     * {@link TransferListener#onProgressChanged(int, long, long)} callback
+     * with the latest values; state changes are always delivered. If it's
+     * negative, then set the default value.
+     *
+     * @param progressUpdateInterval the progressUpdateInterval in milliseconds
+     */
+    public void setProgressUpdateInterval(final long progressUpdateInterval) {
+        if (progressUpdateInterval < 0) {
+            this.progressUpdateInterval = getDefaultProgressUpdateInterval();
+        } else {
+            this.progressUpdateInterval = progressUpdateInterval;
+        }
+    }
+
     /**
      * Return the default thread pool size.
      * 
@@ -175,6 +214,15 @@ public class TransferUtilityOptions implements Serializable {
         return 1 * MILLIS_IN_MINUTE;
     }
 
+    /**
+     * Return the default progress update interval.
+     *
+     * @return The default progress update interval in milliseconds.
+     */
+    static long getDefaultProgressUpdateInterval() {
+        return DEFAULT_PROGRESS_UPDATE_INTERVAL;
+    }
+
     /**
      * Return the default connection type.
      *
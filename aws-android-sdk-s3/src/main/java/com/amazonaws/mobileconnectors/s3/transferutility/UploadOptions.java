@@ -29,6 +29,8 @@ public final class UploadOptions {
     private final ObjectMetadata metadata;
     private final CannedAccessControlList cannedAcl;
     private final TransferListener listener;
+    private final boolean streaming;
+    private final boolean spillToDisk;
 
     /**
      * Constructor.
@@ -38,6 +40,8 @@ public final class UploadOptions {
         this.metadata = builder.metadata;
         this.cannedAcl = builder.cannedAcl;
         this.listener = builder.listener;
+        this.streaming = builder.streaming;
+        this.spillToDisk = builder.spillToDisk;
     }
 
     public String getBucket() {
@@ -56,6 +60,14 @@ public final class UploadOptions {
         return this.listener;
     }
 
+    public boolean isStreaming() {
+        return this.streaming;
+    }
+
+    public boolean isSpillToDisk() {
+        return this.spillToDisk;
+    }
+
     /**
      * Builder class for UploadOptions
      */
@@ -64,6 +76,8 @@ public final class UploadOptions {
         private ObjectMetadata metadata;
         private CannedAccessControlList cannedAcl;
         private TransferListener listener;
+        private boolean streaming;
+        private boolean spillToDisk;
 
         private Builder() {
         }
@@ -112,6 +126,44 @@ public final class UploadOptions {
             return this;
         }
 
+        /**
+         * Uploads the input stream as it is read instead of copying it to a
+         * temporary file first. The stream is read in parts of 5 MB, which are
+         * uploaded while the rest of the stream is still being read; reading
+         * blocks while a bounded number of parts are in flight. The length of
+         * the stream doesn't need to be known in advance, so the total bytes
+         * reported to the {@link TransferListener} are -1 until the end of the
+         * stream is reached. As S3 allows at most 10,000 parts, a streaming
+         * upload can't exceed 50,000 MB.
+         * <p>
+         * A streaming upload that is paused or loses the network before the end of the stream has been read can't be resumed and
+         * fails. See {@link #spillToDisk(boolean)} for the uploads that can.
+         * </p>
+         *
+         * @param streaming true to upload the stream as it is read
+         * @return builder
+         */
+        public Builder streaming(final boolean streaming) {
+            this.streaming = streaming;
+            return this;
+        }
+
+        /**
+         * Writes each part of a streaming upload to a temporary file until S3
+         * has acknowledged it. Once the end of the stream has been read, a
+         * streaming upload with spilled parts can be paused and resumed, and
+         * survives network loss and restarts of the app like a file upload.
+         * Only parts that haven't been acknowledged are kept on disk. Has no
+         * effect unless {@link #streaming(boolean)} is set.
+         *
+         * @param spillToDisk true to keep unacknowledged parts on disk
+         * @return builder
+         */
+        public Builder spillToDisk(final boolean spillToDisk) {
+            this.spillToDisk = spillToDisk;
+            return this;
+        }
+
         /**
          * Return the finally constructed UploadOptions.
          * @return UploadOptions
@@ -135,6 +187,8 @@ public final class UploadOptions {
                 ", metadata=" + metadata +
                 ", cannedAcl=" + cannedAcl +
                 ", listener=" + listener +
+                ", streaming=" + streaming +
+                ", spillToDisk=" + spillToDisk +
                 '}';
     }
 
@@ -150,11 +204,13 @@ public final class UploadOptions {
         return ObjectsCompat.equals(bucket, that.bucket) &&
                 ObjectsCompat.equals(metadata, that.metadata) &&
                 cannedAcl == that.cannedAcl &&
-                ObjectsCompat.equals(listener, that.listener);
+                ObjectsCompat.equals(listener, that.listener) &&
+                streaming == that.streaming &&
+                spillToDisk == that.spillToDisk;
     }
 
     @Override
     public int hashCode() {
-        return ObjectsCompat.hash(bucket, metadata, cannedAcl, listener);
+        return ObjectsCompat.hash(bucket, metadata, cannedAcl, listener, streaming, spillToDisk);
     }
 }
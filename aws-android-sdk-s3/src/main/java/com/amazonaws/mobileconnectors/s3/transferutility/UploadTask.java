@@ -21,6 +21,7 @@ import com.amazonaws.event.ProgressEvent;
 import com.amazonaws.event.ProgressListener;
 import com.amazonaws.retry.RetryUtils;
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3EncryptionClient;
 import com.amazonaws.services.s3.Headers;
 import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
 import com.amazonaws.services.s3.model.CannedAccessControlList;
@@ -45,6 +46,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
@@ -79,7 +81,8 @@ class UploadTask implements Callable<Boolean> {
         this.s3 = s3;
         this.dbUtil = dbUtil;
         this.updater = updater;
-        this.uploadPartTasks = new HashMap<Integer, UploadPartTaskMetadata>();
+        // Streaming uploads add parts while the progress listener reads them
+        this.uploadPartTasks = new ConcurrentHashMap<Integer, UploadPartTaskMetadata>();
     }
 
     /*
@@ -106,6 +109,9 @@ class UploadTask implements Callable<Boolean> {
              * numbers from 1 to N. We now need to create records for all its
              * upload parts.
              */
+            if (StreamingUploadTask.isIncompleteStream(upload)) {
+                return failIncompleteStream();
+            }
             return uploadMultipartAndWaitForCompletion();
         } else if (upload.isMultipart == 0) {
             /*
@@ -153,6 +159,13 @@ class UploadTask implements Callable<Boolean> {
         requestList = dbUtil.getNonCompletedPartRequestsFromDB(upload.id,
                 upload.multipartId);
         LOGGER.info("Multipart upload " + upload.id + " in " + requestList.size() + " parts.");
+        /*
+         * The encryption client appends the authentication tag of the whole
+         * object to the last part, so the last part is uploaded after all the
+         * others.
+         */
+        final boolean deferLastPart = s3 instanceof AmazonS3EncryptionClient;
+        UploadPartTaskMetadata lastPart = null;
         for (final UploadPartRequest request : requestList) {
             TransferUtility.appendMultipartTransferServiceUserAgentString(request);
 
@@ -160,6 +173,10 @@ class UploadTask implements Callable<Boolean> {
             uploadPartTaskMetadata.uploadPartRequest = request;
             uploadPartTaskMetadata.bytesTransferredSoFar = 0;
             uploadPartTaskMetadata.state = TransferState.WAITING;
+            if (deferLastPart && request.isLastPart()) {
+                lastPart = uploadPartTaskMetadata;
+                continue;
+            }
             uploadPartTasks.put(request.getPartNumber(), uploadPartTaskMetadata);
             uploadPartTaskMetadata.uploadPartTask = TransferThreadPool.submitTask(
                     new UploadPartTask(uploadPartTaskMetadata, uploadTaskProgressListener, request, s3, dbUtil));
@@ -177,6 +194,13 @@ class UploadTask implements Callable<Boolean> {
                 final boolean b = task.uploadPartTask.get();
                 isSuccess &= b;
             }
+            if (isSuccess && lastPart != null) {
+                uploadPartTasks.put(lastPart.uploadPartRequest.getPartNumber(), lastPart);
+                lastPart.uploadPartTask = TransferThreadPool.submitTask(
+                        new UploadPartTask(lastPart, uploadTaskProgressListener,
+                                lastPart.uploadPartRequest, s3, dbUtil));
+                isSuccess &= lastPart.uploadPartTask.get();
+            }
             if (!isSuccess) {
                 try {
                     if (TransferNetworkLossHandler.getInstance() != null &&
@@ -270,6 +294,21 @@ class UploadTask implements Callable<Boolean> {
         }
     }
 
+    /*
+     * A streaming upload whose stream wasn't read to the end, or whose parts
+     * were only held in memory, can't be completed after it was interrupted.
+     */
+    private Boolean failIncompleteStream() {
+        LOGGER.error("Streaming upload " + upload.id + " was interrupted and can't be resumed.");
+        if (upload.multipartId != null && !upload.multipartId.isEmpty()) {
+            abortMultiPartUpload(upload.id, upload.bucketName, upload.key, upload.multipartId);
+        }
+        updater.throwError(upload.id, new AmazonClientException(
+                "The streaming upload was interrupted and can't be resumed."));
+        updater.updateState(upload.id, TransferState.FAILED);
+        return false;
+    }
+
     private Boolean uploadSinglePartAndWaitForCompletion() {
         final PutObjectRequest putObjectRequest = createPutObjectRequest(upload);
         final ProgressListener progressListener = updater.newProgressListener(upload.id);
@@ -349,7 +388,7 @@ class UploadTask implements Callable<Boolean> {
      * @param multipartId   Multi-part identifier given by S3 that
      *                      uniquely identifies this transfer
      */
-    private void completeMultiPartUpload(int mainUploadId, String bucket,
+    void completeMultiPartUpload(int mainUploadId, String bucket,
             String key, String multipartId) throws AmazonClientException, AmazonServiceException {
         final List<PartETag> partETags = dbUtil.queryPartETagsOfUpload(mainUploadId);
         final CompleteMultipartUploadRequest completeRequest = new CompleteMultipartUploadRequest(bucket,
@@ -358,8 +397,8 @@ class UploadTask implements Callable<Boolean> {
         s3.completeMultipartUpload(completeRequest);
     }
 
-    private void abortMultiPartUpload(int mainUploadId, String bucket, String key, String multipartId) {
-        LOGGER.info("Aborting the multipart since complete multipart failed.");
+    void abortMultiPartUpload(int mainUploadId, String bucket, String key, String multipartId) {
+        LOGGER.info("Aborting the multipart upload: " + mainUploadId);
         try {
             // abort the multi part upload operation
             s3.abortMultipartUpload(
@@ -379,7 +418,7 @@ class UploadTask implements Callable<Boolean> {
      * @param putObjectRequest An PutObjectRequest object for the whole upload
      * @return A multipart upload id
      */
-    private String initiateMultipartUpload(PutObjectRequest putObjectRequest) {
+    String initiateMultipartUpload(PutObjectRequest putObjectRequest) {
         InitiateMultipartUploadRequest initiateMultipartUploadRequest = new InitiateMultipartUploadRequest(
                 putObjectRequest.getBucketName(), putObjectRequest.getKey())
                 .withCannedACL(putObjectRequest.getCannedAcl())
@@ -399,7 +438,7 @@ class UploadTask implements Callable<Boolean> {
      * @return Returns a PutObjectRequest with filled in metadata and parameters
      */
     @SuppressWarnings("checkstyle:hiddenfield")
-    private PutObjectRequest createPutObjectRequest(TransferRecord upload) {
+    PutObjectRequest createPutObjectRequest(TransferRecord upload) {
         final File file = new File(upload.file);
         final PutObjectRequest putObjectRequest = new PutObjectRequest(upload.bucketName,
                 upload.key, file);
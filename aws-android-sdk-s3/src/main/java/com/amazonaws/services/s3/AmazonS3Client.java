@@ -1825,7 +1825,11 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
                 metadata.setContentType(Mimetypes.getInstance().getMimetype(file));
             }
 
-            if (calculateMD5 && !skipContentMd5Check) {
+            // In streaming mode the MD5 is computed while the file is sent
+            // and checked against the returned ETag below, which saves a
+            // full read of the file.
+            if (calculateMD5 && !skipContentMd5Check
+                    && !clientOptions.isStreamingContentMd5Enabled()) {
                 try {
                     final String contentMd5_b64 = Md5Utils.md5AsBase64(file);
                     metadata.setContentMD5(contentMd5_b64);
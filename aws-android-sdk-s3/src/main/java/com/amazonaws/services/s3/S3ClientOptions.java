@@ -31,6 +31,8 @@ public class S3ClientOptions {
     public static final boolean DEFAULT_ACCELERATE_MODE_ENABLED = false;
     /** S3 dualstack endpoint is by default not enabled */
     public static final boolean DEFAULT_DUALSTACK_ENABLED = false;
+    /** File uploads by default compute the content MD5 before sending */
+    public static final boolean DEFAULT_STREAMING_CONTENT_MD5_ENABLED = false;
 
     /** Flag for skipping content MD5 check for local testing */
     private boolean skipContentMd5Check;
@@ -40,6 +42,7 @@ public class S3ClientOptions {
     private final boolean accelerateModeEnabled;
     private final boolean payloadSigningEnabled;
     private final boolean dualstackEnabled;
+    private final boolean streamingContentMd5Enabled;
 
     /**
      * @return a new S3ClientOptions builder.
@@ -59,6 +62,7 @@ public class S3ClientOptions {
         private boolean accelerateModeEnabled = DEFAULT_ACCELERATE_MODE_ENABLED;
         private boolean payloadSigningEnabled = DEFAULT_PAYLOAD_SIGNING_ENABLED;
         private boolean dualstackEnabled = DEFAULT_DUALSTACK_ENABLED;
+        private boolean streamingContentMd5Enabled = DEFAULT_STREAMING_CONTENT_MD5_ENABLED;
 
         private Builder() {
         }
@@ -73,7 +77,8 @@ public class S3ClientOptions {
                     chunkedEncodingDisabled,
                     accelerateModeEnabled,
                     payloadSigningEnabled,
-                    dualstackEnabled);
+                    dualstackEnabled,
+                    streamingContentMd5Enabled);
         }
 
         /**
@@ -204,6 +209,34 @@ public class S3ClientOptions {
             this.dualstackEnabled = true;
             return this;
         }
+
+        /**
+         * <p>
+         * Configures the client to compute the content MD5 of file uploads
+         * while the file is sent, instead of reading the whole file once
+         * before the upload starts.
+         * </p>
+         * <p>
+         * By default the MD5 of a file passed to
+         * {@link AmazonS3#putObject(com.amazonaws.services.s3.model.PutObjectRequest)}
+         * is computed up front and sent in the Content-MD5 header, so that
+         * Amazon S3 rejects a corrupted upload. With this option the file is
+         * read only once, and the client instead compares the MD5 of the bytes
+         * it sent with the ETag returned by Amazon S3, failing the request
+         * when they differ. Chunk-encoded uploads are still protected in
+         * transit by their per-chunk payload signatures.
+         * </p>
+         * <p>
+         * <b>Note:</b> Because the check happens after the upload, an object
+         * that fails it has already been stored and may need to be deleted.
+         * </p>
+         *
+         * @return this Builder instance that can be used for method chaining
+         */
+        public Builder enableStreamingContentMd5() {
+            this.streamingContentMd5Enabled = true;
+            return this;
+        }
     }
 
     /**
@@ -218,6 +251,7 @@ public class S3ClientOptions {
         this.accelerateModeEnabled = DEFAULT_ACCELERATE_MODE_ENABLED;
         this.payloadSigningEnabled = DEFAULT_PAYLOAD_SIGNING_ENABLED;
         this.dualstackEnabled = DEFAULT_DUALSTACK_ENABLED;
+        this.streamingContentMd5Enabled = DEFAULT_STREAMING_CONTENT_MD5_ENABLED;
     }
 
     /**
@@ -233,6 +267,7 @@ public class S3ClientOptions {
         this.accelerateModeEnabled = other.accelerateModeEnabled;
         this.payloadSigningEnabled = other.payloadSigningEnabled;
         this.dualstackEnabled = other.dualstackEnabled;
+        this.streamingContentMd5Enabled = other.streamingContentMd5Enabled;
     }
 
     private S3ClientOptions(boolean skipContentMd5Check,
@@ -240,13 +275,15 @@ public class S3ClientOptions {
             boolean chunkedEncodingDisabled,
             boolean accelerateModeEnabled,
             boolean payloadSigningEnabled,
-            boolean dualstackEnabled) {
+            boolean dualstackEnabled,
+            boolean streamingContentMd5Enabled) {
         this.skipContentMd5Check = skipContentMd5Check;
         this.pathStyleAccess = pathStyleAccess;
         this.chunkedEncodingDisabled = chunkedEncodingDisabled;
         this.accelerateModeEnabled = accelerateModeEnabled;
         this.payloadSigningEnabled = payloadSigningEnabled;
         this.dualstackEnabled = dualstackEnabled;
+        this.streamingContentMd5Enabled = streamingContentMd5Enabled;
     }
 
     /**
@@ -404,6 +441,20 @@ public class S3ClientOptions {
         return dualstackEnabled;
     }
 
+    /**
+     * <p>
+     * Returns whether the content MD5 of file uploads is computed while the
+     * file is sent rather than before the upload starts.
+     * </p>
+     *
+     * @return True if the content MD5 of file uploads is computed while
+     *         streaming
+     * @see Builder#enableStreamingContentMd5()
+     */
+    public boolean isStreamingContentMd5Enabled() {
+        return streamingContentMd5Enabled;
+    }
+
 
     /**
      * <p>
@@ -14,51 +14,25 @@
  */
 package com.amazonaws.services.s3.internal;
 
+import com.amazonaws.util.PercentEncoder;
+
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
-import java.net.URLEncoder;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public final class S3HttpUtils {
 
     private static final String DEFAULT_ENCODING = "UTF-8";
 
     /**
-     * Regex which matches any of the sequences that we need to fix up after
-     * URLEncoder.encode().
+     * Leaves spaces unencoded, as S3 expects them in keys.
      */
-    private static final Pattern ENCODED_CHARACTERS_PATTERN;
-    static {
-        final StringBuilder pattern = new StringBuilder();
-
-        pattern
-                .append(Pattern.quote("+"))
-                .append("|")
-                .append(Pattern.quote("*"))
-                .append("|")
-                .append(Pattern.quote("%7E"))
-                .append("|")
-                .append(Pattern.quote("%2F"))
-                .append("|")
-                .append(Pattern.quote("%3A"))
-                .append("|")
-                .append(Pattern.quote("%27"))
-                .append("|")
-                .append(Pattern.quote("%28"))
-                .append("|")
-                .append(Pattern.quote("%29"))
-                .append("|")
-                .append(Pattern.quote("%21"))
-                .append("|")
-                .append(Pattern.quote("%5B"))
-                .append("|")
-                .append(Pattern.quote("%5D"))
-                .append("|")
-                .append(Pattern.quote("%24"));
+    private static final PercentEncoder ENCODER = new PercentEncoder(" ");
 
-        ENCODED_CHARACTERS_PATTERN = Pattern.compile(pattern.toString());
-    }
+    /**
+     * Additionally leaves '/' and the sub-delimiters S3 accepts in paths
+     * unencoded.
+     */
+    private static final PercentEncoder PATH_ENCODER = new PercentEncoder(" /:'()![]");
 
     /**
      * Encode the URL String or part of URL
@@ -71,48 +45,7 @@ public final class S3HttpUtils {
         if (value == null) {
             return "";
         }
-
-        try {
-            final String encoded = URLEncoder.encode(value, DEFAULT_ENCODING);
-
-            final Matcher matcher = ENCODED_CHARACTERS_PATTERN.matcher(encoded);
-            final StringBuffer buffer = new StringBuffer(encoded.length());
-
-            while (matcher.find()) {
-                String replacement = matcher.group(0);
-
-                if ("+".equals(replacement)) {
-                    replacement = " ";
-                } else if ("*".equals(replacement)) {
-                    replacement = "%2A";
-                } else if ("%7E".equals(replacement)) {
-                    replacement = "~";
-                } else if (path && "%2F".equals(replacement)) {
-                    replacement = "/";
-                } else if (path && "%3A".equals(replacement)) {
-                    replacement = ":";
-                } else if (path && "%27".equals(replacement)) {
-                    replacement = "'";
-                } else if (path && "%28".equals(replacement)) {
-                    replacement = "(";
-                } else if (path && "%29".equals(replacement)) {
-                    replacement = ")";
-                } else if (path && "%21".equals(replacement)) {
-                    replacement = "!";
-                } else if (path && "%5B".equals(replacement)) {
-                    replacement = "[";
-                } else if (path && "%5D".equals(replacement)) {
-                    replacement = "]";
-                }
-                matcher.appendReplacement(buffer, replacement);
-            }
-
-            matcher.appendTail(buffer);
-            return buffer.toString();
-
-        } catch (final UnsupportedEncodingException ex) {
-            throw new RuntimeException(ex);
-        }
+        return (path ? PATH_ENCODER : ENCODER).encode(value);
     }
 
     /**
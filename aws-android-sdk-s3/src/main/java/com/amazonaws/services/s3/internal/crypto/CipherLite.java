@@ -286,6 +286,13 @@ class CipherLite {
         return cipher.getProvider();
     }
 
+    /**
+     * Returns the secret key of the underlying cipher.
+     */
+    final SecretKey getSecretKey() {
+        return secreteKey;
+    }
+
     /**
      * Returns the standard algorithm name for the secret key. For example,
      * "DSA" would indicate that this key is a DSA key. See Appendix A in the <a
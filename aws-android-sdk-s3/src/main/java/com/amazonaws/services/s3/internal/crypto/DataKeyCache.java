@@ -0,0 +1,187 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.internal.crypto;
+
+import static com.amazonaws.util.BinaryUtils.copyAllBytesFrom;
+
+import com.amazonaws.services.kms.AWSKMSClient;
+import com.amazonaws.services.kms.model.GenerateDataKeyRequest;
+import com.amazonaws.services.kms.model.GenerateDataKeyResult;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of the data keys generated by AWS KMS, so that encrypting many
+ * objects with the same customer master key and encryption context doesn't
+ * call AWS KMS for each of them. A data key is reused for a limited time and
+ * number of objects, the least recently used key being evicted beyond the
+ * maximum number of keys. The plaintext of a key is zeroed once the key is no
+ * longer used.
+ * <p>
+ * Thread safe.
+ *
+ * @deprecated See {@link com.amazonaws.services.s3.AmazonS3EncryptionClient}
+ *             for further details.
+ */
+@Deprecated
+class DataKeyCache {
+
+    /** Identifies a data key by customer master key, key spec and context. */
+    private static final class CacheKey {
+        private final String keyId;
+        private final String keySpec;
+        private final Map<String, String> encryptionContext;
+
+        CacheKey(GenerateDataKeyRequest req) {
+            this.keyId = req.getKeyId();
+            this.keySpec = req.getKeySpec();
+            this.encryptionContext = req.getEncryptionContext() == null
+                    ? Collections.<String, String> emptyMap()
+                    : new HashMap<String, String>(req.getEncryptionContext());
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = keyId == null ? 0 : keyId.hashCode();
+            hash = 31 * hash + (keySpec == null ? 0 : keySpec.hashCode());
+            return 31 * hash + encryptionContext.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+            final CacheKey other = (CacheKey) obj;
+            return (keyId == null ? other.keyId == null : keyId.equals(other.keyId))
+                    && (keySpec == null ? other.keySpec == null : keySpec.equals(other.keySpec))
+                    && encryptionContext.equals(other.encryptionContext);
+        }
+    }
+
+    /** A data key and how much it was used. */
+    private static final class CacheEntry {
+        private final String keyId;
+        private final byte[] plaintext;
+        private final byte[] ciphertextBlob;
+        private final long createdAtMillis;
+        private long uses;
+
+        CacheEntry(GenerateDataKeyResult result, long createdAtMillis) {
+            this.keyId = result.getKeyId();
+            this.plaintext = copyAllBytesFrom(result.getPlaintext());
+            this.ciphertextBlob = copyAllBytesFrom(result.getCiphertextBlob());
+            this.createdAtMillis = createdAtMillis;
+        }
+
+        GenerateDataKeyResult toResult() {
+            return new GenerateDataKeyResult()
+                    .withKeyId(keyId)
+                    .withPlaintext(ByteBuffer.wrap(plaintext.clone()))
+                    .withCiphertextBlob(ByteBuffer.wrap(ciphertextBlob.clone()));
+        }
+
+        void destroy() {
+            Arrays.fill(plaintext, (byte) 0);
+        }
+    }
+
+    private final long timeToLiveMillis;
+    private final long maxUses;
+    private final Map<CacheKey, CacheEntry> entries;
+
+    /**
+     * @param maxKeys the maximum number of data keys.
+     * @param timeToLiveMillis how long a data key is reused for.
+     * @param maxUses how many times a data key is used at most.
+     */
+    DataKeyCache(final int maxKeys, long timeToLiveMillis, long maxUses) {
+        if (maxKeys < 1) {
+            throw new IllegalArgumentException("maxKeys must be positive");
+        }
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.maxUses = maxUses;
+        this.entries = new LinkedHashMap<CacheKey, CacheEntry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest) {
+                if (size() > maxKeys) {
+                    eldest.getValue().destroy();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns a data key for a request, reusing a cached key if there is one
+     * still valid, or else generating a new one with AWS KMS.
+     *
+     * @param req the request to generate the data key.
+     * @param kms the AWS KMS client.
+     * @return the data key; its buffers are copies the caller may zero.
+     */
+    GenerateDataKeyResult getDataKey(GenerateDataKeyRequest req, AWSKMSClient kms) {
+        final CacheKey key = new CacheKey(req);
+        synchronized (entries) {
+            final CacheEntry entry = entries.get(key);
+            if (entry != null) {
+                if (isValid(entry, System.currentTimeMillis())) {
+                    entry.uses++;
+                    return entry.toResult();
+                }
+                entries.remove(key);
+                entry.destroy();
+            }
+        }
+        // Generated outside the lock: threads missing the same key at the
+        // same time each generate one, the last being kept.
+        final GenerateDataKeyResult result = kms.generateDataKey(req);
+        final CacheEntry entry = new CacheEntry(result, System.currentTimeMillis());
+        entry.uses = 1;
+        final GenerateDataKeyResult copy = entry.toResult();
+        synchronized (entries) {
+            final CacheEntry previous = entries.put(key, entry);
+            if (previous != null) {
+                previous.destroy();
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Removes all the data keys, zeroing their plaintext.
+     */
+    void clear() {
+        synchronized (entries) {
+            for (final CacheEntry entry : entries.values()) {
+                entry.destroy();
+            }
+            entries.clear();
+        }
+    }
+
+    private boolean isValid(CacheEntry entry, long now) {
+        return entry.uses < maxUses && now - entry.createdAtMillis < timeToLiveMillis;
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.internal.crypto;
+
+import com.amazonaws.AmazonClientException;
+
+import javax.crypto.Cipher;
+
+/**
+ * The GHASH function of AES/GCM, used to compute the authentication tag of
+ * ciphertext produced in pieces with AES/CTR, such as the parts of a multipart
+ * upload encrypted in parallel. Since GHASH is a polynomial in the hash key,
+ * the hash of a concatenation can be computed from the hashes of its pieces:
+ * see {@link #append(long, long, long)}.
+ * <p>
+ * Field elements are held as two longs, the first and last eight bytes of the
+ * block in big-endian order; multiplication by the hash key uses a table of
+ * its 16 multiples by 4 bit values. See <a href=
+ * "http://csrc.nist.gov/publications/nistpubs/800-38D/SP-800-38D.pdf"> NIST
+ * Special Publication 800-38D</a>.
+ * <p>
+ * Not thread safe.
+ */
+final class GHash {
+
+    static final int BLOCK_SIZE = 16;
+
+    private static final int IV_LENGTH = 12;
+
+    private static final int LONG_BYTES = 8;
+    private static final int BITS_PER_BYTE = 8;
+    private static final int NIBBLE_BITS = 4;
+    private static final int NIBBLES = 16;
+    private static final long NIBBLE_MASK = 0xfL;
+    private static final long R = 0xe100000000000000L;
+    private static final int REDUCTION_SHIFT = 48;
+    private static final long[] REDUCTION = {
+            0x0000, 0x1c20, 0x3840, 0x2460, 0x7080, 0x6ca0, 0x48c0, 0x54e0,
+            0xe100, 0xfd20, 0xd940, 0xc560, 0x9180, 0x8da0, 0xa9c0, 0xb5e0,
+    };
+
+    private final long hashKeyHigh;
+    private final long hashKeyLow;
+    /** Multiples of the hash key, indexed by bit-reversed nibble. */
+    private final long[] tableHigh;
+    private final long[] tableLow;
+
+    private long high;
+    private long low;
+    private final byte[] partial = new byte[BLOCK_SIZE];
+    private int partialLength;
+    private long byteCount;
+
+    /**
+     * @param hashKey the hash key H, the encryption of the zero block.
+     */
+    GHash(byte[] hashKey) {
+        if (hashKey.length != BLOCK_SIZE) {
+            throw new IllegalArgumentException("The hash key must be 16 bytes");
+        }
+        hashKeyHigh = toLong(hashKey, 0);
+        hashKeyLow = toLong(hashKey, LONG_BYTES);
+        tableHigh = new long[NIBBLES];
+        tableLow = new long[NIBBLES];
+        tableHigh[reverse(1)] = hashKeyHigh;
+        tableLow[reverse(1)] = hashKeyLow;
+        for (int i = 2; i < NIBBLES; i += 2) {
+            final int half = reverse(i / 2);
+            final int even = reverse(i);
+            final int odd = reverse(i + 1);
+            // doubling is a right shift given the bit order of GCM
+            tableHigh[even] = tableHigh[half] >>> 1;
+            tableLow[even] = (tableLow[half] >>> 1) | (tableHigh[half] << (Long.SIZE - 1));
+            if ((tableLow[half] & 1) != 0) {
+                tableHigh[even] ^= R;
+            }
+            tableHigh[odd] = tableHigh[even] ^ hashKeyHigh;
+            tableLow[odd] = tableLow[even] ^ hashKeyLow;
+        }
+    }
+
+    /**
+     * @param gcm an AES/GCM cipher lite, of a 12 byte IV.
+     * @return a new hash of the key of the cipher, H = E(K, 0^128).
+     */
+    static GHash forCipher(CipherLite gcm) {
+        checkIV(gcm);
+        return new GHash(encryptBlock(gcm, new byte[BLOCK_SIZE]));
+    }
+
+    /**
+     * @param gcm an AES/GCM cipher lite, of a 12 byte IV.
+     * @return the encryption of the pre-counter block, J0 = IV || 0^31 || 1,
+     *         that masks the tag.
+     */
+    static byte[] tagMaskOf(CipherLite gcm) {
+        checkIV(gcm);
+        final byte[] j0 = new byte[BLOCK_SIZE];
+        System.arraycopy(gcm.getIV(), 0, j0, 0, IV_LENGTH);
+        j0[BLOCK_SIZE - 1] = 1;
+        return encryptBlock(gcm, j0);
+    }
+
+    /**
+     * Copy constructor, sharing the tables of the hash key.
+     */
+    GHash(GHash other) {
+        hashKeyHigh = other.hashKeyHigh;
+        hashKeyLow = other.hashKeyLow;
+        tableHigh = other.tableHigh;
+        tableLow = other.tableLow;
+        set(other);
+    }
+
+    /**
+     * Sets the state of this hash to that of another of the same key.
+     */
+    void set(GHash other) {
+        high = other.high;
+        low = other.low;
+        System.arraycopy(other.partial, 0, partial, 0, BLOCK_SIZE);
+        partialLength = other.partialLength;
+        byteCount = other.byteCount;
+    }
+
+    /**
+     * Hashes more ciphertext.
+     */
+    void update(byte[] input, int offset, int length) {
+        int pos = offset;
+        final int end = offset + length;
+        byteCount += length;
+        if (partialLength > 0) {
+            final int n = Math.min(BLOCK_SIZE - partialLength, end - pos);
+            System.arraycopy(input, pos, partial, partialLength, n);
+            partialLength += n;
+            pos += n;
+            if (partialLength < BLOCK_SIZE) {
+                return;
+            }
+            block(partial, 0);
+            partialLength = 0;
+        }
+        while (end - pos >= BLOCK_SIZE) {
+            block(input, pos);
+            pos += BLOCK_SIZE;
+        }
+        if (pos < end) {
+            System.arraycopy(input, pos, partial, 0, end - pos);
+            partialLength = end - pos;
+        }
+    }
+
+    /**
+     * @return the number of bytes hashed.
+     */
+    long getByteCount() {
+        return byteCount;
+    }
+
+    /** @return the first half of the hash of the whole blocks so far. */
+    long getHigh() {
+        return high;
+    }
+
+    /** @return the last half of the hash of the whole blocks so far. */
+    long getLow() {
+        return low;
+    }
+
+    /**
+     * Makes this the hash of the ciphertext hashed so far followed by a piece
+     * of ciphertext, given the hash of the piece on its own. The ciphertext so
+     * far must be of whole blocks; the piece need not be if it is the last.
+     *
+     * @param pieceHigh the first half of the hash of the piece.
+     * @param pieceLow the last half of the hash of the piece.
+     * @param pieceLength the number of bytes of the piece.
+     * @see #pad()
+     */
+    void append(long pieceHigh, long pieceLow, long pieceLength) {
+        if (partialLength != 0 || byteCount % BLOCK_SIZE != 0) {
+            throw new IllegalStateException("Only whole blocks can be appended to");
+        }
+        // Horner's rule over the piece: y * H^n + piece
+        long powHigh = hashKeyHigh;
+        long powLow = hashKeyLow;
+        long resultHigh = high;
+        long resultLow = low;
+        for (long n = (pieceLength + BLOCK_SIZE - 1) / BLOCK_SIZE; n > 0; n >>>= 1) {
+            if ((n & 1) != 0) {
+                final long[] product = multiply(resultHigh, resultLow, powHigh, powLow);
+                resultHigh = product[0];
+                resultLow = product[1];
+            }
+            final long[] square = multiply(powHigh, powLow, powHigh, powLow);
+            powHigh = square[0];
+            powLow = square[1];
+        }
+        high = resultHigh ^ pieceHigh;
+        low = resultLow ^ pieceLow;
+        byteCount += pieceLength;
+    }
+
+    /**
+     * Hashes the partial block, padded with zeros, as at the end of the
+     * ciphertext, so that the hash of a last piece may be appended to the
+     * hash of the pieces before it.
+     */
+    void pad() {
+        if (partialLength > 0) {
+            for (int i = partialLength; i < BLOCK_SIZE; i++) {
+                partial[i] = 0;
+            }
+            block(partial, 0);
+            partialLength = 0;
+        }
+    }
+
+    /**
+     * Completes the hash of the ciphertext, with no additional authenticated
+     * data, and masks it into the authentication tag.
+     *
+     * @param tagMask the encryption of the pre-counter block J0.
+     * @return the 16 byte tag.
+     */
+    byte[] tag(byte[] tagMask) {
+        pad();
+        low ^= byteCount * BITS_PER_BYTE;
+        multiplyByHashKey();
+        final byte[] tag = new byte[BLOCK_SIZE];
+        for (int i = 0; i < LONG_BYTES; i++) {
+            tag[i] = (byte) (tagMask[i] ^ (high >>> (Long.SIZE - BITS_PER_BYTE * (i + 1))));
+            tag[i + LONG_BYTES] = (byte) (tagMask[i + LONG_BYTES]
+                    ^ (low >>> (Long.SIZE - BITS_PER_BYTE * (i + 1))));
+        }
+        return tag;
+    }
+
+    private void block(byte[] input, int offset) {
+        high ^= toLong(input, offset);
+        low ^= toLong(input, offset + LONG_BYTES);
+        multiplyByHashKey();
+    }
+
+    private void multiplyByHashKey() {
+        long zHigh = 0;
+        long zLow = 0;
+        for (int i = 0; i < 2; i++) {
+            long word = i == 0 ? low : high;
+            for (int j = 0; j < Long.SIZE; j += NIBBLE_BITS) {
+                final int msw = (int) (zLow & NIBBLE_MASK);
+                zLow = (zLow >>> NIBBLE_BITS) | (zHigh << (Long.SIZE - NIBBLE_BITS));
+                zHigh = (zHigh >>> NIBBLE_BITS) ^ (REDUCTION[msw] << REDUCTION_SHIFT);
+                final int index = (int) (word & NIBBLE_MASK);
+                zHigh ^= tableHigh[index];
+                zLow ^= tableLow[index];
+                word >>>= NIBBLE_BITS;
+            }
+        }
+        high = zHigh;
+        low = zLow;
+    }
+
+    /**
+     * Multiplies two field elements bit by bit, per algorithm 1 of SP 800-38D.
+     */
+    private static long[] multiply(long xHigh, long xLow, long yHigh, long yLow) {
+        long zHigh = 0;
+        long zLow = 0;
+        long vHigh = yHigh;
+        long vLow = yLow;
+        for (int i = 0; i < 2 * Long.SIZE; i++) {
+            final long word = i < Long.SIZE ? xHigh : xLow;
+            if (((word >>> (Long.SIZE - 1 - (i % Long.SIZE))) & 1) != 0) {
+                zHigh ^= vHigh;
+                zLow ^= vLow;
+            }
+            final boolean carry = (vLow & 1) != 0;
+            vLow = (vLow >>> 1) | (vHigh << (Long.SIZE - 1));
+            vHigh >>>= 1;
+            if (carry) {
+                vHigh ^= R;
+            }
+        }
+        return new long[] {
+                zHigh, zLow
+        };
+    }
+
+    private static void checkIV(CipherLite gcm) {
+        if (gcm.getIV().length != IV_LENGTH) {
+            throw new AmazonClientException(
+                    "Computing the AES/GCM tag requires a " + IV_LENGTH + " byte IV");
+        }
+    }
+
+    /**
+     * Encrypts a block with the block cipher, as the first block of AES/CTR
+     * from the block as counter.
+     */
+    private static byte[] encryptBlock(CipherLite cipherLite, byte[] block) {
+        final CipherLite ctr = ContentCryptoScheme.AES_CTR.createCipherLite(
+                cipherLite.getSecretKey(), block, Cipher.ENCRYPT_MODE,
+                cipherLite.getCipherProvider());
+        return ctr.update(new byte[BLOCK_SIZE], 0, BLOCK_SIZE);
+    }
+
+    private static long toLong(byte[] b, int offset) {
+        long v = 0;
+        for (int i = 0; i < LONG_BYTES; i++) {
+            v = (v << BITS_PER_BYTE) | (b[offset + i] & 0xffL);
+        }
+        return v;
+    }
+
+    private static int reverse(int nibble) {
+        int i = ((nibble << 2) & 0xc) | ((nibble >> 2) & 0x3);
+        i = ((i << 1) & 0xa) | ((i >> 1) & 0x5);
+        return i;
+    }
+}
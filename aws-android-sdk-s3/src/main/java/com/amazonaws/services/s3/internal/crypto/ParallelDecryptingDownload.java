@@ -0,0 +1,429 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.internal.crypto;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.logging.Log;
+import com.amazonaws.logging.LogFactory;
+import com.amazonaws.services.s3.internal.S3Direct;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Downloads an object encrypted with AES/GCM to a file, range by range and
+ * several ranges at a time. Each range is decrypted with AES/CTR from the
+ * counter of its offset in the object and written to its position in the
+ * file. When the whole object is downloaded, the GHASH of each range is kept
+ * and the authentication tag of the object is verified once all the ranges
+ * are written. The plaintext is written to a temporary file next to the
+ * destination, of a unique name, which replaces the destination only once the
+ * tag is verified; it is deleted if the tag doesn't match. A range of the object can't be
+ * authenticated, as with a ranged GET of a single stream.
+ *
+ * @deprecated See {@link com.amazonaws.services.s3.AmazonS3EncryptionClient}
+ *             for further details.
+ */
+@Deprecated
+class ParallelDecryptingDownload {
+    private static final Log LOG = LogFactory.getLog(ParallelDecryptingDownload.class);
+
+    private static final int BLOCK_SIZE = JceEncryptionConstants.SYMMETRIC_CIPHER_BLOCK_SIZE;
+    private static final int TAG_LENGTH = 16;
+    private static final int BUFFER_SIZE = 1024 * 16;
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String ORIGINAL_SUFFIX = ".orig";
+    /** The shortest prefix of {@link File#createTempFile}. */
+    private static final int MIN_TEMP_PREFIX_LENGTH = 3;
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    /** The GHASH and length of the ciphertext of a range. */
+    private static final class RangeHash {
+        private final long high;
+        private final long low;
+        private final long length;
+
+        RangeHash(GHash hash) {
+            hash.pad();
+            this.high = hash.getHigh();
+            this.low = hash.getLow();
+            this.length = hash.getByteCount();
+        }
+    }
+
+    private final S3Direct s3;
+    private final GetObjectRequest req;
+    private final CipherLite gcm;
+    private final long rangeSize;
+    private final int threads;
+    private final GHash hashPrototype;
+
+    /**
+     * @param s3 the S3 client to get the ranges with.
+     * @param req the request of the object, or of a range of it.
+     * @param gcm the AES/GCM cipher lite of the object.
+     * @param rangeSize the size of the ranges, a multiple of 16 bytes.
+     * @param threads the number of ranges downloaded at the same time.
+     */
+    ParallelDecryptingDownload(S3Direct s3, GetObjectRequest req, CipherLite gcm,
+            long rangeSize, int threads) {
+        this.s3 = s3;
+        this.req = req;
+        this.gcm = gcm;
+        this.rangeSize = rangeSize;
+        this.threads = threads;
+        this.hashPrototype = GHash.forCipher(gcm);
+    }
+
+    /**
+     * @return the byte of the object to get the first range from: the start
+     *         of the cipher block of the first byte requested.
+     */
+    static long firstByteToGet(GetObjectRequest req) {
+        final long[] range = req.getRange();
+        return range == null ? 0 : range[0] - range[0] % BLOCK_SIZE;
+    }
+
+    /**
+     * Downloads the object to a file.
+     *
+     * @param first the first range of the object, from
+     *            {@link #firstByteToGet(GetObjectRequest)}; closed by this
+     *            method.
+     * @param destination the file, replaced once the object is downloaded
+     *            and verified; left as is otherwise.
+     * @return the metadata of the object.
+     * @throws SecurityException if the authentication tag doesn't match.
+     */
+    ObjectMetadata download(S3Object first, File destination) {
+        final ObjectMetadata metadata = first.getObjectMetadata();
+        final long instanceLength = metadata.getInstanceLength();
+        final long ciphertextLength = instanceLength - TAG_LENGTH;
+        if (ciphertextLength < 0) {
+            abort(first);
+            throw new SecurityException("Object " + first.getKey()
+                    + " is too short to have been encrypted with AES/GCM");
+        }
+        final long[] range = req.getRange();
+        final boolean authenticate = range == null;
+        final long begin = authenticate ? 0 : range[0];
+        final long start = firstByteToGet(req);
+        final long end = authenticate
+                ? instanceLength - 1
+                : Math.min(range[1], ciphertextLength - 1);
+        final int rangeCount = begin > end ? 0 : (int) ((end - start) / rangeSize + 1);
+        final byte[] tag = new byte[TAG_LENGTH];
+
+        File temp = null;
+        RandomAccessFile file = null;
+        boolean success = false;
+        try {
+            temp = createTempFile(destination, TEMP_SUFFIX);
+            file = new RandomAccessFile(temp, "rw");
+            file.setLength(authenticate ? ciphertextLength : Math.max(0, end - begin + 1));
+            if (rangeCount == 0) {
+                abort(first);
+            } else {
+                decryptRanges(first, start, end, begin, rangeCount, ciphertextLength,
+                        metadata.getETag(), file.getChannel(), tag, authenticate);
+            }
+            file.close();
+            file = null;
+            if (authenticate) {
+                metadata.setContentLength(instanceLength);
+            }
+            replace(temp, destination);
+            success = true;
+            return metadata;
+        } catch (final IOException e) {
+            throw new AmazonClientException(
+                    "Unable to store object contents to disk: " + e.getMessage(), e);
+        } finally {
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (final IOException e) {
+                    LOG.debug("Unable to close " + temp, e);
+                }
+            }
+            if (!success) {
+                abort(first);
+                if (temp != null && !temp.delete()) {
+                    LOG.debug("Unable to delete " + temp);
+                }
+            }
+        }
+    }
+
+    /**
+     * Decrypts all the ranges to the file, the first one on this thread, and
+     * verifies the authentication tag if the whole object is downloaded.
+     */
+    private void decryptRanges(S3Object first, long start, long end, final long begin,
+            int rangeCount, final long ciphertextLength, final String eTag,
+            final FileChannel channel, final byte[] tag, boolean authenticate)
+            throws IOException {
+        ExecutorService executor = null;
+        try {
+            final List<Future<RangeHash>> futures = new ArrayList<Future<RangeHash>>();
+            if (rangeCount > 1) {
+                executor = newExecutor(Math.min(threads, rangeCount - 1));
+                for (int i = 1; i < rangeCount; i++) {
+                    final long rangeStart = start + i * rangeSize;
+                    final long rangeEnd = Math.min(rangeStart + rangeSize - 1, end);
+                    futures.add(executor.submit(new Callable<RangeHash>() {
+                        @Override
+                        public RangeHash call() throws IOException {
+                            return decryptRange(getRange(rangeStart, rangeEnd, eTag),
+                                    rangeStart, rangeEnd, begin, ciphertextLength, channel, tag);
+                        }
+                    }));
+                }
+            }
+            final List<RangeHash> hashes = new ArrayList<RangeHash>();
+            hashes.add(decryptRange(first, start, Math.min(start + rangeSize - 1, end),
+                    begin, ciphertextLength, channel, tag));
+            for (final Future<RangeHash> future : futures) {
+                hashes.add(await(future));
+            }
+            if (authenticate) {
+                verify(hashes, tag);
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Creates an empty file of a unique name in the directory of the
+     * destination, so that it can be renamed to the destination.
+     */
+    private static File createTempFile(File destination, String suffix) throws IOException {
+        final StringBuilder prefix = new StringBuilder(destination.getName());
+        while (prefix.length() < MIN_TEMP_PREFIX_LENGTH) {
+            prefix.append('-');
+        }
+        return File.createTempFile(prefix.toString(), suffix,
+                destination.getAbsoluteFile().getParentFile());
+    }
+
+    /**
+     * Renames the temporary file to the destination. An existing destination
+     * is kept until the temporary file has taken its place, and restored if
+     * it can't.
+     */
+    static void replace(File temp, File destination) throws IOException {
+        if (temp.renameTo(destination)) {
+            return;
+        }
+        // renameTo does not replace an existing file on every platform
+        if (!destination.isFile()) {
+            throw new IOException("Unable to replace " + destination);
+        }
+        final File original = createTempFile(destination, ORIGINAL_SUFFIX);
+        if (!original.delete() || !destination.renameTo(original)) {
+            original.delete();
+            throw new IOException("Unable to replace " + destination);
+        }
+        if (!temp.renameTo(destination)) {
+            if (!original.renameTo(destination)) {
+                throw new IOException("Unable to replace " + destination
+                        + "; its previous contents are in " + original);
+            }
+            throw new IOException("Unable to replace " + destination);
+        }
+        if (!original.delete()) {
+            LOG.debug("Unable to delete " + original);
+        }
+    }
+
+    private S3Object getRange(long rangeStart, long rangeEnd, String eTag) {
+        final GetObjectRequest rangeReq = (GetObjectRequest) req.clone();
+        rangeReq.setRange(rangeStart, rangeEnd);
+        if (eTag != null) {
+            // the ranges must all be of the same object
+            final List<String> eTags = new ArrayList<String>();
+            eTags.add(eTag);
+            rangeReq.setMatchingETagConstraints(eTags);
+        }
+        final S3Object retrieved = s3.getObject(rangeReq);
+        if (retrieved == null) {
+            throw new AmazonClientException("Object " + req.getKey()
+                    + " was modified while being downloaded");
+        }
+        return retrieved;
+    }
+
+    /**
+     * Decrypts a range of the object to the file.
+     *
+     * @param retrieved the range, closed by this method.
+     * @param begin the byte of the object at the start of the file.
+     * @return the hash of the ciphertext of the range.
+     */
+    private RangeHash decryptRange(S3Object retrieved, long rangeStart, long rangeEnd,
+            long begin, long ciphertextLength, FileChannel channel, byte[] tag)
+            throws IOException {
+        final S3ObjectInputStream in = retrieved.getObjectContent();
+        boolean drained = false;
+        try {
+            final CipherLite ctr = createCipherLite(rangeStart);
+            final GHash hash = new GHash(hashPrototype);
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            long pos = rangeStart;
+            // the cipher may hold back a partial block until the end
+            long plaintextPos = rangeStart;
+            while (pos <= rangeEnd) {
+                final int n = in.read(buffer, 0, (int) Math.min(buffer.length, rangeEnd - pos + 1));
+                if (n == -1) {
+                    throw new AmazonClientException("Unexpected end of object "
+                            + req.getKey() + " at byte " + pos);
+                }
+                // the ciphertext, then the tag
+                final int cipherBytes = (int) Math.max(0, Math.min(n, ciphertextLength - pos));
+                if (cipherBytes > 0) {
+                    hash.update(buffer, 0, cipherBytes);
+                    plaintextPos += write(channel, ctr.update(buffer, 0, cipherBytes),
+                            plaintextPos, begin);
+                }
+                for (int i = cipherBytes; i < n; i++) {
+                    tag[(int) (pos + i - ciphertextLength)] = buffer[i];
+                }
+                pos += n;
+            }
+            plaintextPos += write(channel, doFinal(ctr), plaintextPos, begin);
+            drained = in.read() == -1;
+            return new RangeHash(hash);
+        } finally {
+            if (drained) {
+                in.close();
+            } else {
+                // don't read the rest of a range that won't be used
+                in.abort();
+            }
+        }
+    }
+
+    private CipherLite createCipherLite(long rangeStart) {
+        try {
+            return gcm.createAuxiliary(rangeStart);
+        } catch (final Exception e) {
+            throw new AmazonClientException(
+                    "Unable to create cipher for the range at byte " + rangeStart, e);
+        }
+    }
+
+    private static byte[] doFinal(CipherLite ctr) {
+        try {
+            return ctr.doFinal();
+        } catch (final Exception e) {
+            throw new AmazonClientException("Unable to decrypt object", e);
+        }
+    }
+
+    /**
+     * Writes plaintext of the object to the file.
+     *
+     * @param pos the byte of the object the plaintext starts at.
+     * @param begin the byte of the object at the start of the file.
+     * @return the length of the plaintext.
+     */
+    private static int write(FileChannel channel, byte[] plaintext, long pos, long begin)
+            throws IOException {
+        if (plaintext == null) {
+            return 0;
+        }
+        // skip the start of the first cipher block if not requested
+        final int skip = (int) Math.max(0, begin - pos);
+        final ByteBuffer buffer = ByteBuffer.wrap(plaintext, Math.min(skip, plaintext.length),
+                Math.max(0, plaintext.length - skip));
+        long filePos = pos + skip - begin;
+        while (buffer.hasRemaining()) {
+            filePos += channel.write(buffer, filePos);
+        }
+        return plaintext.length;
+    }
+
+    private void verify(List<RangeHash> hashes, byte[] tag) {
+        final GHash hash = new GHash(hashPrototype);
+        for (final RangeHash rangeHash : hashes) {
+            if (rangeHash.length > 0) {
+                hash.append(rangeHash.high, rangeHash.low, rangeHash.length);
+            }
+        }
+        if (!MessageDigest.isEqual(tag, hash.tag(GHash.tagMaskOf(gcm)))) {
+            throw new SecurityException("The authentication tag of object " + req.getKey()
+                    + " doesn't match its content");
+        }
+    }
+
+    private static RangeHash await(Future<RangeHash> future) {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException("Interrupted while downloading", e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new AmazonClientException(
+                    "Unable to store object contents to disk: " + cause.getMessage(), cause);
+        }
+    }
+
+    private static void abort(S3Object retrieved) {
+        final S3ObjectInputStream in = retrieved.getObjectContent();
+        if (in != null) {
+            in.abort();
+        }
+    }
+
+    private static ExecutorService newExecutor(int threadCount) {
+        return Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread t = new Thread(r);
+                t.setName("s3-encryption-download-" + THREAD_COUNT.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.internal.crypto;
+
+import com.amazonaws.AmazonClientException;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The context of a multipart upload whose parts are encrypted independently,
+ * so that they can be uploaded concurrently and in any order.
+ * <p>
+ * The object is still a single AES/GCM ciphertext: each part is encrypted
+ * with AES/CTR from the counter of its offset in the object, and the GHASH of
+ * its ciphertext is kept, so that the authentication tag can be appended to
+ * the last part. All the parts but the last must therefore be of the same
+ * size, and the last part must be uploaded after all the others.
+ *
+ * @deprecated See {@link com.amazonaws.services.s3.AmazonS3EncryptionClient}
+ *             for further details.
+ */
+@Deprecated
+class ParallelMultipartUploadCryptoContext extends MultipartUploadCryptoContext {
+    private final AtomicLong partSize = new AtomicLong();
+    /** GHASH of each part uploaded but the last, as {high, low}. */
+    private final ConcurrentMap<Integer, long[]> partHashes =
+            new ConcurrentHashMap<Integer, long[]>();
+    private final GHash hashPrototype;
+    private final byte[] tagMask;
+
+    ParallelMultipartUploadCryptoContext(String bucketName, String key,
+            ContentCryptoMaterial cekMaterial) {
+        super(bucketName, key, cekMaterial);
+        final CipherLite cipherLite = cekMaterial.getCipherLite();
+        this.hashPrototype = GHash.forCipher(cipherLite);
+        this.tagMask = GHash.tagMaskOf(cipherLite);
+    }
+
+    /**
+     * Returns the cipher lite to encrypt a part, for parts of a given size.
+     *
+     * @param partNumber the part number.
+     * @param size the size of the part.
+     * @param isLastPart whether this is the last part.
+     * @throws AmazonClientException if the size differs from the size of other
+     *             parts, or if a part is missing before the last part.
+     */
+    CipherLite cipherLiteForPart(int partNumber, long size, boolean isLastPart) {
+        if (partNumber < 1) {
+            throw new IllegalArgumentException("part number must be at least 1");
+        }
+        if (isLastPart) {
+            for (int i = 1; i < partNumber; i++) {
+                if (!partHashes.containsKey(i)) {
+                    throw new AmazonClientException("The last part of a parallel encrypted "
+                            + "multipart upload must be uploaded after all the other parts, but part "
+                            + i + " is missing");
+                }
+            }
+        } else if (!partSize.compareAndSet(0, size) && partSize.get() != size) {
+            throw new AmazonClientException("All parts but the last of a parallel encrypted "
+                    + "multipart upload must be of the same size (" + partSize.get()
+                    + "), but part " + partNumber + " is of size " + size);
+        }
+        try {
+            return getCipherLite().createAuxiliary(offsetOf(partNumber));
+        } catch (final Exception e) {
+            throw new AmazonClientException("Unable to create cipher for part " + partNumber, e);
+        }
+    }
+
+    /**
+     * @return the GHASH of the ciphertext of all the parts before a part.
+     */
+    GHash hashOfPartsBefore(int partNumber) {
+        final GHash hash = new GHash(hashPrototype);
+        for (int i = 1; i < partNumber; i++) {
+            final long[] partHash = partHashes.get(i);
+            hash.append(partHash[0], partHash[1], partSize.get());
+        }
+        return hash;
+    }
+
+    /**
+     * @return a GHASH for the ciphertext of a part on its own.
+     */
+    GHash newPartHash() {
+        return new GHash(hashPrototype);
+    }
+
+    /**
+     * Records the GHASH of the whole ciphertext of a part but the last.
+     */
+    void recordPartHash(int partNumber, GHash hash) {
+        partHashes.put(partNumber, new long[] {
+                hash.getHigh(), hash.getLow()
+        });
+    }
+
+    /**
+     * @return the encryption of the pre-counter block J0.
+     */
+    byte[] getTagMask() {
+        return tagMask.clone();
+    }
+
+    private long offsetOf(int partNumber) {
+        return (partNumber - 1) * partSize.get();
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2010-2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.internal.crypto;
+
+import com.amazonaws.internal.SdkFilterInputStream;
+
+import java.io.IOException;
+
+/**
+ * The ciphertext of a part of a parallel encrypted multipart upload: hashes
+ * the AES/CTR ciphertext read through it, records the hash of a part at the
+ * end of the part, and appends the AES/GCM tag to the last part.
+ *
+ * @deprecated See {@link com.amazonaws.services.s3.AmazonS3EncryptionClient}
+ *             for further details.
+ */
+@Deprecated
+class ParallelPartInputStream extends SdkFilterInputStream {
+    private static final int BYTE_MASK = 0xff;
+    private static final int SKIP_BUFFER_SIZE = 1024 * 2;
+
+    private final ParallelMultipartUploadCryptoContext uploadContext;
+    private final int partNumber;
+    private final boolean isLastPart;
+    private final GHash hash;
+    private final GHash markedHash;
+    /** The tag once the ciphertext of the last part has been read. */
+    private byte[] tag;
+    private int tagPos;
+    private boolean eof;
+
+    /**
+     * @param in the AES/CTR ciphertext of the part.
+     */
+    ParallelPartInputStream(CipherLiteInputStream in,
+            ParallelMultipartUploadCryptoContext uploadContext, int partNumber,
+            boolean isLastPart) {
+        super(in);
+        this.uploadContext = uploadContext;
+        this.partNumber = partNumber;
+        this.isLastPart = isLastPart;
+        // the last part follows all the others in the hash
+        this.hash = isLastPart
+                ? uploadContext.hashOfPartsBefore(partNumber)
+                : uploadContext.newPartHash();
+        this.markedHash = new GHash(hash);
+    }
+
+    @Override
+    public int read() throws IOException {
+        final byte[] b = new byte[1];
+        final int n = read(b, 0, 1);
+        return n == -1 ? -1 : b[0] & BYTE_MASK;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        abortIfNeeded();
+        if (len == 0) {
+            return 0;
+        }
+        if (!eof) {
+            final int n = in.read(b, off, len);
+            if (n > 0) {
+                hash.update(b, off, n);
+                return n;
+            }
+            if (n == -1) {
+                endOfCiphertext();
+            } else {
+                return n;
+            }
+        }
+        if (tag == null || tagPos == tag.length) {
+            return -1;
+        }
+        final int n = Math.min(len, tag.length - tagPos);
+        System.arraycopy(tag, tagPos, b, off, n);
+        tagPos += n;
+        return n;
+    }
+
+    private void endOfCiphertext() {
+        eof = true;
+        if (isLastPart) {
+            tag = new GHash(hash).tag(uploadContext.getTagMask());
+            tagPos = 0;
+        } else {
+            uploadContext.recordPartHash(partNumber, hash);
+        }
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // the ciphertext must still be read to be hashed
+        final byte[] buffer = new byte[(int) Math.min(SKIP_BUFFER_SIZE, Math.max(n, 0))];
+        long skipped = 0;
+        while (skipped < n) {
+            final int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read == -1) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        abortIfNeeded();
+        return eof ? (tag == null ? 0 : tag.length - tagPos) : in.available();
+    }
+
+    @Override
+    public boolean markSupported() {
+        abortIfNeeded();
+        return in.markSupported();
+    }
+
+    /**
+     * Can only be marked at the beginning of the part, as the underlying
+     * cipher stream.
+     */
+    @Override
+    public void mark(int readlimit) {
+        abortIfNeeded();
+        in.mark(readlimit);
+        markedHash.set(hash);
+    }
+
+    @Override
+    public void reset() throws IOException {
+        abortIfNeeded();
+        in.reset();
+        hash.set(markedHash);
+        eof = false;
+        tag = null;
+        tagPos = 0;
+    }
+}
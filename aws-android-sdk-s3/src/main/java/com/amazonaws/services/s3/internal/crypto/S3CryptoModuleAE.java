@@ -18,6 +18,7 @@ import static com.amazonaws.services.s3.AmazonS3EncryptionClient.USER_AGENT;
 import static com.amazonaws.services.s3.model.CryptoMode.AuthenticatedEncryption;
 import static com.amazonaws.services.s3.model.CryptoMode.StrictAuthenticatedEncryption;
 import static com.amazonaws.services.s3.model.ExtraMaterialsDescription.NONE;
+import static com.amazonaws.services.s3.model.S3DataSource.Utils.cleanupDataSource;
 import static com.amazonaws.util.IOUtils.closeQuietly;
 
 import com.amazonaws.AmazonClientException;
@@ -38,6 +39,7 @@ import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectId;
 import com.amazonaws.services.s3.model.S3ObjectInputStream;
 import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
 import com.amazonaws.util.json.JsonUtils;
 
 import java.io.BufferedOutputStream;
@@ -221,30 +223,12 @@ class S3CryptoModuleAE extends S3CryptoModuleBase<MultipartUploadCryptoContext>
     private S3Object decipherWithInstructionFile(GetObjectRequest req,
             long[] desiredRange, long[] cryptoRange, S3ObjectWrapper retrieved,
             S3ObjectWrapper instructionFile) {
-        ExtraMaterialsDescription extraMatDesc = NONE;
-        boolean keyWrapExpected = isStrict();
-        if (req instanceof EncryptedGetObjectRequest) {
-            final EncryptedGetObjectRequest ereq = (EncryptedGetObjectRequest) req;
-            extraMatDesc = ereq.getExtraMaterialDescription();
-            if (!keyWrapExpected) {
-                keyWrapExpected = ereq.isKeyWrapExpected();
-            }
-        }
         final String json = instructionFile.toJsonString();
         @SuppressWarnings("unchecked")
         final Map<String, String> matdesc =
                 Collections.unmodifiableMap(JsonUtils.jsonToMap(json));
         final ContentCryptoMaterial cekMaterial =
-                ContentCryptoMaterial.fromInstructionFile(
-                    matdesc,
-                    kekMaterialsProvider,
-                    cryptoConfig.getCryptoProvider(),
-                    cryptoRange,   // range is sometimes necessary to compute the adjusted IV
-                    extraMatDesc,
-                    keyWrapExpected,
-                    kms
-            );
-        securityCheck(cekMaterial, retrieved);
+                contentCryptoMaterialOf(req, matdesc, cryptoRange, retrieved);
         final S3ObjectWrapper decrypted = decrypt(retrieved, cekMaterial, cryptoRange);
         // Adjust the output to the desired range of bytes.
         final S3ObjectWrapper adjusted = adjustToDesiredRange(
@@ -255,6 +239,25 @@ class S3CryptoModuleAE extends S3CryptoModuleBase<MultipartUploadCryptoContext>
     private S3Object decipherWithMetadata(GetObjectRequest req,
             long[] desiredRange,
             long[] cryptoRange, S3ObjectWrapper retrieved) {
+        final ContentCryptoMaterial cekMaterial =
+                contentCryptoMaterialOf(req, null, cryptoRange, retrieved);
+        final S3ObjectWrapper decrypted = decrypt(retrieved, cekMaterial, cryptoRange);
+        // Adjust the output to the desired range of bytes.
+        final S3ObjectWrapper adjusted = adjustToDesiredRange(
+                decrypted, desiredRange, null);
+        return adjusted.getS3Object();
+    }
+
+    /**
+     * Returns the content crypto material of an object, from its instruction
+     * file if specified or else from its metadata.
+     *
+     * @param matdesc the instruction file, or null to use the metadata.
+     * @param cryptoRange the range of the object retrieved, necessary to
+     *            compute the adjusted IV; or null if it is the whole object.
+     */
+    private ContentCryptoMaterial contentCryptoMaterialOf(GetObjectRequest req,
+            Map<String, String> matdesc, long[] cryptoRange, S3ObjectWrapper retrieved) {
         ExtraMaterialsDescription extraMatDesc = NONE;
         boolean keyWrapExpected = isStrict();
         if (req instanceof EncryptedGetObjectRequest) {
@@ -264,22 +267,24 @@ class S3CryptoModuleAE extends S3CryptoModuleBase<MultipartUploadCryptoContext>
                 keyWrapExpected = ereq.isKeyWrapExpected();
             }
         }
-        final ContentCryptoMaterial cekMaterial = ContentCryptoMaterial
-            .fromObjectMetadata(retrieved.getObjectMetadata(),
+        final ContentCryptoMaterial cekMaterial = matdesc == null
+            ? ContentCryptoMaterial.fromObjectMetadata(retrieved.getObjectMetadata(),
                 kekMaterialsProvider,
                 cryptoConfig.getCryptoProvider(),
-                // range is sometimes necessary to compute the adjusted IV
                 cryptoRange,
                 extraMatDesc,
                 keyWrapExpected,
-                kms
-            );
+                kms)
+            : ContentCryptoMaterial.fromInstructionFile(
+                matdesc,
+                kekMaterialsProvider,
+                cryptoConfig.getCryptoProvider(),
+                cryptoRange,
+                extraMatDesc,
+                keyWrapExpected,
+                kms);
         securityCheck(cekMaterial, retrieved);
-        final S3ObjectWrapper decrypted = decrypt(retrieved, cekMaterial, cryptoRange);
-        // Adjust the output to the desired range of bytes.
-        final S3ObjectWrapper adjusted = adjustToDesiredRange(
-                decrypted, desiredRange, null);
-        return adjusted.getS3Object();
+        return cekMaterial;
     }
 
     /**
@@ -342,6 +347,16 @@ class S3CryptoModuleAE extends S3CryptoModuleBase<MultipartUploadCryptoContext>
         assertParameterNotNull(destinationFile,
                 "The destination file parameter must be specified when downloading an object directly to a file");
 
+        if (cryptoConfig.getParallelDownloadThreads() > 1
+                && getObjectRequest.getPartNumber() == null
+                && (getObjectRequest.getRange() == null || !isStrict())) {
+            final ObjectMetadata metadata =
+                    getObjectInParallel(getObjectRequest, destinationFile);
+            if (metadata != null) {
+                return metadata;
+            }
+        }
+
         final S3Object s3Object = getObjectSecurely(getObjectRequest);
         // getObject can return null if constraints were specified but not met
         if (s3Object == null) {
@@ -373,13 +388,157 @@ class S3CryptoModuleAE extends S3CryptoModuleBase<MultipartUploadCryptoContext>
         return s3Object.getObjectMetadata();
     }
 
+    /**
+     * Downloads an object encrypted with AES/GCM to a file, several ranges at
+     * a time.
+     *
+     * @return the metadata of the object; or null to download it with a
+     *         single GET instead, if it isn't encrypted with AES/GCM or if
+     *         constraints specified weren't met.
+     */
+    private ObjectMetadata getObjectInParallel(GetObjectRequest req, File destinationFile) {
+        appendUserAgent(req, USER_AGENT);
+        final long start = ParallelDecryptingDownload.firstByteToGet(req);
+        final long[] range = req.getRange();
+        final long rangeSize = cryptoConfig.getParallelDownloadRangeSize();
+        final GetObjectRequest firstReq = (GetObjectRequest) req.clone();
+        firstReq.setRange(start, range == null
+                ? start + rangeSize - 1
+                : Math.min(start + rangeSize - 1, range[1]));
+        final S3Object retrieved = s3.getObject(firstReq);
+        if (retrieved == null) {
+            return null;
+        }
+        final ContentCryptoMaterial cekMaterial;
+        try {
+            cekMaterial = gcmMaterialOf(req, new S3ObjectWrapper(retrieved, req.getS3ObjectId()));
+        } catch (final RuntimeException ex) {
+            closeQuietly(retrieved, log);
+            throw ex;
+        }
+        if (cekMaterial == null) {
+            // not worth reading the rest of the range
+            retrieved.getObjectContent().abort();
+            return null;
+        }
+        return new ParallelDecryptingDownload(s3, req, cekMaterial.getCipherLite(),
+                rangeSize, cryptoConfig.getParallelDownloadThreads())
+                .download(retrieved, destinationFile);
+    }
+
+    /**
+     * Returns the content crypto material of an object encrypted with
+     * AES/GCM, for the whole object; or null if the object is encrypted
+     * otherwise or if its encryption information can't be found.
+     */
+    private ContentCryptoMaterial gcmMaterialOf(GetObjectRequest req,
+            S3ObjectWrapper retrieved) {
+        String suffix = null;
+        if (req instanceof EncryptedGetObjectRequest) {
+            suffix = ((EncryptedGetObjectRequest) req).getInstructionFileSuffix();
+        }
+        ContentCryptoMaterial cekMaterial = null;
+        if ((suffix == null || suffix.trim().isEmpty()) && retrieved.hasEncryptionInfo()) {
+            cekMaterial = contentCryptoMaterialOf(req, null, null, retrieved);
+        } else {
+            final S3ObjectWrapper ifile = fetchInstructionFile(req.getS3ObjectId(),
+                    suffix == null || suffix.trim().isEmpty() ? null : suffix);
+            if (ifile == null) {
+                return null;
+            }
+            try {
+                if (!ifile.isInstructionFile()) {
+                    return null;
+                }
+                @SuppressWarnings("unchecked")
+                final Map<String, String> matdesc =
+                        Collections.unmodifiableMap(JsonUtils.jsonToMap(ifile.toJsonString()));
+                cekMaterial = contentCryptoMaterialOf(req, matdesc, null, retrieved);
+            } finally {
+                closeQuietly(ifile, log);
+            }
+        }
+        return cekMaterial.getContentCryptoScheme() == ContentCryptoScheme.AES_GCM
+                ? cekMaterial
+                : null;
+    }
+
     @Override
     final MultipartUploadCryptoContext newUploadContext(
             InitiateMultipartUploadRequest req, ContentCryptoMaterial cekMaterial) {
+        if (cryptoConfig.isParallelMultipartUpload()) {
+            return new ParallelMultipartUploadCryptoContext(
+                    req.getBucketName(), req.getKey(), cekMaterial);
+        }
         return new MultipartUploadCryptoContext(
                 req.getBucketName(), req.getKey(), cekMaterial);
     }
 
+    @Override
+    public UploadPartResult uploadPartSecurely(UploadPartRequest req) {
+        final MultipartUploadCryptoContext uploadContext =
+                multipartUploadContexts.get(req.getUploadId());
+        if (uploadContext instanceof ParallelMultipartUploadCryptoContext) {
+            return uploadPartInParallel(req,
+                    (ParallelMultipartUploadCryptoContext) uploadContext);
+        }
+        return super.uploadPartSecurely(req);
+    }
+
+    /**
+     * Uploads a part encrypted independently of the other parts: the part is
+     * encrypted with AES/CTR from its offset in the object, as AES/GCM would,
+     * and the last part, uploaded after all the others, is followed by the
+     * AES/GCM tag of the whole object.
+     */
+    private UploadPartResult uploadPartInParallel(UploadPartRequest req,
+            ParallelMultipartUploadCryptoContext uploadContext) {
+        appendUserAgent(req, USER_AGENT);
+        final int blockSize = contentCryptoScheme.getBlockSizeInBytes();
+        final boolean isLastPart = req.isLastPart();
+        final long partSize = req.getPartSize();
+        if (!isLastPart && 0 != (partSize % blockSize)) {
+            throw new AmazonClientException(
+                "Invalid part size: part sizes for encrypted multipart uploads must be multiples "
+                    + "of the cipher block size ("
+                    + blockSize
+                    + ") with the exception of the last part.");
+        }
+        if (isLastPart && uploadContext.hasFinalPartBeenSeen()) {
+            throw new AmazonClientException(
+                "This part was specified as the last part in a multipart upload, but a previous part was already marked as the last part.  "
+              + "Only the last part of the upload should be marked as the last part.");
+        }
+        final CipherLite cipherLite =
+                uploadContext.cipherLiteForPart(req.getPartNumber(), partSize, isLastPart);
+        final File fileOrig = req.getFile();
+        final InputStream isOrig = req.getInputStream();
+        SdkFilterInputStream isCurr = null;
+        final UploadPartResult result;
+        try {
+            final CipherLiteInputStream clis = newMultipartS3CipherInputStream(req, cipherLite);
+            isCurr = clis;
+            isCurr = new ParallelPartInputStream(clis, uploadContext,
+                    req.getPartNumber(), isLastPart);
+            req.setInputStream(isCurr);
+            req.setFile(null);
+            req.setFileOffset(0);
+            if (isLastPart) {
+                final long lastPartSize = computeLastPartSize(req);
+                if (lastPartSize > -1) {
+                    req.setPartSize(lastPartSize);
+                }
+            }
+            result = s3.uploadPart(req);
+        } finally {
+            cleanupDataSource(req, fileOrig, isOrig, isCurr, log);
+        }
+        if (isLastPart) {
+            uploadContext.setHasFinalPartBeenSeen(true);
+        }
+        return result;
+    }
+
     //// specific overrides for uploading parts.
     @Override
     final CipherLite cipherLiteForNextPart(
@@ -113,6 +113,8 @@ public abstract class S3CryptoModuleBase<T extends MultipartUploadCryptoContext>
             Collections.synchronizedMap(new HashMap<String, T>());
     protected final S3Direct s3;
     protected final AWSKMSClient kms;
+    /** The data keys kept for reuse, or null if disabled. */
+    private final DataKeyCache dataKeyCache;
 
     /**
      * @param cryptoConfig a read-only copy of the crypto configuration.
@@ -130,6 +132,7 @@ public abstract class S3CryptoModuleBase<T extends MultipartUploadCryptoContext>
         this.cryptoScheme = S3CryptoScheme.from(cryptoConfig.getCryptoMode());
         this.contentCryptoScheme = cryptoScheme.getContentCryptoScheme();
         this.kms = kms;
+        this.dataKeyCache = newDataKeyCache(cryptoConfig);
     }
 
     /**
@@ -145,6 +148,15 @@ public abstract class S3CryptoModuleBase<T extends MultipartUploadCryptoContext>
         this.cryptoScheme = S3CryptoScheme.from(cryptoConfig.getCryptoMode());
         this.contentCryptoScheme = cryptoScheme.getContentCryptoScheme();
         this.kms = null;
+        this.dataKeyCache = newDataKeyCache(cryptoConfig);
+    }
+
+    private static DataKeyCache newDataKeyCache(CryptoConfiguration cryptoConfig) {
+        return cryptoConfig.getDataKeyCacheSize() > 0
+                ? new DataKeyCache(cryptoConfig.getDataKeyCacheSize(),
+                        cryptoConfig.getDataKeyCacheTimeToLiveMillis(),
+                        cryptoConfig.getDataKeyCacheMaxUses())
+                : null;
     }
 
     /**
@@ -548,7 +560,9 @@ public abstract class S3CryptoModuleBase<T extends MultipartUploadCryptoContext>
             keyGenReq
                 .withGeneralProgressListener(req.getGeneralProgressListener())
                 .withRequestMetricCollector(req.getRequestMetricCollector());
-            final GenerateDataKeyResult keyGenRes = kms.generateDataKey(keyGenReq);
+            final GenerateDataKeyResult keyGenRes = dataKeyCache == null
+                ? kms.generateDataKey(keyGenReq)
+                : dataKeyCache.getDataKey(keyGenReq, kms);
             final SecretKey cek =
                 new SecretKeySpec(copyAllBytesFrom(keyGenRes.getPlaintext()),
                         contentCryptoScheme.getKeyGeneratorAlgorithm());
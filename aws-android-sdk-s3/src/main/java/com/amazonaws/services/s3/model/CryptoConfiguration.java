@@ -17,9 +17,11 @@ package com.amazonaws.services.s3.model;
 
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.s3.internal.crypto.CryptoRuntime;
+import com.amazonaws.services.s3.internal.crypto.JceEncryptionConstants;
 
 import java.io.Serializable;
 import java.security.Provider;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Stores configuration parameters that will be used during encryption and
@@ -36,6 +38,14 @@ public class CryptoConfiguration implements Cloneable, Serializable {
 
     private static final long serialVersionUID = -8646831898339939580L;
 
+    /** Default time to live of a cached data key, in milliseconds. */
+    public static final long DEFAULT_DATA_KEY_CACHE_TIME_TO_LIVE_MILLIS =
+            TimeUnit.MINUTES.toMillis(5);
+    /** Default maximum number of objects encrypted with a cached data key. */
+    public static final long DEFAULT_DATA_KEY_CACHE_MAX_USES = 1000;
+    /** Default size of the ranges of a parallel download, 8 MB. */
+    public static final long DEFAULT_PARALLEL_DOWNLOAD_RANGE_SIZE = 8 * 1024 * 1024;
+
     private CryptoMode cryptoMode;
     private CryptoStorageMode storageMode;
     private Provider cryptoProvider;
@@ -52,6 +62,24 @@ public class CryptoConfiguration implements Cloneable, Serializable {
      * null if no explicit KMS region is specified.
      */
     private transient com.amazonaws.regions.Region awskmsRegion;
+    /**
+     * The maximum number of KMS data keys kept for reuse, or 0 to generate a
+     * data key for every object. Default is 0.
+     */
+    private int dataKeyCacheSize;
+    private long dataKeyCacheTimeToLiveMillis = DEFAULT_DATA_KEY_CACHE_TIME_TO_LIVE_MILLIS;
+    private long dataKeyCacheMaxUses = DEFAULT_DATA_KEY_CACHE_MAX_USES;
+    /**
+     * True to encrypt the parts of multipart uploads independently of each
+     * other; false otherwise. Default is false.
+     */
+    private boolean parallelMultipartUpload;
+    /**
+     * The number of ranges of an object downloaded to a file at the same
+     * time. Default is 1.
+     */
+    private int parallelDownloadThreads = 1;
+    private long parallelDownloadRangeSize = DEFAULT_PARALLEL_DOWNLOAD_RANGE_SIZE;
 
     /**
      * Creates a new CryptoConfiguration object with default storage mode and
@@ -282,6 +310,44 @@ public class CryptoConfiguration implements Cloneable, Serializable {
         @Override public CryptoConfiguration withKmsRegion(Regions kmsRegion) {
             throw new UnsupportedOperationException();
         }
+        @Override public void setDataKeyCacheSize(int dataKeyCacheSize) {
+            throw new UnsupportedOperationException();
+        }
+        @Override public CryptoConfiguration withDataKeyCacheSize(int dataKeyCacheSize) {
+            throw new UnsupportedOperationException();
+        }
+        @Override public void setDataKeyCacheTimeToLiveMillis(long timeToLiveMillis) {
+            throw new UnsupportedOperationException();
+        }
+        @Override public CryptoConfiguration withDataKeyCacheTimeToLiveMillis(
+                long timeToLiveMillis) {
+            throw new UnsupportedOperationException();
+        }
+        @Override public void setDataKeyCacheMaxUses(long maxUses) {
+            throw new UnsupportedOperationException();
+        }
+        @Override public CryptoConfiguration withDataKeyCacheMaxUses(long maxUses) {
+            throw new UnsupportedOperationException();
+        }
+        @Override public void setParallelMultipartUpload(boolean parallelMultipartUpload) {
+            throw new UnsupportedOperationException();
+        }
+        @Override public CryptoConfiguration withParallelMultipartUpload(
+                boolean parallelMultipartUpload) {
+            throw new UnsupportedOperationException();
+        }
+        @Override public void setParallelDownloadThreads(int threads) {
+            throw new UnsupportedOperationException();
+        }
+        @Override public CryptoConfiguration withParallelDownloadThreads(int threads) {
+            throw new UnsupportedOperationException();
+        }
+        @Override public void setParallelDownloadRangeSize(long rangeSize) {
+            throw new UnsupportedOperationException();
+        }
+        @Override public CryptoConfiguration withParallelDownloadRangeSize(long rangeSize) {
+            throw new UnsupportedOperationException();
+        }
     }
 
     /**
@@ -305,6 +371,12 @@ public class CryptoConfiguration implements Cloneable, Serializable {
         that.cryptoProvider = this.cryptoProvider;
         that.ignoreMissingInstructionFile = this.ignoreMissingInstructionFile;
         that.awskmsRegion = this.awskmsRegion;
+        that.dataKeyCacheSize = this.dataKeyCacheSize;
+        that.dataKeyCacheTimeToLiveMillis = this.dataKeyCacheTimeToLiveMillis;
+        that.dataKeyCacheMaxUses = this.dataKeyCacheMaxUses;
+        that.parallelMultipartUpload = this.parallelMultipartUpload;
+        that.parallelDownloadThreads = this.parallelDownloadThreads;
+        that.parallelDownloadRangeSize = this.parallelDownloadRangeSize;
         return that;
     }
 
@@ -403,4 +475,197 @@ public class CryptoConfiguration implements Cloneable, Serializable {
         this.awskmsRegion = awsKmsRegion;
         return this;
     }
+
+    /**
+     * Returns the maximum number of data keys generated by AWS KMS that are
+     * kept for reuse, or 0 if a data key is generated for every object.
+     * Default is 0.
+     */
+    public int getDataKeyCacheSize() {
+        return dataKeyCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of data keys generated by AWS KMS that are kept
+     * for reuse, per customer master key and encryption context, so that
+     * encrypting many objects doesn't call AWS KMS for each of them. Each
+     * object is still encrypted with its own IV. Reusing a data key means
+     * fewer calls to AWS KMS, and fewer entries in its audit logs, at the
+     * cost of more objects encrypted with the same key; see
+     * {@link #setDataKeyCacheTimeToLiveMillis(long)} and
+     * {@link #setDataKeyCacheMaxUses(long)} to bound it.
+     *
+     * @param dataKeyCacheSize the maximum number of data keys, or 0 to
+     *            generate a data key for every object.
+     */
+    public void setDataKeyCacheSize(int dataKeyCacheSize) {
+        if (dataKeyCacheSize < 0) {
+            throw new IllegalArgumentException("dataKeyCacheSize can't be negative");
+        }
+        this.dataKeyCacheSize = dataKeyCacheSize;
+    }
+
+    /**
+     * Fluent API to set the maximum number of data keys generated by AWS KMS
+     * that are kept for reuse.
+     *
+     * @see #setDataKeyCacheSize(int)
+     */
+    public CryptoConfiguration withDataKeyCacheSize(int dataKeyCacheSize) {
+        setDataKeyCacheSize(dataKeyCacheSize);
+        return this;
+    }
+
+    /**
+     * Returns how long a cached data key is reused for, in milliseconds.
+     */
+    public long getDataKeyCacheTimeToLiveMillis() {
+        return dataKeyCacheTimeToLiveMillis;
+    }
+
+    /**
+     * Sets how long a cached data key is reused for, in milliseconds. Default
+     * is 5 minutes.
+     */
+    public void setDataKeyCacheTimeToLiveMillis(long timeToLiveMillis) {
+        if (timeToLiveMillis <= 0) {
+            throw new IllegalArgumentException("timeToLiveMillis must be positive");
+        }
+        this.dataKeyCacheTimeToLiveMillis = timeToLiveMillis;
+    }
+
+    /**
+     * Fluent API to set how long a cached data key is reused for, in
+     * milliseconds.
+     */
+    public CryptoConfiguration withDataKeyCacheTimeToLiveMillis(long timeToLiveMillis) {
+        setDataKeyCacheTimeToLiveMillis(timeToLiveMillis);
+        return this;
+    }
+
+    /**
+     * Returns the maximum number of objects encrypted with a cached data key.
+     */
+    public long getDataKeyCacheMaxUses() {
+        return dataKeyCacheMaxUses;
+    }
+
+    /**
+     * Sets the maximum number of objects encrypted with a cached data key
+     * before a new one is generated. Default is 1000.
+     */
+    public void setDataKeyCacheMaxUses(long maxUses) {
+        if (maxUses <= 0) {
+            throw new IllegalArgumentException("maxUses must be positive");
+        }
+        this.dataKeyCacheMaxUses = maxUses;
+    }
+
+    /**
+     * Fluent API to set the maximum number of objects encrypted with a cached
+     * data key.
+     */
+    public CryptoConfiguration withDataKeyCacheMaxUses(long maxUses) {
+        setDataKeyCacheMaxUses(maxUses);
+        return this;
+    }
+
+    /**
+     * Returns true if the parts of multipart uploads are encrypted
+     * independently of each other; false otherwise. Default is false.
+     */
+    public boolean isParallelMultipartUpload() {
+        return parallelMultipartUpload;
+    }
+
+    /**
+     * Sets whether the parts of multipart uploads are encrypted independently
+     * of each other, so that they can be uploaded concurrently. Applies to
+     * the authenticated encryption modes only; the object is encrypted with
+     * AES/GCM all the same. All the parts but the last must be of the same
+     * size, a multiple of 16 bytes, and the last part must be uploaded after
+     * all the other parts have been uploaded.
+     *
+     * @param parallelMultipartUpload true to encrypt the parts independently;
+     *            false to require the parts to be uploaded in series.
+     */
+    public void setParallelMultipartUpload(boolean parallelMultipartUpload) {
+        this.parallelMultipartUpload = parallelMultipartUpload;
+    }
+
+    /**
+     * Fluent API to set whether the parts of multipart uploads are encrypted
+     * independently of each other.
+     *
+     * @see #setParallelMultipartUpload(boolean)
+     */
+    public CryptoConfiguration withParallelMultipartUpload(boolean parallelMultipartUpload) {
+        setParallelMultipartUpload(parallelMultipartUpload);
+        return this;
+    }
+
+    /**
+     * Returns the number of ranges of an object downloaded to a file at the
+     * same time. Default is 1.
+     */
+    public int getParallelDownloadThreads() {
+        return parallelDownloadThreads;
+    }
+
+    /**
+     * Sets the number of ranges of an object downloaded to a file at the same
+     * time. Beyond 1, objects encrypted with AES/GCM are downloaded with
+     * ranged GETs, each decrypted with AES/CTR from its own counter and
+     * written to its position in the file, and the authentication tag of the
+     * whole object is verified once all the ranges are written; the file is
+     * deleted if it doesn't match. Objects encrypted in other ways are
+     * downloaded with a single GET.
+     *
+     * @param threads the number of ranges downloaded at the same time.
+     */
+    public void setParallelDownloadThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        this.parallelDownloadThreads = threads;
+    }
+
+    /**
+     * Fluent API to set the number of ranges of an object downloaded to a
+     * file at the same time.
+     *
+     * @see #setParallelDownloadThreads(int)
+     */
+    public CryptoConfiguration withParallelDownloadThreads(int threads) {
+        setParallelDownloadThreads(threads);
+        return this;
+    }
+
+    /**
+     * Returns the size in bytes of the ranges of a parallel download.
+     */
+    public long getParallelDownloadRangeSize() {
+        return parallelDownloadRangeSize;
+    }
+
+    /**
+     * Sets the size in bytes of the ranges of a parallel download, a multiple
+     * of 16 bytes. Default is 8 MB.
+     */
+    public void setParallelDownloadRangeSize(long rangeSize) {
+        if (rangeSize <= 0 || rangeSize % JceEncryptionConstants.SYMMETRIC_CIPHER_BLOCK_SIZE != 0) {
+            throw new IllegalArgumentException(
+                    "rangeSize must be a positive multiple of the cipher block size");
+        }
+        this.parallelDownloadRangeSize = rangeSize;
+    }
+
+    /**
+     * Fluent API to set the size in bytes of the ranges of a parallel
+     * download.
+     */
+    public CryptoConfiguration withParallelDownloadRangeSize(long rangeSize) {
+        setParallelDownloadRangeSize(rangeSize);
+        return this;
+    }
 }
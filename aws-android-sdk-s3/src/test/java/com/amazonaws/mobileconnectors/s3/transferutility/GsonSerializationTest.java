@@ -59,6 +59,8 @@ public class GsonSerializationTest {
                 TransferUtilityOptions.getDefaultThreadPoolSize()));
         assertThat(jsonOptions, containsString("\"transferNetworkConnectionType\":" +
                 "\"" + TransferUtilityOptions.getDefaultTransferNetworkConnectionType() + "\""));
+        assertThat(jsonOptions, containsString("\"progressUpdateInterval\":" +
+                TransferUtilityOptions.getDefaultProgressUpdateInterval()));
     }
 
     @Test
@@ -77,5 +79,8 @@ public class GsonSerializationTest {
                 tuOptions.getTransferThreadPoolSize());
         assertEquals(TransferNetworkConnectionType.ANY,
                 tuOptions.getTransferNetworkConnectionType());
+        // Options persisted before the interval existed get the default
+        assertEquals(TransferUtilityOptions.getDefaultProgressUpdateInterval(),
+                tuOptions.getProgressUpdateInterval());
     }
 }
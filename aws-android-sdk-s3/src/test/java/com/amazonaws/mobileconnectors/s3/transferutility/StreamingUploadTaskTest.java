@@ -0,0 +1,256 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transferutility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3EncryptionClient;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests how a streaming upload reads its stream and uploads its parts.
+ */
+@RunWith(RobolectricTestRunner.class)
+@SuppressWarnings("deprecation")
+public class StreamingUploadTaskTest {
+    private static final int ID = 7;
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private TransferDBUtil dbUtil;
+    private TransferStatusUpdater updater;
+    private File spillDirectory;
+
+    @Before
+    public void setup() {
+        dbUtil = mock(TransferDBUtil.class);
+        updater = mock(TransferStatusUpdater.class);
+    }
+
+    @After
+    public void teardown() {
+        TransferThreadPool.closeThreadPool();
+        if (spillDirectory != null) {
+            final File[] children = spillDirectory.listFiles();
+            if (children != null) {
+                for (final File child : children) {
+                    child.delete();
+                }
+            }
+            spillDirectory.delete();
+        }
+    }
+
+    private StreamingUploadTask task(AmazonS3 s3, InputStream in, boolean spillToDisk)
+            throws Exception {
+        spillDirectory = StreamingUploadTask.newSpillDirectory(spillToDisk);
+        final TransferRecord upload = new TransferRecord(ID);
+        upload.bucketName = "bucket";
+        upload.key = "key";
+        upload.file = spillDirectory.getAbsolutePath();
+        when(s3.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class)))
+                .thenReturn(new InitiateMultipartUploadResult());
+        return new StreamingUploadTask(upload, s3, dbUtil, updater, in, spillToDisk);
+    }
+
+    private static UploadPartResult partResult(UploadPartRequest request) {
+        final UploadPartResult result = new UploadPartResult();
+        result.setPartNumber(request.getPartNumber());
+        result.setETag("etag-" + request.getPartNumber());
+        return result;
+    }
+
+    @Test
+    public void readingWaitsWhileAllPartBuffersAreInFlight() throws Exception {
+        final AmazonS3 s3 = mock(AmazonS3.class);
+        final CountDownLatch release = new CountDownLatch(1);
+        when(s3.uploadPart(any(UploadPartRequest.class))).thenAnswer(
+                new Answer<UploadPartResult>() {
+                    @Override
+                    public UploadPartResult answer(InvocationOnMock invocation) throws Exception {
+                        release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                        return partResult((UploadPartRequest) invocation.getArguments()[0]);
+                    }
+                });
+        final int parts = StreamingUploadTask.MAX_PART_BUFFERS + 2;
+        final CountingInputStream in = new CountingInputStream(
+                (long) parts * StreamingUploadTask.PART_SIZE);
+        final StreamingUploadTask task = task(s3, in, false);
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Boolean> result = executor.submit(task);
+            // the buffered parts and the byte read to look for the end of the stream
+            final long bound = (long) StreamingUploadTask.MAX_PART_BUFFERS
+                    * StreamingUploadTask.PART_SIZE + 1;
+            final long deadline = System.currentTimeMillis()
+                    + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+            while (in.position() < bound && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(200);
+            assertEquals(bound, in.position());
+
+            release.countDown();
+            assertTrue(result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+        assertEquals((long) parts * StreamingUploadTask.PART_SIZE, in.position());
+        verify(s3).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+        verify(updater).updateState(ID, TransferState.COMPLETED);
+    }
+
+    @Test
+    public void spilledPartIsDeletedOnceAcknowledged() throws Exception {
+        final AmazonS3 s3 = mock(AmazonS3.class);
+        final List<Boolean> spilledWhileUploading = new CopyOnWriteArrayList<Boolean>();
+        when(s3.uploadPart(any(UploadPartRequest.class))).thenAnswer(
+                new Answer<UploadPartResult>() {
+                    @Override
+                    public UploadPartResult answer(InvocationOnMock invocation) {
+                        final UploadPartRequest request =
+                                (UploadPartRequest) invocation.getArguments()[0];
+                        spilledWhileUploading.add(new File(spillDirectory,
+                                "part-" + request.getPartNumber()).isFile());
+                        return partResult(request);
+                    }
+                });
+        final StreamingUploadTask task = task(s3,
+                new CountingInputStream(2L * StreamingUploadTask.PART_SIZE + 10), true);
+
+        assertTrue(task.call());
+        assertEquals(3, spilledWhileUploading.size());
+        assertFalse(spilledWhileUploading.contains(false));
+        assertEquals(0, spillDirectory.list().length);
+    }
+
+    @Test
+    public void failedPartAbortsTheMultipartUpload() throws Exception {
+        final AmazonS3 s3 = mock(AmazonS3.class);
+        when(s3.uploadPart(any(UploadPartRequest.class)))
+                .thenThrow(new AmazonServiceException("part failed"));
+        final StreamingUploadTask task = task(s3,
+                new CountingInputStream(2L * StreamingUploadTask.PART_SIZE), false);
+
+        assertFalse(task.call());
+        verify(s3).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(s3, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+        verify(updater).throwError(eq(ID), any(Exception.class));
+        verify(updater).updateState(ID, TransferState.FAILED);
+    }
+
+    @Test
+    public void lastEncryptedPartIsUploadedAfterTheOthers() throws Exception {
+        final AmazonS3EncryptionClient s3 = mock(AmazonS3EncryptionClient.class);
+        final AtomicInteger uploaded = new AtomicInteger();
+        final List<Integer> uploadedBeforeLastPart = new CopyOnWriteArrayList<Integer>();
+        final CountDownLatch lastPartStarted = new CountDownLatch(1);
+        when(s3.uploadPart(any(UploadPartRequest.class))).thenAnswer(
+                new Answer<UploadPartResult>() {
+                    @Override
+                    public UploadPartResult answer(InvocationOnMock invocation) throws Exception {
+                        final UploadPartRequest request =
+                                (UploadPartRequest) invocation.getArguments()[0];
+                        if (request.isLastPart()) {
+                            uploadedBeforeLastPart.add(uploaded.get());
+                            lastPartStarted.countDown();
+                        } else {
+                            // give the last part a chance to overtake this one
+                            lastPartStarted.await(500, TimeUnit.MILLISECONDS);
+                        }
+                        uploaded.incrementAndGet();
+                        return partResult(request);
+                    }
+                });
+        final StreamingUploadTask task = task(s3,
+                new CountingInputStream(StreamingUploadTask.PART_SIZE + 10L), false);
+
+        assertTrue(task.call());
+        assertEquals(2, uploaded.get());
+        assertEquals(1, uploadedBeforeLastPart.size());
+        assertEquals(1, uploadedBeforeLastPart.get(0).intValue());
+    }
+
+    /**
+     * A stream of the given length that counts the bytes read from it.
+     */
+    private static final class CountingInputStream extends InputStream {
+        private final long length;
+        private volatile long position;
+
+        CountingInputStream(long length) {
+            this.length = length;
+        }
+
+        long position() {
+            return position;
+        }
+
+        @Override
+        public int read() {
+            if (position == length) {
+                return -1;
+            }
+            position++;
+            return 'a';
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (position == length) {
+                return -1;
+            }
+            final int n = (int) Math.min(len, length - position);
+            position += n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2020 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transferutility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.os.Looper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.LooperMode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests that coalesced progress callbacks still deliver the final progress
+ * and every state change, in order.
+ */
+@RunWith(RobolectricTestRunner.class)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class TransferStatusUpdaterTest {
+    private static final int ID = 42;
+    private static final long INTERVAL = 100;
+    private static final long TOTAL = 1000;
+
+    private TransferStatusUpdater updater;
+    private RecordingListener listener;
+
+    @Before
+    public void setup() {
+        updater = new TransferStatusUpdater(mock(TransferDBUtil.class));
+        updater.setProgressUpdateInterval(INTERVAL);
+        updater.addTransfer(new TransferRecord(ID));
+        listener = new RecordingListener();
+        TransferStatusUpdater.registerListener(ID, listener);
+    }
+
+    @After
+    public void teardown() {
+        updater.clear();
+    }
+
+    @Test
+    public void progressWithinAnIntervalIsCoalesced() {
+        updater.updateState(ID, TransferState.IN_PROGRESS);
+        for (long bytes = 10; bytes <= 500; bytes += 10) {
+            updater.updateProgress(ID, bytes, TOTAL, true);
+        }
+        idleMainLooper(INTERVAL);
+
+        assertEquals(Arrays.asList("state IN_PROGRESS", "progress 500/1000"), listener.events);
+    }
+
+    @Test
+    public void finalProgressAndStateChangesAreDeliveredInOrder() {
+        updater.updateState(ID, TransferState.IN_PROGRESS);
+        for (long bytes = 100; bytes <= 400; bytes += 100) {
+            updater.updateProgress(ID, bytes, TOTAL, true);
+        }
+        updater.updateState(ID, TransferState.PENDING_PAUSE);
+        updater.updateState(ID, TransferState.PAUSED);
+        updater.updateState(ID, TransferState.IN_PROGRESS);
+        for (long bytes = 500; bytes < TOTAL; bytes += 100) {
+            updater.updateProgress(ID, bytes, TOTAL, true);
+            idleMainLooper(INTERVAL / 4);
+        }
+        // The last progress and the completion are reported together, before
+        // the dispatcher runs again.
+        updater.updateProgress(ID, TOTAL, TOTAL, true);
+        updater.updateState(ID, TransferState.COMPLETED);
+        idleMainLooper(INTERVAL * 10);
+
+        final List<String> events = listener.events;
+        assertEquals(Arrays.asList("state IN_PROGRESS", "progress 400/1000", "state PAUSED",
+                "state IN_PROGRESS"), events.subList(0, 4));
+        assertEquals(Arrays.asList("progress 1000/1000", "state COMPLETED"),
+                events.subList(events.size() - 2, events.size()));
+
+        // Progress in between is coalesced, never reordered and never
+        // reported after the completion.
+        long last = 400;
+        for (final String event : events.subList(4, events.size() - 2)) {
+            assertTrue(event, event.startsWith("progress "));
+            final long bytes = Long.parseLong(event.substring("progress ".length(),
+                    event.indexOf('/')));
+            assertTrue(event, bytes > last);
+            last = bytes;
+        }
+        assertTrue(events.size() - 6 < 5);
+    }
+
+    @Test
+    public void progressAfterAStateChangeIsNotDeliveredBeforeIt() {
+        updater.updateState(ID, TransferState.IN_PROGRESS);
+        updater.updateProgress(ID, 100, TOTAL, true);
+        updater.updateState(ID, TransferState.WAITING_FOR_NETWORK);
+        // Reported while the dispatcher and the state change are both still
+        // queued on the main thread.
+        updater.updateProgress(ID, 200, TOTAL, true);
+        idleMainLooper(INTERVAL * 10);
+
+        assertEquals(Arrays.asList("state IN_PROGRESS", "progress 100/1000",
+                "state WAITING_FOR_NETWORK", "progress 200/1000"), listener.events);
+    }
+
+    @Test
+    public void failureDeliversTheLastProgressBeforeTheFinalState() {
+        updater.updateState(ID, TransferState.IN_PROGRESS);
+        updater.updateProgress(ID, 300, TOTAL, true);
+        updater.throwError(ID, new Exception("boom"));
+        updater.updateState(ID, TransferState.FAILED);
+        updater.updateProgress(ID, 400, TOTAL, true);
+        idleMainLooper(INTERVAL * 10);
+
+        final List<String> events = listener.events;
+        assertTrue(events.contains("error boom"));
+        assertEquals(Arrays.asList("progress 300/1000", "state FAILED"),
+                events.subList(events.size() - 2, events.size()));
+    }
+
+    private static void idleMainLooper(long millis) {
+        shadowOf(Looper.getMainLooper()).idleFor(millis, TimeUnit.MILLISECONDS);
+    }
+
+    private static final class RecordingListener implements TransferListener {
+        private final List<String> events = new ArrayList<String>();
+
+        @Override
+        public void onStateChanged(int id, TransferState state) {
+            events.add("state " + state);
+        }
+
+        @Override
+        public void onProgressChanged(int id, long bytesCurrent, long bytesTotal) {
+            events.add("progress " + bytesCurrent + "/" + bytesTotal);
+        }
+
+        @Override
+        public void onError(int id, Exception ex) {
+            events.add("error " + ex.getMessage());
+        }
+    }
+}
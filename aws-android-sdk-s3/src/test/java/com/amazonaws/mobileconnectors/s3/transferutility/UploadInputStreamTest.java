@@ -38,9 +38,11 @@ import java.util.UUID;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -167,6 +169,54 @@ public class UploadInputStreamTest {
         assertFalse(file.exists());
     }
 
+    /**
+     * Test that a streaming upload does not copy the input stream to a temporary File,
+     * and that no spill directory is created unless parts are spilled to disk.
+     * @throws IOException if upload fails to read input stream
+     */
+    @Test
+    public void testStreamingUploadDoesNotStageFile() throws IOException {
+        String key = getRandomString();
+        TransferObserver observer = transferUtility.upload(key, inputStream,
+                UploadOptions.builder().streaming(true).build());
+        verify(transferUtility, never()).upload(
+                anyString(),
+                anyString(),
+                any(File.class),
+                any(ObjectMetadata.class),
+                any(CannedAccessControlList.class),
+                any(TransferListener.class)
+        );
+
+        File spillDirectory = new File(observer.getAbsoluteFilePath());
+        assertTrue(spillDirectory.getName().startsWith(StreamingUploadTask.SPILL_DIRECTORY_PREFIX));
+        assertFalse(spillDirectory.exists());
+    }
+
+    /**
+     * Verify that the spill directory of a streaming upload gets deleted after the
+     * upload is complete.
+     * @throws IOException if upload fails to read input stream
+     */
+    @Test
+    public void testDeleteSpillDirectoryAfterStreamingUpload() throws IOException {
+        final String key = getRandomString();
+        TransferObserver observer = transferUtility.upload(key, inputStream,
+                UploadOptions.builder().streaming(true).spillToDisk(true).build());
+
+        // Verify the directory exists
+        File spillDirectory = new File(observer.getAbsoluteFilePath());
+        assertTrue(spillDirectory.isDirectory());
+
+        // Set state to COMPLETED
+        Context context = InstrumentationRegistry.getInstrumentation().getContext();
+        TransferStatusUpdater transferStatusUpdater = TransferStatusUpdater.getInstance(context);
+        transferStatusUpdater.updateState(observer.getId(), TransferState.COMPLETED);
+
+        // Verify the directory was deleted
+        assertFalse(spillDirectory.exists());
+    }
+
     /**
      * Cleans up input stream
      * @throws IOException if input stream fails to close
@@ -15,6 +15,7 @@
 
 package com.amazonaws.services.s3;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
@@ -31,5 +32,16 @@ public class S3ClientOptionsTest {
         assertTrue(options.isPathStyleAccess());
         assertTrue(options.isContentMd5CheckSkipped());
     }
+
+    @Test
+    public void testStreamingContentMd5() {
+        assertFalse(S3ClientOptions.builder().build().isStreamingContentMd5Enabled());
+
+        S3ClientOptions options = S3ClientOptions.builder()
+                .enableStreamingContentMd5()
+                .build();
+        assertTrue(options.isStreamingContentMd5Enabled());
+        assertTrue(new S3ClientOptions(options).isStreamingContentMd5Enabled());
+    }
 }
 
@@ -0,0 +1,166 @@
+package com.amazonaws.services.s3.internal.crypto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.services.kms.AWSKMSClient;
+import com.amazonaws.services.kms.model.GenerateDataKeyRequest;
+import com.amazonaws.services.kms.model.GenerateDataKeyResult;
+import com.amazonaws.util.BinaryUtils;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+@SuppressWarnings("deprecation")
+public class DataKeyCacheTest {
+
+    private static final long HOUR_MILLIS = 60 * 60 * 1000;
+
+    private AWSKMSClient kms;
+    private byte generated;
+
+    @Before
+    public void setUp() {
+        kms = mock(AWSKMSClient.class);
+        when(kms.generateDataKey(any(GenerateDataKeyRequest.class))).thenAnswer(
+                new Answer<GenerateDataKeyResult>() {
+                    @Override
+                    public GenerateDataKeyResult answer(InvocationOnMock invocation) {
+                        // each key of distinct non-zero bytes
+                        generated++;
+                        final byte[] plaintext = new byte[32];
+                        Arrays.fill(plaintext, generated);
+                        return new GenerateDataKeyResult()
+                                .withKeyId("key")
+                                .withPlaintext(ByteBuffer.wrap(plaintext))
+                                .withCiphertextBlob(ByteBuffer.wrap(new byte[] {
+                                        generated
+                                }));
+                    }
+                });
+    }
+
+    private static GenerateDataKeyRequest request(String context) {
+        return new GenerateDataKeyRequest()
+                .withKeyId("key")
+                .withKeySpec("AES_256")
+                .withEncryptionContext(Collections.singletonMap("context", context));
+    }
+
+    private static byte plaintextOf(GenerateDataKeyResult result) {
+        return BinaryUtils.copyAllBytesFrom(result.getPlaintext())[0];
+    }
+
+    /** @return the plaintext held by each cached key. */
+    private static List<byte[]> cachedPlaintexts(DataKeyCache cache) throws Exception {
+        final Field entriesField = DataKeyCache.class.getDeclaredField("entries");
+        entriesField.setAccessible(true);
+        final List<byte[]> plaintexts = new ArrayList<byte[]>();
+        for (final Object entry : ((Map<?, ?>) entriesField.get(cache)).values()) {
+            final Field plaintextField = entry.getClass().getDeclaredField("plaintext");
+            plaintextField.setAccessible(true);
+            plaintexts.add((byte[]) plaintextField.get(entry));
+        }
+        return plaintexts;
+    }
+
+    private static void assertZeroed(byte[] plaintext) {
+        assertArrayEquals(new byte[plaintext.length], plaintext);
+    }
+
+    @Test
+    public void testKeyIsReusedAsCopies() {
+        final DataKeyCache cache = new DataKeyCache(10, HOUR_MILLIS, 10);
+        final GenerateDataKeyResult first = cache.getDataKey(request("a"), kms);
+        // the caller zeroing its copy leaves the cached key intact
+        first.getPlaintext().put(0, (byte) 0);
+        final GenerateDataKeyResult second = cache.getDataKey(request("a"), kms);
+        assertEquals(1, plaintextOf(second));
+        assertEquals("key", second.getKeyId());
+        assertArrayEquals(new byte[] {
+                1
+        }, BinaryUtils.copyAllBytesFrom(second.getCiphertextBlob()));
+        verify(kms, times(1)).generateDataKey(any(GenerateDataKeyRequest.class));
+    }
+
+    @Test
+    public void testEncryptionContextsHaveTheirOwnKeys() {
+        final DataKeyCache cache = new DataKeyCache(10, HOUR_MILLIS, 10);
+        assertEquals(1, plaintextOf(cache.getDataKey(request("a"), kms)));
+        assertEquals(2, plaintextOf(cache.getDataKey(request("b"), kms)));
+        assertEquals(1, plaintextOf(cache.getDataKey(request("a"), kms)));
+        verify(kms, times(2)).generateDataKey(any(GenerateDataKeyRequest.class));
+    }
+
+    @Test
+    public void testKeyIsReplacedAfterMaxUses() throws Exception {
+        final DataKeyCache cache = new DataKeyCache(10, HOUR_MILLIS, 2);
+        cache.getDataKey(request("a"), kms);
+        final byte[] used = cachedPlaintexts(cache).get(0);
+        cache.getDataKey(request("a"), kms);
+        assertEquals(2, plaintextOf(cache.getDataKey(request("a"), kms)));
+        verify(kms, times(2)).generateDataKey(any(GenerateDataKeyRequest.class));
+        assertZeroed(used);
+    }
+
+    @Test
+    public void testKeyIsReplacedAfterTimeToLive() throws Exception {
+        final DataKeyCache cache = new DataKeyCache(10, 0, 10);
+        cache.getDataKey(request("a"), kms);
+        final byte[] expired = cachedPlaintexts(cache).get(0);
+        assertEquals(2, plaintextOf(cache.getDataKey(request("a"), kms)));
+        verify(kms, times(2)).generateDataKey(any(GenerateDataKeyRequest.class));
+        assertZeroed(expired);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedKeyIsEvicted() throws Exception {
+        final DataKeyCache cache = new DataKeyCache(2, HOUR_MILLIS, 10);
+        cache.getDataKey(request("a"), kms);
+        cache.getDataKey(request("b"), kms);
+        final List<byte[]> plaintexts = cachedPlaintexts(cache);
+        cache.getDataKey(request("a"), kms);
+        cache.getDataKey(request("c"), kms);
+        // "b" was the least recently used
+        assertZeroed(plaintexts.get(1));
+        assertFalse(plaintexts.get(0)[0] == 0);
+
+        assertEquals(1, plaintextOf(cache.getDataKey(request("a"), kms)));
+        verify(kms, times(3)).generateDataKey(any(GenerateDataKeyRequest.class));
+        assertEquals(4, plaintextOf(cache.getDataKey(request("b"), kms)));
+    }
+
+    @Test
+    public void testClearZeroesAllKeys() throws Exception {
+        final DataKeyCache cache = new DataKeyCache(10, HOUR_MILLIS, 10);
+        cache.getDataKey(request("a"), kms);
+        cache.getDataKey(request("b"), kms);
+        final List<byte[]> plaintexts = cachedPlaintexts(cache);
+        cache.clear();
+        for (final byte[] plaintext : plaintexts) {
+            assertZeroed(plaintext);
+        }
+        assertEquals(3, plaintextOf(cache.getDataKey(request("a"), kms)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNonPositiveMaxKeys() {
+        new DataKeyCache(0, HOUR_MILLIS, 10);
+    }
+}
@@ -0,0 +1,189 @@
+package com.amazonaws.services.s3.internal.crypto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.util.Base16;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+public class GHashTest {
+
+    private static final int TAG_LENGTH = 16;
+
+    static CipherLite gcmCipherLite(byte[] key, byte[] iv) throws Exception {
+        final SecretKey secretKey = new SecretKeySpec(key, "AES");
+        final Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(TAG_LENGTH * 8, iv));
+        return new CipherLite(cipher, ContentCryptoScheme.AES_GCM, secretKey,
+                Cipher.ENCRYPT_MODE);
+    }
+
+    /** @return the ciphertext followed by the tag, as encrypted by the JCE. */
+    static byte[] jceEncrypt(byte[] key, byte[] iv, byte[] plaintext) throws Exception {
+        final Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"),
+                new GCMParameterSpec(TAG_LENGTH * 8, iv));
+        return cipher.doFinal(plaintext);
+    }
+
+    private static byte[] tagOf(byte[] key, byte[] iv, byte[] ciphertext) throws Exception {
+        final CipherLite gcm = gcmCipherLite(key, iv);
+        final GHash hash = GHash.forCipher(gcm);
+        hash.update(ciphertext, 0, ciphertext.length);
+        return hash.tag(GHash.tagMaskOf(gcm));
+    }
+
+    private static byte[] random(Random random, int length) {
+        final byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static void assertVector(String key, String iv, String ciphertext, String tag)
+            throws Exception {
+        assertEquals(tag, Base16.encodeAsString(tagOf(Base16.decode(key), Base16.decode(iv),
+                Base16.decode(ciphertext))).toLowerCase());
+    }
+
+    @Test
+    public void testGcmSpecificationVectors() throws Exception {
+        // test cases 1 to 3 of the GCM specification, with no additional data
+        assertVector("00000000000000000000000000000000", "000000000000000000000000", "",
+                "58e2fccefa7e3061367f1d57a4e7455a");
+        assertVector("00000000000000000000000000000000", "000000000000000000000000",
+                "0388dace60b6a392f328c2b971b2fe78",
+                "ab6e47d42cec13bdf53a67b21257bddf");
+        assertVector("feffe9928665731c6d6a8f9467308308", "cafebabefacedbaddecaf888",
+                "42831ec2217774244b7221b784d0d49ce3aa212f2c02a4e035c17e2329aca12e"
+                        + "21d514b25466931c7d8f6a5aac84aa051ba30b396a0aac973d58e091473f5985",
+                "4d5c2af327cd64a62cf35abd2ba6fab4");
+    }
+
+    @Test
+    public void testTagsMatchTheJce() throws Exception {
+        final Random random = new Random(42);
+        for (final int length : new int[] {
+                1, 15, 16, 17, 31, 32, 100, 1000
+        }) {
+            final byte[] key = random(random, 32);
+            final byte[] iv = random(random, 12);
+            final byte[] encrypted = jceEncrypt(key, iv, random(random, length));
+            final byte[] ciphertext = Arrays.copyOf(encrypted, length);
+            assertArrayEquals("length " + length,
+                    Arrays.copyOfRange(encrypted, length, encrypted.length),
+                    tagOf(key, iv, ciphertext));
+        }
+    }
+
+    @Test
+    public void testUpdatesInPiecesHashAsOne() throws Exception {
+        final Random random = new Random(7);
+        final byte[] key = random(random, 16);
+        final byte[] iv = random(random, 12);
+        final byte[] ciphertext = random(random, 123);
+        final CipherLite gcm = gcmCipherLite(key, iv);
+
+        final GHash hash = GHash.forCipher(gcm);
+        for (int pos = 0, n = 1; pos < ciphertext.length; pos += n, n = n * 2 + 1) {
+            hash.update(ciphertext, pos, Math.min(n, ciphertext.length - pos));
+        }
+        assertEquals(ciphertext.length, hash.getByteCount());
+        assertArrayEquals(tagOf(key, iv, ciphertext), hash.tag(GHash.tagMaskOf(gcm)));
+    }
+
+    @Test
+    public void testAppendAcrossParts() throws Exception {
+        final Random random = new Random(3);
+        final byte[] key = random(random, 32);
+        final byte[] iv = random(random, 12);
+        final int partSize = 48;
+        final byte[] plaintext = random(random, 3 * partSize + 21);
+        final byte[] encrypted = jceEncrypt(key, iv, plaintext);
+        final CipherLite gcm = gcmCipherLite(key, iv);
+        final GHash prototype = GHash.forCipher(gcm);
+
+        // each part but the last hashed on its own, then appended in order
+        final GHash whole = new GHash(prototype);
+        for (int offset = 0; offset < 3 * partSize; offset += partSize) {
+            final GHash part = new GHash(prototype);
+            part.update(encrypted, offset, partSize);
+            whole.append(part.getHigh(), part.getLow(), partSize);
+        }
+        assertEquals(3 * partSize, whole.getByteCount());
+
+        // the last part, hashed on its own and padded, appended as well
+        final GHash last = new GHash(prototype);
+        last.update(encrypted, 3 * partSize, 21);
+        last.pad();
+        final GHash appended = new GHash(whole);
+        appended.append(last.getHigh(), last.getLow(), 21);
+
+        // or hashed after the others
+        whole.update(encrypted, 3 * partSize, 21);
+
+        final byte[] tag = Arrays.copyOfRange(encrypted, plaintext.length, encrypted.length);
+        assertArrayEquals(tag, whole.tag(GHash.tagMaskOf(gcm)));
+        assertArrayEquals(tag, appended.tag(GHash.tagMaskOf(gcm)));
+    }
+
+    @Test
+    public void testCopiesAreIndependent() throws Exception {
+        final CipherLite gcm = gcmCipherLite(new byte[16], new byte[12]);
+        final GHash hash = GHash.forCipher(gcm);
+        final GHash copy = new GHash(hash);
+        copy.update(new byte[20], 0, 20);
+        assertEquals(0, hash.getByteCount());
+
+        hash.set(copy);
+        assertEquals(20, hash.getByteCount());
+        assertArrayEquals(copy.tag(GHash.tagMaskOf(gcm)), hash.tag(GHash.tagMaskOf(gcm)));
+    }
+
+    @Test
+    public void testOnlyWholeBlocksCanBeAppendedTo() throws Exception {
+        final GHash hash = GHash.forCipher(gcmCipherLite(new byte[16], new byte[12]));
+        hash.update(new byte[5], 0, 5);
+        try {
+            hash.append(0, 0, 16);
+            fail("expected the partial block to be rejected");
+        } catch (final IllegalStateException e) {
+            // expected
+        }
+        // padding does not make the ciphertext whole blocks
+        hash.pad();
+        try {
+            hash.append(0, 0, 16);
+            fail("expected the partial block to be rejected");
+        } catch (final IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRequiresTwelveByteIV() throws Exception {
+        final CipherLite gcm = gcmCipherLite(new byte[16], new byte[16]);
+        try {
+            GHash.forCipher(gcm);
+            fail("expected the IV to be rejected");
+        } catch (final AmazonClientException e) {
+            // expected
+        }
+        try {
+            GHash.tagMaskOf(gcm);
+            fail("expected the IV to be rejected");
+        } catch (final AmazonClientException e) {
+            // expected
+        }
+    }
+}
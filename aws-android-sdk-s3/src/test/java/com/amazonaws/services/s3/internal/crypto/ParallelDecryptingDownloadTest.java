@@ -0,0 +1,408 @@
+package com.amazonaws.services.s3.internal.crypto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.internal.S3Direct;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.CopyPartRequest;
+import com.amazonaws.services.s3.model.CopyPartResult;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+@SuppressWarnings("deprecation")
+public class ParallelDecryptingDownloadTest {
+
+    private static final int RANGE_SIZE = 32;
+    private static final int TAG_LENGTH = 16;
+    private static final String BUCKET = "bucket";
+    private static final String KEY = "key";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Random random = new Random(5);
+    private byte[] key;
+    private byte[] iv;
+    private FakeS3 s3;
+    private File destination;
+
+    @Before
+    public void setUp() throws Exception {
+        key = new byte[32];
+        iv = new byte[12];
+        random.nextBytes(key);
+        random.nextBytes(iv);
+        s3 = new FakeS3();
+        destination = new File(folder.getRoot(), "object");
+    }
+
+    private byte[] plaintext(int length) {
+        final byte[] plaintext = new byte[length];
+        random.nextBytes(plaintext);
+        return plaintext;
+    }
+
+    /** Stores the AES/GCM encryption of the plaintext as the object. */
+    private void putEncrypted(byte[] plaintext) throws Exception {
+        s3.content = GHashTest.jceEncrypt(key, iv, plaintext);
+    }
+
+    private CipherLite decryptingCipherLite() throws Exception {
+        final SecretKey secretKey = new SecretKeySpec(key, "AES");
+        final Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, secretKey, new GCMParameterSpec(TAG_LENGTH * 8, iv));
+        return new CipherLite(cipher, ContentCryptoScheme.AES_GCM, secretKey,
+                Cipher.DECRYPT_MODE);
+    }
+
+    /** Downloads as the crypto module does, getting the first range first. */
+    private ObjectMetadata download(GetObjectRequest req, int threads) throws Exception {
+        final long start = ParallelDecryptingDownload.firstByteToGet(req);
+        final long[] range = req.getRange();
+        final GetObjectRequest firstReq = (GetObjectRequest) req.clone();
+        firstReq.setRange(start, range == null
+                ? start + RANGE_SIZE - 1
+                : Math.min(start + RANGE_SIZE - 1, range[1]));
+        final S3Object first = s3.getObject(firstReq);
+        return new ParallelDecryptingDownload(s3, req, decryptingCipherLite(), RANGE_SIZE,
+                threads).download(first, destination);
+    }
+
+    private List<long[]> requestedRanges() {
+        final List<long[]> ranges = new ArrayList<long[]>();
+        for (final GetObjectRequest req : s3.requests) {
+            ranges.add(req.getRange());
+        }
+        Collections.sort(ranges, new Comparator<long[]>() {
+            @Override
+            public int compare(long[] a, long[] b) {
+                return a[0] < b[0] ? -1 : (a[0] == b[0] ? 0 : 1);
+            }
+        });
+        return ranges;
+    }
+
+    private void assertRanges(long... bounds) {
+        final List<long[]> ranges = requestedRanges();
+        assertEquals(bounds.length / 2, ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            assertArrayEquals(new long[] {
+                    bounds[2 * i], bounds[2 * i + 1]
+            }, ranges.get(i));
+        }
+    }
+
+    private void assertNoFiles() {
+        assertFalse(destination.exists());
+        assertEquals(0, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void testObjectIsSplitIntoRanges() throws Exception {
+        final byte[] plaintext = plaintext(100);
+        putEncrypted(plaintext);
+        final ObjectMetadata metadata = download(new GetObjectRequest(BUCKET, KEY), 2);
+
+        assertArrayEquals(plaintext, FileUtils.readFileToByteArray(destination));
+        assertEquals(100 + TAG_LENGTH, metadata.getContentLength());
+        assertRanges(0, 31, 32, 63, 64, 95, 96, 115);
+        assertEquals(1, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void testEveryLengthDecrypts() throws Exception {
+        for (int length = 0; length <= 4 * RANGE_SIZE + 1; length++) {
+            final byte[] plaintext = plaintext(length);
+            putEncrypted(plaintext);
+            download(new GetObjectRequest(BUCKET, KEY), 1 + length % 3);
+            assertArrayEquals("length " + length, plaintext,
+                    FileUtils.readFileToByteArray(destination));
+        }
+    }
+
+    @Test
+    public void testTagStraddlingTwoRanges() throws Exception {
+        final byte[] plaintext = plaintext(90);
+        putEncrypted(plaintext);
+        download(new GetObjectRequest(BUCKET, KEY), 3);
+
+        assertArrayEquals(plaintext, FileUtils.readFileToByteArray(destination));
+        // the tag is bytes 90 to 105
+        assertRanges(0, 31, 32, 63, 64, 95, 96, 105);
+    }
+
+    @Test
+    public void testRangeOfTheTagOnly() throws Exception {
+        final byte[] plaintext = plaintext(96);
+        putEncrypted(plaintext);
+        download(new GetObjectRequest(BUCKET, KEY), 3);
+
+        assertArrayEquals(plaintext, FileUtils.readFileToByteArray(destination));
+        assertRanges(0, 31, 32, 63, 64, 95, 96, 111);
+    }
+
+    @Test
+    public void testRequestedRangeSkipsStartOfFirstBlock() throws Exception {
+        final byte[] plaintext = plaintext(100);
+        putEncrypted(plaintext);
+        final GetObjectRequest req = new GetObjectRequest(BUCKET, KEY);
+        req.setRange(37, 70);
+        download(req, 2);
+
+        assertArrayEquals(Arrays.copyOfRange(plaintext, 37, 71),
+                FileUtils.readFileToByteArray(destination));
+        // from the start of the cipher block of byte 37
+        assertRanges(32, 63, 64, 70);
+    }
+
+    @Test
+    public void testRequestedRangeStopsBeforeTheTag() throws Exception {
+        final byte[] plaintext = plaintext(100);
+        putEncrypted(plaintext);
+        final GetObjectRequest req = new GetObjectRequest(BUCKET, KEY);
+        req.setRange(5, 1000);
+        download(req, 2);
+
+        assertArrayEquals(Arrays.copyOfRange(plaintext, 5, 100),
+                FileUtils.readFileToByteArray(destination));
+    }
+
+    @Test
+    public void testTagMismatchDeletesTheDownload() throws Exception {
+        putEncrypted(plaintext(100));
+        s3.content[40] ^= 1;
+        try {
+            download(new GetObjectRequest(BUCKET, KEY), 2);
+            fail("expected the tag mismatch");
+        } catch (final SecurityException e) {
+            // expected
+        }
+        assertNoFiles();
+    }
+
+    @Test
+    public void testTagMismatchKeepsTheDestination() throws Exception {
+        final byte[] previous = plaintext(10);
+        FileUtils.writeByteArrayToFile(destination, previous);
+        putEncrypted(plaintext(100));
+        // a byte of the tag
+        s3.content[s3.content.length - 1] ^= 1;
+        try {
+            download(new GetObjectRequest(BUCKET, KEY), 2);
+            fail("expected the tag mismatch");
+        } catch (final SecurityException e) {
+            // expected
+        }
+        // the unauthenticated plaintext never reaches the destination
+        assertArrayEquals(previous, FileUtils.readFileToByteArray(destination));
+        assertEquals(1, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void testDownloadReplacesTheDestination() throws Exception {
+        FileUtils.writeByteArrayToFile(destination, plaintext(200));
+        final byte[] plaintext = plaintext(50);
+        putEncrypted(plaintext);
+        download(new GetObjectRequest(BUCKET, KEY), 2);
+        assertArrayEquals(plaintext, FileUtils.readFileToByteArray(destination));
+        assertEquals(1, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void testDownloadKeepsAFileNamedLikeATemporaryFile() throws Exception {
+        final File userFile = new File(folder.getRoot(), destination.getName() + ".tmp");
+        final byte[] userContent = plaintext(20);
+        FileUtils.writeByteArrayToFile(userFile, userContent);
+        final byte[] plaintext = plaintext(50);
+        putEncrypted(plaintext);
+        download(new GetObjectRequest(BUCKET, KEY), 2);
+        assertArrayEquals(plaintext, FileUtils.readFileToByteArray(destination));
+        assertArrayEquals(userContent, FileUtils.readFileToByteArray(userFile));
+        assertEquals(2, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void testReplaceMovesTheOriginalAside() throws Exception {
+        FileUtils.writeByteArrayToFile(destination, plaintext(20));
+        final byte[] downloaded = plaintext(30);
+        // fails to rename over the destination, as on some platforms
+        final File temp = new FailingRenameFile(folder.newFile("download"), 1);
+        FileUtils.writeByteArrayToFile(temp, downloaded);
+        ParallelDecryptingDownload.replace(temp, destination);
+        assertArrayEquals(downloaded, FileUtils.readFileToByteArray(destination));
+        assertEquals(1, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void testReplaceRestoresTheOriginalOnFailure() throws Exception {
+        final byte[] previous = plaintext(20);
+        FileUtils.writeByteArrayToFile(destination, previous);
+        final File temp = new FailingRenameFile(folder.newFile("download"), 2);
+        try {
+            ParallelDecryptingDownload.replace(temp, destination);
+            fail("expected the rename to fail");
+        } catch (final IOException e) {
+            // expected
+        }
+        assertArrayEquals(previous, FileUtils.readFileToByteArray(destination));
+        // the download is left for the caller to delete
+        assertEquals(2, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void testRangesArePinnedToTheETagOfTheFirst() throws Exception {
+        final byte[] plaintext = plaintext(100);
+        putEncrypted(plaintext);
+        download(new GetObjectRequest(BUCKET, KEY), 2);
+        for (final GetObjectRequest req : s3.requests) {
+            if (req.getRange()[0] > 0) {
+                assertEquals(Arrays.asList(s3.eTag), req.getMatchingETagConstraints());
+            }
+        }
+
+        // the object replaced after the first range
+        s3.requests.clear();
+        s3.replaceAfterFirstRequest = true;
+        try {
+            download(new GetObjectRequest(BUCKET, KEY), 2);
+            fail("expected the modification to be detected");
+        } catch (final AmazonClientException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("modified"));
+        }
+        // the previous download is left as is
+        assertArrayEquals(plaintext, FileUtils.readFileToByteArray(destination));
+        assertEquals(1, folder.getRoot().list().length);
+    }
+
+    /**
+     * Serves ranges of an object, as S3 does with a ranged GET, failing the
+     * matching ETag constraints of requests once the object is replaced.
+     */
+    /** A file whose first renames fail. */
+    @SuppressWarnings("serial")
+    private static final class FailingRenameFile extends File {
+        private int failures;
+
+        FailingRenameFile(File file, int failures) {
+            super(file.getPath());
+            this.failures = failures;
+        }
+
+        @Override
+        public boolean renameTo(File dest) {
+            if (failures > 0) {
+                failures--;
+                return false;
+            }
+            return super.renameTo(dest);
+        }
+    }
+
+    private static final class FakeS3 extends S3Direct {
+        private final List<GetObjectRequest> requests =
+                Collections.synchronizedList(new ArrayList<GetObjectRequest>());
+        private volatile byte[] content;
+        private volatile String eTag = "etag-1";
+        private volatile boolean replaceAfterFirstRequest;
+
+        @Override
+        public S3Object getObject(GetObjectRequest req) {
+            requests.add(req);
+            final List<String> eTags = req.getMatchingETagConstraints();
+            if (eTags != null && !eTags.isEmpty() && !eTags.contains(eTag)) {
+                return null;
+            }
+            final long[] range = req.getRange();
+            final int start = (int) range[0];
+            final int end = (int) Math.min(range[1], content.length - 1);
+            final ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setHeader(Headers.CONTENT_RANGE,
+                    "bytes " + start + "-" + end + "/" + content.length);
+            metadata.setHeader(Headers.ETAG, eTag);
+            metadata.setContentLength(end - start + 1);
+            final S3Object retrieved = new S3Object();
+            retrieved.setBucketName(req.getBucketName());
+            retrieved.setKey(req.getKey());
+            retrieved.setObjectMetadata(metadata);
+            retrieved.setObjectContent(new ByteArrayInputStream(content, start, end - start + 1));
+            if (replaceAfterFirstRequest) {
+                replaceAfterFirstRequest = false;
+                eTag = "etag-2";
+            }
+            return retrieved;
+        }
+
+        @Override
+        public PutObjectResult putObject(PutObjectRequest req) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ObjectMetadata getObject(GetObjectRequest req, File dest) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompleteMultipartUploadResult completeMultipartUpload(
+                CompleteMultipartUploadRequest req) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public InitiateMultipartUploadResult initiateMultipartUpload(
+                InitiateMultipartUploadRequest req) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public UploadPartResult uploadPart(UploadPartRequest req) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CopyPartResult copyPart(CopyPartRequest req) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void abortMultipartUpload(AbortMultipartUploadRequest req) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.amazonaws.services.s3.internal.crypto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.AmazonClientException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+
+public class ParallelPartInputStreamTest {
+
+    private static final int PART_SIZE = 64;
+    private static final int LAST_PART_SIZE = 40;
+
+    private byte[] key;
+    private byte[] iv;
+    private byte[] plaintext;
+    private ParallelMultipartUploadCryptoContext context;
+
+    @Before
+    public void setUp() throws Exception {
+        final Random random = new Random(11);
+        key = new byte[32];
+        iv = new byte[12];
+        plaintext = new byte[2 * PART_SIZE + LAST_PART_SIZE];
+        random.nextBytes(key);
+        random.nextBytes(iv);
+        random.nextBytes(plaintext);
+        context = new ParallelMultipartUploadCryptoContext("bucket", "key",
+                new ContentCryptoMaterial(new HashMap<String, String>(), new byte[0], null,
+                        GHashTest.gcmCipherLite(key, iv)));
+    }
+
+    private ParallelPartInputStream part(int partNumber) {
+        final boolean isLastPart = partNumber == 3;
+        final int offset = (partNumber - 1) * PART_SIZE;
+        final int size = isLastPart ? LAST_PART_SIZE : PART_SIZE;
+        final CipherLite cipherLite = context.cipherLiteForPart(partNumber, size, isLastPart);
+        final InputStream is = new ByteArrayInputStream(plaintext, offset, size);
+        return new ParallelPartInputStream(
+                new RenewableCipherLiteInputStream(is, cipherLite, 512, true, isLastPart),
+                context, partNumber, isLastPart);
+    }
+
+    private static byte[] readFully(InputStream in, int chunkSize) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[chunkSize];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private byte[] jceEncrypted() throws Exception {
+        return GHashTest.jceEncrypt(key, iv, plaintext);
+    }
+
+    private static byte[] concat(byte[]... arrays) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (final byte[] a : arrays) {
+            out.write(a, 0, a.length);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testPartsMatchTheJceEncryption() throws Exception {
+        // parts but the last in any order
+        final byte[] second = readFully(part(2), 7);
+        final byte[] first = readFully(part(1), 64);
+        final byte[] last = readFully(part(3), 5);
+        assertEquals(LAST_PART_SIZE + 16, last.length);
+        assertArrayEquals(jceEncrypted(), concat(first, second, last));
+    }
+
+    @Test
+    public void testResetReadsTheSamePartAgain() throws Exception {
+        final ParallelPartInputStream first = part(1);
+        assertTrue(first.markSupported());
+        first.mark(PART_SIZE);
+        first.read(new byte[10]);
+        first.reset();
+        final byte[] firstBytes = readFully(first, 16);
+
+        // reset after the end of a part reads it whole again
+        final ParallelPartInputStream second = part(2);
+        second.mark(PART_SIZE);
+        final byte[] secondBytes = readFully(second, 16);
+        second.reset();
+        assertArrayEquals(secondBytes, readFully(second, 9));
+
+        final ParallelPartInputStream last = part(3);
+        last.mark(LAST_PART_SIZE);
+        final byte[] lastBytes = readFully(last, 3);
+        last.reset();
+        assertArrayEquals(lastBytes, readFully(last, 1));
+        assertArrayEquals(jceEncrypted(), concat(firstBytes, secondBytes, lastBytes));
+    }
+
+    @Test
+    public void testResetWithinTheTag() throws Exception {
+        readFully(part(1), 64);
+        readFully(part(2), 64);
+        final ParallelPartInputStream last = part(3);
+        last.mark(LAST_PART_SIZE);
+        final byte[] partial = new byte[LAST_PART_SIZE + 4];
+        int read = 0;
+        while (read < partial.length) {
+            read += last.read(partial, read, partial.length - read);
+        }
+        last.reset();
+        final byte[] encrypted = jceEncrypted();
+        assertArrayEquals(Arrays.copyOfRange(encrypted, 2 * PART_SIZE, encrypted.length),
+                readFully(last, 13));
+    }
+
+    @Test
+    public void testSkipStillHashes() throws Exception {
+        readFully(part(1), 64);
+        final ParallelPartInputStream second = part(2);
+        assertEquals(PART_SIZE, second.skip(PART_SIZE + 1));
+        assertEquals(-1, second.read());
+        final byte[] last = readFully(part(3), 64);
+        final byte[] encrypted = jceEncrypted();
+        assertArrayEquals(Arrays.copyOfRange(encrypted, 2 * PART_SIZE, encrypted.length), last);
+    }
+
+    @Test
+    public void testLastPartRequiresAllOthers() throws Exception {
+        readFully(part(1), 64);
+        try {
+            part(3);
+            fail("expected the missing part 2 to be reported");
+        } catch (final AmazonClientException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("part 2 is missing"));
+        }
+    }
+
+    @Test
+    public void testPartsMustBeOfTheSameSize() throws Exception {
+        context.cipherLiteForPart(1, PART_SIZE, false);
+        try {
+            context.cipherLiteForPart(2, PART_SIZE + 16, false);
+            fail("expected the size to be rejected");
+        } catch (final AmazonClientException e) {
+            // expected
+        }
+    }
+}